@@ -27,6 +27,13 @@ public class Pack {
         this.buf = allocator.ioBuffer(initialSize);
     }
 
+    /**
+     * 直接写入指定的ByteBuf（如MessageToByteEncoder的出站buffer），buffer的生命周期由调用方负责
+     */
+    public Pack(ByteBuf buf) {
+        this.buf = buf;
+    }
+
     public int size() {
         return buf.readableBytes();
     }
@@ -165,4 +172,8 @@ public class Pack {
         buf.writeByte((byte) (value & 0x7F));
     }
 
+    public void putVarUlong(long value) {
+        Varint.writeLong(value, buf);
+    }
+
 }
@@ -0,0 +1,101 @@
+package com.netease.nim.camellia.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * 带类型的记录编码，用于替代Props（Props的数值会先转成字符串，且每条记录都要创建HashMap）
+ * 1）每个字段编码为：varint(tag &lt;&lt; 3 | wireType) + 值，记录以一个0字节结尾，因此tag需要从1开始
+ * 2）数值字段使用varint（有符号数可以使用zigzag）或者定长编码，不再转成字符串
+ * 3）字符串直接以utf8写入ByteBuf，不产生中间的byte[]
+ * 4）解码使用TypedRecordReader，未知的tag按照wireType跳过，因此新增字段不影响老版本解码
+ * 5）和Props的编码不兼容，需要通信双方协商（VERSION）之后才能使用
+ * Created by agent on 2026/10/18
+ */
+public final class TypedRecord {
+
+    /**
+     * 编码版本号，用于和对端协商，0表示只支持Props
+     */
+    public static final int VERSION = 1;
+
+    public static final int END = 0;
+
+    public static final int WIRE_VARINT = 0;
+    public static final int WIRE_FIXED64 = 1;
+    public static final int WIRE_BYTES = 2;
+    public static final int WIRE_FIXED32 = 5;
+
+    private TypedRecord() {
+    }
+
+    /**
+     * 写入非负整数，负数会占用10个字节，此时请使用writeSint
+     */
+    public static void writeVarint(Pack pack, int tag, long value) {
+        writeKey(pack, tag, WIRE_VARINT);
+        pack.putVarUlong(value);
+    }
+
+    /**
+     * 写入有符号整数（zigzag编码）
+     */
+    public static void writeSint(Pack pack, int tag, long value) {
+        writeKey(pack, tag, WIRE_VARINT);
+        pack.putVarUlong(Varint.zigzagEncode(value));
+    }
+
+    public static void writeFixed32(Pack pack, int tag, int value) {
+        writeKey(pack, tag, WIRE_FIXED32);
+        pack.putInt(value);
+    }
+
+    public static void writeFixed64(Pack pack, int tag, long value) {
+        writeKey(pack, tag, WIRE_FIXED64);
+        pack.putLong(value);
+    }
+
+    public static void writeBoolean(Pack pack, int tag, boolean value) {
+        writeVarint(pack, tag, value ? 1 : 0);
+    }
+
+    /**
+     * 写入字符串，null会被忽略（解码时字段不存在）
+     */
+    public static void writeString(Pack pack, int tag, String value) {
+        if (value == null) return;
+        writeKey(pack, tag, WIRE_BYTES);
+        int len = ByteBufUtil.utf8Bytes(value);
+        if (len > Unpack.VAR_STR_LEN_MAX) {
+            throw new PackException("string too long");
+        }
+        pack.ensureCapacity(Varint.getVarLen(len) + len);
+        ByteBuf buf = pack.getBuffer();
+        Varint.writeInt(len, buf);
+        ByteBufUtil.writeUtf8(buf, value);
+    }
+
+    /**
+     * 写入二进制，null会被忽略（解码时字段不存在）
+     */
+    public static void writeBytes(Pack pack, int tag, byte[] value) {
+        if (value == null) return;
+        writeKey(pack, tag, WIRE_BYTES);
+        pack.putVarbin(value);
+    }
+
+    /**
+     * 记录结束
+     */
+    public static void writeEnd(Pack pack) {
+        pack.putByte((byte) END);
+    }
+
+    private static void writeKey(Pack pack, int tag, int wireType) {
+        if (tag <= 0) {
+            throw new PackException("illegal tag " + tag);
+        }
+        pack.ensureCapacity(10 + 5);
+        pack.putVarUint((tag << 3) | wireType);
+    }
+}
@@ -0,0 +1,126 @@
+package com.netease.nim.camellia.codec;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TypedRecord的解码器，可以复用，用法：
+ * <pre>
+ * TypedRecordReader reader = new TypedRecordReader(unpack);
+ * int tag;
+ * while ((tag = reader.nextTag()) != TypedRecord.END) {
+ *     switch (tag) {
+ *         case 1: name = reader.readString(); break;
+ *         case 2: count = reader.readVarint(); break;
+ *         default: reader.skip(); break;
+ *     }
+ * }
+ * </pre>
+ * Created by agent on 2026/10/18
+ */
+public final class TypedRecordReader {
+
+    private final Unpack unpack;
+    private int wireType = -1;
+
+    public TypedRecordReader(Unpack unpack) {
+        this.unpack = unpack;
+    }
+
+    /**
+     * 读取下一个字段的tag
+     * @return tag，记录结束时返回TypedRecord.END
+     */
+    public int nextTag() {
+        int key = unpack.popVarUint();
+        if (key == TypedRecord.END) {
+            wireType = -1;
+            return TypedRecord.END;
+        }
+        wireType = key & 0x7;
+        return key >>> 3;
+    }
+
+    public long readVarint() {
+        check(TypedRecord.WIRE_VARINT);
+        return unpack.popVarUlong();
+    }
+
+    public long readSint() {
+        check(TypedRecord.WIRE_VARINT);
+        return Varint.zigzagDecode(unpack.popVarUlong());
+    }
+
+    public int readFixed32() {
+        check(TypedRecord.WIRE_FIXED32);
+        return unpack.popInt();
+    }
+
+    public long readFixed64() {
+        check(TypedRecord.WIRE_FIXED64);
+        return unpack.popLong();
+    }
+
+    public boolean readBoolean() {
+        return readVarint() != 0;
+    }
+
+    public String readString() {
+        check(TypedRecord.WIRE_BYTES);
+        int len = readLength();
+        try {
+            return unpack.buffer().readCharSequence(len, StandardCharsets.UTF_8).toString();
+        } catch (IndexOutOfBoundsException ex) {
+            throw new UnpackException(ex);
+        }
+    }
+
+    public byte[] readBytes() {
+        check(TypedRecord.WIRE_BYTES);
+        return unpack.popFetch(readLength());
+    }
+
+    /**
+     * 跳过当前字段（未知的tag）
+     */
+    public void skip() {
+        try {
+            ByteBuf buf = unpack.buffer();
+            switch (wireType) {
+                case TypedRecord.WIRE_VARINT:
+                    unpack.popVarUlong();
+                    break;
+                case TypedRecord.WIRE_FIXED64:
+                    buf.skipBytes(8);
+                    break;
+                case TypedRecord.WIRE_FIXED32:
+                    buf.skipBytes(4);
+                    break;
+                case TypedRecord.WIRE_BYTES:
+                    buf.skipBytes(readLength());
+                    break;
+                default:
+                    throw new UnpackException("unknown wire type " + wireType);
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new UnpackException(ex);
+        }
+        wireType = -1;
+    }
+
+    private int readLength() {
+        int len = unpack.popVarUint();
+        if (len < 0 || len > Unpack.VAR_STR_LEN_MAX) {
+            throw new UnpackException("illegal length " + len);
+        }
+        return len;
+    }
+
+    private void check(int expect) {
+        if (wireType != expect) {
+            throw new UnpackException("wire type mismatch, expect = " + expect + ", actual = " + wireType);
+        }
+        wireType = -1;
+    }
+}
@@ -24,6 +24,17 @@ public class Unpack {
         buffer = Unpooled.wrappedBuffer(bytes, 0, bytes.length);
     }
 
+    private Unpack(ByteBuf bb, boolean wrap) {
+        buffer = bb;
+    }
+
+    /**
+     * 直接在ByteBuf上解码，不拷贝，buffer的生命周期由调用方负责，解码结果不能引用buffer（如getBuffer）
+     */
+    public static Unpack wrap(ByteBuf bb) {
+        return new Unpack(bb, true);
+    }
+
     public int GetSize() {
         return buffer.readableBytes();
     }
@@ -135,4 +146,16 @@ public class Unpack {
         return value | (b << i);
     }
 
+    public long popVarUlong() {
+        try {
+            return Varint.readLong(buffer);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new UnpackException(ex);
+        }
+    }
+
+    ByteBuf buffer() {
+        return buffer;
+    }
+
 }
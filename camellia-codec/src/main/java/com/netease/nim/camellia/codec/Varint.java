@@ -87,6 +87,36 @@ public class Varint {
 
     }
 
+    public static void writeLong(long value, ByteBuf cb) {
+        while ((value & 0xFFFFFFFFFFFFFF80L) != 0L) {
+            cb.writeByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        cb.writeByte((byte) (value & 0x7F));
+    }
+
+    public static long readLong(ByteBuf cb) {
+        long value = 0;
+        int i = 0;
+        long b;
+        while (((b = cb.readByte()) & 0x80) != 0) {
+            value |= (b & 0x7F) << i;
+            i += 7;
+            if (i > 63) {
+                throw new IllegalArgumentException("Variable length quantity is too long");
+            }
+        }
+        return value | (b << i);
+    }
+
+    public static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     public static int getVarLen(int value) {
         int i = 1;
         while ((value & 0xFFFFFF80) != 0L) {
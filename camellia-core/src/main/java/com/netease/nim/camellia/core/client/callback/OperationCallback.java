@@ -8,6 +8,8 @@ import com.netease.nim.camellia.core.model.operation.ResourceOperation;
 import com.netease.nim.camellia.core.model.operation.ResourceReadOperation;
 import com.netease.nim.camellia.core.model.operation.ResourceWriteOperation;
 import com.netease.nim.camellia.core.util.CheckUtil;
+import com.netease.nim.camellia.core.util.MethodInvoker;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
 import com.netease.nim.camellia.tools.utils.ExceptionUtils;
 import com.netease.nim.camellia.core.util.ReadWriteOperationCache;
 import net.sf.cglib.proxy.MethodInterceptor;
@@ -32,6 +34,7 @@ public class OperationCallback<T> implements MethodInterceptor {
     private final String className;
     private ProxyEnv env = ProxyEnv.defaultProxyEnv();
     private final ReadWriteOperationCache readWriteOperationCache = new ReadWriteOperationCache();
+    private final ConcurrentHashMap<Method, MethodPlan> planMap = new ConcurrentHashMap<>();
 
     public OperationCallback(ResourceOperation resourceOperation, Map<Resource, T> clientMap, Class<T> clazz, ProxyEnv env) {
         if (resourceOperation == null) {
@@ -44,7 +47,9 @@ public class OperationCallback<T> implements MethodInterceptor {
             throw new IllegalArgumentException("resourceOperation check fail");
         }
         check(resourceOperation, clientMap);
-        readWriteOperationCache.preheat(clazz);
+        for (Method method : clazz.getMethods()) {
+            planMap.put(method, new MethodPlan(method));
+        }
         this.resourceOperation = resourceOperation;
         this.clientMap = clientMap;
         this.className = clazz.getName();
@@ -56,12 +61,13 @@ public class OperationCallback<T> implements MethodInterceptor {
     @Override
     public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
         try {
-            byte operationType = readWriteOperationCache.getOperationType(method);
+            MethodPlan plan = CamelliaMapUtils.computeIfAbsent(planMap, method, MethodPlan::new);
+            byte operationType = plan.operationType;
             if (operationType == ReadWriteOperationCache.WRITE) {
-                return write(objects, method);
+                return write(objects, plan);
             }
             if (operationType == ReadWriteOperationCache.READ) {
-                return read(objects, method);
+                return read(objects, plan);
             }
             return methodProxy.invokeSuper(o, objects);
         } catch (Throwable e) {
@@ -69,29 +75,29 @@ public class OperationCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Object write(final Object[] objects, final Method method) throws Throwable {
+    private Object write(final Object[] objects, final MethodPlan plan) throws Throwable {
         ResourceOperation.Type type = resourceOperation.getType();
         switch (type) {
             case SIMPLE:
                 Resource resource1 = resourceOperation.getResource();
                 T client = clientMap.get(resource1);
-                incrWrite(resource1, method);
-                return method.invoke(client, objects);
+                incrWrite(resource1, plan);
+                return plan.invoker.invoke(client, objects);
             case RW_SEPARATE:
                 ResourceWriteOperation writeOperation = resourceOperation.getWriteOperation();
                 switch (writeOperation.getType()) {
                     case SIMPLE:
                         Resource resource2 = writeOperation.getWriteResource();
                         T client1 = clientMap.get(resource2);
-                        incrWrite(resource2, method);
-                        return method.invoke(client1, objects);
+                        incrWrite(resource2, plan);
+                        return plan.invoker.invoke(client1, objects);
                     case MULTI:
                         List<Resource> writeResources = writeOperation.getWriteResources();
                         if (writeResources.size() == 1) {
                             Resource resource3 = writeResources.get(0);
                             T client2 = clientMap.get(resource3);
-                            incrWrite(resource3, method);
-                            return method.invoke(client2, objects);
+                            incrWrite(resource3, plan);
+                            return plan.invoker.invoke(client2, objects);
                         }
                         MultiWriteType multiWriteType = env.getMultiWriteType();
                         if (multiWriteType == MultiWriteType.MULTI_THREAD_CONCURRENT) {
@@ -101,12 +107,12 @@ public class OperationCallback<T> implements MethodInterceptor {
                                 final T client2 = clientMap.get(resource);
                                 Future<Object> future = env.getMultiWriteConcurrentExec().submit(strategy.wrapperCallable(() -> {
                                     try {
-                                        incrWrite(resource, method);
-                                        return method.invoke(client2, objects);
-                                    } catch (Exception e) {
+                                        incrWrite(resource, plan);
+                                        return plan.invoker.invoke(client2, objects);
+                                    } catch (Throwable e) {
                                         logger.error("multi thread concurrent invoke error, class = {}, method = {}, resource = {}",
-                                                className, method.getName(), resource.getUrl(), e);
-                                        throw e;
+                                                className, plan.methodName, resource.getUrl(), e);
+                                        throw new ExecutionException(e);
                                     }
                                 }));
                                 futureList.add(future);
@@ -126,8 +132,8 @@ public class OperationCallback<T> implements MethodInterceptor {
                             for (int i=0; i<writeOperation.getWriteResources().size(); i++) {
                                 Resource resource = writeOperation.getWriteResources().get(i);
                                 T client2 = clientMap.get(resource);
-                                incrWrite(resource, method);
-                                Object obj = method.invoke(client2, objects);
+                                incrWrite(resource, plan);
+                                Object obj = plan.invoker.invoke(client2, objects);
                                 boolean first = i == 0;
                                 if (first) {
                                     ret = obj;
@@ -145,18 +151,18 @@ public class OperationCallback<T> implements MethodInterceptor {
                                 try {
                                     future = env.getMultiWriteAsyncExec().submit(String.valueOf(Thread.currentThread().getId()), strategy.wrapperCallable(() -> {
                                         try {
-                                            incrWrite(resource, method);
-                                            return method.invoke(client2, objects);
-                                        } catch (Exception e) {
+                                            incrWrite(resource, plan);
+                                            return plan.invoker.invoke(client2, objects);
+                                        } catch (Throwable e) {
                                             logger.error("async multi thread invoke error, class = {}, method = {}, resource = {}",
-                                                    className, method.getName(), resource.getUrl(), e);
-                                            throw e;
+                                                    className, plan.methodName, resource.getUrl(), e);
+                                            throw new ExecutionException(e);
                                         }
                                     }));
                                 } catch (Exception e) {
                                     if (!first) {
                                         logger.error("submit async multi thread task error, class = {}, method = {}, resource = {}",
-                                                className, method.getName(), resource.getUrl(), e);
+                                                className, plan.methodName, resource.getUrl(), e);
                                     } else {
                                         throw e;
                                     }
@@ -178,23 +184,23 @@ public class OperationCallback<T> implements MethodInterceptor {
                                 boolean first = i == 0;
                                 T client2 = clientMap.get(resource);
                                 if (first) {
-                                    incrWrite(resource, method);
-                                    target = method.invoke(client2, objects);
+                                    incrWrite(resource, plan);
+                                    target = plan.invoker.invoke(client2, objects);
                                 } else {
                                     try {
                                         env.getMultiWriteAsyncExec().submit(String.valueOf(Thread.currentThread().getId()), strategy.wrapperCallable(() -> {
                                             try {
-                                                incrWrite(resource, method);
-                                                return method.invoke(client2, objects);
-                                            } catch (Exception e) {
+                                                incrWrite(resource, plan);
+                                                return plan.invoker.invoke(client2, objects);
+                                            } catch (Throwable e) {
                                                 logger.error("async multi thread invoke error, class = {}, method = {}, resource = {}",
-                                                        className, method.getName(), resource.getUrl(), e);
-                                                throw e;
+                                                        className, plan.methodName, resource.getUrl(), e);
+                                                throw new ExecutionException(e);
                                             }
                                         }));
                                     } catch (Exception e) {
                                         logger.error("submit async multi thread task error, class = {}, method = {}, resource = {}",
-                                                className, method.getName(), resource.getUrl(), e);
+                                                className, plan.methodName, resource.getUrl(), e);
                                     }
                                 }
                             }
@@ -210,29 +216,29 @@ public class OperationCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Object read(Object[] objects, Method method) throws Throwable {
+    private Object read(Object[] objects, MethodPlan plan) throws Throwable {
         ResourceOperation.Type type = resourceOperation.getType();
         switch (type) {
             case SIMPLE:
                 Resource resource1 = resourceOperation.getResource();
                 T client = clientMap.get(resource1);
-                incrRead(resource1, method);
-                return method.invoke(client, objects);
+                incrRead(resource1, plan);
+                return plan.invoker.invoke(client, objects);
             case RW_SEPARATE:
                 ResourceReadOperation readOperation = resourceOperation.getReadOperation();
                 switch (readOperation.getType()) {
                     case SIMPLE:
                         Resource resource2 = readOperation.getReadResource();
                         T client1 = clientMap.get(resource2);
-                        incrRead(resource2, method);
-                        return method.invoke(client1, objects);
+                        incrRead(resource2, plan);
+                        return plan.invoker.invoke(client1, objects);
                     case ORDER:
                         Throwable ex = null;
                         for (Resource resource : readOperation.getReadResources()) {
                             T client2 = clientMap.get(resource);
                             try {
-                                incrRead(resource, method);
-                                return method.invoke(client2, objects);
+                                incrRead(resource, plan);
+                                return plan.invoker.invoke(client2, objects);
                             } catch (Throwable throwable) {
                                 ex = throwable;
                             }
@@ -246,8 +252,8 @@ public class OperationCallback<T> implements MethodInterceptor {
                         int index = ThreadLocalRandom.current().nextInt(list.size());
                         Resource resource = list.get(index);
                         T client3 = clientMap.get(resource);
-                        incrRead(resource, method);
-                        return method.invoke(client3, objects);
+                        incrRead(resource, plan);
+                        return plan.invoker.invoke(client3, objects);
                     default:
                         throw new RuntimeException("unknown operation read type");
                 }
@@ -256,15 +262,32 @@ public class OperationCallback<T> implements MethodInterceptor {
         }
     }
 
-    private void incrWrite(Resource resource, Method method) {
+    private void incrWrite(Resource resource, MethodPlan plan) {
         if (env != null && env.getMonitor() != null) {
-            env.getMonitor().incrWrite(resource.getUrl(), className, readWriteOperationCache.getMethodName(method));
+            env.getMonitor().incrWrite(resource.getUrl(), className, plan.fullName);
         }
     }
 
-    private void incrRead(Resource resource, Method method) {
+    private void incrRead(Resource resource, MethodPlan plan) {
         if (env != null && env.getMonitor() != null) {
-            env.getMonitor().incrRead(resource.getUrl(), className, readWriteOperationCache.getMethodName(method));
+            env.getMonitor().incrRead(resource.getUrl(), className, plan.fullName);
+        }
+    }
+
+    /**
+     * 创建代理时为每个方法预先计算好的读写类型、监控用的方法名以及调用入口
+     */
+    private class MethodPlan {
+        private final byte operationType;
+        private final String methodName;
+        private final String fullName;
+        private final MethodInvoker invoker;
+
+        MethodPlan(Method method) {
+            this.operationType = readWriteOperationCache.getOperationType(method);
+            this.methodName = method.getName();
+            this.fullName = readWriteOperationCache.getMethodName(method);
+            this.invoker = operationType == ReadWriteOperationCache.UNKNOWN ? null : MethodInvoker.create(method);
         }
     }
 
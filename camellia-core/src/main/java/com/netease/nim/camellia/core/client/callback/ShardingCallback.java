@@ -7,6 +7,7 @@ import com.netease.nim.camellia.core.client.annotation.WriteOp;
 import com.netease.nim.camellia.core.client.env.ProxyEnv;
 import com.netease.nim.camellia.core.client.env.ThreadContextSwitchStrategy;
 import com.netease.nim.camellia.core.client.hub.IProxyHub;
+import com.netease.nim.camellia.core.util.MethodInvoker;
 import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
 import com.netease.nim.camellia.tools.utils.ExceptionUtils;
 import net.sf.cglib.proxy.MethodInterceptor;
@@ -32,7 +33,7 @@ public class ShardingCallback<T> implements MethodInterceptor {
     public ShardingCallback(IProxyHub<T> proxyHub, Class<T> clazz, ProxyEnv env) {
         this.proxyHub = proxyHub;
         for (Method method : clazz.getMethods()) {
-            initCache(method);
+            planMap.put(method, new MethodPlan(method));
         }
         if (env != null) {
             this.env = env;
@@ -42,30 +43,31 @@ public class ShardingCallback<T> implements MethodInterceptor {
     @Override
     public Object intercept(Object o, final Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
         try {
-            if (!isOpMethod(method)) {
+            final MethodPlan plan = CamelliaMapUtils.computeIfAbsent(planMap, method, MethodPlan::new);
+            if (!plan.opMethod) {
                 return methodProxy.invokeSuper(o, objects);
             }
-            CollectionType collectionType = getCollectionType(method);
+            CollectionType collectionType = plan.collectionType;
 
             if (collectionType == CollectionType.NOT_COLLECTION) {
-                byte[][] key = parseShardingSimple(method, objects);
+                byte[][] key = plan.shardingKey(objects, null);
                 T proxy = proxyHub.chooseProxy(key);
-                return method.invoke(proxy, objects);
+                return plan.invoker.invoke(proxy, objects);
             } else {
                 Map<T, List<Object[]>> proxyMap = new HashMap<>();
                 Map<byte[][], Object[]> map;
                 switch (collectionType) {
                     case LIST:
-                        map = parseShardingListParam(method, objects);
+                        map = parseShardingListParam(plan, objects);
                         break;
                     case SET:
-                        map = parseShardingSetParam(method, objects);
+                        map = parseShardingSetParam(plan, objects);
                         break;
                     case Map:
-                        map = parseShardingMapParam(method, objects);
+                        map = parseShardingMapParam(plan, objects);
                         break;
                     case ARRAY:
-                        map = parseShardingArrayParam(method, objects);
+                        map = parseShardingArrayParam(plan, objects);
                         break;
                     default:
                         throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
@@ -80,16 +82,16 @@ public class ShardingCallback<T> implements MethodInterceptor {
                 Map<T, Object[]> finalProxyMap;
                 switch (collectionType) {
                     case LIST:
-                        finalProxyMap = mergeProxyMapOfList(proxyMap, method, objects);
+                        finalProxyMap = mergeProxyMapOfList(proxyMap, plan, objects);
                         break;
                     case SET:
-                        finalProxyMap = mergeProxyMapOfSet(proxyMap, method, objects);
+                        finalProxyMap = mergeProxyMapOfSet(proxyMap, plan, objects);
                         break;
                     case Map:
-                        finalProxyMap = mergeProxyMapOfMap(proxyMap, method, objects);
+                        finalProxyMap = mergeProxyMapOfMap(proxyMap, plan, objects);
                         break;
                     case ARRAY:
-                        finalProxyMap = mergeProxyMapOfArray(proxyMap, method, objects);
+                        finalProxyMap = mergeProxyMapOfArray(proxyMap, plan, objects);
                         break;
                     default:
                         throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
@@ -99,7 +101,7 @@ public class ShardingCallback<T> implements MethodInterceptor {
                     for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
                         T proxy = entry.getKey();
                         Object[] params = entry.getValue();
-                        return method.invoke(proxy, params);
+                        return plan.invoker.invoke(proxy, params);
                     }
                     throw new RuntimeException("will not invoke here");
                 } else {
@@ -114,11 +116,11 @@ public class ShardingCallback<T> implements MethodInterceptor {
                             final Object[] params = entry.getValue();
                             Future<Object> future = env.getShardingConcurrentExec().submit(strategy.wrapperCallable(() -> {
                                 try {
-                                    return method.invoke(proxy, params);
+                                    return plan.invoker.invoke(proxy, params);
                                 } catch (Throwable e) {
                                     invokeError[0] = e;
                                     isInvokeError.set(true);
-                                    throw e;
+                                    throw new ExecutionException(e);
                                 }
                             }));
                             futureList.add(future);
@@ -130,16 +132,16 @@ public class ShardingCallback<T> implements MethodInterceptor {
                             Object result = future.get();
                             results.add(result);
                         }
-                        return mergeResult(results, method);
+                        return mergeResult(results, plan);
                     } else {
                         List<Object> results = new ArrayList<>();
                         for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
                             T proxy = entry.getKey();
                             Object[] params = entry.getValue();
-                            Object result = method.invoke(proxy, params);
+                            Object result = plan.invoker.invoke(proxy, params);
                             results.add(result);
                         }
-                        return mergeResult(results, method);
+                        return mergeResult(results, plan);
                     }
                 }
             }
@@ -148,16 +150,16 @@ public class ShardingCallback<T> implements MethodInterceptor {
         }
     }
 
-    private Map<T, Object[]> mergeProxyMapOfArray(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
+    private Map<T, Object[]> mergeProxyMapOfArray(Map<T, List<Object[]>> proxyMap, MethodPlan plan, Object[] objects) {
         Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
+        int collectionShardingIndex = plan.collectionParamIndex;
         for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
             T proxy = entry.getKey();
             List<Object[]> value = entry.getValue();
             Object[] param = copy(objects);
 
             Object arrayParam;
-            String name = getShardingCollectionParamArrayParamType(method);
+            String name = plan.arrayParamType;
             switch (name) {
                 case "java.lang.String":
                     String[] strArrayParam = new String[value.size()];
@@ -240,9 +242,9 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfSet(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
+    private Map<T, Object[]> mergeProxyMapOfSet(Map<T, List<Object[]>> proxyMap, MethodPlan plan, Object[] objects) {
         Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
+        int collectionShardingIndex = plan.collectionParamIndex;
         for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
             T proxy = entry.getKey();
             List<Object[]> value = entry.getValue();
@@ -257,9 +259,9 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfMap(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
+    private Map<T, Object[]> mergeProxyMapOfMap(Map<T, List<Object[]>> proxyMap, MethodPlan plan, Object[] objects) {
         Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
+        int collectionShardingIndex = plan.collectionParamIndex;
         for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
             T proxy = entry.getKey();
             List<Object[]> value = entry.getValue();
@@ -274,9 +276,9 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return finalProxyMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfList(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
+    private Map<T, Object[]> mergeProxyMapOfList(Map<T, List<Object[]>> proxyMap, MethodPlan plan, Object[] objects) {
         Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
+        int collectionShardingIndex = plan.collectionParamIndex;
         for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
             T proxy = entry.getKey();
             List<Object[]> value = entry.getValue();
@@ -291,9 +293,9 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return finalProxyMap;
     }
 
-    private Object mergeResult(List<Object> results, Method method) {
+    private Object mergeResult(List<Object> results, MethodPlan plan) {
         if (results.size() == 1) return results.get(0);
-        Class<?> returnType = method.getReturnType();
+        Class<?> returnType = plan.returnType;
         if (Boolean.class.isAssignableFrom(returnType) || boolean.class.isAssignableFrom(returnType)) {
             for (Object result : results) {
                 if (result == null) continue;
@@ -351,16 +353,15 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return copy;
     }
 
-    private Map<byte[][], Object[]> parseShardingArrayParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
+    private Map<byte[][], Object[]> parseShardingArrayParam(MethodPlan plan, Object[] objects) {
+        int shardingCollectionParamIndex = plan.collectionParamIndex;
 
         Map<byte[][], Object[]> map = new HashMap<>();
 
         List<Object> arrayParamList = new ArrayList<>();
         List<Object> arrayParamInnerList = new ArrayList<>();
         Object arrayParam = objects[shardingCollectionParamIndex];
-        String name = getShardingCollectionParamArrayParamType(method);
+        String name = plan.arrayParamType;
         switch (name) {
             case "java.lang.String":
                 String[] strArr = (String[]) arrayParam;
@@ -423,19 +424,7 @@ public class ShardingCallback<T> implements MethodInterceptor {
         }
         for (int i=0; i<arrayParamList.size(); i++) {
             Object c = arrayParamList.get(i);
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(arrayParamInnerList.get(i)));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
+            byte[][] key = plan.shardingKey(objects, arrayParamInnerList.get(i));
             Object[] param = new Object[objects.length];
             for (int j=0; j<objects.length; j++) {
                 if (j != shardingCollectionParamIndex) {
@@ -449,27 +438,14 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return map;
     }
 
-    private Map<byte[][], Object[]> parseShardingSetParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
+    private Map<byte[][], Object[]> parseShardingSetParam(MethodPlan plan, Object[] objects) {
+        int shardingCollectionParamIndex = plan.collectionParamIndex;
 
         Map<byte[][], Object[]> map = new HashMap<>();
 
         Set setParam = (Set) objects[shardingCollectionParamIndex];
         for (Object c : setParam) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(c));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
+            byte[][] key = plan.shardingKey(objects, c);
             Object[] param = new Object[objects.length];
             for (int i=0; i<objects.length; i++) {
                 if (i != shardingCollectionParamIndex) {
@@ -485,27 +461,14 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return map;
     }
 
-    private Map<byte[][], Object[]> parseShardingMapParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
+    private Map<byte[][], Object[]> parseShardingMapParam(MethodPlan plan, Object[] objects) {
+        int shardingCollectionParamIndex = plan.collectionParamIndex;
 
         Map<byte[][], Object[]> map = new HashMap<>();
 
         Map mapParam = (Map) objects[shardingCollectionParamIndex];
         for (Object k : mapParam.keySet()) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(k));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
+            byte[][] key = plan.shardingKey(objects, k);
             Object[] param = new Object[objects.length];
             for (int i=0; i<objects.length; i++) {
                 if (i != shardingCollectionParamIndex) {
@@ -521,27 +484,14 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return map;
     }
 
-    private Map<byte[][], Object[]> parseShardingListParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
+    private Map<byte[][], Object[]> parseShardingListParam(MethodPlan plan, Object[] objects) {
+        int shardingCollectionParamIndex = plan.collectionParamIndex;
 
         Map<byte[][], Object[]> map = new HashMap<>();
 
         List listParam = (List) objects[shardingCollectionParamIndex];
         for (Object c : listParam) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(c));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
+            byte[][] key = plan.shardingKey(objects, c);
             Object[] param = new Object[objects.length];
             for (int i=0; i<objects.length; i++) {
                 if (i != shardingCollectionParamIndex) {
@@ -557,20 +507,7 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return map;
     }
 
-    private byte[][] parseShardingSimple(Method method, Object[] objects) {
-        List<Integer> paramIndex = getShardingParamIndex(method);
-        List<byte[]> shardingKey = new ArrayList<>();
-        byte[] prefix = getPrefix(method);
-        if (prefix != null && prefix.length > 0) {
-            shardingKey.add(prefix);
-        }
-        for (Integer index : paramIndex) {
-            shardingKey.add(toBytes(objects[index]));
-        }
-        return shardingKey.toArray(new byte[0][0]);
-    }
-
-    private byte[] toBytes(Object object) {
+    private static byte[] toBytes(Object object) {
         if (object == null) return new byte[0];
         if (object instanceof byte[]) {
             return (byte[]) object;
@@ -579,118 +516,108 @@ public class ShardingCallback<T> implements MethodInterceptor {
         }
     }
 
-    private final Map<Method, List<Integer>> shardingParamIndex = new HashMap<>();
-    private final Map<Method, Integer> shardingCollectionParamIndex = new HashMap<>();
-    private final Map<Method, CollectionType> collectionTypeMap = new HashMap<>();
-    private final Map<Method, byte[]> prefixCache = new HashMap<>();
-    private final Map<Method, Boolean> isOpMethodCache = new HashMap<>();
-    private final Map<Method, String> shardingCollectionParamArrayParamType = new HashMap<>();
-
-    private byte[] getPrefix(Method method) {
-        byte[] prefix = prefixCache.get(method);
-        if (prefix != null) return prefix;
-        initCache(method);
-        return prefixCache.get(method);
-    }
-
-    private String getShardingCollectionParamArrayParamType(Method method) {
-        String name = shardingCollectionParamArrayParamType.get(method);
-        if (name != null) return name;
-        initCache(method);
-        return shardingCollectionParamArrayParamType.get(method);
-    }
-
-    private CollectionType getCollectionType(Method method) {
-        CollectionType collectionType = collectionTypeMap.get(method);
-        if (collectionType != null) return collectionType;
-        initCache(method);
-        return collectionTypeMap.get(method);
-    }
-
-    private int getShardingCollectionParamIndex(Method method) {
-        Integer index = shardingCollectionParamIndex.get(method);
-        if (index != null) return index;
-        initCache(method);
-        return shardingCollectionParamIndex.get(method);
-    }
-
-    private List<Integer> getShardingParamIndex(Method method) {
-        List<Integer> index = shardingParamIndex.get(method);
-        if (index != null) return index;
-        initCache(method);
-        return shardingParamIndex.get(method);
-    }
+    private final ConcurrentHashMap<Method, MethodPlan> planMap = new ConcurrentHashMap<>();
+
+    /**
+     * 创建代理时为每个方法预先计算好的路由信息（是否是读写方法、分片参数、集合参数的拆分合并方式、调用入口），每次调用只需要查一次
+     */
+    private static class MethodPlan {
+        private final boolean opMethod;
+        private final MethodInvoker invoker;
+        private final Class<?> returnType;
+        private int[] shardingParamIndex;
+        private int collectionParamIndex = -1;
+        private CollectionType collectionType = CollectionType.NOT_COLLECTION;
+        private String arrayParamType;
+        private byte[] prefix = new byte[0];
+        private int keySize;
+
+        MethodPlan(Method method) {
+            this.opMethod = method.getAnnotation(WriteOp.class) != null || method.getAnnotation(ReadOp.class) != null;
+            this.returnType = method.getReturnType();
+            if (!opMethod) {
+                this.invoker = null;
+                return;
+            }
+            this.invoker = MethodInvoker.create(method);
+            int shardingCollectionParamIndexCount = 0;
+            List<Integer> paramIndex = new ArrayList<>();
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            for (int i=0; i<parameterAnnotations.length; i++) {
+                Annotation[] annotations = parameterAnnotations[i];
+                ShardingParam shardingParam = getShardingParam(annotations);
+                if (shardingParam != null) {
+                    if (shardingParam.type() == ShardingParam.Type.Collection) {
+                        shardingCollectionParamIndexCount ++;
+                        collectionParamIndex = i;
+                        if (List.class.isAssignableFrom(parameterTypes[i])) {
+                            collectionType = CollectionType.LIST;
+                        } else if (Set.class.isAssignableFrom(parameterTypes[i])) {
+                            collectionType = CollectionType.SET;
+                        } else if (Map.class.isAssignableFrom(parameterTypes[i])) {
+                            collectionType = CollectionType.Map;
+                        } else if (parameterTypes[i].isArray()) {
+                            collectionType = CollectionType.ARRAY;
+                            arrayParamType = parameterTypes[i].getComponentType().getName();
+                        } else {
+                            throw new UnsupportedOperationException("collection type param only support List/Set/Map/Array");
+                        }
+                    }
+                    paramIndex.add(i);
+                }
+            }
+            if (shardingCollectionParamIndexCount > 1) {
+                throw new UnsupportedOperationException("only support one param is collection type");
+            }
+            shardingParamIndex = new int[paramIndex.size()];
+            for (int i=0; i<paramIndex.size(); i++) {
+                shardingParamIndex[i] = paramIndex.get(i);
+            }
 
-    private ShardingParam getShardingParam(Annotation[] annotations) {
-        for (Annotation annotation : annotations) {
-            if (ShardingParam.class.isAssignableFrom(annotation.annotationType())) {
-                return (ShardingParam) annotation;
+            ShardingConfig shardingConfig = method.getAnnotation(ShardingConfig.class);
+            if (shardingConfig == null) {
+                shardingConfig = method.getDeclaringClass().getAnnotation(ShardingConfig.class);
+            }
+            if (shardingConfig != null) {
+                String prefixStr = shardingConfig.prefix();
+                if (prefixStr.length() != 0) {
+                    prefix = prefixStr.getBytes(StandardCharsets.UTF_8);
+                }
             }
+            keySize = shardingParamIndex.length + (prefix.length > 0 ? 1 : 0);
         }
-        return null;
-    }
-
-    private boolean isOpMethod(Method method) {
-        Boolean cache = isOpMethodCache.get(method);
-        if (cache != null) return cache;
-        cache = method.getAnnotation(WriteOp.class) != null || method.getAnnotation(ReadOp.class) != null;
-        isOpMethodCache.put(method, cache);
-        return cache;
-    }
 
-    private void initCache(Method method) {
-        if (!isOpMethod(method)) return;
-        int shardingCollectionParamIndexCount = 0;
-        List<Integer> paramIndex = new ArrayList<>();
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-        for (int i=0; i<parameterAnnotations.length; i++) {
-            Annotation[] annotations = parameterAnnotations[i];
-            ShardingParam shardingParam = getShardingParam(annotations);
-            if (shardingParam != null) {
-                if (shardingParam.type() == ShardingParam.Type.Collection) {
-                    shardingCollectionParamIndexCount ++;
-                    shardingCollectionParamIndex.put(method, i);
-                    if (List.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.LIST);
-                    } else if (Set.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.SET);
-                    } else if (Map.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.Map);
-                    } else if (parameterTypes[i].isArray()) {
-                        collectionTypeMap.put(method, CollectionType.ARRAY);
-                        String name = parameterTypes[i].getComponentType().getName();
-                        shardingCollectionParamArrayParamType.put(method, name);
-                    } else {
-                        throw new UnsupportedOperationException("collection type param only support List/Set/Map/Array");
-                    }
+        /**
+         * 计算分片key
+         * @param objects 方法入参
+         * @param collectionItem 集合参数拆分后的单个元素，非集合参数的方法传null
+         * @return 分片key
+         */
+        byte[][] shardingKey(Object[] objects, Object collectionItem) {
+            byte[][] key = new byte[keySize][];
+            int i = 0;
+            if (prefix.length > 0) {
+                key[i ++] = prefix;
+            }
+            for (int index : shardingParamIndex) {
+                if (index == collectionParamIndex) {
+                    key[i ++] = toBytes(collectionItem);
+                } else {
+                    key[i ++] = toBytes(objects[index]);
                 }
-                paramIndex.add(i);
             }
-        }
-        if (shardingCollectionParamIndexCount > 1) {
-            throw new UnsupportedOperationException("only support one param is collection type");
-        }
-        shardingParamIndex.put(method, paramIndex);
-        if (!collectionTypeMap.containsKey(method)) {
-            collectionTypeMap.put(method, CollectionType.NOT_COLLECTION);
+            return key;
         }
 
-        byte[] prefix = null;
-        ShardingConfig shardingConfig = method.getAnnotation(ShardingConfig.class);
-        if (shardingConfig == null) {
-            shardingConfig = method.getDeclaringClass().getAnnotation(ShardingConfig.class);
-        }
-        if (shardingConfig != null) {
-            String prefixStr = shardingConfig.prefix();
-            if (prefixStr.length() != 0) {
-                prefix = prefixStr.getBytes(StandardCharsets.UTF_8);
+        private static ShardingParam getShardingParam(Annotation[] annotations) {
+            for (Annotation annotation : annotations) {
+                if (ShardingParam.class.isAssignableFrom(annotation.annotationType())) {
+                    return (ShardingParam) annotation;
+                }
             }
+            return null;
         }
-        if (prefix == null) {
-            prefix = new byte[0];
-        }
-        prefixCache.put(method, prefix);
     }
 
     private enum CollectionType {
@@ -0,0 +1,46 @@
+package com.netease.nim.camellia.core.util;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * 方法入参中被注解的参数（或者参数的成员变量）的取值器，由AnnotationValueGetterCache生成
+ * Created by agent on 2026/10/18
+ */
+public class AnnotationValueGetter {
+
+    /**
+     * 方法入参中没有被注解的参数
+     */
+    public static final AnnotationValueGetter NULL = new AnnotationValueGetter(-1, null);
+
+    private final int parameterIndex;
+    private final Field[] fields;
+
+    AnnotationValueGetter(int parameterIndex, List<Field> fields) {
+        this.parameterIndex = parameterIndex;
+        this.fields = fields == null ? null : fields.toArray(new Field[0]);
+    }
+
+    /**
+     * 取值
+     * @param objects 方法入参
+     * @return 被注解的参数（或者成员变量）的值
+     * @throws IllegalAccessException 反射异常
+     */
+    public Object getValue(Object[] objects) throws IllegalAccessException {
+        if (parameterIndex < 0 || objects == null) {
+            return null;
+        }
+        Object object = objects[parameterIndex];
+        if (fields != null) {
+            for (Field field : fields) {
+                if (object == null) {
+                    return null;
+                }
+                object = field.get(object);
+            }
+        }
+        return object;
+    }
+}
@@ -16,7 +16,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AnnotationValueGetterCache {
 
     private static final Logger logger = LoggerFactory.getLogger(AnnotationValueGetterCache.class);
-    private final ConcurrentHashMap<Class<? extends Annotation>, ConcurrentHashMap<Method, AnnotationCacheInfo>> map = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<? extends Annotation>, ConcurrentHashMap<Method, AnnotationValueGetter>> map = new ConcurrentHashMap<>();
 
     /**
      * 预热反射缓存
@@ -25,7 +25,7 @@ public class AnnotationValueGetterCache {
      */
     public void preheatAnnotationValueByParameterField(Class<?> clazz, Class<? extends Annotation> annotation) {
         for (Method method : clazz.getMethods()) {
-            getAnnotationValueByParameterField(annotation, method, null);
+            getAnnotationValueGetter(annotation, method);
         }
     }
 
@@ -40,60 +40,63 @@ public class AnnotationValueGetterCache {
      */
     public Object getAnnotationValueByParameterField(Class<? extends Annotation> annotation, Method method, Object[] objects) {
         try {
-            ConcurrentHashMap<Method, AnnotationCacheInfo> subMap = CamelliaMapUtils.computeIfAbsent(map, annotation, k -> new ConcurrentHashMap<>());
-            AnnotationCacheInfo cacheInfo = subMap.get(method);
-            if (cacheInfo != null) {
-                if (cacheInfo.type == AnnotationCacheInfo.Type.NULL) {
-                    return null;
-                } else if (cacheInfo.type == AnnotationCacheInfo.Type.PARAMETERS) {
-                    return objects == null ? null : objects[cacheInfo.parameterIndex];
-                } else if (cacheInfo.type == AnnotationCacheInfo.Type.FIELDS) {
-                    List<Field> fields = cacheInfo.fields;
-                    if (objects == null) return null;
-                    Object object = objects[cacheInfo.parameterIndex];
-                    for (Field field : fields) {
-                        if (object == null) {
-                            return null;
-                        }
-                        object = field.get(object);
-                    }
-                    return object;
-                }
-            }
-            Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            for (int i=0; i<parameterAnnotations.length; i++) {
-                //先检查方法入参
-                Annotation[] parameterAnnotation = parameterAnnotations[i];
-                boolean hasAnnotation = false;
-                for (Annotation paramAnnotation : parameterAnnotation) {
-                    if (annotation.isAssignableFrom(paramAnnotation.annotationType())) {
-                        hasAnnotation = true;
-                        break;
-                    }
-                }
-                if (hasAnnotation) {
-                    subMap.put(method, new AnnotationCacheInfo(AnnotationCacheInfo.Type.PARAMETERS, i, null));
-                    return objects == null ? null : objects[i];
-                }
-                //如果方法入参是一个业务对象，则检查其内部成员变量
-                Class<?> parameterClazz = parameterTypes[i];
-                List<Field> fields = new ArrayList<>();
-                AnnotationFindInfo annotationFindInfo = getAnnotationValueByField(parameterClazz, annotation, objects == null ? null : objects[i], fields);
-                if (annotationFindInfo.success) {
-                    Collections.reverse(fields);
-                    subMap.put(method, new AnnotationCacheInfo(AnnotationCacheInfo.Type.FIELDS, i, fields));
-                    return annotationFindInfo.result;
-                }
-            }
-            subMap.put(method, new AnnotationCacheInfo(AnnotationCacheInfo.Type.NULL, -1, null));
-            return null;
+            return getAnnotationValueGetter(annotation, method).getValue(objects);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             return null;
         }
     }
 
+    /**
+     * 获取某个Method上被注解的参数（或者参数的成员变量）的取值器，可以在创建代理时获取并保存下来，之后每次调用直接取值
+     * @param annotation 注解类型
+     * @param method 方法
+     * @return 取值器
+     */
+    public AnnotationValueGetter getAnnotationValueGetter(Class<? extends Annotation> annotation, Method method) {
+        ConcurrentHashMap<Method, AnnotationValueGetter> subMap = CamelliaMapUtils.computeIfAbsent(map, annotation, k -> new ConcurrentHashMap<>());
+        AnnotationValueGetter getter = subMap.get(method);
+        if (getter != null) {
+            return getter;
+        }
+        try {
+            getter = findAnnotationValueGetter(annotation, method);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            getter = AnnotationValueGetter.NULL;
+        }
+        subMap.put(method, getter);
+        return getter;
+    }
+
+    private AnnotationValueGetter findAnnotationValueGetter(Class<? extends Annotation> annotation, Method method) throws IllegalAccessException {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i=0; i<parameterAnnotations.length; i++) {
+            //先检查方法入参
+            Annotation[] parameterAnnotation = parameterAnnotations[i];
+            boolean hasAnnotation = false;
+            for (Annotation paramAnnotation : parameterAnnotation) {
+                if (annotation.isAssignableFrom(paramAnnotation.annotationType())) {
+                    hasAnnotation = true;
+                    break;
+                }
+            }
+            if (hasAnnotation) {
+                return new AnnotationValueGetter(i, null);
+            }
+            //如果方法入参是一个业务对象，则检查其内部成员变量
+            Class<?> parameterClazz = parameterTypes[i];
+            List<Field> fields = new ArrayList<>();
+            AnnotationFindInfo annotationFindInfo = getAnnotationValueByField(parameterClazz, annotation, null, fields);
+            if (annotationFindInfo.success) {
+                Collections.reverse(fields);
+                return new AnnotationValueGetter(i, fields);
+            }
+        }
+        return AnnotationValueGetter.NULL;
+    }
+
     private AnnotationFindInfo getAnnotationValueByField(Class<?> clazz, Class<? extends Annotation> annotation, Object object, List<Field> fields) throws IllegalAccessException {
         if (isBaseType(clazz) || isCollectionType(clazz)) {
             //如果是基本类型，则返回查不到
@@ -169,25 +172,6 @@ public class AnnotationValueGetterCache {
         }
     }
 
-    private static class AnnotationCacheInfo {
-        Type type;
-        int parameterIndex;
-        List<Field> fields;
-
-        public AnnotationCacheInfo(Type type, int parameterIndex, List<Field> fields) {
-            this.type = type;
-            this.parameterIndex = parameterIndex;
-            this.fields = fields;
-        }
-
-        private static enum Type {
-            NULL,
-            PARAMETERS,
-            FIELDS,
-            ;
-        }
-    }
-
     private boolean isBaseType(Class<?> clazz) {
         if (String.class.isAssignableFrom(clazz)) {
             return true;
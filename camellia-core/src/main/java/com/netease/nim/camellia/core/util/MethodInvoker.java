@@ -0,0 +1,69 @@
+package com.netease.nim.camellia.core.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 代理类转发方法调用的入口，在创建代理时为每个方法生成一次，替代每次调用时的Method.invoke
+ * 1）优先使用MethodHandle（适配为(Object, Object[])Object），不需要每次调用都做访问检查，异常也不会被包装成InvocationTargetException
+ * 2）无法获取MethodHandle时（比如方法所在的类不是public的），降级为反射调用，但会把InvocationTargetException解开，两种方式抛出的异常保持一致
+ * Created by agent on 2026/10/18
+ */
+public abstract class MethodInvoker {
+
+    /**
+     * 调用target的方法
+     * @param target 对象
+     * @param args 参数
+     * @return 返回值
+     * @throws Throwable 方法本身抛出的异常
+     */
+    public abstract Object invoke(Object target, Object[] args) throws Throwable;
+
+    public static MethodInvoker create(Method method) {
+        if (Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            try {
+                //varargs方法需要转成固定参数个数，否则最后一个数组参数会被再包装一次
+                MethodHandle handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+                handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, method.getParameterCount());
+                return new MethodHandleInvoker(handle);
+            } catch (IllegalAccessException ignore) {
+            }
+        }
+        return new ReflectInvoker(method);
+    }
+
+    private static class MethodHandleInvoker extends MethodInvoker {
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Throwable {
+            return (Object) handle.invokeExact(target, args);
+        }
+    }
+
+    private static class ReflectInvoker extends MethodInvoker {
+        private final Method method;
+
+        ReflectInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable targetException = e.getTargetException();
+                throw targetException != null ? targetException : e;
+            }
+        }
+    }
+}
@@ -5,7 +5,7 @@ import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
 import com.netease.nim.camellia.delayqueue.common.domain.*;
 import com.netease.nim.camellia.delayqueue.common.exception.CamelliaDelayMsgErrorCode;
 import com.netease.nim.camellia.tools.statistic.CamelliaStatistics;
-import com.netease.nim.camellia.tools.statistic.CamelliaStatsData;
+import com.netease.nim.camellia.tools.statistic.CamelliaHistogramSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -159,9 +159,7 @@ public class CamelliaDelayQueueMonitor {
             ConcurrentHashMap<String, CamelliaStatistics> pullMsgTimeGapMap = CamelliaDelayQueueMonitor.pullMsgTimeGapMap;
             CamelliaDelayQueueMonitor.pullMsgTimeGapMap = new ConcurrentHashMap<>();
             for (Map.Entry<String, CamelliaStatistics> entry : pullMsgTimeGapMap.entrySet()) {
-                CamelliaStatsData data = entry.getValue().getStatsDataAndReset();
-                CamelliaDelayQueueMonitorData.TimeGapStats timeGapStats = new CamelliaDelayQueueMonitorData.TimeGapStats(entry.getKey(),
-                        data.getCount(), data.getAvg(), data.getMax());
+                CamelliaDelayQueueMonitorData.TimeGapStats timeGapStats = toTimeGapStats(entry.getKey(), entry.getValue());
                 pullMsgTimeGapStatsList.add(timeGapStats);
             }
             monitorData.setPullMsgTimeGapStatsList(pullMsgTimeGapStatsList);
@@ -171,9 +169,7 @@ public class CamelliaDelayQueueMonitor {
             ConcurrentHashMap<String, CamelliaStatistics> readyQueueTimeGapMap = CamelliaDelayQueueMonitor.readyQueueTimeGapMap;
             CamelliaDelayQueueMonitor.readyQueueTimeGapMap = new ConcurrentHashMap<>();
             for (Map.Entry<String, CamelliaStatistics> entry : readyQueueTimeGapMap.entrySet()) {
-                CamelliaStatsData data = entry.getValue().getStatsDataAndReset();
-                CamelliaDelayQueueMonitorData.TimeGapStats timeGapStats = new CamelliaDelayQueueMonitorData.TimeGapStats(entry.getKey(),
-                        data.getCount(), data.getAvg(), data.getMax());
+                CamelliaDelayQueueMonitorData.TimeGapStats timeGapStats = toTimeGapStats(entry.getKey(), entry.getValue());
                 readyQueueTimeGapStatsList.add(timeGapStats);
             }
             monitorData.setReadyQueueTimeGapStatsList(readyQueueTimeGapStatsList);
@@ -183,4 +179,10 @@ public class CamelliaDelayQueueMonitor {
             logger.error("calc monitor data error", e);
         }
     }
+
+    private static CamelliaDelayQueueMonitorData.TimeGapStats toTimeGapStats(String topic, CamelliaStatistics statistics) {
+        CamelliaHistogramSnapshot snapshot = statistics.getSnapshotAndReset();
+        return new CamelliaDelayQueueMonitorData.TimeGapStats(topic, snapshot.getCount(), snapshot.getAvg(), snapshot.getMax(),
+                snapshot.getQuantile(0.5), snapshot.getQuantile(0.9), snapshot.getQuantile(0.99), snapshot.getQuantile(0.999), snapshot.toBase64());
+    }
 }
@@ -41,12 +41,26 @@ public class CamelliaDelayQueueMonitorData {
         private final long count;
         private final double avg;
         private final long max;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final String histogram;
 
         public TimeGapStats(String topic, long count, double avg, long max) {
+            this(topic, count, avg, max, 0, 0, 0, 0, null);
+        }
+
+        public TimeGapStats(String topic, long count, double avg, long max, long p50, long p90, long p99, long p999, String histogram) {
             this.topic = topic;
             this.count = count;
             this.avg = avg;
             this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.histogram = histogram;
         }
 
         public String getTopic() {
@@ -64,6 +78,30 @@ public class CamelliaDelayQueueMonitorData {
         public long getMax() {
             return max;
         }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        /**
+         * 直方图快照（CamelliaHistogramSnapshot.toBase64），用于多个节点合并后计算全局的分位数
+         * @return base64
+         */
+        public String getHistogram() {
+            return histogram;
+        }
     }
 
     public static class RequestStats {
@@ -25,6 +25,7 @@ import com.netease.nim.camellia.feign.route.FeignResourceTableUpdater;
 import com.netease.nim.camellia.tools.circuitbreaker.CamelliaCircuitBreaker;
 import com.netease.nim.camellia.tools.circuitbreaker.CamelliaCircuitBreakerException;
 import com.netease.nim.camellia.tools.circuitbreaker.CircuitBreakerConfig;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
 import com.netease.nim.camellia.tools.utils.ExceptionUtils;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
@@ -58,6 +59,7 @@ public class FeignCallback<T> implements MethodInterceptor {
     private final CamelliaServerSelector<FeignResource> serverSelector;
     private final ReadWriteOperationCache readWriteOperationCache = new ReadWriteOperationCache();
     private final AnnotationValueGetterCache annotationValueGetterCache = new AnnotationValueGetterCache();
+    private final ConcurrentHashMap<Method, MethodPlan> planMap = new ConcurrentHashMap<>();
     private final DynamicOption dynamicOption;
     private final String className;
     private final Monitor monitor;
@@ -85,8 +87,9 @@ public class FeignCallback<T> implements MethodInterceptor {
             circuitBreakerConfig.setName(name);
         }
         this.serverSelector = buildParam.getDynamicOption() == null ? new RandomCamelliaServerSelector<>() : buildParam.getDynamicOption().getServerSelector();
-        annotationValueGetterCache.preheatAnnotationValueByParameterField(apiType, LoadBalanceKey.class);
-        readWriteOperationCache.preheat(apiType);
+        for (Method method : apiType.getMethods()) {
+            planMap.put(method, new MethodPlan(method));
+        }
         FeignResourceTableUpdater updater = buildParam.getUpdater();
         refresh(updater.getResourceTable(), true);
         updater.addCallback(resourceTable -> refresh(resourceTable, false));
@@ -134,18 +137,20 @@ public class FeignCallback<T> implements MethodInterceptor {
         return circuitBreakerMap.get(resource.getUrl());
     }
 
-    private Object invoke(Resource resource, Object loadBalanceKey, Method method, Object[] objects, boolean checkFallback, byte operationType) throws Throwable {
+    private Object invoke(Resource resource, Object loadBalanceKey, MethodPlan plan, Object[] objects, boolean checkFallback) throws Throwable {
+        Method method = plan.method;
+        byte operationType = plan.operationType;
         if (monitor != null) {
             if (dynamicOption == null || dynamicOption.isMonitorEnable()) {
                 if (operationType == ReadWriteOperationCache.READ || operationType == ReadWriteOperationCache.UNKNOWN) {
-                    monitor.incrRead(resource.getUrl(), className, readWriteOperationCache.getMethodName(method));
+                    monitor.incrRead(resource.getUrl(), className, plan.fullName);
                 } else if (operationType == ReadWriteOperationCache.WRITE) {
-                    monitor.incrWrite(resource.getUrl(), className, readWriteOperationCache.getMethodName(method));
+                    monitor.incrWrite(resource.getUrl(), className, plan.fullName);
                 }
             }
         }
         if (logger.isDebugEnabled()) {
-            logger.debug("camellia-feign, service = {}, method = {}, resource = {}", className, readWriteOperationCache.getMethodName(method), resource.getUrl());
+            logger.debug("camellia-feign, service = {}, method = {}, resource = {}", className, plan.fullName, resource.getUrl());
         }
         FeignResourcePool pool = map.get(resource.getUrl());
         FeignResource feignResource = pool.getResource(loadBalanceKey);
@@ -170,7 +175,7 @@ public class FeignCallback<T> implements MethodInterceptor {
                     throw new CamelliaCircuitBreakerException("camellia-circuit-breaker[" + circuitBreaker.getName() + "] short-circuit, and no fallback");
                 }
             }
-            return method.invoke(t, objects);
+            return plan.invoker.invoke(t, objects);
         } catch (Throwable e) {
             Throwable error = ExceptionUtils.onError(e);
             success = feignEnv.getFallbackExceptionChecker().isSkipError(error);
@@ -180,7 +185,7 @@ public class FeignCallback<T> implements MethodInterceptor {
             if (!success && failureListener != null) {
                 try {
                     CamelliaFeignFailureContext failureContext = new CamelliaFeignFailureContext(bid, bgroup, apiType, operationType,
-                            resource, loadBalanceKey, readWriteOperationCache.getGenericString(method), objects, error);
+                            resource, loadBalanceKey, plan.genericString, objects, error);
                     failureListener.onFailure(failureContext);
                 } catch (Exception ex) {
                     logger.error("onFailure error", ex);
@@ -201,16 +206,17 @@ public class FeignCallback<T> implements MethodInterceptor {
     @Override
     public Object intercept(Object o, final Method method, final Object[] objects, MethodProxy methodProxy) throws Throwable {
         try {
-            byte operationType = readWriteOperationCache.getOperationType(method);
-            final Object loadBalanceKey = annotationValueGetterCache.getAnnotationValueByParameterField(LoadBalanceKey.class, method, objects);
+            final MethodPlan plan = CamelliaMapUtils.computeIfAbsent(planMap, method, MethodPlan::new);
+            final byte operationType = plan.operationType;
+            final Object loadBalanceKey = plan.getLoadBalanceKey(objects);
             if (operationType == ReadWriteOperationCache.READ || operationType == ReadWriteOperationCache.UNKNOWN) {
                 Resource resource = resourceSelector.getReadResource(ResourceSelector.EMPTY_ARRAY);
-                return invoke(resource, loadBalanceKey, method, objects, true, operationType);
+                return invoke(resource, loadBalanceKey, plan, objects, true);
             } else if (operationType == ReadWriteOperationCache.WRITE) {
                 List<Resource> list = resourceSelector.getWriteResources(ResourceSelector.EMPTY_ARRAY);
                 if (list.size() == 1) {
                     Resource resource = list.get(0);
-                    return invoke(resource, loadBalanceKey, method, objects, true, operationType);
+                    return invoke(resource, loadBalanceKey, plan, objects, true);
                 } else {
                     ProxyEnv env = feignEnv.getProxyEnv();
                     MultiWriteType multiWriteType = env.getMultiWriteType();
@@ -224,10 +230,10 @@ public class FeignCallback<T> implements MethodInterceptor {
                             try {
                                 future = env.getMultiWriteConcurrentExec().submit(strategy.wrapperCallable(() -> {
                                     try {
-                                        return invoke(resource, loadBalanceKey, method, objects, first, operationType);
+                                        return invoke(resource, loadBalanceKey, plan, objects, first);
                                     } catch (Throwable e) {
                                         logger.error("multi thread concurrent invoke error, class = {}, method = {}, resource = {}",
-                                                className, method.getName(), resource.getUrl(), e);
+                                                className, plan.method.getName(), resource.getUrl(), e);
                                         throw new ExecutionException(e);
                                     }
                                 }));
@@ -235,7 +241,7 @@ public class FeignCallback<T> implements MethodInterceptor {
                                 try {
                                     if (failureListener != null) {
                                         CamelliaFeignFailureContext failureContext = new CamelliaFeignFailureContext(bid, bgroup, apiType, operationType,
-                                                resource, loadBalanceKey, readWriteOperationCache.getGenericString(method), objects, e);
+                                                resource, loadBalanceKey, plan.genericString, objects, e);
                                         failureListener.onFailure(failureContext);
                                     }
                                 } catch (Exception ex) {
@@ -260,7 +266,7 @@ public class FeignCallback<T> implements MethodInterceptor {
                         for (int i=0; i<list.size(); i++) {
                             boolean first = i == 0;
                             Resource resource = list.get(i);
-                            Object ret1 = invoke(resource, loadBalanceKey, method, objects, first, operationType);
+                            Object ret1 = invoke(resource, loadBalanceKey, plan, objects, first);
                             if (first) {
                                 ret = ret1;
                             }
@@ -276,10 +282,10 @@ public class FeignCallback<T> implements MethodInterceptor {
                             try {
                                 future = env.getMultiWriteAsyncExec().submit(String.valueOf(Thread.currentThread().getId()), strategy.wrapperCallable(() -> {
                                     try {
-                                        return invoke(resource, loadBalanceKey, method, objects, first, operationType);
+                                        return invoke(resource, loadBalanceKey, plan, objects, first);
                                     } catch (Throwable e) {
                                         logger.error("async multi thread invoke error, class = {}, method = {}, resource = {}",
-                                                className, method.getName(), resource.getUrl(), e);
+                                                className, plan.method.getName(), resource.getUrl(), e);
                                         throw new ExecutionException(e);
                                     }
                                 }));
@@ -287,7 +293,7 @@ public class FeignCallback<T> implements MethodInterceptor {
                                 if (e instanceof RejectedExecutionException && failureListener != null) {
                                     try {
                                         CamelliaFeignFailureContext failureContext = new CamelliaFeignFailureContext(bid, bgroup, apiType, operationType,
-                                                resource, loadBalanceKey, readWriteOperationCache.getGenericString(method), objects, e);
+                                                resource, loadBalanceKey, plan.genericString, objects, e);
                                         failureListener.onFailure(failureContext);
                                     } catch (Exception ex) {
                                         logger.error("onFailure error", ex);
@@ -295,7 +301,7 @@ public class FeignCallback<T> implements MethodInterceptor {
                                 }
                                 if (!first) {
                                     logger.error("submit async multi thread task error, class = {}, method = {}, resource = {}",
-                                            className, method.getName(), resource.getUrl(), e);
+                                            className, plan.method.getName(), resource.getUrl(), e);
                                 } else {
                                     throw e;
                                 }
@@ -316,25 +322,25 @@ public class FeignCallback<T> implements MethodInterceptor {
                             Resource resource = list.get(i);
                             boolean first = i == 0;
                             if (first) {
-                                target = invoke(resource, loadBalanceKey, method, objects, true, operationType);
+                                target = invoke(resource, loadBalanceKey, plan, objects, true);
                             } else {
                                 try {
                                     env.getMultiWriteAsyncExec().submit(String.valueOf(Thread.currentThread().getId()), strategy.wrapperCallable(() -> {
                                         try {
-                                            return invoke(resource, loadBalanceKey, method, objects, false, operationType);
+                                            return invoke(resource, loadBalanceKey, plan, objects, false);
                                         } catch (Throwable e) {
                                             logger.error("async multi thread invoke error, class = {}, method = {}, resource = {}",
-                                                    className, method.getName(), resource.getUrl(), e);
+                                                    className, plan.method.getName(), resource.getUrl(), e);
                                             throw new ExecutionException(e);
                                         }
                                     }));
                                 } catch (Exception e) {
                                     logger.error("submit async multi thread task error, class = {}, method = {}, resource = {}",
-                                            className, method.getName(), resource.getUrl(), e);
+                                            className, plan.method.getName(), resource.getUrl(), e);
                                     if (e instanceof RejectedExecutionException && failureListener != null) {
                                         try {
                                             CamelliaFeignFailureContext failureContext = new CamelliaFeignFailureContext(bid, bgroup, apiType, operationType,
-                                                    resource, loadBalanceKey, readWriteOperationCache.getGenericString(method), objects, e);
+                                                    resource, loadBalanceKey, plan.genericString, objects, e);
                                             failureListener.onFailure(failureContext);
                                         } catch (Exception ex) {
                                             logger.error("onFailure error", ex);
@@ -369,6 +375,33 @@ public class FeignCallback<T> implements MethodInterceptor {
         }
     }
 
+    /**
+     * 创建代理时为每个方法预先计算好的读写类型、LoadBalanceKey取值器、监控用的方法名以及调用入口
+     */
+    private class MethodPlan {
+        private final Method method;
+        private final byte operationType;
+        private final AnnotationValueGetter loadBalanceKeyGetter;
+        private final String fullName;
+        private final String genericString;
+        private final MethodInvoker invoker;
 
+        MethodPlan(Method method) {
+            this.method = method;
+            this.operationType = readWriteOperationCache.getOperationType(method);
+            this.loadBalanceKeyGetter = annotationValueGetterCache.getAnnotationValueGetter(LoadBalanceKey.class, method);
+            this.fullName = readWriteOperationCache.getMethodName(method);
+            this.genericString = readWriteOperationCache.getGenericString(method);
+            this.invoker = MethodInvoker.create(method);
+        }
 
+        Object getLoadBalanceKey(Object[] objects) {
+            try {
+                return loadBalanceKeyGetter.getValue(objects);
+            } catch (Exception e) {
+                logger.error("get load balance key error, class = {}, method = {}", className, fullName, e);
+                return null;
+            }
+        }
+    }
 }
@@ -5,6 +5,7 @@ import com.netease.nim.camellia.codec.Unpack;
 import com.netease.nim.camellia.hot.key.common.netty.pack.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.AttributeKey;
 
 
 /**
@@ -12,6 +13,11 @@ import io.netty.buffer.ByteBufAllocator;
  */
 public class HotKeyPack {
 
+    /**
+     * 对端是否支持TypedRecord编码，通过心跳包协商（HeartbeatPack/HeartbeatRepPack的codecVersion）
+     */
+    public static final AttributeKey<Boolean> TYPED_BODY_SUPPORT = AttributeKey.valueOf("camellia_hot_key_typed_body_support");
+
     private HotKeyPackHeader header;
     private HotKeyPackBody body;
 
@@ -38,23 +44,37 @@ public class HotKeyPack {
     }
 
     public ByteBuf encode(ByteBufAllocator allocator) {
-        Pack pack = new Pack(allocator, 1024);
+        ByteBuf buf = allocator.ioBuffer(1024);
+        encode(buf, false);
+        return buf;
+    }
+
+    /**
+     * 直接编码到出站的ByteBuf
+     * @param buf buf
+     * @param typedBodySupport 对端是否支持TypedRecord编码
+     */
+    public void encode(ByteBuf buf, boolean typedBodySupport) {
+        int start = buf.writerIndex();
+        Pack pack = new Pack(buf);
         pack.putInt(0);
 
         if (body == null) {
             header.setEmptyBody();
         }
+        boolean typedBody = typedBodySupport && body != null && body.isTypedBodySupport();
+        header.setTypedBody(typedBody);
 
         pack.putMarshallable(header);
         if (body != null) {
-            pack.putMarshallable(body);
+            if (typedBody) {
+                body.marshalTyped(pack);
+            } else {
+                pack.putMarshallable(body);
+            }
         }
 
-        pack.getBuffer().capacity(pack.getBuffer().readableBytes());
-
-        pack.replaceInt(0, pack.size());
-
-        return pack.getBuffer();
+        buf.setInt(start, buf.writerIndex() - start);
     }
 
     public void decode(Unpack unpack) {
@@ -102,7 +122,7 @@ public class HotKeyPack {
                     break;
                 case PUSH:
                     body = new PushPack();
-                    unpack.popMarshallable(body);
+                    unmarshalBody(unpack);
                     break;
                 case GET_CONFIG:
                     body = new GetConfigPack();
@@ -110,7 +130,7 @@ public class HotKeyPack {
                     break;
                 case NOTIFY_HOTKEY:
                     body = new NotifyHotKeyPack();
-                    unpack.popMarshallable(body);
+                    unmarshalBody(unpack);
                     break;
                 case NOTIFY_CONFIG:
                     body = new NotifyHotKeyConfigPack();
@@ -125,4 +145,12 @@ public class HotKeyPack {
             }
         }
     }
+
+    private void unmarshalBody(Unpack unpack) {
+        if (header.isTypedBody()) {
+            body.unmarshalTyped(unpack);
+        } else {
+            unpack.popMarshallable(body);
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package com.netease.nim.camellia.hot.key.common.netty.handler;
 
+import com.netease.nim.camellia.codec.TypedRecord;
 import com.netease.nim.camellia.codec.Unpack;
 import com.netease.nim.camellia.hot.key.common.netty.HotKeyPack;
+import com.netease.nim.camellia.hot.key.common.netty.pack.HeartbeatPack;
+import com.netease.nim.camellia.hot.key.common.netty.pack.HeartbeatRepPack;
+import com.netease.nim.camellia.hot.key.common.netty.pack.HotKeyPackBody;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -33,14 +37,25 @@ public class HotKeyPackDecoder extends ByteToMessageDecoder {
             if (len > buf.readableBytes()) {
                 return;
             }
-            ByteBuf byteBuf = buf.readBytes(len);
-            byte[] bytes = new byte[byteBuf.readableBytes()];
-            byteBuf.readBytes(bytes);
-            byteBuf.release();
-            Unpack unpack = new Unpack(bytes);
+            //解码结果不会引用buffer，因此直接在累积buffer上解码，不拷贝
+            Unpack unpack = Unpack.wrap(buf.readSlice(len));
             HotKeyPack pack = new HotKeyPack();
             pack.decode(unpack);
+            onCodecVersion(ctx, pack.getBody());
             list.add(pack);
         }
     }
+
+    //根据对端心跳包中的编码版本，决定发往对端的包是否使用TypedRecord编码
+    private void onCodecVersion(ChannelHandlerContext ctx, HotKeyPackBody body) {
+        int codecVersion;
+        if (body instanceof HeartbeatPack) {
+            codecVersion = ((HeartbeatPack) body).getCodecVersion();
+        } else if (body instanceof HeartbeatRepPack) {
+            codecVersion = ((HeartbeatRepPack) body).getCodecVersion();
+        } else {
+            return;
+        }
+        ctx.channel().attr(HotKeyPack.TYPED_BODY_SUPPORT).set(codecVersion >= TypedRecord.VERSION);
+    }
 }
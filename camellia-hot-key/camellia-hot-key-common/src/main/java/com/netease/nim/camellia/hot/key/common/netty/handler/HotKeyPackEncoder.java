@@ -3,16 +3,15 @@ package com.netease.nim.camellia.hot.key.common.netty.handler;
 import com.netease.nim.camellia.hot.key.common.netty.HotKeyPack;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.MessageToByteEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 /**
+ * 直接编码到出站的ByteBuf（默认是池化的direct buffer）
  * Created by caojiajun on 2023/5/8
  */
-public class HotKeyPackEncoder extends MessageToMessageEncoder<HotKeyPack> {
+public class HotKeyPackEncoder extends MessageToByteEncoder<HotKeyPack> {
 
     private static final Logger logger = LoggerFactory.getLogger(HotKeyPackEncoder.class);
 
@@ -21,11 +20,14 @@ public class HotKeyPackEncoder extends MessageToMessageEncoder<HotKeyPack> {
     }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, HotKeyPack hotKeyPack, List<Object> list) {
+    protected void encode(ChannelHandlerContext ctx, HotKeyPack hotKeyPack, ByteBuf out) {
+        int start = out.writerIndex();
         try {
-            ByteBuf buf = hotKeyPack.encode(ctx.alloc());
-            list.add(buf);
+            boolean typedBodySupport = Boolean.TRUE.equals(ctx.channel().attr(HotKeyPack.TYPED_BODY_SUPPORT).get());
+            hotKeyPack.encode(out, typedBodySupport);
         } catch (Exception e) {
+            //丢弃写了一半的包
+            out.writerIndex(start);
             logger.error("encode error", e);
         }
     }
@@ -2,6 +2,7 @@ package com.netease.nim.camellia.hot.key.common.netty.pack;
 
 
 import com.netease.nim.camellia.codec.Pack;
+import com.netease.nim.camellia.codec.TypedRecord;
 import com.netease.nim.camellia.codec.Unpack;
 
 /**
@@ -9,13 +10,20 @@ import com.netease.nim.camellia.codec.Unpack;
  */
 public class HeartbeatPack extends HotKeyPackBody {
 
+    //支持的编码版本，老版本的包体为空，解码为0
+    private int codecVersion = TypedRecord.VERSION;
+
+    public int getCodecVersion() {
+        return codecVersion;
+    }
+
     @Override
     public void marshal(Pack pack) {
-
+        pack.putVarUint(codecVersion);
     }
 
     @Override
     public void unmarshal(Unpack unpack) {
-
+        codecVersion = unpack.GetSize() > 0 ? unpack.popVarUint() : 0;
     }
 }
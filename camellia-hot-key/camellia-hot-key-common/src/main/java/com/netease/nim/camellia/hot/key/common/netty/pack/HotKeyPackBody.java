@@ -2,9 +2,35 @@ package com.netease.nim.camellia.hot.key.common.netty.pack;
 
 
 import com.netease.nim.camellia.codec.Marshallable;
+import com.netease.nim.camellia.codec.Pack;
+import com.netease.nim.camellia.codec.Unpack;
 
 /**
  * Created by caojiajun on 2023/5/8
  */
 public abstract class HotKeyPackBody implements Marshallable {
+
+    /**
+     * 是否支持TypedRecord编码，只有对端协商支持时才会使用（header中带TYPED_BODY标记）
+     * @return true/false
+     */
+    public boolean isTypedBodySupport() {
+        return false;
+    }
+
+    /**
+     * TypedRecord编码，默认退化为Props编码（marshal），和unmarshalTyped的默认实现对应
+     * @param pack pack
+     */
+    public void marshalTyped(Pack pack) {
+        pack.putMarshallable(this);
+    }
+
+    /**
+     * TypedRecord解码，默认退化为Props解码（unmarshal），和marshalTyped的默认实现对应
+     * @param unpack unpack
+     */
+    public void unmarshalTyped(Unpack unpack) {
+        unpack.popMarshallable(this);
+    }
 }
@@ -33,6 +33,7 @@ public class HotKeyPackHeader implements Marshallable {
         DEFAULT((byte) 0),
         EMPTY_BODY((byte) 1),//是否空包
         ACK((byte) 2),//是否是响应包
+        TYPED_BODY((byte) 4),//body是否是TypedRecord编码
 
         ;
 
@@ -103,4 +104,16 @@ public class HotKeyPackHeader implements Marshallable {
     public boolean isEmptyBody() {
         return 0 != (tag & Tag.EMPTY_BODY.getValue());
     }
+
+    public void setTypedBody(boolean typedBody) {
+        if (typedBody) {
+            tag |= Tag.TYPED_BODY.getValue();
+        } else {
+            tag &= ~Tag.TYPED_BODY.getValue();
+        }
+    }
+
+    public boolean isTypedBody() {
+        return 0 != (tag & Tag.TYPED_BODY.getValue());
+    }
 }
@@ -3,7 +3,10 @@ package com.netease.nim.camellia.hot.key.common.netty.pack;
 import com.netease.nim.camellia.codec.ArrayMable;
 import com.netease.nim.camellia.codec.Pack;
 import com.netease.nim.camellia.codec.Props;
+import com.netease.nim.camellia.codec.TypedRecord;
+import com.netease.nim.camellia.codec.TypedRecordReader;
 import com.netease.nim.camellia.codec.Unpack;
+import com.netease.nim.camellia.codec.UnpackException;
 import com.netease.nim.camellia.hot.key.common.model.HotKey;
 import com.netease.nim.camellia.hot.key.common.model.KeyAction;
 
@@ -29,6 +32,8 @@ public class NotifyHotKeyPack extends HotKeyPackBody {
         }
     }
 
+    private static final int MAX_SIZE = 100000;
+
     private List<HotKey> list;
 
     public NotifyHotKeyPack(List<HotKey> list) {
@@ -74,4 +79,51 @@ public class NotifyHotKeyPack extends HotKeyPackBody {
             list.add(hotKey);
         }
     }
+
+    @Override
+    public boolean isTypedBodySupport() {
+        return true;
+    }
+
+    @Override
+    public void marshalTyped(Pack pack) {
+        pack.putVarUint(list.size());
+        for (HotKey hotKey : list) {
+            TypedRecord.writeString(pack, Tag.namespace.value, hotKey.getNamespace());
+            TypedRecord.writeString(pack, Tag.key.value, hotKey.getKey());
+            TypedRecord.writeVarint(pack, Tag.action.value, hotKey.getAction().getValue());
+            if (hotKey.getExpireMillis() != null) {
+                TypedRecord.writeVarint(pack, Tag.expireMillis.value, hotKey.getExpireMillis());
+            }
+            TypedRecord.writeEnd(pack);
+        }
+    }
+
+    @Override
+    public void unmarshalTyped(Unpack unpack) {
+        int size = unpack.popVarUint();
+        if (size < 0 || size > MAX_SIZE) {
+            throw new UnpackException("NotifyHotKeyPack size illegal");
+        }
+        list = new ArrayList<>(size);
+        TypedRecordReader reader = new TypedRecordReader(unpack);
+        for (int i=0; i<size; i++) {
+            HotKey hotKey = new HotKey();
+            int tag;
+            while ((tag = reader.nextTag()) != TypedRecord.END) {
+                if (tag == Tag.namespace.value) {
+                    hotKey.setNamespace(reader.readString());
+                } else if (tag == Tag.key.value) {
+                    hotKey.setKey(reader.readString());
+                } else if (tag == Tag.action.value) {
+                    hotKey.setAction(KeyAction.getByValue((int) reader.readVarint()));
+                } else if (tag == Tag.expireMillis.value) {
+                    hotKey.setExpireMillis(reader.readVarint());
+                } else {
+                    reader.skip();
+                }
+            }
+            list.add(hotKey);
+        }
+    }
 }
@@ -3,7 +3,10 @@ package com.netease.nim.camellia.hot.key.common.netty.pack;
 import com.netease.nim.camellia.codec.ArrayMable;
 import com.netease.nim.camellia.codec.Pack;
 import com.netease.nim.camellia.codec.Props;
+import com.netease.nim.camellia.codec.TypedRecord;
+import com.netease.nim.camellia.codec.TypedRecordReader;
 import com.netease.nim.camellia.codec.Unpack;
+import com.netease.nim.camellia.codec.UnpackException;
 import com.netease.nim.camellia.hot.key.common.model.KeyCounter;
 import com.netease.nim.camellia.hot.key.common.model.KeyAction;
 
@@ -29,6 +32,8 @@ public class PushPack extends HotKeyPackBody {
         }
     }
 
+    private static final int MAX_SIZE = 100000;
+
     private List<KeyCounter> list;
 
     public PushPack(List<KeyCounter> list) {
@@ -70,4 +75,49 @@ public class PushPack extends HotKeyPackBody {
             list.add(counter);
         }
     }
+
+    @Override
+    public boolean isTypedBodySupport() {
+        return true;
+    }
+
+    @Override
+    public void marshalTyped(Pack pack) {
+        pack.putVarUint(list.size());
+        for (KeyCounter counter : list) {
+            TypedRecord.writeString(pack, Tag.namespace.value, counter.getNamespace());
+            TypedRecord.writeString(pack, Tag.key.value, counter.getKey());
+            TypedRecord.writeVarint(pack, Tag.action.value, counter.getAction().getValue());
+            TypedRecord.writeVarint(pack, Tag.count.value, counter.getCount());
+            TypedRecord.writeEnd(pack);
+        }
+    }
+
+    @Override
+    public void unmarshalTyped(Unpack unpack) {
+        int size = unpack.popVarUint();
+        if (size < 0 || size > MAX_SIZE) {
+            throw new UnpackException("PushPack size illegal");
+        }
+        list = new ArrayList<>(size);
+        TypedRecordReader reader = new TypedRecordReader(unpack);
+        for (int i=0; i<size; i++) {
+            KeyCounter counter = new KeyCounter();
+            int tag;
+            while ((tag = reader.nextTag()) != TypedRecord.END) {
+                if (tag == Tag.namespace.value) {
+                    counter.setNamespace(reader.readString());
+                } else if (tag == Tag.key.value) {
+                    counter.setKey(reader.readString());
+                } else if (tag == Tag.action.value) {
+                    counter.setAction(KeyAction.getByValue((int) reader.readVarint()));
+                } else if (tag == Tag.count.value) {
+                    counter.setCount(reader.readVarint());
+                } else {
+                    reader.skip();
+                }
+            }
+            list.add(counter);
+        }
+    }
 }
@@ -3,6 +3,8 @@ package com.netease.nim.camellia.hot.key.sdk.netty;
 import com.netease.nim.camellia.hot.key.common.netty.*;
 import com.netease.nim.camellia.hot.key.common.netty.handler.HotKeyPackDecoder;
 import com.netease.nim.camellia.hot.key.common.netty.handler.HotKeyPackEncoder;
+import com.netease.nim.camellia.hot.key.common.netty.pack.HeartbeatPack;
+import com.netease.nim.camellia.hot.key.common.netty.pack.HotKeyCommand;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -58,6 +60,8 @@ public class HotKeyClient {
             });
             seqManager.setChannel(channel);
             valid = true;
+            //连接建立后立即发送一次心跳，用于协商编码版本
+            sendPack(HotKeyPack.newPack(HotKeyCommand.HEARTBEAT, new HeartbeatPack()));
             logger.info("hot key client init success, addr = {}, id = {}", addr, id);
         } catch (Exception e) {
             stop();
@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.http.accelerate.proxy.core.transport.tcp;
 
+import com.netease.nim.camellia.codec.TypedRecord;
 import com.netease.nim.camellia.http.accelerate.proxy.core.context.ErrorReason;
 import com.netease.nim.camellia.http.accelerate.proxy.core.transport.tcp.codec.*;
 import com.netease.nim.camellia.http.accelerate.proxy.core.conf.DynamicConf;
@@ -41,6 +42,8 @@ public class TcpClient {
     private Channel channel;
 
     private volatile Status status;
+    //对端（server）是否支持TypedRecord编码，通过心跳协商
+    private volatile boolean typedBody;
     private ScheduledFuture<?> scheduledFuture;
 
     private final ConcurrentHashMap<Long, Request> requestMap = new ConcurrentHashMap<>();
@@ -109,6 +112,7 @@ public class TcpClient {
 
     public void send(ProxyRequest request, CompletableFuture<ProxyResponse> future) {
         TcpPackHeader header = newHeader(TcpPackCmd.REQUEST);
+        header.setTypedBody(typedBody);
         request.getLogBean().setTransportServerSendTime(System.currentTimeMillis());
         TcpPack pack = TcpPack.newPack(header, new RequestPack(request));
         requestMap.put(header.getSeqId(), new Request(future, request));
@@ -184,6 +188,7 @@ public class TcpClient {
         if (header.getCmd() == TcpPackCmd.HEARTBEAT) {
             if (header.isAck()) {
                 HeartbeatAckPack ackPack = (HeartbeatAckPack) pack.getBody();
+                typedBody = ackPack.getCodecVersion() >= TypedRecord.VERSION;
                 CompletableFuture<Boolean> future = heartbeatMap.remove(seqId);
                 if (future != null) {
                     future.complete(ackPack.isOnline());
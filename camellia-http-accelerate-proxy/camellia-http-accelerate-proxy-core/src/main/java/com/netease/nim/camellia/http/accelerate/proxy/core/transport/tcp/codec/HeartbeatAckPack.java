@@ -2,6 +2,7 @@ package com.netease.nim.camellia.http.accelerate.proxy.core.transport.tcp.codec;
 
 import com.netease.nim.camellia.codec.Pack;
 import com.netease.nim.camellia.codec.Props;
+import com.netease.nim.camellia.codec.TypedRecord;
 import com.netease.nim.camellia.codec.Unpack;
 
 /**
@@ -13,6 +14,7 @@ public class HeartbeatAckPack extends TcpPackBody {
 
     private static enum Tag {
         status(1),
+        codecVersion(2),//支持的编码版本，老版本没有该字段
         ;
 
         private final int value;
@@ -24,6 +26,7 @@ public class HeartbeatAckPack extends TcpPackBody {
 
     public HeartbeatAckPack(boolean online) {
         props.putInteger(Tag.status.value, online ? 1 : 0);
+        props.putInteger(Tag.codecVersion.value, TypedRecord.VERSION);
     }
 
     public HeartbeatAckPack() {
@@ -33,6 +36,10 @@ public class HeartbeatAckPack extends TcpPackBody {
         return props.getInteger(Tag.status.value) == 1;
     }
 
+    public int getCodecVersion() {
+        return props.getInteger(Tag.codecVersion.value, 0);
+    }
+
     @Override
     public void marshal(Pack pack) {
         pack.putMarshallable(props);
@@ -1,6 +1,7 @@
 package com.netease.nim.camellia.http.accelerate.proxy.core.transport.tcp.codec;
 
 import com.netease.nim.camellia.codec.Pack;
+import com.netease.nim.camellia.codec.TypedRecord;
 import com.netease.nim.camellia.codec.Unpack;
 
 /**
@@ -8,13 +9,20 @@ import com.netease.nim.camellia.codec.Unpack;
  */
 public class HeartbeatPack extends TcpPackBody {
 
+    //支持的编码版本，老版本的包体为空，解码为0
+    private int codecVersion = TypedRecord.VERSION;
+
+    public int getCodecVersion() {
+        return codecVersion;
+    }
+
     @Override
     public void marshal(Pack pack) {
-
+        pack.putVarUint(codecVersion);
     }
 
     @Override
     public void unmarshal(Unpack unpack) {
-
+        codecVersion = unpack.GetSize() > 0 ? unpack.popVarUint() : 0;
     }
 }
@@ -1,6 +1,10 @@
 package com.netease.nim.camellia.http.accelerate.proxy.core.transport.tcp.codec;
 
+import com.netease.nim.camellia.codec.Pack;
 import com.netease.nim.camellia.codec.Props;
+import com.netease.nim.camellia.codec.TypedRecord;
+import com.netease.nim.camellia.codec.TypedRecordReader;
+import com.netease.nim.camellia.codec.Unpack;
 import com.netease.nim.camellia.http.accelerate.proxy.core.context.ErrorReason;
 import com.netease.nim.camellia.http.accelerate.proxy.core.context.LogBean;
 
@@ -137,4 +141,109 @@ public enum LogBeanTag {
         }
         return logBean;
     }
+
+    /**
+     * 使用TypedRecord编码，时间戳等数值字段不再转成字符串
+     */
+    public static void writeTyped(Pack pack, LogBean logBean) {
+        TypedRecord.writeString(pack, traceId.value, logBean.getTraceId());
+        TypedRecord.writeString(pack, host.value, logBean.getHost());
+        TypedRecord.writeString(pack, path.value, logBean.getPath());
+        writeLong(pack, startTime.value, logBean.getStartTime());
+        writeLong(pack, transportServerSendTime.value, logBean.getTransportServerSendTime());
+        writeLong(pack, transportServerReceiveTime.value, logBean.getTransportServerReceiveTime());
+        writeLong(pack, upstreamSendTime.value, logBean.getUpstreamSendTime());
+        writeLong(pack, upstreamReplyTime.value, logBean.getUpstreamReplyTime());
+        writeLong(pack, endTime.value, logBean.getEndTime());
+        TypedRecord.writeString(pack, transportAddr.value, logBean.getTransportAddr());
+        TypedRecord.writeString(pack, upstreamAddr.value, logBean.getUpstreamAddr());
+        if (logBean.getErrorReason() != null) {
+            TypedRecord.writeSint(pack, errorReason.value, logBean.getErrorReason().getValue());
+        }
+        if (logBean.getCode() != null) {
+            TypedRecord.writeSint(pack, code.value, logBean.getCode());
+        }
+        writeLong(pack, transportClientId.value, logBean.getTransportClientId());
+        TypedRecord.writeEnd(pack);
+    }
+
+    public static LogBean readTyped(Unpack unpack) {
+        LogBean logBean = new LogBean();
+        TypedRecordReader reader = new TypedRecordReader(unpack);
+        int tag;
+        while ((tag = reader.nextTag()) != TypedRecord.END) {
+            LogBeanTag logBeanTag = tag < TAGS.length ? TAGS[tag] : null;
+            if (logBeanTag == null) {
+                reader.skip();
+                continue;
+            }
+            switch (logBeanTag) {
+                case traceId:
+                    logBean.setTraceId(reader.readString());
+                    break;
+                case host:
+                    logBean.setHost(reader.readString());
+                    break;
+                case path:
+                    logBean.setPath(reader.readString());
+                    break;
+                case startTime:
+                    logBean.setStartTime(reader.readSint());
+                    break;
+                case transportServerSendTime:
+                    logBean.setTransportServerSendTime(reader.readSint());
+                    break;
+                case transportServerReceiveTime:
+                    logBean.setTransportServerReceiveTime(reader.readSint());
+                    break;
+                case upstreamSendTime:
+                    logBean.setUpstreamSendTime(reader.readSint());
+                    break;
+                case upstreamReplyTime:
+                    logBean.setUpstreamReplyTime(reader.readSint());
+                    break;
+                case endTime:
+                    logBean.setEndTime(reader.readSint());
+                    break;
+                case transportAddr:
+                    logBean.setTransportAddr(reader.readString());
+                    break;
+                case upstreamAddr:
+                    logBean.setUpstreamAddr(reader.readString());
+                    break;
+                case errorReason:
+                    logBean.setErrorReason(ErrorReason.getByValue((int) reader.readSint()));
+                    break;
+                case code:
+                    logBean.setCode((int) reader.readSint());
+                    break;
+                case transportClientId:
+                    logBean.setTransportClientId(reader.readSint());
+                    break;
+                default:
+                    reader.skip();
+                    break;
+            }
+        }
+        return logBean;
+    }
+
+    //按照value索引的tag表，解码时不需要遍历values()
+    private static final LogBeanTag[] TAGS;
+    static {
+        int max = 0;
+        for (LogBeanTag tag : values()) {
+            max = Math.max(max, tag.value);
+        }
+        TAGS = new LogBeanTag[max + 1];
+        for (LogBeanTag tag : values()) {
+            TAGS[tag.value] = tag;
+        }
+    }
+
+    private static void writeLong(Pack pack, int tag, Long value) {
+        if (value != null) {
+            TypedRecord.writeSint(pack, tag, value);
+        }
+    }
 }
@@ -29,13 +29,41 @@ public class RequestPack extends TcpPackBody {
         return proxyRequest;
     }
 
+    @Override
+    public boolean isTypedBodySupport() {
+        return true;
+    }
+
     @Override
     public void marshal(Pack pack) {
+        marshal(pack, false);
+    }
+
+    @Override
+    public void marshalTyped(Pack pack) {
+        marshal(pack, true);
+    }
+
+    @Override
+    public void unmarshal(Unpack unpack) {
+        unmarshal(unpack, false);
+    }
+
+    @Override
+    public void unmarshalTyped(Unpack unpack) {
+        unmarshal(unpack, true);
+    }
+
+    //typed模式下只有LogBean的编码不同，http部分保持一致
+    private void marshal(Pack pack, boolean typed) {
 
         FullHttpRequest request = proxyRequest.getRequest();
         LogBean logBean = proxyRequest.getLogBean();
-        Props props = LogBeanTag.logBean(logBean);
-        pack.putMarshallable(props);
+        if (typed) {
+            LogBeanTag.writeTyped(pack, logBean);
+        } else {
+            pack.putMarshallable(LogBeanTag.logBean(logBean));
+        }
 
         HttpVersion httpVersion = request.protocolVersion();
         pack.putVarstr(httpVersion.text());
@@ -64,12 +92,16 @@ public class RequestPack extends TcpPackBody {
         }
     }
 
-    @Override
-    public void unmarshal(Unpack unpack) {
+    private void unmarshal(Unpack unpack, boolean typed) {
 
-        Props props = new Props();
-        unpack.popMarshallable(props);
-        LogBean logBean = LogBeanTag.parseProps(props);
+        LogBean logBean;
+        if (typed) {
+            logBean = LogBeanTag.readTyped(unpack);
+        } else {
+            Props props = new Props();
+            unpack.popMarshallable(props);
+            logBean = LogBeanTag.parseProps(props);
+        }
 
         HttpVersion httpVersion = HttpVersion.valueOf(unpack.popVarstr());
 
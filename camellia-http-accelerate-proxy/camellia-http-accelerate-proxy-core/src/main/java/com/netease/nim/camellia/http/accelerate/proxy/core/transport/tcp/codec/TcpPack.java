@@ -37,13 +37,18 @@ public class TcpPack {
         Pack pack = new Pack(allocator, 1024);
         pack.putInt(0);
 
+        if (body == null || !body.isTypedBodySupport()) {
+            header.setTypedBody(false);
+        }
         pack.putMarshallable(header);
         if (body != null) {
-            pack.putMarshallable(body);
+            if (header.isTypedBody()) {
+                body.marshalTyped(pack);
+            } else {
+                pack.putMarshallable(body);
+            }
         }
 
-        pack.getBuffer().capacity(pack.getBuffer().readableBytes());
-
         pack.replaceInt(0, pack.size());
 
         return pack.getBuffer();
@@ -62,7 +67,7 @@ public class TcpPack {
                     break;
                 case REQUEST:
                     body = new RequestAckPack();
-                    unpack.popMarshallable(body);
+                    unmarshalBody(unpack);
                     break;
                 default:
                     throw new IllegalArgumentException("unknown TcpPackCmd");
@@ -75,11 +80,19 @@ public class TcpPack {
                     break;
                 case REQUEST:
                     body = new RequestPack();
-                    unpack.popMarshallable(body);
+                    unmarshalBody(unpack);
                     break;
                 default:
                     throw new IllegalArgumentException("unknown TcpPackCmd");
             }
         }
     }
+
+    private void unmarshalBody(Unpack unpack) {
+        if (header.isTypedBody()) {
+            body.unmarshalTyped(unpack);
+        } else {
+            unpack.popMarshallable(body);
+        }
+    }
 }
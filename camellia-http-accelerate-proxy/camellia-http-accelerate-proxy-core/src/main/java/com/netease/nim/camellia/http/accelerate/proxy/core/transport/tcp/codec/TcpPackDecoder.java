@@ -32,10 +32,9 @@ public class TcpPackDecoder extends ByteToMessageDecoder {
             if (len > buf.readableBytes()) {
                 return;
             }
-            ByteBuf byteBuf = buf.readBytes(len);
-            byte[] bytes = new byte[byteBuf.readableBytes()];
-            byteBuf.readBytes(bytes);
-            byteBuf.release();
+            //RequestAckPack的content会引用解码的buffer，因此需要拷贝一次（直接拷贝到byte[]，不经过中间的ByteBuf）
+            byte[] bytes = new byte[len];
+            buf.readBytes(bytes);
             Unpack unpack = new Unpack(bytes);
             TcpPack pack = new TcpPack();
             pack.decode(unpack);
@@ -68,6 +68,7 @@ public class TcpPackHeader implements Marshallable {
 
         DEFAULT((byte) 0),
         ACK((byte) 1),//是否是响应包
+        TYPED_BODY((byte) 2),//body是否是TypedRecord编码，响应包沿用请求包的编码
 
         ;
 
@@ -99,4 +100,16 @@ public class TcpPackHeader implements Marshallable {
         return 0 != (tag & Tag.ACK.getValue());
     }
 
+    public void setTypedBody(boolean typedBody) {
+        if (typedBody) {
+            tag |= Tag.TYPED_BODY.getValue();
+        } else {
+            tag &= ~Tag.TYPED_BODY.getValue();
+        }
+    }
+
+    public boolean isTypedBody() {
+        return 0 != (tag & Tag.TYPED_BODY.getValue());
+    }
+
 }
@@ -11,6 +11,13 @@ import org.slf4j.LoggerFactory;
 public class CamelliaClusterFreq {
 
     private static final Logger logger = LoggerFactory.getLogger(CamelliaClusterFreq.class);
+
+    private static final FreqLuaScript script = new FreqLuaScript("local x = redis.call('incrBy', KEYS[1], ARGV[1])\n" +
+            "if x == tonumber(ARGV[1]) then\n" +
+            "\tredis.call('pexpire', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return x");
+
     private final CamelliaRedisTemplate template;
 
     public CamelliaClusterFreq(CamelliaRedisTemplate template) {
@@ -23,11 +30,7 @@ public class CamelliaClusterFreq {
 
     public CamelliaFreqResponse checkFreqPass(String freqKey, int delta, CamelliaFreqConfig freqConfig) {
         try {
-            Object curObj = template.eval("local x = redis.call('incrBy', KEYS[1], ARGV[1])\n" +
-                    "if x == tonumber(ARGV[1]) then\n" +
-                    "\tredis.call('pexpire', KEYS[1], ARGV[2])\n" +
-                    "end\n" +
-                    "return x", 1, freqKey, String.valueOf(delta), String.valueOf(freqConfig.getCheckTime()));
+            Object curObj = script.eval(template, 1, freqKey, String.valueOf(delta), String.valueOf(freqConfig.getCheckTime()));
             long current = Long.parseLong(String.valueOf(curObj));
             boolean pass = current <= freqConfig.getThreshold();
             if (!pass) {
@@ -14,15 +14,19 @@ public class CamelliaFreq {
 
     private final CamelliaStandaloneFreq standaloneFreq;
     private CamelliaClusterFreq clusterFreq;
+    private CamelliaRedisTemplate template;
+    private volatile CamelliaLeaseFreq leaseFreq;
 
     public CamelliaFreq(CamelliaRedisTemplate template, int standaloneCapacity) {
         this.standaloneFreq = new CamelliaStandaloneFreq(standaloneCapacity);
         this.clusterFreq = new CamelliaClusterFreq(template);
+        this.template = template;
     }
 
     public CamelliaFreq(CamelliaRedisTemplate template) {
         this.standaloneFreq = new CamelliaStandaloneFreq();
         this.clusterFreq = new CamelliaClusterFreq(template);
+        this.template = template;
     }
 
     public CamelliaFreq(int standaloneCapacity) {
@@ -65,6 +69,12 @@ public class CamelliaFreq {
                     return response;
                 }
                 return clusterFreq.checkFreqPass(freqKey, delta, freqConfig);
+            } else if (freqType == CamelliaFreqType.LEASE) {
+                if (template == null) {
+                    logger.warn("CamelliaLeaseFreq not init, return pass, freqKey = {}, delta = {}, freqConfig = {}", freqKey, delta, JSONObject.toJSONString(freqConfig));
+                    return CamelliaFreqResponse.DEFAULT_PASS;
+                }
+                return getLeaseFreq().checkFreqPass(freqKey, delta, freqConfig);
             }
             return CamelliaFreqResponse.DEFAULT_PASS;
         } catch (Throwable e) {
@@ -72,4 +82,16 @@ public class CamelliaFreq {
             return CamelliaFreqResponse.DEFAULT_PASS;
         }
     }
+
+    //租约模式会启动一个归还额度的后台线程，因此使用时才初始化
+    private CamelliaLeaseFreq getLeaseFreq() {
+        if (leaseFreq == null) {
+            synchronized (this) {
+                if (leaseFreq == null) {
+                    leaseFreq = new CamelliaLeaseFreq(template);
+                }
+            }
+        }
+        return leaseFreq;
+    }
 }
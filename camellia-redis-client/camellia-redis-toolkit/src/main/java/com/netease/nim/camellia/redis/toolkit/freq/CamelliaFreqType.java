@@ -13,5 +13,7 @@ public enum CamelliaFreqType {
     // 如果是普通的集群模式，则10w的QPS都会打到redis
     // 如果用混合模式，且一共有10个节点在处理，则穿透到redis最多是20*10=200QPS，最终通过的也只有20QPS，可以极大的降低redis的压力
     MISC,
+    //集群模式，从redis批量租借额度后在本地扣减，用于单个key的qps很高的场景，详见CamelliaLeaseFreq
+    LEASE,
     ;
 }
@@ -0,0 +1,250 @@
+package com.netease.nim.camellia.redis.toolkit.freq;
+
+import com.alibaba.fastjson.JSONObject;
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约模式的集群频控，redis上的计数器和CamelliaClusterFreq一致，但是不再每次请求都访问redis
+ * 1）每次从redis租借一批额度（单次最多阈值的leaseRatio，默认5%），在本地的计数器上扣减，扣完了再去redis租借
+ * 2）单次租借的额度根据本地观测到的请求速率自适应调整，目标是一批额度可以用leaseTargetMillis（默认100ms）
+ * 3）redis只会发放不超过阈值的额度，因此全局通过的请求数不会超过阈值；额度租借完之后，本地直接返回失败，直到当前周期（或者ban）结束
+ * 4）一段时间（idleReturnMillis）没有请求的key，会把没用完的额度归还给redis，供其他节点使用；周期结束时redis上的key过期，没用完的额度自然失效
+ * 5）banTime/delayBanEnable的语义和CamelliaClusterFreq一致，区别是delayBanEnable模式下，屏蔽时间是在本地重新检查（租借）时顺延的，而不是每个请求都顺延
+ * 6）所有实例共用一个归还额度的定时线程，不再使用时需要调用close()，否则实例会一直被定时任务引用
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaLeaseFreq {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaLeaseFreq.class);
+
+    //返回：{本次发放的额度，redis上的计数，key的剩余过期时间}
+    private static final FreqLuaScript leaseScript = new FreqLuaScript("local want = tonumber(ARGV[1])\n" +
+            "local threshold = tonumber(ARGV[2])\n" +
+            "local cur = tonumber(redis.call('get', KEYS[1]) or '0')\n" +
+            "local grant = threshold - cur\n" +
+            "if grant > want then\n" +
+            "\tgrant = want\n" +
+            "end\n" +
+            "if grant < 0 then\n" +
+            "\tgrant = 0\n" +
+            "end\n" +
+            "if grant > 0 then\n" +
+            "\tcur = redis.call('incrBy', KEYS[1], grant)\n" +
+            "\tif cur == grant then\n" +
+            "\t\tredis.call('pexpire', KEYS[1], ARGV[3])\n" +
+            "\tend\n" +
+            "elseif tonumber(ARGV[4]) > 0 then\n" +
+            "\tif cur <= threshold then\n" +
+            "\t\tcur = redis.call('incr', KEYS[1])\n" +
+            "\t\tredis.call('pexpire', KEYS[1], ARGV[4])\n" +
+            "\telseif ARGV[5] == '1' then\n" +
+            "\t\tredis.call('pexpire', KEYS[1], ARGV[4])\n" +
+            "\tend\n" +
+            "end\n" +
+            "return {grant, cur, redis.call('pttl', KEYS[1])}");
+
+    //归还额度，只有在同一个周期内（剩余过期时间和预期一致）且没有被ban时才归还，返回归还的额度
+    private static final FreqLuaScript returnScript = new FreqLuaScript("local ttl = redis.call('pttl', KEYS[1])\n" +
+            "if ttl <= 0 or math.abs(ttl - tonumber(ARGV[2])) > tonumber(ARGV[3]) then\n" +
+            "\treturn 0\n" +
+            "end\n" +
+            "local cur = tonumber(redis.call('get', KEYS[1]) or '0')\n" +
+            "if cur > tonumber(ARGV[4]) then\n" +
+            "\treturn 0\n" +
+            "end\n" +
+            "local amount = tonumber(ARGV[1])\n" +
+            "if amount > cur then\n" +
+            "\tamount = cur\n" +
+            "end\n" +
+            "redis.call('decrBy', KEYS[1], amount)\n" +
+            "return amount");
+
+    private static final long returnTolerance = 50;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(CamelliaLeaseFreq.class, true));
+
+    private final CamelliaRedisTemplate template;
+    private final ConcurrentLinkedHashMap<String, Lease> cache;
+    private final double leaseRatio;
+    private final long leaseTargetMillis;
+    private final long idleReturnMillis;
+    private final ScheduledFuture<?> returnFuture;
+
+    public CamelliaLeaseFreq(CamelliaRedisTemplate template) {
+        this(template, 100000, 0.05, 100, 500);
+    }
+
+    /**
+     * @param template redis
+     * @param capacity 本地最多缓存多少个key的租约
+     * @param leaseRatio 单次租借的最大额度占阈值的比例
+     * @param leaseTargetMillis 期望一批额度可以使用的时长，用于自适应计算单次租借的额度
+     * @param idleReturnMillis 多久没有请求后归还没用完的额度
+     */
+    public CamelliaLeaseFreq(CamelliaRedisTemplate template, int capacity, double leaseRatio, long leaseTargetMillis, long idleReturnMillis) {
+        this.template = template;
+        this.cache = new ConcurrentLinkedHashMap.Builder<String, Lease>()
+                .initialCapacity(capacity).maximumWeightedCapacity(capacity).build();
+        this.leaseRatio = leaseRatio;
+        this.leaseTargetMillis = leaseTargetMillis;
+        this.idleReturnMillis = idleReturnMillis;
+        long interval = Math.max(10, idleReturnMillis / 2);
+        this.returnFuture = scheduler.scheduleAtFixedRate(() -> returnLease(false), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止归还额度的定时任务，并把本地没用完的额度归还给redis
+     */
+    public void close() {
+        returnFuture.cancel(false);
+        returnLease(true);
+    }
+
+    public CamelliaFreqResponse checkFreqPass(String freqKey, CamelliaFreqConfig freqConfig) {
+        return checkFreqPass(freqKey, 1, freqConfig);
+    }
+
+    public CamelliaFreqResponse checkFreqPass(String freqKey, int delta, CamelliaFreqConfig freqConfig) {
+        try {
+            Lease lease = getLease(freqKey);
+            long now = System.currentTimeMillis();
+            lease.lastAccessTime = now;
+            if (now < lease.denyUntil) {
+                return new CamelliaFreqResponse(false, lease.current, CamelliaFreqType.LEASE);
+            }
+            if (now < lease.windowEnd && lease.tryAcquire(delta)) {
+                return new CamelliaFreqResponse(true, lease.current - lease.remaining.get(), CamelliaFreqType.LEASE);
+            }
+            synchronized (lease) {
+                now = System.currentTimeMillis();
+                if (now < lease.denyUntil) {
+                    return new CamelliaFreqResponse(false, lease.current, CamelliaFreqType.LEASE);
+                }
+                if (now >= lease.windowEnd) {
+                    //上一个周期的额度随着redis上的key过期而失效
+                    lease.remaining.set(0);
+                } else if (lease.tryAcquire(delta)) {
+                    return new CamelliaFreqResponse(true, lease.current - lease.remaining.get(), CamelliaFreqType.LEASE);
+                }
+                long want = Math.max(delta, nextLeaseSize(lease, now, freqConfig));
+                List<?> reply = (List<?>) leaseScript.eval(template, 1, freqKey, String.valueOf(want), String.valueOf(freqConfig.getThreshold()),
+                        String.valueOf(freqConfig.getCheckTime()), String.valueOf(freqConfig.getBanTime()), freqConfig.isDelayBanEnable() ? "1" : "0");
+                long grant = toLong(reply.get(0));
+                long current = toLong(reply.get(1));
+                long ttl = toLong(reply.get(2));
+                now = System.currentTimeMillis();
+                lease.config = freqConfig;
+                lease.current = current;
+                lease.windowEnd = now + (ttl > 0 ? ttl : freqConfig.getCheckTime());
+                lease.lastLeaseTime = now;
+                lease.lastGrant = grant;
+                lease.remaining.addAndGet(grant);
+                if (lease.tryAcquire(delta)) {
+                    return new CamelliaFreqResponse(true, current - lease.remaining.get(), CamelliaFreqType.LEASE);
+                }
+                if (current > freqConfig.getThreshold()) {
+                    //已经被ban了，直到key过期
+                    lease.denyUntil = lease.windowEnd;
+                } else {
+                    //额度已经被租借完了，但其他节点可能会归还，过一会儿再去redis检查
+                    lease.denyUntil = Math.min(lease.windowEnd, now + leaseTargetMillis);
+                }
+                return new CamelliaFreqResponse(false, current, CamelliaFreqType.LEASE);
+            }
+        } catch (Throwable e) {
+            logger.error("checkFreqPass error, freqKey = {}, delta = {}, freqConfig = {}", freqKey, delta, JSONObject.toJSONString(freqConfig), e);
+        }
+        return CamelliaFreqResponse.DEFAULT_PASS;
+    }
+
+    private Lease getLease(String freqKey) {
+        Lease lease = cache.get(freqKey);
+        if (lease == null) {
+            lease = new Lease();
+            Lease oldLease = cache.putIfAbsent(freqKey, lease);
+            if (oldLease != null) {
+                lease = oldLease;
+            }
+        }
+        return lease;
+    }
+
+    //根据上一批额度的消耗速度计算本次租借的额度
+    private long nextLeaseSize(Lease lease, long now, CamelliaFreqConfig freqConfig) {
+        long maxLease = Math.max(1, (long) Math.ceil(freqConfig.getThreshold() * leaseRatio));
+        if (lease.lastLeaseTime <= 0) {
+            return Math.max(1, maxLease / 4);
+        }
+        long elapsed = Math.max(1, now - lease.lastLeaseTime);
+        long consumed = Math.max(0, lease.lastGrant - lease.remaining.get());
+        long size = (long) Math.ceil(consumed * 1.0 * leaseTargetMillis / elapsed);
+        return Math.max(1, Math.min(maxLease, size));
+    }
+
+    private void returnLease(boolean all) {
+        try {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Lease> entry : cache.entrySet()) {
+                Lease lease = entry.getValue();
+                if (lease.remaining.get() <= 0) continue;
+                if (!all && now - lease.lastAccessTime < idleReturnMillis) continue;
+                if (lease.windowEnd - now <= returnTolerance * 2) continue;
+                synchronized (lease) {
+                    long amount = lease.remaining.getAndSet(0);
+                    if (amount <= 0) continue;
+                    CamelliaFreqConfig config = lease.config;
+                    try {
+                        returnScript.eval(template, 1, entry.getKey(), String.valueOf(amount), String.valueOf(lease.windowEnd - System.currentTimeMillis()),
+                                String.valueOf(returnTolerance), String.valueOf(config.getThreshold()));
+                    } catch (Exception e) {
+                        logger.error("return lease error, freqKey = {}, amount = {}", entry.getKey(), amount, e);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            logger.error("return lease error", e);
+        }
+    }
+
+    private static long toLong(Object obj) {
+        if (obj instanceof Long) {
+            return (Long) obj;
+        }
+        return Long.parseLong(String.valueOf(obj));
+    }
+
+    private static class Lease {
+        private final AtomicLong remaining = new AtomicLong();
+        private volatile long windowEnd;
+        private volatile long denyUntil;
+        private volatile long current;
+        private volatile long lastAccessTime;
+        private volatile CamelliaFreqConfig config;
+        private long lastLeaseTime;
+        private long lastGrant;
+
+        boolean tryAcquire(int delta) {
+            while (true) {
+                long value = remaining.get();
+                if (value < delta) {
+                    return false;
+                }
+                if (remaining.compareAndSet(value, value - delta)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
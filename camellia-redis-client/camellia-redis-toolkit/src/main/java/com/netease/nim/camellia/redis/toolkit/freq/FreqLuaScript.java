@@ -0,0 +1,64 @@
+package com.netease.nim.camellia.redis.toolkit.freq;
+
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 优先使用evalsha执行lua脚本，避免每次都发送完整的脚本内容
+ * 如果redis返回NOSCRIPT（脚本缓存被清理、新节点、主从切换等），则使用eval执行一次，eval会把脚本加载到redis的脚本缓存中
+ * Created by agent on 2026/10/18
+ */
+class FreqLuaScript {
+
+    private final byte[] script;
+    private final byte[] sha1;
+
+    FreqLuaScript(String script) {
+        this.script = script.getBytes(StandardCharsets.UTF_8);
+        this.sha1 = SafeEncoder.encode(sha1Hex(this.script));
+    }
+
+    Object eval(CamelliaRedisTemplate template, int keyCount, String... params) {
+        byte[][] args = SafeEncoder.encodeMany(params);
+        try {
+            return template.evalsha(sha1, keyCount, args);
+        } catch (Exception e) {
+            if (isNoScript(e)) {
+                return template.eval(script, keyCount, args);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        int depth = 0;
+        while (e != null && depth < 10) {
+            if (e instanceof JedisNoScriptException) return true;
+            String message = e.getMessage();
+            if (message != null && message.startsWith("NOSCRIPT")) return true;
+            e = e.getCause();
+            depth ++;
+        }
+        return false;
+    }
+
+    private static String sha1Hex(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(data);
+            StringBuilder builder = new StringBuilder();
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -163,28 +163,71 @@ public class CamelliaRedisLock {
 
     /**
      * 尝试获取锁，若没有，则会等待重试，直到acquireTimeoutMillis超时
+     * 等待期间不再固定间隔轮询，而是等待锁释放的通知（详见CamelliaRedisLockNotifier），单次等待不会超过锁的剩余过期时间
+     * 订阅连接不可用时，退化为按照tryLockIntervalMillis的间隔轮询
      * @return 成功/失败
      */
     public boolean lock() {
         if (isLockOk()) return true;
         long start = System.currentTimeMillis();
-        while (true) {
-            boolean lockOk = tryLock();
-            if (lockOk) {
-                return true;
+        CamelliaRedisLockNotifier notifier = CamelliaRedisLockNotifier.acquire(template);
+        CamelliaRedisLockNotifier.Waiter waiter = notifier.register(lockKey);
+        try {
+            while (true) {
+                long version = waiter.version();
+                long ttl = acquire();
+                if (ttl == ACQUIRED) {
+                    return true;
+                }
+                long remaining = acquireTimeoutMillis - (System.currentTimeMillis() - start);
+                if (remaining <= 0) {
+                    return false;
+                }
+                long waitMillis;
+                if (ttl != ACQUIRE_ERROR && notifier.isSubscribed()) {
+                    //ttl=-1表示锁key没有过期时间（不是通过本类加的锁）
+                    waitMillis = ttl > 0 ? Math.min(ttl, maxNotifyWaitMillis) : maxNotifyWaitMillis;
+                } else {
+                    waitMillis = tryLockIntervalMillis;
+                }
+                try {
+                    waiter.await(version, Math.min(waitMillis, remaining));
+                } catch (InterruptedException e) {
+                    logger.error("wait error", e);
+                }
             }
+        } finally {
+            notifier.unregister(waiter);
+            notifier.release();
+        }
+    }
+
+    private static final long ACQUIRED = -3;
+    private static final long ACQUIRE_ERROR = -4;
+    //有订阅连接时单次等待的上限，用于兜底丢失的通知
+    private static final long maxNotifyWaitMillis = 200;
+    //获取锁，获取失败时返回锁的剩余过期时间，避免单独再查询一次
+    private static final byte[] ACQUIRE_SCRIPT = SafeEncoder.encode("if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return " + ACQUIRED + " else return redis.call('pttl', KEYS[1]) end");
+
+    private long acquire() {
+        synchronized (lockObj) {
             try {
-                Thread.sleep(tryLockIntervalMillis);
-            } catch (InterruptedException e) {
-                logger.error("sleep error", e);
-            }
-            if (System.currentTimeMillis() - start > acquireTimeoutMillis) {
-                return false;
+                long timestamp = System.currentTimeMillis() + expireTimeoutMillis;
+                Object result = template.eval(ACQUIRE_SCRIPT, 1, lockKey, SafeEncoder.encode(lockId), SafeEncoder.encode(String.valueOf(expireTimeoutMillis)));
+                long ttl = Long.parseLong(String.valueOf(result));
+                if (ttl == ACQUIRED) {
+                    this.lockOk = true;
+                    this.expireTimestamp = timestamp;
+                }
+                return ttl;
+            } catch (Exception e) {
+                logger.error("acquire error, lockKey = {}, lockId = {}", lockKey, lockId, e);
+                return ACQUIRE_ERROR;
             }
         }
     }
 
-    private static final byte[] RENEW_SCRIPT = SafeEncoder.encode("if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end");
+    static final byte[] RENEW_SCRIPT = SafeEncoder.encode("if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end");
     /**
      * 尝试对锁进行renew，只能renew自己获取到的锁
      * @return 成功/失败
@@ -211,6 +254,36 @@ public class CamelliaRedisLock {
         }
     }
 
+    /**
+     * CamelliaRedisLockManager批量续约时使用，在pipeline中执行RENEW_SCRIPT之前判断是否还持有锁
+     */
+    boolean isHeld() {
+        synchronized (lockObj) {
+            return lockOk;
+        }
+    }
+
+    /**
+     * CamelliaRedisLockManager批量续约时使用，处理pipeline中RENEW_SCRIPT的返回结果
+     * @param result RENEW_SCRIPT的返回结果
+     * @param timestamp 发送续约请求之前计算的过期时间戳
+     */
+    void onRenewResult(Object result, long timestamp) {
+        synchronized (lockObj) {
+            if (!lockOk) return;
+            if (result != null && String.valueOf(result).equals("1")) {
+                this.expireTimestamp = timestamp;
+            } else {
+                this.lockOk = false;
+                this.expireTimestamp = -1;
+            }
+        }
+    }
+
+    long getExpireTimeoutMillis() {
+        return expireTimeoutMillis;
+    }
+
     /**
      * 获取锁过期的时间戳，毫秒
      * @return 锁过期的时间戳
@@ -236,7 +309,8 @@ public class CamelliaRedisLock {
         return lockId;
     }
 
-    private static final byte[] RELEASE_SCRIPT = SafeEncoder.encode("if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end");
+    //释放成功后发布通知，唤醒等待者
+    private static final byte[] RELEASE_SCRIPT = SafeEncoder.encode("if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('del', KEYS[1]) redis.call('publish', ARGV[2], KEYS[1]) return 1 else return 0 end");
     /**
      * 释放锁，只能释放自己获取到的锁
      * @return 成功/失败
@@ -245,10 +319,11 @@ public class CamelliaRedisLock {
         synchronized (lockObj) {
             try {
                 if (!lockOk) return false;
-                Object eval = template.eval(RELEASE_SCRIPT, 1, lockKey, SafeEncoder.encode(lockId));
+                Object eval = template.eval(RELEASE_SCRIPT, 1, lockKey, SafeEncoder.encode(lockId), CamelliaRedisLockNotifier.CHANNEL);
                 if (eval != null && String.valueOf(eval).equals("1")) {
                     lockOk = false;
                     expireTimestamp = -1;
+                    CamelliaRedisLockNotifier.onLocalRelease(template, lockKey);
                     return true;
                 }
                 lockOk = false;
@@ -271,6 +346,7 @@ public class CamelliaRedisLock {
                 boolean ok = template.del(lockKey) > 0;
                 lockOk = false;
                 expireTimestamp = -1;
+                CamelliaRedisLockNotifier.onLocalRelease(template, lockKey);
                 return ok;
             } catch (Exception e) {
                 logger.error("clear error, lockKey = {}, lockId = {}", lockKey, lockId, e);
@@ -1,24 +1,40 @@
 package com.netease.nim.camellia.redis.toolkit.lock;
 
 
+import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
 import com.netease.nim.camellia.tools.executor.CamelliaScheduleExecutor;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 一个会自动续约redis锁的管理器，避免锁在使用中途过期被自动释放掉
  * 适用于锁持有时间不能精确估计的业务场景
+ * 续约：所有锁共用一个定时任务（间隔renewTickMillis），每个锁每隔expireTimeoutMillis/5续约一次，
+ * 同一个tick内到期的锁按照所在的redis节点分组，每个节点通过一次pipeline完成续约，不支持获取原始连接时（如双写）退化为逐个续约
+ * tick线程只执行按节点分组的pipeline续约，节点探测、逐个续约以及pipeline失败后的兜底续约都提交到续约线程池（poolSize）中执行，避免拖慢tick
  * Created by caojiajun on 2022/2/15
  */
 public class CamelliaRedisLockManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaRedisLockManager.class);
+
     private static final int defaultPoolSize = Runtime.getRuntime().availableProcessors() * 4;
     private static final long defaultAcquireTimeoutMillis = 5000;
     private static final long defaultExpireTimeoutMillis = 5000;
+    private static final long defaultRenewTickMillis = 50;
+
+    //不支持按节点分组批量续约
+    private static final String NODE_UNSUPPORTED = "";
 
     private final CamelliaScheduleExecutor scheduleExecutor;
 
@@ -26,6 +42,8 @@ public class CamelliaRedisLockManager {
 
     private final long acquireTimeoutMillis;
     private final long expireTimeoutMillis;
+    private final long renewTickMillis;
+    private final AtomicBoolean renewTaskStarted = new AtomicBoolean(false);
 
     private final ConcurrentHashMap<LockKey, LockInfo> lockInfoMap = new ConcurrentHashMap<>();
 
@@ -48,10 +66,22 @@ public class CamelliaRedisLockManager {
     }
 
     public CamelliaRedisLockManager(CamelliaRedisTemplate template, int poolSize, long acquireTimeoutMillis, long expireTimeoutMillis) {
+        this(template, poolSize, acquireTimeoutMillis, expireTimeoutMillis, defaultRenewTickMillis);
+    }
+
+    /**
+     * @param template redis客户端
+     * @param poolSize 续约线程池大小（续约tick以及逐个续约的任务都在这个线程池中执行）
+     * @param acquireTimeoutMillis 获取锁的超时时间
+     * @param expireTimeoutMillis 锁的过期时间
+     * @param renewTickMillis 续约定时任务的间隔，锁的续约最多延迟一个tick，需要明显小于锁过期时间的4/5
+     */
+    public CamelliaRedisLockManager(CamelliaRedisTemplate template, int poolSize, long acquireTimeoutMillis, long expireTimeoutMillis, long renewTickMillis) {
         this.template = template;
         this.scheduleExecutor = new CamelliaScheduleExecutor("camellia-redis-lock-manager", poolSize, 1024*32);
         this.acquireTimeoutMillis = acquireTimeoutMillis;
         this.expireTimeoutMillis = expireTimeoutMillis;
+        this.renewTickMillis = renewTickMillis;
     }
 
     public static CamelliaRedisLockManager getInstance() {
@@ -59,12 +89,18 @@ public class CamelliaRedisLockManager {
     }
 
     private static class LockInfo {
+        CamelliaRedisTemplate template;
         CamelliaRedisLock lock;
-        CamelliaScheduleExecutor.Task task;
+        long renewIntervalMillis;
+        long nextRenewTime;
+        //锁key所在的redis节点，null表示还没有探测
+        String node;
 
-        public LockInfo(CamelliaRedisLock lock, CamelliaScheduleExecutor.Task task) {
+        public LockInfo(CamelliaRedisTemplate template, CamelliaRedisLock lock) {
+            this.template = template;
             this.lock = lock;
-            this.task = task;
+            this.renewIntervalMillis = Math.max(1, lock.getExpireTimeoutMillis() / 5);
+            this.nextRenewTime = System.currentTimeMillis() + renewIntervalMillis;
         }
     }
 
@@ -290,9 +326,6 @@ public class CamelliaRedisLockManager {
             if (lockInfo.lock != null) {
                 lockInfo.lock.release();
             }
-            if (lockInfo.task != null) {
-                lockInfo.task.cancel();
-            }
         }
         lockInfoMap.clear();
     }
@@ -306,16 +339,7 @@ public class CamelliaRedisLockManager {
         final CamelliaRedisLock lock = CamelliaRedisLock.newLock(template, lockKey.getKey(), acquireTimeoutMillis, expireTimeoutMillis);
         boolean lockOk = lock.lock();
         if (lockOk) {
-            CamelliaScheduleExecutor.Task task = scheduleExecutor.scheduleAtFixedRate(lock::renew, expireTimeoutMillis / 5, expireTimeoutMillis / 5, TimeUnit.MILLISECONDS);
-            LockInfo oldLockInfo = lockInfoMap.put(lockKey, new LockInfo(lock, task));
-            if (oldLockInfo != null) {
-                if (oldLockInfo.lock != null) {
-                    oldLockInfo.lock.release();
-                }
-                if (oldLockInfo.task != null) {
-                    oldLockInfo.task.cancel();
-                }
-            }
+            onLockOk(template, lockKey, lock);
         }
         return lockOk;
     }
@@ -329,18 +353,133 @@ public class CamelliaRedisLockManager {
         final CamelliaRedisLock lock = CamelliaRedisLock.newLock(template, lockKey.getKey(), acquireTimeoutMillis, expireTimeoutMillis);
         boolean lockOk = lock.tryLock();
         if (lockOk) {
-            CamelliaScheduleExecutor.Task task = scheduleExecutor.scheduleAtFixedRate(lock::renew, expireTimeoutMillis / 5, expireTimeoutMillis / 5, TimeUnit.MILLISECONDS);
-            LockInfo oldLockInfo = lockInfoMap.put(lockKey, new LockInfo(lock, task));
-            if (oldLockInfo != null) {
-                if (oldLockInfo.lock != null) {
-                    oldLockInfo.lock.release();
+            onLockOk(template, lockKey, lock);
+        }
+        return lockOk;
+    }
+
+    private void onLockOk(CamelliaRedisTemplate template, LockKey lockKey, CamelliaRedisLock lock) {
+        if (renewTaskStarted.compareAndSet(false, true)) {
+            scheduleExecutor.scheduleAtFixedRate(this::renew, renewTickMillis, renewTickMillis, TimeUnit.MILLISECONDS);
+        }
+        LockInfo oldLockInfo = lockInfoMap.put(lockKey, new LockInfo(template, lock));
+        if (oldLockInfo != null && oldLockInfo.lock != null) {
+            oldLockInfo.lock.release();
+        }
+    }
+
+    //找出本次tick需要续约的锁，按照template+redis节点分组后批量续约
+    private void renew() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<CamelliaRedisTemplate, Map<String, List<LockInfo>>> batchMap = new HashMap<>();
+            for (LockInfo lockInfo : lockInfoMap.values()) {
+                if (now < lockInfo.nextRenewTime) continue;
+                lockInfo.nextRenewTime = now + lockInfo.renewIntervalMillis;
+                String node = lockInfo.node;
+                if (node == null || node.equals(NODE_UNSUPPORTED)) {
+                    //还没有探测过节点，或者不支持批量续约
+                    renewAsync(lockInfo);
+                    continue;
                 }
-                if (oldLockInfo.task != null) {
-                    oldLockInfo.task.cancel();
+                batchMap.computeIfAbsent(lockInfo.template, k -> new HashMap<>())
+                        .computeIfAbsent(node, k -> new ArrayList<>()).add(lockInfo);
+            }
+            for (Map.Entry<CamelliaRedisTemplate, Map<String, List<LockInfo>>> entry : batchMap.entrySet()) {
+                for (Map.Entry<String, List<LockInfo>> nodeEntry : entry.getValue().entrySet()) {
+                    List<LockInfo> list = nodeEntry.getValue();
+                    if (list.size() == 1) {
+                        renewAsync(list.get(0));
+                    } else {
+                        renew(entry.getKey(), nodeEntry.getKey(), list);
+                    }
                 }
             }
+        } catch (Throwable e) {
+            logger.error("renew error", e);
+        }
+    }
+
+    private void renewAsync(LockInfo lockInfo) {
+        try {
+            scheduleExecutor.execute(() -> renewSingle(lockInfo));
+        } catch (RejectedExecutionException e) {
+            renewSingle(lockInfo);
         }
-        return lockOk;
+    }
+
+    //逐个续约，顺便探测锁key所在的节点，下次就可以批量续约了
+    private void renewSingle(LockInfo lockInfo) {
+        try {
+            if (lockInfo.node == null) {
+                node(lockInfo);
+            }
+            lockInfo.lock.renew();
+        } catch (Throwable e) {
+            logger.error("renew error, lockKey = {}", SafeEncoder.encode(lockInfo.lock.getLockKey()), e);
+        }
+    }
+
+    private void renew(CamelliaRedisTemplate template, String node, List<LockInfo> list) {
+        try (Jedis jedis = template.getWriteJedis(list.get(0).lock.getLockKey())) {
+            if (!node.equals(address(jedis))) {
+                //路由发生了变化，下次重新探测
+                for (LockInfo lockInfo : list) {
+                    lockInfo.node = null;
+                    renewAsync(lockInfo);
+                }
+                return;
+            }
+            Pipeline pipeline = jedis.pipelined();
+            List<LockInfo> sendList = new ArrayList<>(list.size());
+            List<Response<Object>> responseList = new ArrayList<>(list.size());
+            long now = System.currentTimeMillis();
+            for (LockInfo lockInfo : list) {
+                CamelliaRedisLock lock = lockInfo.lock;
+                if (!lock.isHeld()) continue;
+                sendList.add(lockInfo);
+                responseList.add(pipeline.eval(CamelliaRedisLock.RENEW_SCRIPT, 1, lock.getLockKey(),
+                        SafeEncoder.encode(lock.getLockId()), SafeEncoder.encode(String.valueOf(lock.getExpireTimeoutMillis()))));
+            }
+            pipeline.sync();
+            for (int i=0; i<sendList.size(); i++) {
+                LockInfo lockInfo = sendList.get(i);
+                try {
+                    lockInfo.lock.onRenewResult(responseList.get(i).get(), now + lockInfo.lock.getExpireTimeoutMillis());
+                } catch (Exception e) {
+                    //如redis-cluster下发生了slot迁移，单独再续约一次
+                    lockInfo.node = null;
+                    renewAsync(lockInfo);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("batch renew error, node = {}, size = {}", node, list.size(), e);
+            for (LockInfo lockInfo : list) {
+                lockInfo.node = null;
+                renewAsync(lockInfo);
+            }
+        }
+    }
+
+    private String node(LockInfo lockInfo) {
+        String node = lockInfo.node;
+        if (node != null) {
+            return node;
+        }
+        try (Jedis jedis = lockInfo.template.getWriteJedis(lockInfo.lock.getLockKey())) {
+            node = address(jedis);
+        } catch (CamelliaRedisException e) {
+            node = NODE_UNSUPPORTED;
+        } catch (Exception e) {
+            logger.warn("get lock node error, lockKey = {}", SafeEncoder.encode(lockInfo.lock.getLockKey()), e);
+            return null;
+        }
+        lockInfo.node = node;
+        return node;
+    }
+
+    private static String address(Jedis jedis) {
+        return jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
     }
 
     private CamelliaRedisLock getLock(LockKey lockKey) {
@@ -358,9 +497,6 @@ public class CamelliaRedisLockManager {
             if (lockInfo.lock != null) {
                 result = lockInfo.lock.release();
             }
-            if (lockInfo.task != null) {
-                lockInfo.task.cancel();
-            }
         }
         return result;
     }
@@ -372,9 +508,6 @@ public class CamelliaRedisLockManager {
             if (lockInfo.lock != null) {
                 result = lockInfo.lock.clear();
             }
-            if (lockInfo.task != null) {
-                lockInfo.task.cancel();
-            }
         }
         return result;
     }
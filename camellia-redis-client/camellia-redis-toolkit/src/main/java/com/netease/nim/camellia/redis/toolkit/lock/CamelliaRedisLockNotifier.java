@@ -0,0 +1,262 @@
+package com.netease.nim.camellia.redis.toolkit.lock;
+
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+
+import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁释放通知，用于唤醒CamelliaRedisLock#lock中等待的线程，替代固定间隔的轮询
+ * 1）释放锁的lua脚本会往CHANNEL发布被释放的lockKey，每个CamelliaRedisTemplate在第一次需要等待锁时启动一个订阅连接（守护线程）
+ * 2）等待者按照lockKey注册到本地，收到通知（或者本进程释放了锁）后唤醒同一个lockKey上的所有等待者，再去redis竞争
+ * 3）订阅连接建立成功之前（或者断开期间）的通知会丢失，因此等待者的单次等待时间是有上限的，超时后会重新尝试获取锁
+ * 4）订阅连接通过CamelliaRedisTemplate#getWriteJedis(CHANNEL)获取，对于redis-cluster，publish会在集群内广播；
+ * 对于客户端分片（多个资源）的场景，只有和CHANNEL在同一个资源上的锁能收到通知，其他锁退化为有上限的等待
+ * 5）订阅是引用计数的，acquire/release需要成对调用，引用计数归零超过idleCloseMillis后会自动取消订阅、释放连接和线程，
+ * 下次需要等待时再重新订阅；CamelliaRedisTemplate不再使用时可以调用close(template)立即释放
+ * Created by agent on 2026/10/18
+ */
+class CamelliaRedisLockNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaRedisLockNotifier.class);
+
+    static final byte[] CHANNEL = SafeEncoder.encode("camellia_redis_lock_release");
+
+    private static final long reconnectIntervalMillis = 1000;
+    private static final long idleCloseMillis = 60000;
+
+    private static final ConcurrentHashMap<CamelliaRedisTemplate, CamelliaRedisLockNotifier> notifierMap = new ConcurrentHashMap<>();
+
+    static {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(CamelliaRedisLockNotifier.class, true));
+        scheduler.scheduleAtFixedRate(CamelliaRedisLockNotifier::closeIdle, idleCloseMillis / 2, idleCloseMillis / 2, TimeUnit.MILLISECONDS);
+    }
+
+    private final CamelliaRedisTemplate template;
+    private final ConcurrentHashMap<BytesKey, Waiter> waiterMap = new ConcurrentHashMap<>();
+    private volatile boolean subscribed;
+    private volatile boolean closed;
+    private volatile BinaryJedisPubSub pubSub;
+    //以下两个字段由notifierMap的锁保护
+    private int refCount;
+    private long idleSince;
+
+    private CamelliaRedisLockNotifier(CamelliaRedisTemplate template) {
+        this.template = template;
+        Thread thread = new Thread(this::subscribeLoop, "camellia-redis-lock-notifier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 获取template对应的notifier并增加引用计数，使用完之后需要调用release
+     */
+    static CamelliaRedisLockNotifier acquire(CamelliaRedisTemplate template) {
+        synchronized (notifierMap) {
+            CamelliaRedisLockNotifier notifier = notifierMap.get(template);
+            if (notifier == null) {
+                notifier = new CamelliaRedisLockNotifier(template);
+                notifierMap.put(template, notifier);
+            }
+            notifier.refCount ++;
+            return notifier;
+        }
+    }
+
+    void release() {
+        synchronized (notifierMap) {
+            refCount --;
+            if (refCount == 0) {
+                idleSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * 立即取消template的订阅，正在等待的线程退化为有上限的等待
+     */
+    static void close(CamelliaRedisTemplate template) {
+        CamelliaRedisLockNotifier notifier;
+        synchronized (notifierMap) {
+            notifier = notifierMap.remove(template);
+        }
+        if (notifier != null) {
+            notifier.close();
+        }
+    }
+
+    private static void closeIdle() {
+        try {
+            long now = System.currentTimeMillis();
+            for (CamelliaRedisLockNotifier notifier : notifierMap.values()) {
+                synchronized (notifierMap) {
+                    if (notifier.refCount > 0 || now - notifier.idleSince < idleCloseMillis) continue;
+                    notifierMap.remove(notifier.template, notifier);
+                }
+                notifier.close();
+            }
+        } catch (Exception e) {
+            logger.error("close idle camellia redis lock notifier error", e);
+        }
+    }
+
+    private void close() {
+        closed = true;
+        BinaryJedisPubSub pubSub = this.pubSub;
+        if (pubSub != null && pubSub.isSubscribed()) {
+            try {
+                pubSub.unsubscribe();
+            } catch (Exception e) {
+                logger.warn("camellia redis lock notifier unsubscribe error", e);
+            }
+        }
+        wakeupAll();
+    }
+
+    /**
+     * 本进程释放了锁，直接唤醒本地的等待者，不依赖订阅连接
+     */
+    static void onLocalRelease(CamelliaRedisTemplate template, byte[] lockKey) {
+        CamelliaRedisLockNotifier notifier = notifierMap.get(template);
+        if (notifier != null) {
+            notifier.wakeup(new BytesKey(lockKey));
+        }
+    }
+
+    boolean isSubscribed() {
+        return subscribed;
+    }
+
+    /**
+     * 在尝试获取锁之前注册，避免在尝试失败和开始等待之间错过通知
+     */
+    Waiter register(byte[] lockKey) {
+        BytesKey key = new BytesKey(lockKey);
+        while (true) {
+            Waiter waiter = waiterMap.computeIfAbsent(key, Waiter::new);
+            synchronized (waiter) {
+                if (waiter.refCount >= 0) {
+                    waiter.refCount ++;
+                    return waiter;
+                }
+            }
+        }
+    }
+
+    void unregister(Waiter waiter) {
+        synchronized (waiter) {
+            waiter.refCount --;
+            if (waiter.refCount == 0) {
+                //标记为已废弃，并发的register会重新创建
+                waiter.refCount = -1;
+                waiterMap.remove(waiter.key, waiter);
+            }
+        }
+    }
+
+    private void wakeup(BytesKey key) {
+        Waiter waiter = waiterMap.get(key);
+        if (waiter != null) {
+            waiter.wakeup();
+        }
+    }
+
+    private void wakeupAll() {
+        for (Waiter waiter : waiterMap.values()) {
+            waiter.wakeup();
+        }
+    }
+
+    private void subscribeLoop() {
+        while (!closed) {
+            Jedis jedis = null;
+            try {
+                jedis = template.getWriteJedis(CHANNEL);
+                pubSub = new BinaryJedisPubSub() {
+                    @Override
+                    public void onSubscribe(byte[] channel, int subscribedChannels) {
+                        if (closed) {
+                            //订阅过程中被关闭了
+                            unsubscribe();
+                            return;
+                        }
+                        subscribed = true;
+                        //订阅成功之前的通知已经丢失了，让所有等待者重新尝试一次
+                        wakeupAll();
+                        logger.info("camellia redis lock notifier subscribe success");
+                    }
+
+                    @Override
+                    public void onMessage(byte[] channel, byte[] message) {
+                        wakeup(new BytesKey(message));
+                    }
+                };
+                jedis.subscribe(pubSub, CHANNEL);
+            } catch (CamelliaRedisException e) {
+                //比如双写模式下无法获取原始连接，不再订阅，等待者退化为有上限的等待
+                logger.warn("camellia redis lock notifier disabled, reason = {}", e.getMessage());
+                return;
+            } catch (Exception e) {
+                if (closed) break;
+                logger.error("camellia redis lock notifier subscribe error, waiters will fallback to bounded wait", e);
+            } finally {
+                subscribed = false;
+                pubSub = null;
+                if (jedis != null) {
+                    try {
+                        jedis.close();
+                    } catch (Exception ignore) {
+                    }
+                }
+            }
+            if (closed) break;
+            try {
+                Thread.sleep(reconnectIntervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    static class Waiter {
+        private final BytesKey key;
+        private int refCount;
+        private long version;
+
+        Waiter(BytesKey key) {
+            this.key = key;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        /**
+         * 等待版本号变化（收到了释放通知），或者超时
+         */
+        synchronized void await(long version, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (this.version == version) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) return;
+                wait(wait);
+            }
+        }
+
+        synchronized void wakeup() {
+            version ++;
+            notifyAll();
+        }
+    }
+}
@@ -170,6 +170,14 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
         return service;
     }
 
+    /**
+     * 当前生效的路由配置，动态更新之后会返回新的对象
+     * @return ResourceTable
+     */
+    public ResourceTable getResourceTable() {
+        return factory.getResponse().getResourceTable();
+    }
+
     @Override
     public ICamelliaRedisPipeline pipelined() {
         PipelinePool pipelinePool = this.pipelinePool;
@@ -7,6 +7,8 @@ import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
 import com.netease.nim.camellia.redis.conf.CamelliaRedisConstants;
 import com.netease.nim.camellia.redis.jedis.JedisPoolFactory;
 import com.netease.nim.camellia.redis.jediscluster.JedisClusterFactory;
+import com.netease.nim.camellia.redis.nearcache.NearCacheConfig;
+import com.netease.nim.camellia.redis.nearcache.NearCacheInterceptor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,13 +42,18 @@ public class CamelliaRedisEnv {
 
     private List<RedisInterceptor> interceptorList = new ArrayList<>();
 
+    //近端缓存配置，为null表示不开启
+    private NearCacheConfig nearCacheConfig;
+    private NearCacheInterceptor nearCacheInterceptor;
+
     private CamelliaRedisEnv() {
         initExec();
     }
 
     private CamelliaRedisEnv(JedisPoolFactory jedisPoolFactory, JedisClusterFactory jedisClusterFactory,
                              int concurrentExecPoolSize, int pipelinePoolSize, boolean pipelineConcurrentEnable,
-                             int pipelineMaxAttempts, ProxyEnv proxyEnv, List<RedisInterceptor> interceptorList) {
+                             int pipelineMaxAttempts, ProxyEnv proxyEnv, List<RedisInterceptor> interceptorList,
+                             NearCacheConfig nearCacheConfig, NearCacheInterceptor nearCacheInterceptor) {
         this.jedisPoolFactory = jedisPoolFactory;
         this.jedisClusterFactory = jedisClusterFactory;
         this.concurrentExecPoolSize = concurrentExecPoolSize;
@@ -57,6 +64,8 @@ public class CamelliaRedisEnv {
             this.proxyEnv = proxyEnv;
         }
         this.interceptorList = interceptorList;
+        this.nearCacheConfig = nearCacheConfig;
+        this.nearCacheInterceptor = nearCacheInterceptor;
         initExec();
     }
 
@@ -101,6 +110,14 @@ public class CamelliaRedisEnv {
         return interceptorList;
     }
 
+    public NearCacheConfig getNearCacheConfig() {
+        return nearCacheConfig;
+    }
+
+    public NearCacheInterceptor getNearCacheInterceptor() {
+        return nearCacheInterceptor;
+    }
+
     public static class Builder {
         private final CamelliaRedisEnv redisEnv;
         public Builder() {
@@ -110,7 +127,8 @@ public class CamelliaRedisEnv {
         public Builder(CamelliaRedisEnv redisEnv) {
             this.redisEnv = new CamelliaRedisEnv(redisEnv.jedisPoolFactory, redisEnv.jedisClusterFactory,
                     redisEnv.concurrentExecPoolSize, redisEnv.pipelinePoolSize, redisEnv.pipelineConcurrentEnable,
-                    redisEnv.pipelineMaxAttempts, redisEnv.proxyEnv, redisEnv.interceptorList);
+                    redisEnv.pipelineMaxAttempts, redisEnv.proxyEnv, redisEnv.interceptorList,
+                    redisEnv.nearCacheConfig, redisEnv.nearCacheInterceptor);
             this.redisEnv.concurrentExec = redisEnv.concurrentExec;
         }
 
@@ -160,7 +178,20 @@ public class CamelliaRedisEnv {
             return this;
         }
 
+        public Builder nearCacheConfig(NearCacheConfig nearCacheConfig) {
+            redisEnv.nearCacheConfig = nearCacheConfig;
+            return this;
+        }
+
         public CamelliaRedisEnv build() {
+            if (redisEnv.nearCacheConfig != null && redisEnv.nearCacheInterceptor == null) {
+                //本地写命令执行后失效近端缓存，interceptorList可能和其他env共享，因此复制一份
+                List<RedisInterceptor> interceptorList = new ArrayList<>(redisEnv.interceptorList);
+                NearCacheInterceptor nearCacheInterceptor = new NearCacheInterceptor();
+                interceptorList.add(nearCacheInterceptor);
+                redisEnv.interceptorList = interceptorList;
+                redisEnv.nearCacheInterceptor = nearCacheInterceptor;
+            }
             return redisEnv;
         }
     }
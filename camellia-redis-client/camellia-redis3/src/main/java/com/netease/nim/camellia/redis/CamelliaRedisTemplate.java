@@ -18,6 +18,8 @@ import com.netease.nim.camellia.core.util.ResourceSelector;
 import com.netease.nim.camellia.core.util.ResourceTableUtil;
 import com.netease.nim.camellia.core.util.ResourceTransferUtil;
 import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
+import com.netease.nim.camellia.redis.nearcache.CamelliaRedisNearCache;
+import com.netease.nim.camellia.redis.nearcache.NearCacheConfig;
 import com.netease.nim.camellia.redis.pipeline.*;
 import com.netease.nim.camellia.redis.resource.*;
 import com.netease.nim.camellia.redis.util.CamelliaRedisInitializer;
@@ -45,6 +47,7 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
     private final CamelliaApi service;
     private String md5;
     private PipelinePool pipelinePool;
+    private final CamelliaRedisNearCache nearCache;
 
     public CamelliaRedisTemplate(CamelliaRedisEnv env, CamelliaApi service, long bid, String bgroup,
                                  boolean monitorEnable, long checkIntervalMillis) {
@@ -61,6 +64,13 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
         this.env = env;
         this.md5 = this.factory.getResponse().getMd5();
         this.pipelinePool = new PipelinePool(env);
+        NearCacheConfig nearCacheConfig = env.getNearCacheConfig();
+        if (nearCacheConfig != null && env.getNearCacheInterceptor() != null) {
+            this.nearCache = new CamelliaRedisNearCache(nearCacheConfig, this.factory.getResponse().getResourceTable());
+            env.getNearCacheInterceptor().register(nearCache);
+        } else {
+            this.nearCache = null;
+        }
     }
 
     public CamelliaRedisTemplate(CamelliaRedisEnv env, RedisTemplateResourceTableUpdater updater) {
@@ -171,6 +181,13 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
         return service;
     }
 
+    /**
+     * 近端缓存，没有开启时返回null
+     */
+    public CamelliaRedisNearCache getNearCache() {
+        return nearCache;
+    }
+
     @Override
     public ICamelliaRedisPipeline pipelined() {
         PipelinePool pipelinePool = this.pipelinePool;
@@ -210,6 +227,9 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
 
     @Override
     public byte[] get(byte[] key) {
+        if (nearCache != null) {
+            return nearCache.get(key, () -> factory.getProxy().get(key));
+        }
         return factory.getProxy().get(key);
     }
 
@@ -366,6 +386,9 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
 
     @Override
     public byte[] hget(byte[] key, byte[] field) {
+        if (nearCache != null) {
+            return nearCache.hget(key, field, () -> factory.getProxy().hget(key, field));
+        }
         return factory.getProxy().hget(key, field);
     }
 
@@ -891,6 +914,13 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
 
     @Override
     public String get(String key) {
+        if (nearCache != null) {
+            byte[] value = nearCache.get(SafeEncoder.encode(key), () -> {
+                String v = factory.getProxy().get(key);
+                return v == null ? null : SafeEncoder.encode(v);
+            });
+            return value == null ? null : SafeEncoder.encode(value);
+        }
         return factory.getProxy().get(key);
     }
 
@@ -1026,6 +1056,13 @@ public class CamelliaRedisTemplate implements ICamelliaRedisTemplate {
 
     @Override
     public String hget(String key, String field) {
+        if (nearCache != null) {
+            byte[] value = nearCache.hget(SafeEncoder.encode(key), SafeEncoder.encode(field), () -> {
+                String v = factory.getProxy().hget(key, field);
+                return v == null ? null : SafeEncoder.encode(v);
+            });
+            return value == null ? null : SafeEncoder.encode(value);
+        }
         return factory.getProxy().hget(key, field);
     }
 
@@ -0,0 +1,282 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import com.netease.nim.camellia.core.model.Resource;
+import com.netease.nim.camellia.core.model.ResourceTable;
+import com.netease.nim.camellia.core.util.ResourceUtil;
+import com.netease.nim.camellia.redis.base.resource.RedisResource;
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
+import com.netease.nim.camellia.redis.resource.RedisClientResourceUtil;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * CamelliaRedisTemplate的近端缓存（客户端本地缓存），缓存get/hget的结果
+ * 1）只缓存匹配NearCachePolicy前缀的key，容量满了之后按照W-TinyLFU淘汰，详见NearCacheStore
+ * 2）本进程的写命令执行完成后立即失效（NearCacheInterceptor），其他客户端的修改通过CLIENT TRACKING或者pub/sub通知失效
+ * 3）失效通知的订阅连接没有建立成功（或者断开）期间，不走缓存，直接访问redis
+ * 4）加载期间如果收到了同一个key的失效通知，加载的结果不会被缓存（按照key的hash分段的版本号判断），避免缓存旧数据
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaRedisNearCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaRedisNearCache.class);
+
+    private static final int STAMP_SLOTS = 1024;
+
+    private final NearCacheConfig config;
+    private final List<NearCachePolicy> policyList;
+    private final NearCacheStore store;
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_SLOTS);
+
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+    private final LongAdder invalidation = new LongAdder();
+
+    private final List<NearCacheInvalidateSubscriber> subscriberList = new ArrayList<>();
+    private JedisPool publishPool;
+
+    public CamelliaRedisNearCache(NearCacheConfig config, ResourceTable resourceTable) {
+        this.config = config;
+        this.policyList = config.getPolicyList();
+        this.store = new NearCacheStore(config.getMaxCapacity());
+        NearCacheInvalidateMode mode = config.getInvalidateMode();
+        if (mode == NearCacheInvalidateMode.NONE) {
+            logger.info("near cache init success, mode = {}, maxCapacity = {}", mode, config.getMaxCapacity());
+            return;
+        }
+        List<RedisResource> nodes = invalidateNodes(config, resourceTable);
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("near cache invalidate nodes not found, mode = " + mode
+                    + ", only redis:// resources can be detected from resource table, please config invalidateNodes");
+        }
+        if (mode == NearCacheInvalidateMode.PUBSUB) {
+            //pub/sub只需要一个节点，redis-cluster下消息会在集群内广播
+            nodes = Collections.singletonList(nodes.get(0));
+            RedisResource node = nodes.get(0);
+            this.publishPool = new JedisPool(new JedisPoolConfig(), node.getHost(), node.getPort(),
+                    config.getTimeoutMillis(), node.getUserName(), node.getPassword());
+        }
+        List<String> prefixList = trackingPrefixList(policyList);
+        for (RedisResource node : nodes) {
+            NearCacheInvalidateSubscriber subscriber = new NearCacheInvalidateSubscriber(this, node, config, prefixList);
+            subscriberList.add(subscriber);
+            subscriber.start();
+        }
+        logger.info("near cache init success, mode = {}, maxCapacity = {}, nodes = {}", mode, config.getMaxCapacity(), nodes.size());
+    }
+
+    /**
+     * 缓存get命令
+     * @param key key
+     * @param loader 缓存未命中时从redis加载
+     * @return value
+     */
+    public byte[] get(byte[] key, Supplier<byte[]> loader) {
+        NearCachePolicy policy = policy(key);
+        if (policy == null || !isAvailable()) {
+            return loader.get();
+        }
+        BytesKey cacheKey = new BytesKey(key);
+        NearCacheStore.Node node = store.get(cacheKey);
+        if (node != null) {
+            NearCacheStore.CacheValue cacheValue = node.value;
+            if (cacheValue != null && !cacheValue.isExpire(System.currentTimeMillis())) {
+                hit.increment();
+                return cacheValue.value;
+            }
+        }
+        miss.increment();
+        int slot = slot(cacheKey);
+        long stamp = stamps.get(slot);
+        byte[] value = loader.get();
+        if (value == null && !policy.isCacheNull()) {
+            return null;
+        }
+        node = store.getOrCreate(cacheKey);
+        node.value = new NearCacheStore.CacheValue(value, System.currentTimeMillis() + policy.getExpireMillis());
+        if (stamps.get(slot) != stamp) {
+            store.remove(node);
+        }
+        return value;
+    }
+
+    /**
+     * 缓存hget命令
+     * @param key key
+     * @param field field
+     * @param loader 缓存未命中时从redis加载
+     * @return value
+     */
+    public byte[] hget(byte[] key, byte[] field, Supplier<byte[]> loader) {
+        NearCachePolicy policy = policy(key);
+        if (policy == null || !isAvailable()) {
+            return loader.get();
+        }
+        BytesKey cacheKey = new BytesKey(key);
+        BytesKey fieldKey = new BytesKey(field);
+        NearCacheStore.Node node = store.get(cacheKey);
+        if (node != null) {
+            ConcurrentHashMap<BytesKey, NearCacheStore.CacheValue> fields = node.fields;
+            NearCacheStore.CacheValue cacheValue = fields == null ? null : fields.get(fieldKey);
+            if (cacheValue != null && !cacheValue.isExpire(System.currentTimeMillis())) {
+                hit.increment();
+                return cacheValue.value;
+            }
+        }
+        miss.increment();
+        int slot = slot(cacheKey);
+        long stamp = stamps.get(slot);
+        byte[] value = loader.get();
+        if (value == null && !policy.isCacheNull()) {
+            return null;
+        }
+        node = store.getOrCreate(cacheKey);
+        ConcurrentHashMap<BytesKey, NearCacheStore.CacheValue> fields = node.fields();
+        if (fields.size() >= policy.getMaxHashFields() && !fields.containsKey(fieldKey)) {
+            return value;
+        }
+        fields.put(fieldKey, new NearCacheStore.CacheValue(value, System.currentTimeMillis() + policy.getExpireMillis()));
+        if (stamps.get(slot) != stamp) {
+            store.remove(node);
+        }
+        return value;
+    }
+
+    /**
+     * 本进程执行了写命令
+     * @param key key
+     */
+    public void onWrite(byte[] key) {
+        if (policy(key) == null) return;
+        invalidate(key);
+        if (publishPool != null) {
+            try (Jedis jedis = publishPool.getResource()) {
+                jedis.publish(SafeEncoder.encode(config.getPubsubChannel()), key);
+            } catch (Exception e) {
+                logger.error("near cache publish invalidate error, key = {}", SafeEncoder.encode(key), e);
+            }
+        }
+    }
+
+    /**
+     * 失效某个key（包括get和hget的缓存）
+     * @param key key
+     */
+    public void invalidate(byte[] key) {
+        BytesKey cacheKey = new BytesKey(key);
+        stamps.incrementAndGet(slot(cacheKey));
+        store.remove(cacheKey);
+        invalidation.increment();
+    }
+
+    /**
+     * 失效所有缓存
+     */
+    public void invalidateAll() {
+        for (int i=0; i<STAMP_SLOTS; i++) {
+            stamps.incrementAndGet(i);
+        }
+        store.clear();
+        invalidation.increment();
+    }
+
+    public boolean isAvailable() {
+        for (NearCacheInvalidateSubscriber subscriber : subscriberList) {
+            if (!subscriber.isSubscribed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public NearCacheStats getStats() {
+        NearCacheStats stats = new NearCacheStats();
+        stats.setHit(hit.sum());
+        stats.setMiss(miss.sum());
+        stats.setEviction(store.evictions());
+        stats.setInvalidation(invalidation.sum());
+        stats.setSize(store.size());
+        stats.setAvailable(isAvailable());
+        return stats;
+    }
+
+    public NearCacheConfig getConfig() {
+        return config;
+    }
+
+    public void close() {
+        for (NearCacheInvalidateSubscriber subscriber : subscriberList) {
+            subscriber.close();
+        }
+        if (publishPool != null) {
+            publishPool.close();
+        }
+        store.clear();
+    }
+
+    private NearCachePolicy policy(byte[] key) {
+        if (key == null) return null;
+        for (NearCachePolicy policy : policyList) {
+            if (policy.match(key)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private static int slot(BytesKey key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STAMP_SLOTS - 1);
+    }
+
+    private static List<RedisResource> invalidateNodes(NearCacheConfig config, ResourceTable resourceTable) {
+        Map<String, RedisResource> nodes = new LinkedHashMap<>();
+        List<Resource> resources = new ArrayList<>();
+        if (!config.getInvalidateNodes().isEmpty()) {
+            for (String url : config.getInvalidateNodes()) {
+                resources.add(new Resource(url));
+            }
+        } else if (resourceTable != null) {
+            resources.addAll(ResourceUtil.getAllResources(resourceTable));
+        }
+        for (Resource resource : resources) {
+            Resource parsed = RedisClientResourceUtil.parseResourceByUrl(resource);
+            if (parsed instanceof RedisResource) {
+                RedisResource redisResource = (RedisResource) parsed;
+                nodes.putIfAbsent(redisResource.getHost() + ":" + redisResource.getPort(), redisResource);
+            } else {
+                logger.warn("near cache skip resource = {}, only redis:// resource support", parsed.getUrl());
+            }
+        }
+        return new ArrayList<>(nodes.values());
+    }
+
+    //BCAST模式下的前缀不能重叠，存在空前缀时表示追踪所有key
+    private static List<String> trackingPrefixList(List<NearCachePolicy> policyList) {
+        TreeSet<String> set = new TreeSet<>();
+        for (NearCachePolicy policy : policyList) {
+            if (policy.getPrefix().isEmpty()) {
+                return new ArrayList<>();
+            }
+            set.add(policy.getPrefix());
+        }
+        List<String> list = new ArrayList<>();
+        for (String prefix : set) {
+            if (!list.isEmpty() && prefix.startsWith(list.get(list.size() - 1))) {
+                continue;
+            }
+            list.add(prefix);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,70 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+/**
+ * 4bit的count-min sketch，用于估算key的访问频率（TinyLFU）
+ * 1）每个long存16个4bit的计数器，每个key对应4个计数器，取最小值作为频率，最大15
+ * 2）累计次数达到容量的10倍后所有计数器减半，使得频率可以随时间衰减
+ * 非线程安全，调用方需要加锁
+ * Created by agent on 2026/10/18
+ */
+class FrequencySketch {
+
+    private static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int capacity) {
+        int n = 1;
+        while (n < Math.max(capacity, 16)) {
+            n <<= 1;
+        }
+        this.table = new long[n];
+        this.tableMask = n - 1;
+        this.sampleSize = (int) Math.min(10L * n, Integer.MAX_VALUE);
+    }
+
+    int frequency(int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i=0; i<4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i=0; i<4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i=0; i<table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEED[i]) * SEED[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+}
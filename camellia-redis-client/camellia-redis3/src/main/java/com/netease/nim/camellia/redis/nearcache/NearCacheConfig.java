@@ -0,0 +1,119 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 近端缓存的配置，通过CamelliaRedisEnv.Builder#nearCacheConfig开启
+ * Created by agent on 2026/10/18
+ */
+public class NearCacheConfig {
+
+    //缓存的key的最大个数（hash的多个field算同一个key）
+    private int maxCapacity = 10000;
+    //按照前缀匹配的缓存策略，按照添加顺序匹配，没有匹配上的key不缓存
+    private List<NearCachePolicy> policyList = new ArrayList<>();
+    //失效通知方式
+    private NearCacheInvalidateMode invalidateMode = NearCacheInvalidateMode.TRACKING;
+    //PUBSUB模式下使用的频道
+    private String pubsubChannel = "camellia_near_cache_invalidate";
+    //用于接收失效通知的redis节点（redis://password@host:port），为空则从ResourceTable中获取所有的redis://类型的资源
+    private List<String> invalidateNodes = new ArrayList<>();
+    //失效通知的订阅连接断开后重连的间隔
+    private long reconnectIntervalMillis = 1000;
+    //订阅连接的超时时间
+    private int timeoutMillis = 2000;
+
+    private NearCacheConfig() {
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    public List<NearCachePolicy> getPolicyList() {
+        return Collections.unmodifiableList(policyList);
+    }
+
+    public NearCacheInvalidateMode getInvalidateMode() {
+        return invalidateMode;
+    }
+
+    public String getPubsubChannel() {
+        return pubsubChannel;
+    }
+
+    public List<String> getInvalidateNodes() {
+        return Collections.unmodifiableList(invalidateNodes);
+    }
+
+    public long getReconnectIntervalMillis() {
+        return reconnectIntervalMillis;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public static class Builder {
+        private final NearCacheConfig config = new NearCacheConfig();
+
+        public Builder maxCapacity(int maxCapacity) {
+            if (maxCapacity > 0) {
+                config.maxCapacity = maxCapacity;
+            }
+            return this;
+        }
+
+        public Builder addPolicy(NearCachePolicy policy) {
+            config.policyList.add(policy);
+            return this;
+        }
+
+        public Builder addPolicy(String prefix, long expireMillis) {
+            config.policyList.add(new NearCachePolicy(prefix, expireMillis));
+            return this;
+        }
+
+        public Builder invalidateMode(NearCacheInvalidateMode invalidateMode) {
+            if (invalidateMode != null) {
+                config.invalidateMode = invalidateMode;
+            }
+            return this;
+        }
+
+        public Builder pubsubChannel(String pubsubChannel) {
+            if (pubsubChannel != null) {
+                config.pubsubChannel = pubsubChannel;
+            }
+            return this;
+        }
+
+        public Builder addInvalidateNode(String url) {
+            config.invalidateNodes.add(url);
+            return this;
+        }
+
+        public Builder reconnectIntervalMillis(long reconnectIntervalMillis) {
+            if (reconnectIntervalMillis > 0) {
+                config.reconnectIntervalMillis = reconnectIntervalMillis;
+            }
+            return this;
+        }
+
+        public Builder timeoutMillis(int timeoutMillis) {
+            if (timeoutMillis > 0) {
+                config.timeoutMillis = timeoutMillis;
+            }
+            return this;
+        }
+
+        public NearCacheConfig build() {
+            if (config.policyList.isEmpty()) {
+                throw new IllegalArgumentException("near cache policy is empty");
+            }
+            return config;
+        }
+    }
+}
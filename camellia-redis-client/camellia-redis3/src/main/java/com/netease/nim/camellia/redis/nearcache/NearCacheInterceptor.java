@@ -0,0 +1,55 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import com.netease.nim.camellia.core.client.annotation.ReadOp;
+import com.netease.nim.camellia.redis.CamelliaRedisImpl;
+import com.netease.nim.camellia.redis.intercept.InterceptContext;
+import com.netease.nim.camellia.redis.intercept.RedisInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 写命令执行完成后失效本地的近端缓存，由CamelliaRedisEnv在开启近端缓存时自动添加
+ * 1）读命令的集合取自CamelliaRedisImpl上标记了@ReadOp的方法，其他命令均认为是写命令
+ * 2）同一个CamelliaRedisEnv可能被多个CamelliaRedisTemplate使用，因此会通知所有注册的近端缓存
+ * Created by agent on 2026/10/18
+ */
+public class NearCacheInterceptor implements RedisInterceptor {
+
+    private static final Set<String> readCommands = new HashSet<>();
+    static {
+        for (Method method : CamelliaRedisImpl.class.getMethods()) {
+            if (method.isAnnotationPresent(ReadOp.class)) {
+                readCommands.add(method.getName());
+            }
+        }
+    }
+
+    private final CopyOnWriteArrayList<CamelliaRedisNearCache> nearCacheList = new CopyOnWriteArrayList<>();
+
+    public void register(CamelliaRedisNearCache nearCache) {
+        nearCacheList.add(nearCache);
+    }
+
+    public void unregister(CamelliaRedisNearCache nearCache) {
+        nearCacheList.remove(nearCache);
+    }
+
+    @Override
+    public void after(InterceptContext context) {
+        if (nearCacheList.isEmpty()) return;
+        byte[] key = context.getKey();
+        if (key == null || isRead(context.getCommand())) return;
+        for (CamelliaRedisNearCache nearCache : nearCacheList) {
+            nearCache.onWrite(key);
+        }
+    }
+
+    private static boolean isRead(String command) {
+        if (command == null) return false;
+        int index = command.indexOf('(');
+        return readCommands.contains(index < 0 ? command : command.substring(0, index));
+    }
+}
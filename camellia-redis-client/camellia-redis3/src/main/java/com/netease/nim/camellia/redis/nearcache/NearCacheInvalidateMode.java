@@ -0,0 +1,24 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+/**
+ * 近端缓存的失效通知方式
+ * Created by agent on 2026/10/18
+ */
+public enum NearCacheInvalidateMode {
+
+    /**
+     * 只依赖本地写命令失效和过期时间，适用于只有本进程会修改数据的场景
+     */
+    NONE,
+
+    /**
+     * 使用redis6的CLIENT TRACKING（BCAST模式+PREFIX，通过REDIRECT转发到__redis__:invalidate频道），任意客户端修改了匹配前缀的key都会收到通知
+     */
+    TRACKING,
+
+    /**
+     * 使用pub/sub，本地写命令执行后往指定频道发布被修改的key，所有开启了近端缓存的客户端订阅该频道
+     */
+    PUBSUB,
+    ;
+}
@@ -0,0 +1,154 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import com.netease.nim.camellia.redis.base.resource.RedisResource;
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个redis节点上的失效通知订阅连接，断开后自动重连
+ * 1）TRACKING模式：先在本连接上执行CLIENT TRACKING on REDIRECT [本连接id] BCAST PREFIX ...，再订阅__redis__:invalidate
+ * 2）PUBSUB模式：直接订阅配置的频道
+ * 3）jedis3只支持RESP2，且JedisPubSub不支持数组类型的消息体（tracking的失效消息），因此直接在连接上读取原始的回包
+ * Created by agent on 2026/10/18
+ */
+class NearCacheInvalidateSubscriber implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheInvalidateSubscriber.class);
+
+    private static final String TRACKING_CHANNEL = "__redis__:invalidate";
+
+    private final CamelliaRedisNearCache nearCache;
+    private final RedisResource node;
+    private final NearCacheConfig config;
+    private final List<String> prefixList;
+
+    private volatile boolean subscribed;
+    private volatile boolean closed;
+    private volatile Jedis jedis;
+
+    NearCacheInvalidateSubscriber(CamelliaRedisNearCache nearCache, RedisResource node, NearCacheConfig config, List<String> prefixList) {
+        this.nearCache = nearCache;
+        this.node = node;
+        this.config = config;
+        this.prefixList = prefixList;
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "camellia-near-cache-subscriber-" + node.getHost() + ":" + node.getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean isSubscribed() {
+        return subscribed;
+    }
+
+    void close() {
+        closed = true;
+        Jedis jedis = this.jedis;
+        if (jedis != null) {
+            try {
+                jedis.disconnect();
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                subscribe();
+            } catch (Exception e) {
+                if (!closed) {
+                    logger.error("near cache subscribe error, node = {}:{}, mode = {}", node.getHost(), node.getPort(), config.getInvalidateMode(), e);
+                }
+            } finally {
+                subscribed = false;
+                Jedis jedis = this.jedis;
+                this.jedis = null;
+                if (jedis != null) {
+                    try {
+                        jedis.disconnect();
+                    } catch (Exception ignore) {
+                    }
+                }
+            }
+            if (closed) break;
+            try {
+                Thread.sleep(config.getReconnectIntervalMillis());
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void subscribe() {
+        Jedis jedis = new Jedis(node.getHost(), node.getPort(), config.getTimeoutMillis());
+        this.jedis = jedis;
+        if (node.getPassword() != null) {
+            if (node.getUserName() != null) {
+                jedis.auth(node.getUserName(), node.getPassword());
+            } else {
+                jedis.auth(node.getPassword());
+            }
+        }
+        String channel;
+        if (config.getInvalidateMode() == NearCacheInvalidateMode.TRACKING) {
+            Long clientId = jedis.clientId();
+            List<byte[]> args = new ArrayList<>();
+            args.add(SafeEncoder.encode("TRACKING"));
+            args.add(SafeEncoder.encode("on"));
+            args.add(SafeEncoder.encode("REDIRECT"));
+            args.add(SafeEncoder.encode(String.valueOf(clientId)));
+            args.add(SafeEncoder.encode("BCAST"));
+            for (String prefix : prefixList) {
+                args.add(SafeEncoder.encode("PREFIX"));
+                args.add(SafeEncoder.encode(prefix));
+            }
+            jedis.sendCommand(Protocol.Command.CLIENT, args.toArray(new byte[0][]));
+            channel = TRACKING_CHANNEL;
+        } else {
+            channel = config.getPubsubChannel();
+        }
+        Client client = jedis.getClient();
+        client.sendCommand(Protocol.Command.SUBSCRIBE, SafeEncoder.encode(channel));
+        client.setTimeoutInfinite();
+        while (!closed) {
+            List<Object> reply = client.getObjectMultiBulkReply();
+            if (reply == null || reply.size() < 3) continue;
+            String type = SafeEncoder.encode((byte[]) reply.get(0));
+            if (type.equalsIgnoreCase("subscribe")) {
+                //订阅成功之前的修改都收不到通知了，全部清空
+                nearCache.invalidateAll();
+                subscribed = true;
+                logger.info("near cache subscribe success, node = {}:{}, mode = {}, channel = {}, prefix = {}",
+                        node.getHost(), node.getPort(), config.getInvalidateMode(), channel, prefixList);
+            } else if (type.equalsIgnoreCase("message")) {
+                onMessage(reply.get(2));
+            }
+        }
+    }
+
+    private void onMessage(Object message) {
+        if (message == null) {
+            //tracking模式下flushdb/flushall时会发送null
+            nearCache.invalidateAll();
+        } else if (message instanceof byte[]) {
+            nearCache.invalidate((byte[]) message);
+        } else if (message instanceof List) {
+            for (Object key : (List<?>) message) {
+                if (key instanceof byte[]) {
+                    nearCache.invalidate((byte[]) key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import com.netease.nim.camellia.redis.base.utils.SafeEncoder;
+
+/**
+ * 近端缓存的策略，按照key前缀匹配，只有匹配上的key才会被缓存
+ * Created by agent on 2026/10/18
+ */
+public class NearCachePolicy {
+
+    //key前缀，空字符串表示匹配所有key
+    private final String prefix;
+    //缓存过期时间，即使失效通知丢失，最多也只会读到这么久之前的数据
+    private final long expireMillis;
+    //是否缓存null值（key或者field不存在）
+    private final boolean cacheNull;
+    //单个hash最多缓存多少个field，超过了之后新的field不缓存
+    private final int maxHashFields;
+
+    private final byte[] prefixBytes;
+
+    public NearCachePolicy(String prefix, long expireMillis) {
+        this(prefix, expireMillis, true, 128);
+    }
+
+    public NearCachePolicy(String prefix, long expireMillis, boolean cacheNull, int maxHashFields) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix is null");
+        }
+        if (expireMillis <= 0) {
+            throw new IllegalArgumentException("expireMillis should > 0");
+        }
+        this.prefix = prefix;
+        this.expireMillis = expireMillis;
+        this.cacheNull = cacheNull;
+        this.maxHashFields = maxHashFields;
+        this.prefixBytes = SafeEncoder.encode(prefix);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public long getExpireMillis() {
+        return expireMillis;
+    }
+
+    public boolean isCacheNull() {
+        return cacheNull;
+    }
+
+    public int getMaxHashFields() {
+        return maxHashFields;
+    }
+
+    boolean match(byte[] key) {
+        if (key.length < prefixBytes.length) return false;
+        for (int i=0; i<prefixBytes.length; i++) {
+            if (key[i] != prefixBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+/**
+ * 近端缓存的统计数据（从创建开始累计）
+ * Created by agent on 2026/10/18
+ */
+public class NearCacheStats {
+
+    private long hit;
+    private long miss;
+    private long eviction;
+    private long invalidation;
+    private long size;
+    private boolean available;
+
+    public long getHit() {
+        return hit;
+    }
+
+    public void setHit(long hit) {
+        this.hit = hit;
+    }
+
+    public long getMiss() {
+        return miss;
+    }
+
+    public void setMiss(long miss) {
+        this.miss = miss;
+    }
+
+    public long getEviction() {
+        return eviction;
+    }
+
+    public void setEviction(long eviction) {
+        this.eviction = eviction;
+    }
+
+    public long getInvalidation() {
+        return invalidation;
+    }
+
+    public void setInvalidation(long invalidation) {
+        this.invalidation = invalidation;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public double getHitRate() {
+        long total = hit + miss;
+        return total == 0 ? 0.0 : hit * 1.0 / total;
+    }
+
+    @Override
+    public String toString() {
+        return "NearCacheStats{" +
+                "hit=" + hit +
+                ", miss=" + miss +
+                ", hitRate=" + getHitRate() +
+                ", eviction=" + eviction +
+                ", invalidation=" + invalidation +
+                ", size=" + size +
+                ", available=" + available +
+                '}';
+    }
+}
@@ -0,0 +1,289 @@
+package com.netease.nim.camellia.redis.nearcache;
+
+import com.netease.nim.camellia.tools.utils.BytesKey;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 近端缓存的存储结构，按照redis的key计数，容量满了之后按照W-TinyLFU策略淘汰
+ * 1）新写入的key先进入window区（LRU，约占1%），window区满了之后被挤出的key作为候选者进入main区的probation段
+ * 2）main区满了之后，候选者和probation段最老的key比较访问频率（FrequencySketch），频率低的被淘汰
+ * 3）probation段的key再次被访问后晋升到protected段（约占main区的80%），protected段满了之后最老的key降级回probation段
+ * 4）查询走ConcurrentHashMap，访问记录需要加锁，锁被占用时直接丢弃本次访问记录（频率统计允许有损），避免读路径上的锁竞争
+ * Created by agent on 2026/10/18
+ */
+class NearCacheStore {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ConcurrentHashMap<BytesKey, Node> map = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protect = new Queue();
+
+    private final LongAdder evictions = new LongAdder();
+
+    NearCacheStore(int capacity) {
+        capacity = Math.max(capacity, 2);
+        this.windowMax = Math.max(1, capacity / 100);
+        this.mainMax = capacity - windowMax;
+        this.protectedMax = (int) (mainMax * 0.8);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    Node get(BytesKey key) {
+        Node node = map.get(key);
+        if (node != null && lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node;
+    }
+
+    Node getOrCreate(BytesKey key) {
+        Node node = map.get(key);
+        if (node != null) {
+            return node;
+        }
+        Node newNode = new Node(key);
+        node = map.putIfAbsent(key, newNode);
+        if (node != null) {
+            return node;
+        }
+        lock.lock();
+        try {
+            onAdd(newNode);
+        } finally {
+            lock.unlock();
+        }
+        return newNode;
+    }
+
+    void remove(BytesKey key) {
+        Node node = map.remove(key);
+        if (node == null) return;
+        lock.lock();
+        try {
+            unlink(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(Node node) {
+        if (!map.remove(node.key, node)) return;
+        lock.lock();
+        try {
+            unlink(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            for (Node node : map.values()) {
+                node.removed = true;
+            }
+            map.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private void onAccess(Node node) {
+        if (node.removed) return;
+        sketch.increment(hash(node.key));
+        if (node.queueType == WINDOW) {
+            window.moveToTail(node);
+        } else if (node.queueType == PROBATION) {
+            probation.remove(node);
+            node.queueType = PROTECTED;
+            protect.add(node);
+            while (protect.size > protectedMax) {
+                Node demote = protect.poll();
+                demote.queueType = PROBATION;
+                probation.add(demote);
+            }
+        } else {
+            protect.moveToTail(node);
+        }
+    }
+
+    private void onAdd(Node node) {
+        if (node.removed) return;
+        sketch.increment(hash(node.key));
+        node.queueType = WINDOW;
+        window.add(node);
+        while (window.size > windowMax) {
+            Node candidate = window.poll();
+            candidate.queueType = PROBATION;
+            probation.add(candidate);
+            if (probation.size + protect.size > mainMax) {
+                Node victim = probation.head;
+                if (victim == candidate || victim == null) {
+                    evict(candidate);
+                } else if (sketch.frequency(hash(candidate.key)) > sketch.frequency(hash(victim.key))) {
+                    evict(victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+    }
+
+    private void evict(Node node) {
+        unlink(node);
+        if (map.remove(node.key, node)) {
+            evictions.increment();
+        }
+    }
+
+    private void unlink(Node node) {
+        if (node.removed) return;
+        node.removed = true;
+        if (node.queueType == WINDOW) {
+            window.remove(node);
+        } else if (node.queueType == PROBATION) {
+            probation.remove(node);
+        } else if (node.queueType == PROTECTED) {
+            protect.remove(node);
+        }
+    }
+
+    private static int hash(BytesKey key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    static class Node {
+        final BytesKey key;
+        //get命令的缓存
+        volatile CacheValue value;
+        //hget命令的缓存，按需创建
+        volatile ConcurrentHashMap<BytesKey, CacheValue> fields;
+
+        private volatile boolean removed;
+        private int queueType = -1;
+        private Node prev;
+        private Node next;
+
+        Node(BytesKey key) {
+            this.key = key;
+        }
+
+        ConcurrentHashMap<BytesKey, CacheValue> fields() {
+            ConcurrentHashMap<BytesKey, CacheValue> fields = this.fields;
+            if (fields == null) {
+                synchronized (this) {
+                    fields = this.fields;
+                    if (fields == null) {
+                        fields = new ConcurrentHashMap<>();
+                        this.fields = fields;
+                    }
+                }
+            }
+            return fields;
+        }
+
+        boolean isRemoved() {
+            return removed;
+        }
+    }
+
+    static class CacheValue {
+        final byte[] value;
+        final long expireTime;
+
+        CacheValue(byte[] value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpire(long now) {
+            return now > expireTime;
+        }
+    }
+
+    //双向链表，head最老，tail最新
+    private static class Queue {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        void add(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size ++;
+        }
+
+        Node poll() {
+            Node node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                if (head != node) return;
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size --;
+        }
+
+        void moveToTail(Node node) {
+            if (tail == node) return;
+            remove(node);
+            add(node);
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+}
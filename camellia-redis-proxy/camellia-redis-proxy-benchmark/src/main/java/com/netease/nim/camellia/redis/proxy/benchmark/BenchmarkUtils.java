@@ -0,0 +1,102 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 生成benchmark所需的固定数据，使用固定的随机种子，保证每次运行的数据一致
+ * Created by agent on 2026/10/18
+ */
+public class BenchmarkUtils {
+
+    private static final Random random = new Random(20231018L);
+
+    public static byte[] randomValue(int size) {
+        byte[] value = new byte[size];
+        for (int i=0; i<size; i++) {
+            value[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return value;
+    }
+
+    public static byte[] key(int index) {
+        return Utils.stringToBytes("benchmark:key:" + index);
+    }
+
+    /**
+     * 生成pipeline个SET命令
+     */
+    public static List<Command> setCommands(int pipeline, int valueSize) {
+        List<Command> commands = new ArrayList<>(pipeline);
+        byte[] value = randomValue(valueSize);
+        for (int i=0; i<pipeline; i++) {
+            commands.add(new Command(new byte[][]{Utils.stringToBytes("SET"), key(i), value}));
+        }
+        return commands;
+    }
+
+    /**
+     * 把命令按照RESP协议编码，模拟客户端发往proxy的请求
+     */
+    public static ByteBuf encodeCommands(List<Command> commands) {
+        ByteBuf buf = Unpooled.buffer();
+        for (Command command : commands) {
+            byte[][] objects = command.getObjects();
+            buf.writeByte('*');
+            buf.writeBytes(Utils.stringToBytes(String.valueOf(objects.length)));
+            buf.writeBytes(Utils.stringToBytes("\r\n"));
+            for (byte[] object : objects) {
+                buf.writeByte('$');
+                buf.writeBytes(Utils.stringToBytes(String.valueOf(object.length)));
+                buf.writeBytes(Utils.stringToBytes("\r\n"));
+                buf.writeBytes(object);
+                buf.writeBytes(Utils.stringToBytes("\r\n"));
+            }
+        }
+        return Unpooled.unreleasableBuffer(buf.asReadOnly());
+    }
+
+    /**
+     * 把回包按照RESP协议编码，模拟redis发往proxy的回包
+     */
+    public static ByteBuf encodeReplies(List<Reply> replies) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            for (Reply reply : replies) {
+                reply.write(buf);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return Unpooled.unreleasableBuffer(buf.asReadOnly());
+    }
+
+    /**
+     * 丢弃EmbeddedChannel中的所有出站和入站消息，并返回消息的个数
+     */
+    public static int drain(EmbeddedChannel channel) {
+        int count = 0;
+        while (true) {
+            Object msg = channel.readOutbound();
+            if (msg == null) break;
+            if (msg instanceof ByteBuf) {
+                ((ByteBuf) msg).release();
+            }
+            count ++;
+        }
+        while (true) {
+            Object msg = channel.readInbound();
+            if (msg == null) break;
+            count ++;
+        }
+        return count;
+    }
+}
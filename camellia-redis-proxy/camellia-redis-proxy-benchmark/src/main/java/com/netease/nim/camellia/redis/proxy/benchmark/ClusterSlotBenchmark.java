@@ -0,0 +1,48 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.RedisClusterCRC16Utils;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis-cluster的slot计算
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClusterSlotBenchmark {
+
+    @Param({"16", "64", "256"})
+    private int keySize;
+
+    @Param({"false", "true"})
+    private boolean hashTag;
+
+    private byte[][] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        keys = new byte[1024][];
+        for (int i=0; i<keys.length; i++) {
+            byte[] key = BenchmarkUtils.randomValue(keySize);
+            if (hashTag) {
+                byte[] tag = Utils.stringToBytes("{user" + i + "}");
+                System.arraycopy(tag, 0, key, keySize / 2 - tag.length / 2, tag.length);
+            }
+            keys[i] = key;
+        }
+    }
+
+    @Benchmark
+    public int getSlot() {
+        index = (index + 1) & (keys.length - 1);
+        return RedisClusterCRC16Utils.getSlot(keys[index]);
+    }
+}
@@ -0,0 +1,61 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.CommandDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端请求解码，每次调用解码一批pipeline的SET命令
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandDecoderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int pipeline;
+
+    @Param({"16", "1024", "16384"})
+    private int valueSize;
+
+    @Param({"false", "true"})
+    private boolean zeroCopy;
+
+    private ByteBuf data;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkUtils.encodeCommands(BenchmarkUtils.setCommands(pipeline, valueSize));
+        channel = new EmbeddedChannel(new CommandDecoder(256, 32, zeroCopy, 4096));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void decode(Blackhole blackhole) {
+        channel.writeInbound(data.duplicate());
+        while (true) {
+            List<Command> commands = channel.readInbound();
+            if (commands == null) break;
+            for (Command command : commands) {
+                blackhole.consume(command.getRedisCommand());
+                command.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPack;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPackEncoder;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPackRecycler;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionConfig;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * proxy发往redis的请求编码，RedisConnection未启动，只用于提供CommandPackEncoder所需的上下文
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandPackEncoderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int pipeline;
+
+    @Param({"16", "1024", "16384"})
+    private int valueSize;
+
+    private List<Command> commands;
+    private EmbeddedChannel channel;
+    private CommandPackRecycler commandPackRecycler;
+    private final Queue<CompletableFuture<Reply>> queue = new ConcurrentLinkedQueue<>();
+
+    @Setup
+    public void setup() {
+        commands = BenchmarkUtils.setCommands(pipeline, valueSize);
+        channel = new EmbeddedChannel();
+        RedisConnectionConfig config = new RedisConnectionConfig();
+        config.setHost("127.0.0.1");
+        config.setPort(6379);
+        config.setEventLoop(channel.eventLoop());
+        RedisConnection redisConnection = new RedisConnection(config);
+        commandPackRecycler = new CommandPackRecycler(channel.eventLoop());
+        channel.pipeline().addLast(new CommandPackEncoder(redisConnection, commandPackRecycler, queue));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        List<CompletableFuture<Reply>> futures = new ArrayList<>(commands.size());
+        for (int i=0; i<commands.size(); i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        CommandPack pack = commandPackRecycler.newInstance(commands, futures, System.nanoTime());
+        channel.writeAndFlush(pack);
+        queue.clear();
+        return BenchmarkUtils.drain(channel);
+    }
+}
@@ -0,0 +1,177 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.auth.AuthCommandProcessor;
+import com.netease.nim.camellia.redis.proxy.auth.ClientAuthByConfigProvider;
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.command.CommandInvokeConfig;
+import com.netease.nim.camellia.redis.proxy.command.CommandsTransponder;
+import com.netease.nim.camellia.redis.proxy.conf.CamelliaServerProperties;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfLoader;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyEncoder;
+import com.netease.nim.camellia.redis.proxy.plugin.DefaultBeanFactory;
+import com.netease.nim.camellia.redis.proxy.plugin.DefaultProxyPluginFactory;
+import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.StatusReply;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplate;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplateFactory;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令转发的完整流程（插件、CommandTaskQueue、ReplyEncoder），upstream使用立即回包的stub，不包含网络开销
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandsTransponderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int pipeline;
+
+    @Param({"16", "1024"})
+    private int valueSize;
+
+    /**
+     * 开启的内建插件，逗号分隔
+     */
+    @Param({"none", "monitorPlugin", "monitorPlugin,bigKeyPlugin,hotKeyPlugin,hotKeyCachePlugin"})
+    private String plugins;
+
+    private byte[][][] commandArgs;
+    private EmbeddedChannel channel;
+    private ChannelInfo channelInfo;
+    private CommandsTransponder transponder;
+
+    @Setup
+    public void setup() {
+        ProxyDynamicConf.init(new HashMap<>(), new ProxyDynamicConfLoader() {
+            @Override
+            public Map<String, String> load() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public void updateInitConf(Map<String, String> initConf) {
+            }
+        });
+        CamelliaServerProperties serverProperties = new CamelliaServerProperties();
+        serverProperties.setMonitorEnable(!plugins.equals("none"));
+        ProxyMonitorCollector.init(serverProperties, null);
+
+        List<String> pluginList = plugins.equals("none") ? new ArrayList<>() : Arrays.asList(plugins.split(","));
+        DefaultProxyPluginFactory pluginFactory = new DefaultProxyPluginFactory(pluginList, DefaultBeanFactory.INSTANCE);
+        AuthCommandProcessor authCommandProcessor = new AuthCommandProcessor(new ClientAuthByConfigProvider(null));
+        transponder = new CommandsTransponder(new StubUpstreamClientTemplateFactory(valueSize), new CommandInvokeConfig(authCommandProcessor, null, pluginFactory));
+
+        commandArgs = new byte[pipeline][][];
+        byte[] value = BenchmarkUtils.randomValue(valueSize);
+        for (int i=0; i<pipeline; i++) {
+            if (i % 2 == 0) {
+                commandArgs[i] = new byte[][]{Utils.stringToBytes("SET"), BenchmarkUtils.key(i), value};
+            } else {
+                commandArgs[i] = new byte[][]{Utils.stringToBytes("GET"), BenchmarkUtils.key(i)};
+            }
+        }
+
+        //ChannelInfo need InetSocketAddress
+        channel = new EmbeddedChannel(new ReplyEncoder(), new ChannelInboundHandlerAdapter()) {
+            @Override
+            protected SocketAddress localAddress0() {
+                return new InetSocketAddress("127.0.0.1", 6380);
+            }
+
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return new InetSocketAddress("127.0.0.1", 50000);
+            }
+        };
+        channelInfo = ChannelInfo.init(channel.pipeline().lastContext());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int transpond() {
+        List<Command> commands = new ArrayList<>(commandArgs.length);
+        for (byte[][] args : commandArgs) {
+            commands.add(new Command(args));
+        }
+        transponder.transpond(channelInfo, commands);
+        return BenchmarkUtils.drain(channel);
+    }
+
+    private static class StubUpstreamClientTemplateFactory implements IUpstreamClientTemplateFactory {
+
+        private final IUpstreamClientTemplate template;
+
+        StubUpstreamClientTemplateFactory(int valueSize) {
+            BulkReply bulkReply = new BulkReply(BenchmarkUtils.randomValue(valueSize));
+            this.template = new IUpstreamClientTemplate() {
+                @Override
+                public List<CompletableFuture<Reply>> sendCommand(int db, List<Command> commands) {
+                    List<CompletableFuture<Reply>> futures = new ArrayList<>(commands.size());
+                    for (Command command : commands) {
+                        CompletableFuture<Reply> future = new CompletableFuture<>();
+                        futures.add(future);
+                        future.complete(command.getRedisCommand() == RedisCommand.GET ? bulkReply : StatusReply.OK);
+                    }
+                    return futures;
+                }
+
+                @Override
+                public boolean isMultiDBSupport() {
+                    return true;
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+
+        @Override
+        public IUpstreamClientTemplate getOrInitialize(Long bid, String bgroup) {
+            return template;
+        }
+
+        @Override
+        public CompletableFuture<IUpstreamClientTemplate> getOrInitializeAsync(Long bid, String bgroup) {
+            return IUpstreamClientTemplateFactory.wrapper(template);
+        }
+
+        @Override
+        public IUpstreamClientTemplate tryGet(Long bid, String bgroup) {
+            return template;
+        }
+
+        @Override
+        public boolean isMultiTenantsSupport() {
+            return false;
+        }
+
+        @Override
+        public int shutdown() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.KeyCounter;
+import com.netease.nim.camellia.redis.proxy.util.LRUCounter;
+import com.netease.nim.camellia.redis.proxy.util.SketchCounter;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热key计数器，LRUCounter vs SketchCounter，key的分布为10%的请求落在少量热key上，其余请求打散在keySpace个key上
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyCounterBenchmark {
+
+    @Param({"lru", "sketch"})
+    private String type;
+
+    @Param({"100000", "10000000"})
+    private int keySpace;
+
+    private KeyCounter counter;
+    private byte[][] keys;
+
+    @Setup
+    public void setup() {
+        if (type.equals("lru")) {
+            counter = new LRUCounter(100000, 100000, 1000);
+        } else {
+            counter = new SketchCounter(16384, 4, 2, 256, 1000);
+        }
+        Random random = new Random(20231018L);
+        keys = new byte[65536][];
+        for (int i=0; i<keys.length; i++) {
+            if (i % 10 == 0) {
+                keys[i] = Utils.stringToBytes("hot:" + random.nextInt(16));
+            } else {
+                keys[i] = Utils.stringToBytes("key:" + random.nextInt(keySpace));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Index {
+        private int index = (int) Thread.currentThread().getId() * 7919;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void increment(Index index) {
+        index.index = (index.index + 1) & (keys.length - 1);
+        counter.increment(keys[index.index]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void increment4Threads(Index index) {
+        index.index = (index.index + 1) & (keys.length - 1);
+        counter.increment(keys[index.index]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.util.KeyParser;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从命令中解析key
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyParserBenchmark {
+
+    @Param({"GET", "MGET", "MSET", "EVAL", "ZUNIONSTORE", "XREADGROUP"})
+    private String commandName;
+
+    private Command command;
+
+    @Setup
+    public void setup() {
+        byte[] value = BenchmarkUtils.randomValue(64);
+        byte[][] args;
+        switch (commandName) {
+            case "GET":
+                args = new byte[][]{cmd("GET"), BenchmarkUtils.key(1)};
+                break;
+            case "MGET":
+                args = new byte[11][];
+                args[0] = cmd("MGET");
+                for (int i=1; i<args.length; i++) {
+                    args[i] = BenchmarkUtils.key(i);
+                }
+                break;
+            case "MSET":
+                args = new byte[21][];
+                args[0] = cmd("MSET");
+                for (int i=1; i<args.length; i+=2) {
+                    args[i] = BenchmarkUtils.key(i);
+                    args[i + 1] = value;
+                }
+                break;
+            case "EVAL":
+                args = new byte[][]{cmd("EVAL"), cmd("return redis.call('get', KEYS[1])"), cmd("2"),
+                        BenchmarkUtils.key(1), BenchmarkUtils.key(2), value};
+                break;
+            case "ZUNIONSTORE":
+                args = new byte[][]{cmd("ZUNIONSTORE"), BenchmarkUtils.key(0), cmd("3"),
+                        BenchmarkUtils.key(1), BenchmarkUtils.key(2), BenchmarkUtils.key(3), cmd("AGGREGATE"), cmd("SUM")};
+                break;
+            case "XREADGROUP":
+                args = new byte[][]{cmd("XREADGROUP"), cmd("GROUP"), cmd("g1"), cmd("c1"), cmd("COUNT"), cmd("10"),
+                        cmd("STREAMS"), BenchmarkUtils.key(1), BenchmarkUtils.key(2), cmd(">"), cmd(">")};
+                break;
+            default:
+                throw new IllegalArgumentException("unknown commandName = " + commandName);
+        }
+        command = new Command(args);
+    }
+
+    private static byte[] cmd(String s) {
+        return Utils.stringToBytes(s);
+    }
+
+    @Benchmark
+    public List<byte[]> findKeys() {
+        return KeyParser.findKeys(command);
+    }
+}
@@ -0,0 +1,91 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.core.client.annotation.ReadOp;
+import com.netease.nim.camellia.core.client.annotation.ShardingParam;
+import com.netease.nim.camellia.core.client.callback.ProxyClientFactory;
+import com.netease.nim.camellia.core.client.callback.ShardingCallback;
+import com.netease.nim.camellia.core.client.env.ProxyEnv;
+import com.netease.nim.camellia.core.client.hub.IProxyHub;
+import com.netease.nim.camellia.core.util.MethodInvoker;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * camellia-core中代理类的方法分发（ShardingCallback/OperationCallback/FeignCallback）
+ * 1）reflect/methodInvoker对比单次调用的开销：Method.invoke和预先生成的MethodInvoker
+ * 2）direct/shardingSimple/shardingList对比直接调用和经过ShardingCallback分片路由后的调用
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProxyDispatchBenchmark {
+
+    public static class Client {
+
+        @ReadOp
+        public String get(@ShardingParam String key) {
+            return key;
+        }
+
+        @ReadOp
+        public int exists(@ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            return keys.size();
+        }
+    }
+
+    private Client client;
+    private Client proxy;
+    private Method method;
+    private MethodInvoker invoker;
+    private Object[] args;
+    private List<String> keys;
+
+    @Setup
+    public void setup() throws Exception {
+        client = new Client();
+        method = Client.class.getMethod("get", String.class);
+        invoker = MethodInvoker.create(method);
+        args = new Object[] {"benchmark:key:1"};
+        final Client[] clients = new Client[] {new Client(), new Client()};
+        IProxyHub<Client> proxyHub = key -> clients[(key[0][key[0].length - 1] & 0xff) % clients.length];
+        ProxyEnv env = new ProxyEnv.Builder().shardingConcurrentEnable(false).build();
+        proxy = ProxyClientFactory.createProxy(Client.class, new ShardingCallback<>(proxyHub, Client.class, env));
+        keys = new ArrayList<>();
+        for (int i=0; i<10; i++) {
+            keys.add("benchmark:key:" + i);
+        }
+    }
+
+    @Benchmark
+    public Object reflect() throws Exception {
+        return method.invoke(client, args);
+    }
+
+    @Benchmark
+    public Object methodInvoker() throws Throwable {
+        return invoker.invoke(client, args);
+    }
+
+    @Benchmark
+    public String direct() {
+        return client.get("benchmark:key:1");
+    }
+
+    @Benchmark
+    public String shardingSimple() {
+        return proxy.get("benchmark:key:1");
+    }
+
+    @Benchmark
+    public int shardingList() {
+        return proxy.exists(keys);
+    }
+}
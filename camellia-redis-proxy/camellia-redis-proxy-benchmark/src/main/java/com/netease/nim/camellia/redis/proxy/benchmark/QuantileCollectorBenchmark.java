@@ -0,0 +1,46 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.QuantileCollector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 耗时分位数统计，多线程并发update同一个QuantileCollector，和监控中的用法一致
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuantileCollectorBenchmark {
+
+    /**
+     * 耗时的上限，单位是0.01ms，和监控中的精度一致
+     */
+    @Param({"1000", "100000", "2000000"})
+    private int maxValue;
+
+    private QuantileCollector collector;
+
+    @Setup
+    public void setup() {
+        collector = new QuantileCollector();
+        collector.init();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void update1() {
+        collector.update(ThreadLocalRandom.current().nextInt(maxValue));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void update4() {
+        collector.update(ThreadLocalRandom.current().nextInt(maxValue));
+    }
+}
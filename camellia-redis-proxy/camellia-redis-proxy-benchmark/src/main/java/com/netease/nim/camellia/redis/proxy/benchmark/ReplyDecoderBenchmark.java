@@ -0,0 +1,84 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.netty.ReplyAggregateDecoder;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyDecoder;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis回包解码，ReplyDecoder + ReplyAggregateDecoder，和RedisConnection中的pipeline一致
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplyDecoderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int pipeline;
+
+    @Param({"16", "1024", "16384"})
+    private int valueSize;
+
+    /**
+     * bulk: GET的回包
+     * multi_bulk: 10个key的MGET的回包
+     * status: SET的回包
+     */
+    @Param({"bulk", "multi_bulk", "status"})
+    private String replyType;
+
+    private ByteBuf data;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        List<Reply> replies = new ArrayList<>(pipeline);
+        for (int i=0; i<pipeline; i++) {
+            switch (replyType) {
+                case "bulk":
+                    replies.add(new BulkReply(BenchmarkUtils.randomValue(valueSize)));
+                    break;
+                case "multi_bulk":
+                    Reply[] subReplies = new Reply[10];
+                    for (int j=0; j<subReplies.length; j++) {
+                        subReplies[j] = new BulkReply(BenchmarkUtils.randomValue(valueSize));
+                    }
+                    replies.add(new MultiBulkReply(subReplies));
+                    break;
+                case "status":
+                    replies.add(StatusReply.OK);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown replyType = " + replyType);
+            }
+        }
+        data = BenchmarkUtils.encodeReplies(replies);
+        channel = new EmbeddedChannel(new ReplyDecoder(), new ReplyAggregateDecoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        channel.writeInbound(data.duplicate());
+        while (true) {
+            Reply reply = channel.readInbound();
+            if (reply == null) break;
+            blackhole.consume(reply);
+        }
+    }
+}
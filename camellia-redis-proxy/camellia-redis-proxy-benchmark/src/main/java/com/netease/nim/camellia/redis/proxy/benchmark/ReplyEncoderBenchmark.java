@@ -0,0 +1,73 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.netty.ReplyEncoder;
+import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.ReplyPack;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回包编码
+ * batch: 一批回包使用一个ReplyPack写出，只flush一次（和CommandTaskQueue一致）
+ * single: 每个回包一个ReplyPack，每个回包flush一次
+ * single_out_of_order: 每个回包一个ReplyPack，倒序写入，需要ReplyEncoder重新排序
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplyEncoderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int pipeline;
+
+    @Param({"16", "1024", "16384"})
+    private int valueSize;
+
+    @Param({"batch", "single", "single_out_of_order"})
+    private String mode;
+
+    private Reply[] replies;
+    private EmbeddedChannel channel;
+    private long id;
+
+    @Setup
+    public void setup() {
+        replies = new Reply[pipeline];
+        for (int i=0; i<pipeline; i++) {
+            replies[i] = new BulkReply(BenchmarkUtils.randomValue(valueSize));
+        }
+        channel = new EmbeddedChannel(new ReplyEncoder());
+        id = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        if (mode.equals("batch")) {
+            channel.writeAndFlush(new ReplyPack(replies.clone(), ++id));
+        } else if (mode.equals("single_out_of_order")) {
+            long start = id;
+            for (int i=replies.length - 1; i>=0; i--) {
+                channel.write(new ReplyPack(replies[i], start + i + 1));
+            }
+            id += replies.length;
+            channel.flush();
+        } else {
+            for (Reply reply : replies) {
+                channel.writeAndFlush(new ReplyPack(reply, ++id));
+            }
+        }
+        return BenchmarkUtils.drain(channel);
+    }
+}
@@ -0,0 +1,123 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyAggregateDecoder;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyDecoder;
+import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.util.CommandsEncodeUtil;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测客户端的一个连接，闭环模型：每次发送一批pipeline命令，收到这一批的全部回包后再发送下一批
+ * Created by agent on 2026/10/18
+ */
+public class LoadTestClient {
+
+    private final EventLoopGroup eventLoopGroup;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final LoadTestWorkload workload;
+    private final LoadTestStats stats;
+
+    private Channel channel;
+    private volatile boolean running;
+    //only used in event loop, all commands of a batch share the same send time
+    private long batchSendTime;
+    private int outstanding;
+    private CompletableFuture<Reply> authFuture;
+
+    public LoadTestClient(EventLoopGroup eventLoopGroup, String host, int port, String password,
+                          LoadTestWorkload workload, LoadTestStats stats) {
+        this.eventLoopGroup = eventLoopGroup;
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.workload = workload;
+        this.stats = stats;
+    }
+
+    public void connect() throws Exception {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        p.addLast(new ReplyDecoder());
+                        p.addLast(new ReplyAggregateDecoder());
+                        p.addLast(new CommandsEncoder());
+                        p.addLast(new ClientHandler());
+                    }
+                });
+        channel = bootstrap.connect(host, port).sync().channel();
+        if (password != null) {
+            authFuture = new CompletableFuture<>();
+            Command auth = new Command(new byte[][]{Utils.stringToBytes("AUTH"), Utils.stringToBytes(password)});
+            channel.writeAndFlush(Collections.singletonList(auth));
+            Reply reply = authFuture.get(10, TimeUnit.SECONDS);
+            if (reply instanceof ErrorReply) {
+                throw new IllegalStateException("auth fail, " + ((ErrorReply) reply).getError());
+            }
+        }
+    }
+
+    public void start() {
+        running = true;
+        channel.eventLoop().execute(this::sendBatch);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public void close() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void sendBatch() {
+        if (!running || !channel.isActive()) return;
+        List<Command> commands = workload.nextBatch();
+        batchSendTime = System.nanoTime();
+        outstanding = commands.size();
+        channel.writeAndFlush(commands);
+    }
+
+    private class ClientHandler extends SimpleChannelInboundHandler<Reply> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Reply reply) {
+            if (authFuture != null && !authFuture.isDone()) {
+                authFuture.complete(reply);
+                return;
+            }
+            if (outstanding <= 0) return;
+            stats.update(System.nanoTime() - batchSendTime, reply instanceof ErrorReply);
+            outstanding --;
+            if (outstanding == 0) {
+                sendBatch();
+            }
+        }
+    }
+
+    private static class CommandsEncoder extends MessageToMessageEncoder<List<Command>> {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, List<Command> commands, List<Object> out) {
+            out.add(CommandsEncodeUtil.encode(ctx.alloc(), commands));
+        }
+    }
+}
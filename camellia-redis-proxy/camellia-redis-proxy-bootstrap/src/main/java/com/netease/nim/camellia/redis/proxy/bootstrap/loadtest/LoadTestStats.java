@@ -0,0 +1,106 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.util.QuantileCollector;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测统计：吞吐、耗时分位数、错误数、分配速率
+ * 耗时使用QuantileCollector统计，精度为0.01ms，和proxy的监控一致
+ * 分配速率为整个jvm（包括proxy、redis替身和压测客户端）所有线程的分配速率
+ * Created by agent on 2026/10/18
+ */
+public class LoadTestStats {
+
+    private final QuantileCollector collector = new QuantileCollector();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private volatile boolean enable = false;
+
+    private long startTime;
+    private long startAllocatedBytes;
+
+    public LoadTestStats() {
+        collector.init();
+    }
+
+    public void update(long spendNanos, boolean error) {
+        if (!enable) return;
+        collector.updateNanos(spendNanos);
+        count.increment();
+        if (error) {
+            errorCount.increment();
+        }
+    }
+
+    public void start() {
+        collector.reset();
+        count.reset();
+        errorCount.reset();
+        startAllocatedBytes = allocatedBytes();
+        startTime = System.nanoTime();
+        enable = true;
+    }
+
+    public Result stop() {
+        enable = false;
+        long spendNanos = System.nanoTime() - startTime;
+        long allocated = allocatedBytes() - startAllocatedBytes;
+        QuantileCollector.QuantileValue value = collector.getQuantileValueAndReset();
+        long count = this.count.sum();
+        double seconds = spendNanos / 1000000000.0;
+        return new Result(count, errorCount.sum(), count / seconds, value.getP50() / 100.0, value.getP99() / 100.0,
+                value.getP999() / 100.0, value.getMax() / 100.0, allocated / seconds / 1024 / 1024, count == 0 ? 0 : allocated / count);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public static class Result {
+        private final long count;
+        private final long errorCount;
+        private final double qps;
+        private final double p50;
+        private final double p99;
+        private final double p999;
+        private final double max;
+        private final double allocMbPerSecond;
+        private final long allocBytesPerOp;
+
+        public Result(long count, long errorCount, double qps, double p50, double p99, double p999, double max,
+                      double allocMbPerSecond, long allocBytesPerOp) {
+            this.count = count;
+            this.errorCount = errorCount;
+            this.qps = qps;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+            this.allocMbPerSecond = allocMbPerSecond;
+            this.allocBytesPerOp = allocBytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, error=%d, qps=%.1f, p50=%.2fms, p99=%.2fms, p999=%.2fms, max=%.2fms, alloc=%.1fMB/s, alloc/op=%dB",
+                    count, errorCount, qps, p50, p99, p999, max, allocMbPerSecond, allocBytesPerOp);
+        }
+    }
+}
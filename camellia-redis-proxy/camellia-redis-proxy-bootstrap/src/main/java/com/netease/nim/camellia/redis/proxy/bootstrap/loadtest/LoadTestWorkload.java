@@ -0,0 +1,91 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测的命令生成器
+ * get_set: 按照readRatio的比例随机发送GET/SET
+ * mget: 每个命令包含multiKeys个key的MGET
+ * mset: 每个命令包含multiKeys个key的MSET
+ * Created by agent on 2026/10/18
+ */
+public class LoadTestWorkload {
+
+    public enum Type {
+        GET_SET,
+        MGET,
+        MSET,
+        ;
+    }
+
+    private static final byte[] GET = Utils.stringToBytes("GET");
+    private static final byte[] SET = Utils.stringToBytes("SET");
+    private static final byte[] MGET = Utils.stringToBytes("MGET");
+    private static final byte[] MSET = Utils.stringToBytes("MSET");
+
+    private final Type type;
+    private final int pipeline;
+    private final double readRatio;
+    private final int multiKeys;
+    private final byte[][] keys;
+    private final byte[] value;
+
+    public LoadTestWorkload(Type type, int pipeline, double readRatio, int multiKeys, int keySpace, int valueSize) {
+        this.type = type;
+        this.pipeline = pipeline;
+        this.readRatio = readRatio;
+        this.multiKeys = multiKeys;
+        this.keys = new byte[keySpace][];
+        for (int i=0; i<keySpace; i++) {
+            keys[i] = Utils.stringToBytes("camellia:loadtest:" + i);
+        }
+        this.value = new byte[valueSize];
+        for (int i=0; i<valueSize; i++) {
+            value[i] = (byte) ('a' + i % 26);
+        }
+    }
+
+    public List<Command> nextBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Command> commands = new ArrayList<>(pipeline);
+        for (int i=0; i<pipeline; i++) {
+            switch (type) {
+                case GET_SET:
+                    byte[] key = keys[random.nextInt(keys.length)];
+                    if (random.nextDouble() < readRatio) {
+                        commands.add(new Command(new byte[][]{GET, key}));
+                    } else {
+                        commands.add(new Command(new byte[][]{SET, key, value}));
+                    }
+                    break;
+                case MGET: {
+                    byte[][] args = new byte[multiKeys + 1][];
+                    args[0] = MGET;
+                    for (int j=1; j<args.length; j++) {
+                        args[j] = keys[random.nextInt(keys.length)];
+                    }
+                    commands.add(new Command(args));
+                    break;
+                }
+                case MSET: {
+                    byte[][] args = new byte[multiKeys * 2 + 1][];
+                    args[0] = MSET;
+                    for (int j=1; j<args.length; j+=2) {
+                        args[j] = keys[random.nextInt(keys.length)];
+                        args[j + 1] = value;
+                    }
+                    commands.add(new Command(args));
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("unknown type = " + type);
+            }
+        }
+        return commands;
+    }
+}
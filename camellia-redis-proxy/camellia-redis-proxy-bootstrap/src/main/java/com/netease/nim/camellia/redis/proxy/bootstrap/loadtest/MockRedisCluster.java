@@ -0,0 +1,103 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.util.RedisClusterCRC16Utils;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由多个cluster模式的MockRedisServer组成的redis-cluster替身，slot平均分配到各个节点
+ * movedSlots: 从slot=0开始的movedSlots个slot，CLUSTER SLOTS返回的节点和实际的节点不一致，访问时会一直返回MOVED
+ * askSlots: 紧接着的askSlots个slot处于迁移状态，本节点不存在的key会返回ASK
+ * Created by agent on 2026/10/18
+ */
+public class MockRedisCluster {
+
+    private static final int SLOT_SIZE = 16384;
+
+    private final List<MockRedisServer> nodes = new ArrayList<>();
+    private final MockRedisServer[] advertisedOwners = new MockRedisServer[SLOT_SIZE];
+    private final MockRedisServer[] owners = new MockRedisServer[SLOT_SIZE];
+    private final MockRedisServer[] migratingTargets = new MockRedisServer[SLOT_SIZE];
+
+    public MockRedisCluster(int nodeCount, int movedSlots, int askSlots) {
+        if (nodeCount <= 0) {
+            throw new IllegalArgumentException("nodeCount should be positive");
+        }
+        if ((movedSlots > 0 || askSlots > 0) && nodeCount < 2) {
+            throw new IllegalArgumentException("MOVED/ASK need at least 2 nodes");
+        }
+        if (movedSlots + askSlots > SLOT_SIZE / nodeCount) {
+            throw new IllegalArgumentException("movedSlots + askSlots should not exceed the slots of one node");
+        }
+        for (int i=0; i<nodeCount; i++) {
+            MockRedisServer node = new MockRedisServer(MockRedisServer.Mode.CLUSTER);
+            node.setCluster(this);
+            nodes.add(node);
+        }
+        int slotsPerNode = SLOT_SIZE / nodeCount;
+        for (int slot=0; slot<SLOT_SIZE; slot++) {
+            MockRedisServer node = nodes.get(Math.min(slot / slotsPerNode, nodeCount - 1));
+            advertisedOwners[slot] = node;
+            owners[slot] = node;
+        }
+        for (int slot=0; slot<movedSlots; slot++) {
+            owners[slot] = nodes.get(1);
+        }
+        for (int slot=movedSlots; slot<movedSlots + askSlots; slot++) {
+            migratingTargets[slot] = nodes.get(1);
+        }
+    }
+
+    public void start() throws InterruptedException {
+        for (MockRedisServer node : nodes) {
+            node.start();
+        }
+    }
+
+    public void stop() {
+        for (MockRedisServer node : nodes) {
+            node.stop();
+        }
+    }
+
+    public List<MockRedisServer> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 返回null表示key可以在当前节点执行，否则返回MOVED或者ASK
+     */
+    ErrorReply checkRedirect(MockRedisServer node, byte[] key, boolean asking) {
+        int slot = RedisClusterCRC16Utils.getSlot(key);
+        MockRedisServer owner = owners[slot];
+        MockRedisServer migratingTarget = migratingTargets[slot];
+        if (owner != node) {
+            if (asking && migratingTarget == node) {
+                return null;
+            }
+            return new ErrorReply("MOVED " + slot + " " + owner.getAddr());
+        }
+        if (migratingTarget != null && !node.containsKey(key)) {
+            return new ErrorReply("ASK " + slot + " " + migratingTarget.getAddr());
+        }
+        return null;
+    }
+
+    Reply clusterSlots() {
+        List<Reply> list = new ArrayList<>();
+        int start = 0;
+        for (int slot=1; slot<=SLOT_SIZE; slot++) {
+            if (slot == SLOT_SIZE || advertisedOwners[slot] != advertisedOwners[start]) {
+                MockRedisServer node = advertisedOwners[start];
+                Reply[] nodeReply = new Reply[]{new BulkReply(Utils.stringToBytes(node.getHost())),
+                        new IntegerReply((long) node.getPort()), new BulkReply(Utils.stringToBytes("node-" + node.getPort()))};
+                list.add(new MultiBulkReply(new Reply[]{new IntegerReply((long) start), new IntegerReply((long) slot - 1), new MultiBulkReply(nodeReply)}));
+                start = slot;
+            }
+        }
+        return new MultiBulkReply(list.toArray(new Reply[0]));
+    }
+}
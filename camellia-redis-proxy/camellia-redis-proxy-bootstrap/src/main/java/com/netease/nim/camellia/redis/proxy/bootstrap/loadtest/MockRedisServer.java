@@ -0,0 +1,362 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.CommandDecoder;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyEncoder;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个基于内存的redis替身，只支持压测所需的少量命令，用于在没有真实redis的情况下压测proxy
+ * 支持三种模式：
+ * standalone: 普通的redis
+ * cluster: redis-cluster的一个节点，slot的分布由MockRedisCluster管理，会按需返回MOVED/ASK
+ * sentinel: redis-sentinel，master指向一个standalone模式的MockRedisServer
+ * 非sentinel模式下，支持RESP2下bcast模式的client tracking（CLIENT ID、CLIENT TRACKING ON BCAST REDIRECT id、SUBSCRIBE __redis__:invalidate），写命令会给订阅者推送失效消息
+ * Created by agent on 2026/10/18
+ */
+public class MockRedisServer {
+
+    public enum Mode {
+        STANDALONE,
+        CLUSTER,
+        SENTINEL,
+        ;
+    }
+
+    private static final EventLoopGroup bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("mock-redis-boss"));
+    private static final EventLoopGroup workGroup = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors(), new DefaultThreadFactory("mock-redis-work"));
+
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+
+    private final Mode mode;
+    private final ConcurrentHashMap<BytesKey, byte[]> store = new ConcurrentHashMap<>();
+    private final AtomicLong clientId = new AtomicLong(0);
+    private final ConcurrentHashMap<Long, MockRedisHandler> clients = new ConcurrentHashMap<>();
+
+    private MockRedisCluster cluster;//only cluster mode
+    private String masterName;//only sentinel mode
+    private MockRedisServer master;//only sentinel mode
+
+    private Channel channel;
+    private int port;
+
+    public MockRedisServer(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * cluster模式下，设置所属的集群
+     */
+    public void setCluster(MockRedisCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * sentinel模式下，设置master
+     */
+    public void setMaster(String masterName, MockRedisServer master) {
+        this.masterName = masterName;
+        this.master = master;
+    }
+
+    public void start() throws InterruptedException {
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        p.addLast(new CommandDecoder(256, 32));
+                        p.addLast(new ReplyEncoder());
+                        p.addLast(new MockRedisHandler());
+                    }
+                });
+        channel = bootstrap.bind("127.0.0.1", 0).sync().channel();
+        port = ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    public void stop() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    public String getHost() {
+        return "127.0.0.1";
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getAddr() {
+        return getHost() + ":" + getPort();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    boolean containsKey(byte[] key) {
+        return store.containsKey(new BytesKey(key));
+    }
+
+    private class MockRedisHandler extends SimpleChannelInboundHandler<List<Command>> {
+
+        private final long id = clientId.incrementAndGet();
+        private ChannelHandlerContext ctx;
+        private boolean asking = false;
+        private long trackingRedirect = -1;//-1 means tracking off
+        private boolean subscribeInvalidate = false;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            this.ctx = ctx;
+            clients.put(id, this);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            clients.remove(id);
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, List<Command> commands) {
+            for (Command command : commands) {
+                Reply reply;
+                try {
+                    reply = execute(ctx, command);
+                } catch (Exception e) {
+                    reply = new ErrorReply("ERR " + e);
+                }
+                if (reply != null) {
+                    ctx.write(reply);
+                }
+            }
+            ctx.flush();
+        }
+
+        private Reply execute(ChannelHandlerContext ctx, Command command) {
+            byte[][] args = command.getObjects();
+            String name = command.getName();
+            switch (name) {
+                case "ping":
+                    return StatusReply.PONG;
+                case "auth":
+                case "select":
+                case "readonly":
+                    return StatusReply.OK;
+                case "client":
+                    return client(args);
+                case "echo":
+                    return new BulkReply(args[1]);
+                case "asking":
+                    asking = true;
+                    return StatusReply.OK;
+                case "cluster":
+                    if (mode == Mode.CLUSTER && args.length >= 2 && Utils.bytesToString(args[1]).equalsIgnoreCase("slots")) {
+                        return cluster.clusterSlots();
+                    }
+                    return new ErrorReply("ERR This instance has cluster support disabled");
+                case "sentinel":
+                    return sentinel(args);
+                case "subscribe":
+                    if (mode == Mode.SENTINEL) {
+                        //hold the subscribe connection, there is no master switch in mock sentinel
+                        return new MultiBulkReply(new Reply[]{new BulkReply(Utils.stringToBytes("subscribe")), new BulkReply(args[1]), IntegerReply.REPLY_1});
+                    }
+                    if (args.length == 2 && Utils.bytesToString(args[1]).equals(INVALIDATE_CHANNEL)) {
+                        subscribeInvalidate = true;
+                        return new MultiBulkReply(new Reply[]{new BulkReply(Utils.stringToBytes("subscribe")), new BulkReply(args[1]), IntegerReply.REPLY_1});
+                    }
+                    return new ErrorReply("ERR mock redis only support subscribe " + INVALIDATE_CHANNEL);
+                default:
+                    break;
+            }
+            if (mode == Mode.SENTINEL) {
+                return new ErrorReply("ERR unknown command '" + name + "'");
+            }
+            if (mode == Mode.CLUSTER && args.length >= 2) {
+                boolean asking = this.asking;
+                this.asking = false;
+                ErrorReply redirect = cluster.checkRedirect(MockRedisServer.this, args[1], asking);
+                if (redirect != null) {
+                    return redirect;
+                }
+            }
+            return data(name, args);
+        }
+
+        private Reply client(byte[][] args) {
+            if (args.length >= 2) {
+                String sub = Utils.bytesToString(args[1]);
+                if (sub.equalsIgnoreCase("id")) {
+                    return new IntegerReply(id);
+                }
+                if (sub.equalsIgnoreCase("tracking") && args.length >= 3) {
+                    if (Utils.bytesToString(args[2]).equalsIgnoreCase("off")) {
+                        trackingRedirect = -1;
+                        return StatusReply.OK;
+                    }
+                    long redirect = 0;
+                    boolean bcast = false;
+                    for (int i=3; i<args.length; i++) {
+                        String option = Utils.bytesToString(args[i]);
+                        if (option.equalsIgnoreCase("bcast")) {
+                            bcast = true;
+                        } else if (option.equalsIgnoreCase("redirect") && i + 1 < args.length) {
+                            redirect = Utils.bytesToNum(args[++i]);
+                        }
+                    }
+                    if (!bcast || redirect <= 0) {
+                        return new ErrorReply("ERR mock redis only support client tracking with BCAST and REDIRECT");
+                    }
+                    trackingRedirect = redirect;
+                    return StatusReply.OK;
+                }
+            }
+            return StatusReply.OK;
+        }
+
+        private Reply sentinel(byte[][] args) {
+            if (mode != Mode.SENTINEL || args.length < 3) {
+                return new ErrorReply("ERR unknown command 'sentinel'");
+            }
+            String ope = Utils.bytesToString(args[1]);
+            if (!Utils.bytesToString(args[2]).equals(masterName)) {
+                return MultiBulkReply.NIL_REPLY;
+            }
+            if (ope.equalsIgnoreCase("get-master-addr-by-name")) {
+                return new MultiBulkReply(new Reply[]{new BulkReply(Utils.stringToBytes(master.getHost())),
+                        new BulkReply(Utils.stringToBytes(String.valueOf(master.getPort())))});
+            } else if (ope.equalsIgnoreCase("slaves")) {
+                return MultiBulkReply.EMPTY;
+            }
+            return new ErrorReply("ERR unknown sentinel subcommand '" + ope + "'");
+        }
+    }
+
+    private Reply data(String name, byte[][] args) {
+        Reply reply = data0(name, args);
+        if (!(reply instanceof ErrorReply) && !clients.isEmpty()) {
+            switch (name) {
+                case "set":
+                case "incr":
+                    invalidate(args[1]);
+                    break;
+                case "mset":
+                    byte[][] keys = new byte[args.length / 2][];
+                    for (int i=1; i<args.length; i+=2) {
+                        keys[i / 2] = args[i];
+                    }
+                    invalidate(keys);
+                    break;
+                case "del":
+                case "unlink":
+                    byte[][] delKeys = new byte[args.length - 1][];
+                    System.arraycopy(args, 1, delKeys, 0, delKeys.length);
+                    invalidate(delKeys);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return reply;
+    }
+
+    //bcast tracking, send message to the redirect client which subscribe __redis__:invalidate
+    private void invalidate(byte[]... keys) {
+        List<MockRedisHandler> targets = new ArrayList<>();
+        for (MockRedisHandler handler : clients.values()) {
+            if (handler.trackingRedirect > 0) {
+                MockRedisHandler target = clients.get(handler.trackingRedirect);
+                if (target != null && target.subscribeInvalidate && !targets.contains(target)) {
+                    targets.add(target);
+                }
+            }
+        }
+        if (targets.isEmpty()) return;
+        Reply[] keyReplies = new Reply[keys.length];
+        for (int i=0; i<keys.length; i++) {
+            keyReplies[i] = new BulkReply(keys[i]);
+        }
+        MultiBulkReply message = new MultiBulkReply(new Reply[]{new BulkReply(Utils.stringToBytes("message")),
+                new BulkReply(Utils.stringToBytes(INVALIDATE_CHANNEL)), new MultiBulkReply(keyReplies)});
+        for (MockRedisHandler target : targets) {
+            target.ctx.writeAndFlush(message);
+        }
+    }
+
+    private Reply data0(String name, byte[][] args) {
+        switch (name) {
+            case "get": {
+                byte[] value = store.get(new BytesKey(args[1]));
+                return value == null ? BulkReply.NIL_REPLY : new BulkReply(value);
+            }
+            case "set":
+                store.put(new BytesKey(args[1]), args[2]);
+                return StatusReply.OK;
+            case "mget": {
+                Reply[] replies = new Reply[args.length - 1];
+                for (int i=1; i<args.length; i++) {
+                    byte[] value = store.get(new BytesKey(args[i]));
+                    replies[i - 1] = value == null ? BulkReply.NIL_REPLY : new BulkReply(value);
+                }
+                return new MultiBulkReply(replies);
+            }
+            case "mset":
+                if (args.length % 2 != 1) {
+                    return new ErrorReply("ERR wrong number of arguments for 'mset' command");
+                }
+                for (int i=1; i<args.length; i+=2) {
+                    store.put(new BytesKey(args[i]), args[i + 1]);
+                }
+                return StatusReply.OK;
+            case "del":
+            case "unlink": {
+                long count = 0;
+                for (int i=1; i<args.length; i++) {
+                    if (store.remove(new BytesKey(args[i])) != null) {
+                        count ++;
+                    }
+                }
+                return new IntegerReply(count);
+            }
+            case "exists": {
+                long count = 0;
+                for (int i=1; i<args.length; i++) {
+                    if (store.containsKey(new BytesKey(args[i]))) {
+                        count ++;
+                    }
+                }
+                return new IntegerReply(count);
+            }
+            case "incr": {
+                BytesKey key = new BytesKey(args[1]);
+                byte[] value = store.compute(key, (k, v) -> Utils.stringToBytes(String.valueOf(v == null ? 1 : Utils.bytesToNum(v) + 1)));
+                return new IntegerReply(Utils.bytesToNum(value));
+            }
+            default:
+                return new ErrorReply("ERR unknown command '" + name + "'");
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.netease.nim.camellia.redis.proxy.bootstrap.loadtest;
+
+import com.netease.nim.camellia.redis.proxy.auth.DynamicConfClientAuthProvider;
+import com.netease.nim.camellia.redis.proxy.command.CommandInvoker;
+import com.netease.nim.camellia.redis.proxy.conf.CamelliaServerProperties;
+import com.netease.nim.camellia.redis.proxy.conf.CamelliaTranspondProperties;
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.netty.CamelliaRedisProxyServer;
+import com.netease.nim.camellia.redis.proxy.netty.GlobalRedisProxyEnv;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的端到端压测工具，不依赖外部redis
+ * 在同一个jvm内启动：redis替身（standalone/cluster/sentinel）、proxy、压测客户端
+ * proxy使用多租户路由（DynamicConfClientAuthProvider + DynamicConfProxyRouteConfUpdater），客户端使用不同的密码访问不同的后端类型
+ * 每种后端类型依次压测，输出吞吐、p50/p99/p999耗时和分配速率
+ * <p>
+ * 参数（--key=value）：
+ * routes: 压测的后端类型，逗号分隔，默认standalone,cluster,sentinel
+ * connections: 客户端连接数，默认32
+ * pipeline: 每个连接每批发送的命令数，默认1
+ * workload: get_set/mget/mset，默认get_set
+ * readRatio: get_set下的读比例，默认0.8
+ * multiKeys: mget/mset的key数量，默认10
+ * keySpace: key的数量，默认100000
+ * valueSize: value的字节数，默认64
+ * warmupSeconds: 预热时间，默认5
+ * durationSeconds: 压测时间，默认30
+ * clusterNodes: redis-cluster替身的节点数，默认3
+ * clusterMovedSlots: 一直返回MOVED的slot数，默认0
+ * clusterAskSlots: 处于迁移状态（返回ASK）的slot数，默认0
+ * conf.xxx: 额外的proxy动态配置，如--conf.redis.connection.write.coalesce.enable=true
+ * Created by agent on 2026/10/18
+ */
+public class ProxyLoadTest {
+
+    private static final String MASTER_NAME = "mymaster";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parseArgs(args);
+        List<String> routes = Arrays.asList(params.getOrDefault("routes", "standalone,cluster,sentinel").split(","));
+        int connections = Integer.parseInt(params.getOrDefault("connections", "32"));
+        int pipeline = Integer.parseInt(params.getOrDefault("pipeline", "1"));
+        LoadTestWorkload.Type type = LoadTestWorkload.Type.valueOf(params.getOrDefault("workload", "get_set").toUpperCase());
+        double readRatio = Double.parseDouble(params.getOrDefault("readRatio", "0.8"));
+        int multiKeys = Integer.parseInt(params.getOrDefault("multiKeys", "10"));
+        int keySpace = Integer.parseInt(params.getOrDefault("keySpace", "100000"));
+        int valueSize = Integer.parseInt(params.getOrDefault("valueSize", "64"));
+        int warmupSeconds = Integer.parseInt(params.getOrDefault("warmupSeconds", "5"));
+        int durationSeconds = Integer.parseInt(params.getOrDefault("durationSeconds", "30"));
+        int clusterNodes = Integer.parseInt(params.getOrDefault("clusterNodes", "3"));
+        int clusterMovedSlots = Integer.parseInt(params.getOrDefault("clusterMovedSlots", "0"));
+        int clusterAskSlots = Integer.parseInt(params.getOrDefault("clusterAskSlots", "0"));
+
+        //start mock redis
+        Map<String, String> config = new HashMap<>();
+        List<Runnable> stopList = new ArrayList<>();
+        for (String route : routes) {
+            if (route.equals("standalone")) {
+                MockRedisServer redis = new MockRedisServer(MockRedisServer.Mode.STANDALONE);
+                redis.start();
+                stopList.add(redis::stop);
+                addRoute(config, route, 1, "redis://@" + redis.getAddr());
+            } else if (route.equals("cluster")) {
+                MockRedisCluster cluster = new MockRedisCluster(clusterNodes, clusterMovedSlots, clusterAskSlots);
+                cluster.start();
+                stopList.add(cluster::stop);
+                StringBuilder nodes = new StringBuilder();
+                for (MockRedisServer node : cluster.getNodes()) {
+                    if (nodes.length() > 0) {
+                        nodes.append(",");
+                    }
+                    nodes.append(node.getAddr());
+                }
+                addRoute(config, route, 2, "redis-cluster://@" + nodes);
+            } else if (route.equals("sentinel")) {
+                MockRedisServer master = new MockRedisServer(MockRedisServer.Mode.STANDALONE);
+                master.start();
+                stopList.add(master::stop);
+                MockRedisServer sentinel = new MockRedisServer(MockRedisServer.Mode.SENTINEL);
+                sentinel.setMaster(MASTER_NAME, master);
+                sentinel.start();
+                stopList.add(sentinel::stop);
+                addRoute(config, route, 3, "redis-sentinel://@" + sentinel.getAddr() + "/" + MASTER_NAME);
+            } else {
+                throw new IllegalArgumentException("unknown route = " + route);
+            }
+        }
+
+        //extra proxy dynamic conf, e.g. --conf.redis.connection.write.coalesce.enable=true
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (entry.getKey().startsWith("conf.")) {
+                config.put(entry.getKey().substring("conf.".length()), entry.getValue());
+            }
+        }
+
+        //start proxy
+        CamelliaServerProperties serverProperties = new CamelliaServerProperties();
+        serverProperties.setPort(Constants.Server.serverPortRandSig);
+        serverProperties.setClientAuthProviderClassName(DynamicConfClientAuthProvider.class.getName());
+        serverProperties.setConfig(config);
+        CamelliaTranspondProperties transpondProperties = new CamelliaTranspondProperties();
+        transpondProperties.setType(CamelliaTranspondProperties.Type.CUSTOM);
+        transpondProperties.setCustom(new CamelliaTranspondProperties.CustomProperties());
+        GlobalRedisProxyEnv.init(serverProperties);
+        CommandInvoker commandInvoker = new CommandInvoker(serverProperties, transpondProperties);
+        CamelliaRedisProxyServer server = new CamelliaRedisProxyServer(serverProperties, commandInvoker);
+        server.start();
+        int proxyPort = GlobalRedisProxyEnv.getPort();
+
+        System.out.println("proxy start at port = " + proxyPort + ", connections = " + connections + ", pipeline = " + pipeline
+                + ", workload = " + type + ", readRatio = " + readRatio + ", multiKeys = " + multiKeys
+                + ", keySpace = " + keySpace + ", valueSize = " + valueSize);
+
+        //load test
+        EventLoopGroup clientGroup = new NioEventLoopGroup(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                new DefaultThreadFactory("load-test-client"));
+        Map<String, LoadTestStats.Result> results = new LinkedHashMap<>();
+        for (String route : routes) {
+            LoadTestStats stats = new LoadTestStats();
+            LoadTestWorkload workload = new LoadTestWorkload(type, pipeline, readRatio, multiKeys, keySpace, valueSize);
+            List<LoadTestClient> clients = new ArrayList<>();
+            for (int i=0; i<connections; i++) {
+                LoadTestClient client = new LoadTestClient(clientGroup, "127.0.0.1", proxyPort, route, workload, stats);
+                client.connect();
+                clients.add(client);
+            }
+            for (LoadTestClient client : clients) {
+                client.start();
+            }
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            stats.start();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            LoadTestStats.Result result = stats.stop();
+            for (LoadTestClient client : clients) {
+                client.stop();
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+            for (LoadTestClient client : clients) {
+                client.close();
+            }
+            results.put(route, result);
+            System.out.println("route = " + route + ", " + result);
+        }
+
+        System.out.println("==== load test result ====");
+        for (Map.Entry<String, LoadTestStats.Result> entry : results.entrySet()) {
+            System.out.println("route = " + entry.getKey() + ", " + entry.getValue());
+        }
+
+        clientGroup.shutdownGracefully();
+        for (Runnable runnable : stopList) {
+            runnable.run();
+        }
+        System.exit(0);
+    }
+
+    private static void addRoute(Map<String, String> config, String route, long bid, String url) {
+        //the password of client is the route name
+        config.put(route + ".auth.conf", bid + "|default");
+        config.put(bid + ".default.route.conf", url);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> map = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int index = arg.indexOf('=');
+            if (index < 0) continue;
+            map.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+        return map;
+    }
+}
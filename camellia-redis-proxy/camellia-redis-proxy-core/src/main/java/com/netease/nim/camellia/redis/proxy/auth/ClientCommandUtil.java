@@ -5,8 +5,10 @@ import com.netease.nim.camellia.redis.base.proxy.ProxyUtil;
 import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.reply.IntegerReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.reply.StatusReply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +22,12 @@ public class ClientCommandUtil {
 
     public static Reply invokeClientCommand(ChannelInfo channelInfo, Command command) {
         byte[][] objects = command.getObjects();
+        if (objects.length >= 3 && channelInfo != null) {
+            boolean tracking = Utils.checkStringIgnoreCase(objects[1], RedisKeyword.TRACKING.name());
+            if (tracking) {
+                return ClientTrackingManager.tracking(channelInfo, objects);
+            }
+        }
         if (objects.length == 2) {
             boolean getname = Utils.checkStringIgnoreCase(objects[1], RedisKeyword.GETNAME.name());
             if (getname) {
@@ -28,6 +36,14 @@ public class ClientCommandUtil {
                     return new StatusReply(clientName);
                 }
             }
+            if (channelInfo != null) {
+                if (Utils.checkStringIgnoreCase(objects[1], RedisKeyword.ID.name())) {
+                    return new IntegerReply(channelInfo.getId());
+                }
+                if (Utils.checkStringIgnoreCase(objects[1], RedisKeyword.GETREDIR.name())) {
+                    return ClientTrackingManager.getRedirect(channelInfo);
+                }
+            }
         } else if (objects.length == 3) {
             boolean setname = Utils.checkStringIgnoreCase(objects[1], RedisKeyword.SETNAME.name());
             if (setname) {
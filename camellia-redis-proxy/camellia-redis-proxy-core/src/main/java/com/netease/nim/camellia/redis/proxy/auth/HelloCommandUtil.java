@@ -2,51 +2,94 @@ package com.netease.nim.camellia.redis.proxy.auth;
 
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
-import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
-import com.netease.nim.camellia.redis.proxy.reply.MultiBulkReply;
-import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.*;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 
 /**
+ * HELLO [protover [AUTH username password] [SETNAME clientname]]
+ * protover支持2和3，切换为3之后proxy会使用RESP3协议给客户端回包（上游仍然是RESP2，回包按照命令转换为RESP3的类型，见Resp3ReplyUtils）
  * Created by caojiajun on 2021/8/31
  */
 public class HelloCommandUtil {
 
     private static final ErrorReply AUTH_SYNTAX_ERROR = new ErrorReply("ERR Syntax error in HELLO option 'auth'");
     private static final ErrorReply SETNAME_SYNTAX_ERROR = new ErrorReply("ERR Syntax error in HELLO option 'setname'");
+    private static final ErrorReply PROTOVER_ERROR = new ErrorReply("ERR Protocol version is not an integer or out of range");
+    private static final ErrorReply NOPROTO = new ErrorReply("NOPROTO sorry, this protocol version is not supported.");
+
+    private static final String SERVER_VERSION = "6.2.6";//same as redis_version in INFO
 
     public static Reply invokeHelloCommand(ChannelInfo channelInfo, AuthCommandProcessor authCommandProcessor, Command command) {
         byte[][] objects = command.getObjects();
         if (objects.length == 1) {
-            return MultiBulkReply.EMPTY;
+            return helloReply(channelInfo);
+        }
+        int resp = channelInfo.getResp();
+        int index = 1;
+        String first = Utils.bytesToString(objects[1]);
+        //兼容老版本proxy的用法，不带protover直接跟AUTH/SETNAME
+        if (!first.equalsIgnoreCase("AUTH") && !first.equalsIgnoreCase("SETNAME")) {
+            long protover;
+            try {
+                protover = Utils.bytesToNum(objects[1]);
+            } catch (Exception e) {
+                return PROTOVER_ERROR;
+            }
+            if (protover != 2 && protover != 3) {
+                return NOPROTO;
+            }
+            resp = (int) protover;
+            index = 2;
         }
-        if (objects.length > 2) {
-            for (int i=1; i<objects.length; i++) {
-                String param = Utils.bytesToString(objects[i]);
-                if (param.equalsIgnoreCase("AUTH")) {
-                    String userName;
-                    String password;
-                    try {
-                        userName = Utils.bytesToString(objects[i + 1]);
-                        password = Utils.bytesToString(objects[i + 2]);
-                    } catch (Exception e) {
-                        return AUTH_SYNTAX_ERROR;
-                    }
-                    boolean pass = authCommandProcessor.checkPassword(channelInfo, userName, password);
-                    if (!pass) {
-                        return ErrorReply.WRONG_PASS;
-                    }
+        for (int i=index; i<objects.length; i++) {
+            String param = Utils.bytesToString(objects[i]);
+            if (param.equalsIgnoreCase("AUTH")) {
+                String userName;
+                String password;
+                try {
+                    userName = Utils.bytesToString(objects[i + 1]);
+                    password = Utils.bytesToString(objects[i + 2]);
+                } catch (Exception e) {
+                    return AUTH_SYNTAX_ERROR;
                 }
-                if (param.equalsIgnoreCase("SETNAME")) {
-                    try {
-                        String clientName = Utils.bytesToString(objects[i + 1]);
-                        ClientCommandUtil.updateClientName(channelInfo, clientName);
-                    } catch (Exception e) {
-                        return SETNAME_SYNTAX_ERROR;
-                    }
+                boolean pass = authCommandProcessor.checkPassword(channelInfo, userName, password);
+                if (!pass) {
+                    return ErrorReply.WRONG_PASS;
                 }
+                i += 2;
+            } else if (param.equalsIgnoreCase("SETNAME")) {
+                try {
+                    String clientName = Utils.bytesToString(objects[i + 1]);
+                    ClientCommandUtil.updateClientName(channelInfo, clientName);
+                } catch (Exception e) {
+                    return SETNAME_SYNTAX_ERROR;
+                }
+                i += 1;
             }
         }
-        return MultiBulkReply.EMPTY;
+        channelInfo.setResp(resp);
+        return helloReply(channelInfo);
+    }
+
+    /**
+     * 以map的形式返回，RESP2的客户端会在写出时降级为平铺的数组，和redis保持一致
+     */
+    private static Reply helloReply(ChannelInfo channelInfo) {
+        Reply[] replies = new Reply[14];
+        replies[0] = new BulkReply(Utils.stringToBytes("server"));
+        replies[1] = new BulkReply(Utils.stringToBytes("redis"));
+        replies[2] = new BulkReply(Utils.stringToBytes("version"));
+        replies[3] = new BulkReply(Utils.stringToBytes(SERVER_VERSION));
+        replies[4] = new BulkReply(Utils.stringToBytes("proto"));
+        replies[5] = new IntegerReply((long) channelInfo.getResp());
+        replies[6] = new BulkReply(Utils.stringToBytes("id"));
+        replies[7] = new IntegerReply(channelInfo.getId());
+        replies[8] = new BulkReply(Utils.stringToBytes("mode"));
+        replies[9] = new BulkReply(Utils.stringToBytes("standalone"));
+        replies[10] = new BulkReply(Utils.stringToBytes("role"));
+        replies[11] = new BulkReply(Utils.stringToBytes("master"));
+        replies[12] = new BulkReply(Utils.stringToBytes("modules"));
+        replies[13] = MultiBulkReply.EMPTY;
+        return new MapReply(replies);
     }
 }
@@ -6,12 +6,19 @@ import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.util.KeyParser;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class Command {
 
+    private static final AtomicIntegerFieldUpdater<Command> refCntUpdater = AtomicIntegerFieldUpdater.newUpdater(Command.class, "refCnt");
+
     private byte[][] objects;
+    //zero-copy decode mode, the args not materialized yet are kept as retained slices of the inbound buffer
+    private volatile ByteBuf[] bufs;
+    private volatile int refCnt = 1;
     private String name;
     private RedisCommand redisCommand;
     private ChannelInfo channelInfo;
@@ -26,8 +33,25 @@ public class Command {
         this.objects = objects;
     }
 
+    /**
+     * zero-copy decode mode, if objects[i] is null, it will be materialized from bufs[i] lazily
+     * @param objects args
+     * @param bufs retained slices of the inbound buffer
+     */
+    public Command(byte[][] objects, ByteBuf[] bufs) {
+        this.objects = objects;
+        this.bufs = bufs;
+    }
+
     public void updateObjects(byte[][] args) {
-        this.objects = args;
+        if (bufs != null) {
+            //all args are materialized now, the slices will still be released when refCnt reach 0
+            synchronized (this) {
+                this.objects = args;
+            }
+        } else {
+            this.objects = args;
+        }
         this.name = null;
         this.keys = null;
         this.keysStr = null;
@@ -51,9 +75,113 @@ public class Command {
     }
 
     public byte[][] getObjects() {
+        if (bufs == null) return objects;
+        synchronized (this) {
+            for (int i=0; i<objects.length; i++) {
+                materialize(i);
+            }
+        }
         return objects;
     }
 
+    /**
+     * get the args count without materialize the args
+     * @return count
+     */
+    public int getObjectsCount() {
+        return objects == null ? 0 : objects.length;
+    }
+
+    /**
+     * get the arg in index, only the arg in index will be materialized
+     * @param index index
+     * @return arg
+     */
+    public byte[] getObject(int index) {
+        if (bufs == null) return objects[index];
+        synchronized (this) {
+            materialize(index);
+        }
+        return objects[index];
+    }
+
+    /**
+     * get the arg in index as the slice of the inbound buffer
+     * @param index index
+     * @return slice, or null if the arg is already materialized
+     */
+    public ByteBuf getObjectBuf(int index) {
+        if (bufs == null) return null;
+        synchronized (this) {
+            if (objects[index] != null) return null;
+            return bufs[index];
+        }
+    }
+
+    private void materialize(int index) {
+        if (objects[index] != null) return;
+        ByteBuf buf = bufs[index];
+        if (buf == null || refCnt <= 0) {
+            throw new IllegalStateException("command args already released");
+        }
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        objects[index] = bytes;
+    }
+
+    /**
+     * only valid in zero-copy decode mode, keep the inbound buffer slices alive until release
+     * @throws IllegalStateException if the command is already released
+     */
+    public void retain() {
+        if (bufs == null) return;
+        while (true) {
+            int cnt = refCnt;
+            if (cnt <= 0) {
+                throw new IllegalStateException("command args already released");
+            }
+            if (refCntUpdater.compareAndSet(this, cnt, cnt + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * only valid in zero-copy decode mode, the inbound buffer slices will be released when refCnt reach 0
+     */
+    public void release() {
+        ByteBuf[] bufs = this.bufs;
+        if (bufs == null) return;
+        if (refCntUpdater.decrementAndGet(this) != 0) return;
+        for (ByteBuf buf : bufs) {
+            if (buf != null) {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * only valid in zero-copy decode mode, materialize all args and release the inbound buffer slices now,
+     * after that the command behaves as a non zero-copy command, and retain/release will be no-op
+     * should be called by the owner before the command is handed to others
+     */
+    public void detach() {
+        if (bufs == null) return;
+        synchronized (this) {
+            if (bufs == null) return;
+            for (int i=0; i<objects.length; i++) {
+                materialize(i);
+            }
+            ByteBuf[] bufs = this.bufs;
+            this.bufs = null;
+            for (ByteBuf buf : bufs) {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+        }
+    }
+
     public void clearKeysCache() {
         keysStr = null;
         keys = null;
@@ -141,6 +269,7 @@ public class Command {
     }
 
     public void fillParameters(Class<?>[] parameterTypes, Object[] parameters) {
+        byte[][] objects = getObjects();
         int position = 0;
         for (Class<?> type : parameterTypes) {
             if (type == byte[].class) {
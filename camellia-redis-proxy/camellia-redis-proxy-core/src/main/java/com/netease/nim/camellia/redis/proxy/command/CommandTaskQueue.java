@@ -9,11 +9,13 @@ import com.netease.nim.camellia.redis.proxy.plugin.ProxyReply;
 import com.netease.nim.camellia.redis.proxy.reply.*;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Resp3ReplyUtils;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,6 +33,7 @@ public class CommandTaskQueue {
     private final Queue<CommandTask> queue = GlobalRedisProxyEnv.getQueueFactory().generateCommandTaskQueue();
     private final AtomicBoolean callbacking = new AtomicBoolean(false);
     private final AtomicLong id = new AtomicLong(0);
+    private final List<Reply> replies = new ArrayList<>();//only used in callback, guarded by callbacking
 
     private List<ProxyPlugin> plugins;
 
@@ -44,6 +47,9 @@ public class CommandTaskQueue {
 
     public boolean add(CommandTask task) {
         if (channelInfo.isInSubscribe()) {
+            //task will not be queued in subscribe status, and the command will be forwarded by the bind connection,
+            //so materialize the args and drop the slices in zero-copy decode mode, then later retain/release will be no-op
+            task.getCommand().detach();
             return true;
         }
         plugins = task.getPlugins();
@@ -55,7 +61,11 @@ public class CommandTaskQueue {
     }
 
     public void clear() {
-        queue.clear();
+        while (true) {
+            CommandTask task = queue.poll();
+            if (task == null) break;
+            task.getCommand().release();
+        }
     }
 
     public void callback() {
@@ -64,7 +74,8 @@ public class CommandTaskQueue {
                 if (queue.isEmpty()) {
                     return;
                 }
-                ChannelFuture future = null;
+                //drain all completed tasks, and write them in one pack with only one flush
+                List<Reply> replies = this.replies;
                 do {
                     CommandTask task = queue.peek();
                     Reply reply = task.getReply();
@@ -74,12 +85,22 @@ public class CommandTaskQueue {
                                     task.getCommand() == null ? null : task.getCommand().getName(),
                                     reply.getClass().getSimpleName(), channelInfo.getConsid());
                         }
-                        future = channelInfo.getCtx().writeAndFlush(new ReplyPack(reply, id.incrementAndGet()));
+                        if (channelInfo.getResp() == 3) {
+                            reply = Resp3ReplyUtils.convert(task.getCommand(), reply);
+                        }
+                        replies.add(reply);
                         queue.poll();
+                        task.getCommand().release();
                     } else {
                         break;
                     }
                 } while (!queue.isEmpty());
+                ChannelFuture future = null;
+                if (replies.size() == 1) {
+                    future = channelInfo.getCtx().writeAndFlush(new ReplyPack(replies.get(0), id.incrementAndGet()));
+                } else if (replies.size() > 1) {
+                    future = channelInfo.getCtx().writeAndFlush(new ReplyPack(replies.toArray(new Reply[0]), id.incrementAndGet()));
+                }
                 //check subscribe
                 if (channelInfo.isInSubscribe()) {
                     RedisConnection bindConnection = channelInfo.getBindConnection();
@@ -100,6 +121,7 @@ public class CommandTaskQueue {
                     }
                 }
             } finally {
+                replies.clear();
                 callbacking.compareAndSet(true, false);
             }
         }
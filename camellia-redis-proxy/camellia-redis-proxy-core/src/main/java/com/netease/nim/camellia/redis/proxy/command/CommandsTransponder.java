@@ -17,6 +17,7 @@ import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.reply.StatusReply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import io.netty.channel.ChannelFutureListener;
@@ -40,6 +41,7 @@ public class CommandsTransponder {
     private final ProxyClusterModeProcessor clusterModeProcessor;
     private final IUpstreamClientTemplateFactory factory;
     private final ProxyPluginFactory proxyPluginFactory;
+    private final SingleFlightProcessor singleFlightProcessor = new SingleFlightProcessor();
 
     private boolean eventLoopSetSuccess = false;
 
@@ -77,7 +79,8 @@ public class CommandsTransponder {
             List<CommandTask> tasks = new ArrayList<>(commands.size());
             ChannelHandlerContext ctx = channelInfo.getCtx();
 
-            for (Command command : commands) {
+            for (int i=0; i<commands.size(); i++) {
+                Command command = commands.get(i);
                 //设置channelInfo
                 command.setChannelInfo(channelInfo);
 
@@ -86,6 +89,7 @@ public class CommandsTransponder {
                 boolean add = taskQueue.add(task);
                 if (!add) {
                     taskQueue.clear();
+                    releaseCommands(commands, i);
                     logger.warn("CommandTaskQueue full, client connect will be disconnect, remote.ip = {}", ctx.channel().remoteAddress());
                     ctx.writeAndFlush(ErrorReply.TOO_BUSY).addListener((ChannelFutureListener) future -> ctx.close());
                     return;
@@ -149,6 +153,7 @@ public class CommandsTransponder {
                     //quit命令直接断开连接
                     if (redisCommand == RedisCommand.QUIT) {
                         channelInfo.getCtx().close();
+                        releaseCommands(commands, i + 1);
                         return;
                     }
 
@@ -158,7 +163,10 @@ public class CommandsTransponder {
                         Reply reply = authCommandProcessor.invokeAuthCommand(channelInfo, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseCommands(commands, i + 1);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -171,7 +179,10 @@ public class CommandsTransponder {
                         Reply reply = HelloCommandUtil.invokeHelloCommand(channelInfo, authCommandProcessor, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseCommands(commands, i + 1);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -241,7 +252,10 @@ public class CommandsTransponder {
                         Reply reply = ClientCommandUtil.invokeClientCommand(channelInfo, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseCommands(commands, i + 1);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -297,6 +311,11 @@ public class CommandsTransponder {
                     channelInfo.setInSubscribe(true);
                 }
 
+                //client tracking，记录读过的key，用于后续推送失效消息
+                if (channelInfo.getClientTrackingInfo() != null && redisCommand.getType() == RedisCommand.Type.READ) {
+                    ClientTrackingManager.trackKeys(channelInfo, command);
+                }
+
                 tasks.add(task);
             }
             if (tasks.isEmpty()) return;
@@ -324,6 +343,13 @@ public class CommandsTransponder {
         }
     }
 
+    //the commands not submitted as tasks should be released, only valid in zero-copy decode mode
+    private void releaseCommands(List<Command> commands, int fromIndex) {
+        for (int i=fromIndex; i<commands.size(); i++) {
+            commands.get(i).release();
+        }
+    }
+
     private boolean checkConnectLimit(ChannelInfo channelInfo) {
         try {
             Long bid = channelInfo.getBid();
@@ -380,7 +406,7 @@ public class CommandsTransponder {
             } else {
                 List<CompletableFuture<Reply>> futureList;
                 try {
-                    futureList = template.sendCommand(db, commands);
+                    futureList = singleFlightProcessor.sendCommand(template, bid, bgroup, db, commands);
                 } catch (Exception e) {
                     String log = "IUpstreamClientTemplate sendCommand error"
                             + ", bid = " + bid + ", bgroup = " + bgroup + ", ex = " + e;
@@ -0,0 +1,375 @@
+package com.netease.nim.camellia.redis.proxy.command;
+
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplate;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 相同读命令的请求合并（single-flight）
+ * 1）同一个路由（IUpstreamClientTemplate）、同一个db、命令和参数完全相同的读命令，如果已经有一个在途（已发往后端还未回包），则后来的请求直接复用在途请求的回包，不再发往后端
+ * 2）只对白名单内的单key读命令生效，支持租户级别的开关和白名单配置
+ * 3）写命令回包时会移除该key所有的在途记录（没有key的写命令如flushdb会移除所有在途记录），写命令回包之后到达的读命令不会复用写之前发出的读请求，从而不会读到旧数据
+ * 4）同一批次（pipeline）中，写命令之后的读命令不会复用其他连接的在途请求；
+ *    同一个客户端之前批次的写命令还没有回包时，该key的读命令也不会复用在途请求，保证read-your-writes
+ * 5）插件可能会原地修改回包，因此复用同一个回包的每个请求拿到的都是回包的拷贝
+ * 6）事务、订阅、绑定了后端连接的客户端连接不参与合并
+ * 7）开关和白名单按照租户缓存，动态配置变更时清空
+ * Created by agent on 2026/10/18
+ */
+public class SingleFlightProcessor {
+
+    private final ConcurrentHashMap<BytesKey, ConcurrentHashMap<FlightKey, CompletableFuture<Reply>>> flightMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<RedisCommand>> commandsCache = new ConcurrentHashMap<>();
+    //bid|bgroup -> conf
+    private final ConcurrentHashMap<String, TenantConf> confCache = new ConcurrentHashMap<>();
+    //client -> keys of writes which have been sent to upstream but not replied
+    private final ConcurrentHashMap<ChannelInfo, PendingWrites> pendingWrites = new ConcurrentHashMap<>();
+
+    //一旦有过在途记录，写命令就需要在回包时移除对应key的在途记录
+    private volatile boolean used = false;
+
+    public SingleFlightProcessor() {
+        ProxyDynamicConf.registerCallback(confCache::clear);
+    }
+
+    public List<CompletableFuture<Reply>> sendCommand(IUpstreamClientTemplate template, Long bid, String bgroup, int db, List<Command> commands) {
+        TenantConf conf = conf(bid, bgroup);
+        ChannelInfo channelInfo = commands.get(0).getChannelInfo();
+        if (!isEnable(conf, channelInfo)) {
+            if (!used) {
+                return template.sendCommand(db, commands);
+            }
+            List<List<byte[]>> writeKeys = writeKeys(commands);
+            addPendingWrites(channelInfo, writeKeys);
+            return invalidateOnWrite(channelInfo, writeKeys, template.sendCommand(db, commands));
+        }
+        used = true;
+        Set<RedisCommand> whiteList = conf.commands;
+        PendingWrites pending = pendingWrites.get(channelInfo);
+        int size = commands.size();
+        List<CompletableFuture<Reply>> result = new ArrayList<>(size);
+        List<Command> sendCommands = new ArrayList<>(size);
+        //发往后端的命令对应的下标，以及在途记录
+        int[] sendIndex = new int[size];
+        Flight[] leaders = new Flight[size];
+        List<List<byte[]>> writeKeys = null;
+        boolean hasWrite = false;
+        for (int i=0; i<size; i++) {
+            Command command = commands.get(i);
+            RedisCommand redisCommand = command.getRedisCommand();
+            if (redisCommand.getType() == RedisCommand.Type.WRITE) {
+                hasWrite = true;
+                if (writeKeys == null) {
+                    writeKeys = new ArrayList<>(Collections.nCopies(size, null));
+                }
+                writeKeys.set(i, command.getKeys());
+            } else if (redisCommand.getType() == RedisCommand.Type.READ && whiteList.contains(redisCommand)) {
+                List<byte[]> keys = command.getKeys();
+                if (keys.size() == 1) {
+                    BytesKey key = new BytesKey(keys.get(0));
+                    FlightKey flightKey = new FlightKey(template, db, command.getObjects());
+                    ConcurrentHashMap<FlightKey, CompletableFuture<Reply>> flights = CamelliaMapUtils.computeIfAbsent(flightMap, key, k -> new ConcurrentHashMap<>());
+                    boolean reuse = !hasWrite && (pending == null || !pending.contains(key));
+                    if (reuse) {
+                        CompletableFuture<Reply> inFlight = flights.get(flightKey);
+                        if (inFlight != null) {
+                            result.add(inFlight.thenApply(SingleFlightProcessor::copy));
+                            continue;
+                        }
+                    }
+                    CompletableFuture<Reply> future = new CompletableFuture<>();
+                    CompletableFuture<Reply> inFlight = flights.putIfAbsent(flightKey, future);
+                    if (inFlight == null) {
+                        //同一批次中写命令之后的读命令不复用其他请求，但是可以作为在途请求被后来的请求复用
+                        leaders[sendCommands.size()] = new Flight(key, flightKey, flights, future);
+                        result.add(future.thenApply(SingleFlightProcessor::copy));
+                        sendIndex[sendCommands.size()] = i;
+                        sendCommands.add(command);
+                        continue;
+                    }
+                    if (reuse) {
+                        result.add(inFlight.thenApply(SingleFlightProcessor::copy));
+                        continue;
+                    }
+                }
+            }
+            result.add(null);
+            sendIndex[sendCommands.size()] = i;
+            sendCommands.add(command);
+        }
+        addPendingWrites(channelInfo, writeKeys);
+        List<CompletableFuture<Reply>> futureList;
+        try {
+            futureList = template.sendCommand(db, sendCommands);
+        } catch (Exception e) {
+            removePendingWrites(channelInfo, writeKeys);
+            for (int j=0; j<sendCommands.size(); j++) {
+                Flight leader = leaders[j];
+                if (leader != null) {
+                    leader.complete(ErrorReply.UPSTREAM_NOT_AVAILABLE);
+                }
+            }
+            throw e;
+        }
+        for (int j=0; j<sendCommands.size(); j++) {
+            int index = sendIndex[j];
+            CompletableFuture<Reply> future = futureList.get(j);
+            Flight leader = leaders[j];
+            if (leader != null) {
+                future.whenComplete((reply, e) -> {
+                    if (e != null) {
+                        ErrorLogCollector.collect(SingleFlightProcessor.class, "single flight upstream future error", e);
+                        leader.complete(ErrorReply.UPSTREAM_NOT_AVAILABLE);
+                    } else {
+                        leader.complete(reply);
+                    }
+                });
+            } else {
+                result.set(index, future);
+            }
+        }
+        if (writeKeys != null) {
+            return invalidateOnWrite(channelInfo, writeKeys, result);
+        }
+        return result;
+    }
+
+    //插件（如converter）可能会原地修改回包，因此复用同一个回包的每个请求拿到的都是拷贝
+    private static Reply copy(Reply reply) {
+        if (reply instanceof BulkReply) {
+            if (reply == BulkReply.NIL_REPLY) return reply;
+            return new BulkReply(((BulkReply) reply).getRaw());
+        }
+        if (reply instanceof MultiBulkReply) {
+            Reply[] replies = ((MultiBulkReply) reply).getReplies();
+            if (replies == null) return reply;
+            Reply[] copy = new Reply[replies.length];
+            for (int i=0; i<replies.length; i++) {
+                copy[i] = copy(replies[i]);
+            }
+            if (reply instanceof MapReply) {
+                return new MapReply(copy);
+            } else if (reply instanceof SetReply) {
+                return new SetReply(copy);
+            } else if (reply instanceof PushReply) {
+                return new PushReply(copy);
+            }
+            return new MultiBulkReply(copy);
+        }
+        return reply;
+    }
+
+    private boolean isEnable(TenantConf conf, ChannelInfo channelInfo) {
+        if (!conf.enable) return false;
+        if (channelInfo == null) return false;
+        return !channelInfo.isInTransaction() && !channelInfo.isTransactionTag()
+                && !channelInfo.isInSubscribe() && channelInfo.getBindConnection() == null;
+    }
+
+    private TenantConf conf(Long bid, String bgroup) {
+        String cacheKey = Utils.getCacheKey(bid, bgroup);
+        TenantConf conf = confCache.get(cacheKey);
+        if (conf == null) {
+            boolean enable = ProxyDynamicConf.getBoolean("single.flight.enable", bid, bgroup, Constants.Server.singleFlightEnable);
+            String string = ProxyDynamicConf.getString("single.flight.commands", bid, bgroup, Constants.Server.singleFlightCommands);
+            Set<RedisCommand> commands = CamelliaMapUtils.computeIfAbsent(commandsCache, string, SingleFlightProcessor::parseCommands);
+            conf = new TenantConf(enable, commands);
+            confCache.put(cacheKey, conf);
+        }
+        return conf;
+    }
+
+    private static Set<RedisCommand> parseCommands(String string) {
+        Set<RedisCommand> set = new HashSet<>();
+        for (String name : string.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            RedisCommand redisCommand = RedisCommand.getRedisCommandByName(name.toLowerCase());
+            if (redisCommand != null && redisCommand.getType() == RedisCommand.Type.READ) {
+                set.add(redisCommand);
+            }
+        }
+        return set;
+    }
+
+    private List<List<byte[]>> writeKeys(List<Command> commands) {
+        List<List<byte[]>> writeKeys = null;
+        for (int i=0; i<commands.size(); i++) {
+            Command command = commands.get(i);
+            if (command.getRedisCommand().getType() == RedisCommand.Type.WRITE) {
+                if (writeKeys == null) {
+                    writeKeys = new ArrayList<>(Collections.nCopies(commands.size(), null));
+                }
+                writeKeys.set(i, command.getKeys());
+            }
+        }
+        return writeKeys;
+    }
+
+    private void addPendingWrites(ChannelInfo channelInfo, List<List<byte[]>> writeKeys) {
+        if (channelInfo == null || writeKeys == null) return;
+        for (List<byte[]> keys : writeKeys) {
+            if (keys == null) continue;
+            pendingWrites.compute(channelInfo, (k, pending) -> {
+                if (pending == null) {
+                    pending = new PendingWrites();
+                }
+                pending.add(keys);
+                return pending;
+            });
+        }
+    }
+
+    private void removePendingWrites(ChannelInfo channelInfo, List<List<byte[]>> writeKeys) {
+        if (channelInfo == null || writeKeys == null) return;
+        for (List<byte[]> keys : writeKeys) {
+            if (keys != null) {
+                removePendingWrite(channelInfo, keys);
+            }
+        }
+    }
+
+    private void removePendingWrite(ChannelInfo channelInfo, List<byte[]> keys) {
+        pendingWrites.computeIfPresent(channelInfo, (k, pending) -> {
+            pending.remove(keys);
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+
+    //写命令回包时（回包给客户端之前），移除对应key的在途记录
+    private List<CompletableFuture<Reply>> invalidateOnWrite(ChannelInfo channelInfo, List<List<byte[]>> writeKeys, List<CompletableFuture<Reply>> futureList) {
+        if (writeKeys == null) return futureList;
+        List<CompletableFuture<Reply>> result = new ArrayList<>(futureList.size());
+        for (int i=0; i<futureList.size(); i++) {
+            CompletableFuture<Reply> future = futureList.get(i);
+            List<byte[]> keys = writeKeys.get(i);
+            if (keys == null) {
+                result.add(future);
+                continue;
+            }
+            result.add(future.thenApply(reply -> {
+                if (keys.isEmpty()) {
+                    //没有key的写命令（如flushdb、flushall、eval 0 keys），移除所有在途记录
+                    flightMap.clear();
+                } else {
+                    for (byte[] key : keys) {
+                        flightMap.remove(new BytesKey(key));
+                    }
+                }
+                return reply;
+            }).whenComplete((reply, e) -> {
+                //先移除在途记录，再移除未回包的写，避免中间到达的读命令复用写之前发出的读请求
+                if (channelInfo != null) {
+                    removePendingWrite(channelInfo, keys);
+                }
+            }));
+        }
+        return result;
+    }
+
+    private static class TenantConf {
+        private final boolean enable;
+        private final Set<RedisCommand> commands;
+
+        TenantConf(boolean enable, Set<RedisCommand> commands) {
+            this.enable = enable;
+            this.commands = commands;
+        }
+    }
+
+    //一个客户端未回包的写命令涉及的key，all表示没有key的写命令（如flushdb）的个数
+    //写命令的回包线程和读命令的线程可能不同，因此方法都需要加锁
+    private static class PendingWrites {
+        private final Map<BytesKey, Integer> keys = new HashMap<>();
+        private int all;
+
+        synchronized void add(List<byte[]> list) {
+            if (list.isEmpty()) {
+                all ++;
+                return;
+            }
+            for (byte[] key : list) {
+                keys.merge(new BytesKey(key), 1, Integer::sum);
+            }
+        }
+
+        synchronized void remove(List<byte[]> list) {
+            if (list.isEmpty()) {
+                all --;
+                return;
+            }
+            for (byte[] key : list) {
+                keys.computeIfPresent(new BytesKey(key), (k, v) -> v <= 1 ? null : v - 1);
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return all <= 0 && keys.isEmpty();
+        }
+
+        synchronized boolean contains(BytesKey key) {
+            return all > 0 || keys.containsKey(key);
+        }
+    }
+
+    private class Flight {
+        private final BytesKey key;
+        private final FlightKey flightKey;
+        private final ConcurrentHashMap<FlightKey, CompletableFuture<Reply>> flights;
+        private final CompletableFuture<Reply> future;
+
+        Flight(BytesKey key, FlightKey flightKey, ConcurrentHashMap<FlightKey, CompletableFuture<Reply>> flights, CompletableFuture<Reply> future) {
+            this.key = key;
+            this.flightKey = flightKey;
+            this.flights = flights;
+            this.future = future;
+        }
+
+        //先移除在途记录再回包，回包之后到达的请求不会再复用
+        void complete(Reply reply) {
+            flights.remove(flightKey, future);
+            if (flights.isEmpty()) {
+                flightMap.remove(key, flights);
+            }
+            future.complete(reply);
+        }
+    }
+
+    private static class FlightKey {
+        private final IUpstreamClientTemplate template;
+        private final int db;
+        private final byte[][] args;
+        private final int hashCode;
+
+        FlightKey(IUpstreamClientTemplate template, int db, byte[][] args) {
+            this.template = template;
+            this.db = db;
+            this.args = args;
+            this.hashCode = 31 * (31 * System.identityHashCode(template) + db) + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FlightKey that = (FlightKey) o;
+            return template == that.template && db == that.db && Arrays.deepEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -51,6 +51,8 @@ public class CamelliaServerProperties {
     private int writeBufferWaterMarkHigh = Constants.Server.writeBufferWaterMarkHigh;
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private boolean commandDecodeZeroCopyEnable = Constants.Server.commandDecodeZeroCopyEnable;
+    private int commandDecodeZeroCopyThreshold = Constants.Server.commandDecodeZeroCopyThreshold;
 
     public int getPort() {
         return port;
@@ -309,4 +311,20 @@ public class CamelliaServerProperties {
     public void setCommandDecodeBufferInitializerSize(int commandDecodeBufferInitializerSize) {
         this.commandDecodeBufferInitializerSize = commandDecodeBufferInitializerSize;
     }
+
+    public boolean isCommandDecodeZeroCopyEnable() {
+        return commandDecodeZeroCopyEnable;
+    }
+
+    public void setCommandDecodeZeroCopyEnable(boolean commandDecodeZeroCopyEnable) {
+        this.commandDecodeZeroCopyEnable = commandDecodeZeroCopyEnable;
+    }
+
+    public int getCommandDecodeZeroCopyThreshold() {
+        return commandDecodeZeroCopyThreshold;
+    }
+
+    public void setCommandDecodeZeroCopyThreshold(int commandDecodeZeroCopyThreshold) {
+        this.commandDecodeZeroCopyThreshold = commandDecodeZeroCopyThreshold;
+    }
 }
@@ -35,6 +35,8 @@ public class Constants {
         public static final int workThread = SysUtils.getCpuNum();
         public static final int commandDecodeMaxBatchSize = 256;
         public static final int commandDecodeBufferInitializerSize = 32;
+        public static final boolean commandDecodeZeroCopyEnable = false;
+        public static final int commandDecodeZeroCopyThreshold = 4096;
 
         public static final NettyTransportMode nettyTransportMode = NettyTransportMode.nio;
         public static final boolean tcpNoDelay = true;
@@ -52,6 +54,12 @@ public class Constants {
         public static final int hotKeyMonitorCheckCacheMaxCapacity = 100000;
         public static final long hotKeyMonitorCheckThreshold = 500;
         public static final int hotKeyMonitorMaxHotKeyCount = 32;
+        public static final int hotKeyMonitorTopKCapacity = 256;
+
+        public static final String hotKeyCounterType = "lru";//lru or sketch
+        public static final int hotKeySketchWidth = 16384;
+        public static final int hotKeySketchDepth = 4;
+        public static final int hotKeySketchStripes = 2;
 
         public static final long hotKeyCacheExpireMillis = 10000;
         public static final int hotKeyCacheMaxCapacity = 1000;
@@ -59,8 +67,25 @@ public class Constants {
         public static final int hotKeyCacheCounterMaxCapacity = 100000;
         public static final long hotKeyCacheCounterCheckThreshold = 100;
         public static final boolean hotKeyCacheNeedCacheNull = true;
+        public static final boolean hotKeyCacheInvalidateOnWriteEnable = true;
+        public static final boolean hotKeyCacheUpstreamInvalidateEnable = false;
+
+        public static final boolean upstreamRedisReplicaLatencyAwareSelectEnable = false;
+        public static final long upstreamRedisReplicaLatencyEwmaDecayMillis = 10000;
         public static final long hotKeyCacheStatsCallbackIntervalSeconds = 10;
 
+        public static final String converterCompressAlgorithm = "lz4";//lz4 or zstd
+        public static final int converterCompressThreshold = 1024;
+        public static final String converterCompressMagic = "camellia~c";//和CamelliaCompressor的默认魔数一致
+        public static final int converterCompressZstdLevel = 3;
+
+        public static final boolean singleFlightEnable = false;
+        public static final String singleFlightCommands = "get,hget,hmget,hgetall,exists,strlen,getrange,llen,lindex,lrange,scard,sismember,smembers,zcard,zscore,zrange,zrangebyscore,ttl,pttl,type";
+
+        public static final boolean clientTrackingEnable = false;
+        public static final int clientTrackingTableMaxKeys = 1000000;
+        public static final int clientTrackingUpstreamCheckIntervalSeconds = 5;
+
         public static final boolean monitorDataMaskPassword = true;//对外暴露的监控数据是否把密码隐藏（用*代替）
     }
 
@@ -86,6 +111,15 @@ public class Constants {
         public static final boolean soKeepalive = true;
         public static final int writeBufferWaterMarkLow = 128 * 1024;
         public static final int writeBufferWaterMarkHigh = 512 * 1024;
+
+        public static final boolean writeCoalesceEnable = false;//是否合并同一个后端连接上多个客户端的写入
+        public static final int writeCoalesceMaxBatchSize = 128;//合并写入时，最多攒多少个命令就flush
+        public static final long writeCoalesceMaxDelayMicros = 0;//合并写入时，最多延迟多久flush，0表示当前eventLoop的本轮任务结束时flush
+
+        public static final int redisConnectionPoolSize = 1;//同一个eventLoop下到同一个后端的连接数，1表示不使用连接池
+        public static final String redisConnectionPoolLargeReplyCommands = "hgetall,hkeys,hvals,smembers,lrange,zrange,zrangebyscore,zrevrange,zrevrangebyscore,sunion,sinter,sdiff,xrange,xrevrange";
+        public static final int redisConnectionPoolLargeReplyMultiKeys = 100;//mget的key数量达到多少时认为是大回包
+        public static final int redisConnectionPoolLargeReplyConnections = 1;//size_class策略下专用于大回包命令的连接数
     }
 
     public static class Remote {
@@ -21,6 +21,7 @@ public enum RedisKeyword {
     WITHCOORD, WITHDIST, WITHHASH,
     STREAMS,BLOCK,
     SLOTS, NODES, INFO, PROXY_HEARTBEAT,
+    ID, TRACKING, GETREDIR,
     ;
 
     private final byte[] raw;
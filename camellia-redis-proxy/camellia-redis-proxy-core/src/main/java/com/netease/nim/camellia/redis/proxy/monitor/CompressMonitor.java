@@ -0,0 +1,115 @@
+package com.netease.nim.camellia.redis.proxy.monitor;
+
+import com.netease.nim.camellia.redis.proxy.command.CommandContext;
+import com.netease.nim.camellia.redis.proxy.monitor.model.CompressStats;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * value压缩的命中情况和压缩率
+ * Created by agent on 2026/10/18
+ */
+public class CompressMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressMonitor.class);
+
+    private static ConcurrentHashMap<String, CompressStatsBean> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 写入时压缩了
+     */
+    public static void compress(CommandContext commandContext, int originalBytes, int compressedBytes) {
+        try {
+            CompressStatsBean bean = getBean(commandContext);
+            bean.compressCount.increment();
+            bean.originalBytes.add(originalBytes);
+            bean.compressedBytes.add(compressedBytes);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入时没有压缩（未达到阈值、key前缀不匹配、压缩后没有变小）
+     */
+    public static void skip(CommandContext commandContext) {
+        try {
+            getBean(commandContext).skipCount.increment();
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取时解压了
+     */
+    public static void decompress(CommandContext commandContext) {
+        try {
+            getBean(commandContext).decompressCount.increment();
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取到没有压缩过的value
+     */
+    public static void uncompressedRead(CommandContext commandContext) {
+        try {
+            getBean(commandContext).uncompressedReadCount.increment();
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private static CompressStatsBean getBean(CommandContext commandContext) {
+        String bid = commandContext == null || commandContext.getBid() == null ? "default" : String.valueOf(commandContext.getBid());
+        String bgroup = commandContext == null || commandContext.getBgroup() == null ? "default" : commandContext.getBgroup();
+        String uniqueKey = bid + "|" + bgroup;
+        return CamelliaMapUtils.computeIfAbsent(statsMap, uniqueKey, k -> new CompressStatsBean(bid, bgroup));
+    }
+
+    public static List<CompressStats> collect() {
+        ConcurrentHashMap<String, CompressStatsBean> statsMap = CompressMonitor.statsMap;
+        CompressMonitor.statsMap = new ConcurrentHashMap<>();
+        List<CompressStats> list = new ArrayList<>();
+        for (CompressStatsBean bean : statsMap.values()) {
+            CompressStats stats = new CompressStats();
+            stats.setBid(bean.bid);
+            stats.setBgroup(bean.bgroup);
+            stats.setCompressCount(bean.compressCount.sum());
+            stats.setSkipCount(bean.skipCount.sum());
+            stats.setDecompressCount(bean.decompressCount.sum());
+            stats.setUncompressedReadCount(bean.uncompressedReadCount.sum());
+            long originalBytes = bean.originalBytes.sum();
+            long compressedBytes = bean.compressedBytes.sum();
+            stats.setOriginalBytes(originalBytes);
+            stats.setCompressedBytes(compressedBytes);
+            stats.setRatio(compressedBytes == 0 ? 0 : (double) originalBytes / compressedBytes);
+            list.add(stats);
+        }
+        return list;
+    }
+
+    private static class CompressStatsBean {
+        final String bid;
+        final String bgroup;
+        final LongAdder compressCount = new LongAdder();
+        final LongAdder skipCount = new LongAdder();
+        final LongAdder decompressCount = new LongAdder();
+        final LongAdder uncompressedReadCount = new LongAdder();
+        final LongAdder originalBytes = new LongAdder();
+        final LongAdder compressedBytes = new LongAdder();
+
+        CompressStatsBean(String bid, String bgroup) {
+            this.bid = bid;
+            this.bgroup = bgroup;
+        }
+    }
+}
@@ -114,6 +114,15 @@ public class LoggingMonitorCallback implements MonitorCallback {
                         hotKeyCacheStats.getHitCount(), hotKeyCacheStats.getCheckMillis(), hotKeyCacheStats.getCheckThreshold());
             }
 
+            logger.info("====compress.stats====");
+            List<CompressStats> compressStatsList = stats.getCompressStatsList();
+            for (CompressStats compressStats : compressStatsList) {
+                logger.info("bid={},bgroup={},compressCount={},skipCount={},decompressCount={},uncompressedReadCount={},originalBytes={},compressedBytes={},ratio={}",
+                        compressStats.getBid(), compressStats.getBgroup(), compressStats.getCompressCount(), compressStats.getSkipCount(),
+                        compressStats.getDecompressCount(), compressStats.getUncompressedReadCount(),
+                        compressStats.getOriginalBytes(), compressStats.getCompressedBytes(), compressStats.getRatio());
+            }
+
             logger.info("====slow.command.stats====");
             List<SlowCommandStats> slowCommandStatsList = stats.getSlowCommandStatsList();
             for (SlowCommandStats slowCommandStats : slowCommandStatsList) {
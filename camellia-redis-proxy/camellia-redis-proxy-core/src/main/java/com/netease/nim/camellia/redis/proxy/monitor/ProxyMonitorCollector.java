@@ -113,6 +113,7 @@ public class ProxyMonitorCollector {
             CommandSpendMonitor.CommandSpendStats commandSpendStats = CommandSpendMonitor.collect();
             stats.setSpendStatsList(commandSpendStats.spendStatsList);
             stats.setBidBgroupSpendStatsList(commandSpendStats.bidBgroupSpendStatsList);
+            TenantCommandStats.checkReset();
 
             ResourceStatsMonitor.ResourceStatsCollect resourceStats = ResourceStatsMonitor.collect();
             stats.setResourceStatsList(resourceStats.resourceStatsList);
@@ -128,6 +129,7 @@ public class ProxyMonitorCollector {
             stats.setSlowCommandStatsList(SlowCommandMonitor.collect());
             stats.setHotKeyCacheStatsList(HotKeyCacheMonitor.collect());
             stats.setUpstreamFailStatsList(UpstreamFailMonitor.collect());
+            stats.setCompressStatsList(CompressMonitor.collect());
 
             ProxyMonitorCollector.stats = stats;
 
@@ -292,6 +292,23 @@ public class StatsJsonConverter {
         }
         monitorJson.put("hotKeyCacheStats", hotKeyCacheStatsJsonArray);
 
+        List<CompressStats> compressStatsList = stats.getCompressStatsList();
+        JSONArray compressStatsJsonArray = new JSONArray();
+        for (CompressStats compressStats : compressStatsList) {
+            JSONObject compressStatsJson = new JSONObject();
+            compressStatsJson.put("bid", compressStats.getBid());
+            compressStatsJson.put("bgroup", compressStats.getBgroup());
+            compressStatsJson.put("compressCount", compressStats.getCompressCount());
+            compressStatsJson.put("skipCount", compressStats.getSkipCount());
+            compressStatsJson.put("decompressCount", compressStats.getDecompressCount());
+            compressStatsJson.put("uncompressedReadCount", compressStats.getUncompressedReadCount());
+            compressStatsJson.put("originalBytes", compressStats.getOriginalBytes());
+            compressStatsJson.put("compressedBytes", compressStats.getCompressedBytes());
+            compressStatsJson.put("ratio", compressStats.getRatio());
+            compressStatsJsonArray.add(compressStatsJson);
+        }
+        monitorJson.put("compressStats", compressStatsJsonArray);
+
         List<UpstreamFailStats> upstreamFailStatsList = stats.getUpstreamFailStatsList();
         JSONArray upstreamFailStatsJsonArray = new JSONArray();
         for (UpstreamFailStats upstreamFailStats : upstreamFailStatsList) {
@@ -249,6 +249,21 @@ public class StatsPrometheusConverter {
                         entry.getValue()));
             }
 
+            // ====compress.stats====
+            sb.append("# HELP redis_proxy_compress_stats Redis Proxy Compress Stats\n");
+            sb.append("# TYPE redis_proxy_compress_stats gauge\n");
+            List<CompressStats> compressStatsList = stats.getCompressStatsList();
+            for (CompressStats compressStats : compressStatsList) {
+                String bid = compressStats.getBid() == null ? DEFAULT : compressStats.getBid();
+                String bgroup = compressStats.getBgroup() == null ? DEFAULT : compressStats.getBgroup();
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"compress\",} %d\n", bid, bgroup, compressStats.getCompressCount()));
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"skip\",} %d\n", bid, bgroup, compressStats.getSkipCount()));
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"decompress\",} %d\n", bid, bgroup, compressStats.getDecompressCount()));
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"uncompressed_read\",} %d\n", bid, bgroup, compressStats.getUncompressedReadCount()));
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"original_bytes\",} %d\n", bid, bgroup, compressStats.getOriginalBytes()));
+                sb.append(String.format("redis_proxy_compress_stats{bid=\"%s\",bgroup=\"%s\",type=\"compressed_bytes\",} %d\n", bid, bgroup, compressStats.getCompressedBytes()));
+            }
+
             // ====slow.command.stats====
             sb.append("# HELP redis_proxy_slow_command_stats Redis Proxy Slow Command Stats\n");
             sb.append("# TYPE redis_proxy_slow_command_stats gauge\n");
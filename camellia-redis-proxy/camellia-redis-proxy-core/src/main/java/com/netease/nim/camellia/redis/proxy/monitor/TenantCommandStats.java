@@ -0,0 +1,250 @@
+package com.netease.nim.camellia.redis.proxy.monitor;
+
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.util.QuantileCollector;
+import com.netease.nim.camellia.redis.proxy.util.QuantileCollectorPool;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 租户（bid+bgroup）级别的命令计数器，按照RedisCommand.ordinal()作为下标存放
+ * 会缓存在ChannelInfo上，避免每个命令都拼接bid|bgroup|command字符串并查询map
+ * 当连接的bid/bgroup发生变化，或者registry被定期重置后，会重新获取
+ * 被CommandCountMonitor和CommandSpendMonitor共享
+ * 不在RedisCommand中的未知命令按照命令名单独计数（很少出现，不走数组）
+ * Created by agent on 2026/10/18
+ */
+public class TenantCommandStats {
+
+    private static final RedisCommand[] COMMANDS = RedisCommand.values();
+
+    private static ConcurrentHashMap<String, TenantCommandStats> map = new ConcurrentHashMap<>();
+    private static int count = 0;
+    //上一次重置时被替换下来的租户，等待下一个监控周期再回收分位数收集器，只在监控线程中访问
+    private static List<TenantCommandStats> retired = new ArrayList<>();
+
+    private final Long bid;
+    private final String bgroup;
+    private volatile boolean valid = true;
+
+    private final AtomicReferenceArray<LongAdder> countArray = new AtomicReferenceArray<>(COMMANDS.length);
+    private final AtomicReferenceArray<LongAdder> spendCountArray = new AtomicReferenceArray<>(COMMANDS.length);
+    private final AtomicReferenceArray<LongAdder> spendTotalArray = new AtomicReferenceArray<>(COMMANDS.length);
+    private final AtomicReferenceArray<QuantileCollector> quantileArray = new AtomicReferenceArray<>(COMMANDS.length);
+    private final ConcurrentHashMap<String, UnknownCommandStats> unknownMap = new ConcurrentHashMap<>();
+
+    private TenantCommandStats(Long bid, String bgroup) {
+        this.bid = bid;
+        this.bgroup = bgroup;
+    }
+
+    /**
+     * 获取租户的计数器，优先使用ChannelInfo上缓存的
+     * @param channelInfo channelInfo，可以为null
+     * @param bid bid
+     * @param bgroup bgroup
+     * @return TenantCommandStats
+     */
+    public static TenantCommandStats get(ChannelInfo channelInfo, Long bid, String bgroup) {
+        if (channelInfo != null) {
+            TenantCommandStats stats = channelInfo.getTenantCommandStats();
+            if (stats != null && stats.valid && Objects.equals(stats.bid, bid) && Objects.equals(stats.bgroup, bgroup)) {
+                return stats;
+            }
+        }
+        TenantCommandStats stats = CamelliaMapUtils.computeIfAbsent(map, Utils.getCacheKey(bid, bgroup), k -> new TenantCommandStats(bid, bgroup));
+        if (channelInfo != null) {
+            channelInfo.setTenantCommandStats(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 所有的租户
+     */
+    public static List<TenantCommandStats> tenants() {
+        return new ArrayList<>(map.values());
+    }
+
+    /**
+     * 定期重置registry，清理掉已经不存在的租户，需要在CommandCountMonitor和CommandSpendMonitor都collect之后调用
+     * 被替换下来的租户会被标记为无效，ChannelInfo上缓存的引用会在下一个命令时重新获取，
+     * 但是此时可能还有正在执行的spend()在更新分位数收集器，因此收集器延迟到下一个监控周期再回收，避免数据串到其他租户
+     */
+    public static void checkReset() {
+        if (!retired.isEmpty()) {
+            for (TenantCommandStats stats : retired) {
+                stats.recycle();
+            }
+            retired = new ArrayList<>();
+        }
+        count ++;
+        if (count < ProxyDynamicConf.getInt("monitor.cache.reset.interval.periods", 60)) {
+            return;
+        }
+        count = 0;
+        ConcurrentHashMap<String, TenantCommandStats> oldMap = TenantCommandStats.map;
+        TenantCommandStats.map = new ConcurrentHashMap<>();
+        for (TenantCommandStats stats : oldMap.values()) {
+            stats.valid = false;
+            retired.add(stats);
+        }
+    }
+
+    private void recycle() {
+        for (int i=0; i<COMMANDS.length; i++) {
+            recycle(quantileArray.getAndSet(i, null));
+        }
+        for (UnknownCommandStats stats : unknownMap.values()) {
+            recycle(stats.quantileCollector);
+            stats.quantileCollector = null;
+        }
+    }
+
+    private static void recycle(QuantileCollector collector) {
+        if (collector != null) {
+            collector.reset();
+            QuantileCollectorPool.returnQuantileCollector(collector);
+        }
+    }
+
+    public static RedisCommand command(int ordinal) {
+        return COMMANDS[ordinal];
+    }
+
+    public static int commandSize() {
+        return COMMANDS.length;
+    }
+
+    public Long getBid() {
+        return bid;
+    }
+
+    public String getBgroup() {
+        return bgroup;
+    }
+
+    public void incr(RedisCommand redisCommand) {
+        adder(countArray, redisCommand.ordinal()).increment();
+    }
+
+    public void spend(RedisCommand redisCommand, long spendNanoTime) {
+        int ordinal = redisCommand.ordinal();
+        adder(spendCountArray, ordinal).increment();
+        adder(spendTotalArray, ordinal).add(spendNanoTime);
+        QuantileCollector collector = quantileArray.get(ordinal);
+        if (collector == null) {
+            collector = QuantileCollectorPool.borrowQuantileCollector();
+            if (!quantileArray.compareAndSet(ordinal, null, collector)) {
+                QuantileCollectorPool.returnQuantileCollector(collector);
+                collector = quantileArray.get(ordinal);
+            }
+        }
+        collector.updateNanos(spendNanoTime);
+    }
+
+    /**
+     * 未知命令的计数
+     * @param command 命令名
+     */
+    public void incrUnknown(String command) {
+        unknown(command).count.increment();
+    }
+
+    /**
+     * 未知命令的耗时
+     * @param command 命令名
+     * @param spendNanoTime 耗时
+     */
+    public void spendUnknown(String command, long spendNanoTime) {
+        UnknownCommandStats stats = unknown(command);
+        stats.spendCount.increment();
+        stats.spendTotal.add(spendNanoTime);
+        QuantileCollector collector = stats.quantileCollector;
+        if (collector == null) {
+            synchronized (stats) {
+                collector = stats.quantileCollector;
+                if (collector == null) {
+                    collector = QuantileCollectorPool.borrowQuantileCollector();
+                    stats.quantileCollector = collector;
+                }
+            }
+        }
+        collector.updateNanos(spendNanoTime);
+    }
+
+    /**
+     * 未知命令的统计，key是命令名
+     */
+    public Map<String, UnknownCommandStats> unknownCommands() {
+        return unknownMap;
+    }
+
+    private UnknownCommandStats unknown(String command) {
+        return CamelliaMapUtils.computeIfAbsent(unknownMap, command, k -> new UnknownCommandStats());
+    }
+
+    public long sumThenResetCount(int ordinal) {
+        return sumThenReset(countArray, ordinal);
+    }
+
+    public long sumThenResetSpendCount(int ordinal) {
+        return sumThenReset(spendCountArray, ordinal);
+    }
+
+    public long sumThenResetSpendTotal(int ordinal) {
+        return sumThenReset(spendTotalArray, ordinal);
+    }
+
+    public QuantileCollector quantileCollector(int ordinal) {
+        return quantileArray.get(ordinal);
+    }
+
+    private static long sumThenReset(AtomicReferenceArray<LongAdder> array, int ordinal) {
+        LongAdder adder = array.get(ordinal);
+        if (adder == null) return 0;
+        return adder.sumThenReset();
+    }
+
+    private static LongAdder adder(AtomicReferenceArray<LongAdder> array, int ordinal) {
+        LongAdder adder = array.get(ordinal);
+        if (adder == null) {
+            array.compareAndSet(ordinal, null, new LongAdder());
+            adder = array.get(ordinal);
+        }
+        return adder;
+    }
+
+    public static class UnknownCommandStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder spendCount = new LongAdder();
+        private final LongAdder spendTotal = new LongAdder();
+        private volatile QuantileCollector quantileCollector;
+
+        public long sumThenResetCount() {
+            return count.sumThenReset();
+        }
+
+        public long sumThenResetSpendCount() {
+            return spendCount.sumThenReset();
+        }
+
+        public long sumThenResetSpendTotal() {
+            return spendTotal.sumThenReset();
+        }
+
+        public QuantileCollector quantileCollector() {
+            return quantileCollector;
+        }
+    }
+}
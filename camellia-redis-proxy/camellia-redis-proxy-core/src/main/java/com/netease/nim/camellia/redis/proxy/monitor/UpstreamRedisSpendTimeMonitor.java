@@ -31,7 +31,7 @@ public class UpstreamRedisSpendTimeMonitor {
             CamelliaMapUtils.computeIfAbsent(spendTotalMap, addr.getUrl(), k -> new LongAdder()).add(spendNanoTime);
             QuantileCollector collector = CamelliaMapUtils.computeIfAbsent(quantileMap, addr.getUrl(),
                     k -> QuantileCollectorPool.borrowQuantileCollector());
-            collector.update((int)(spendNanoTime / 10000));//0.00ms
+            collector.updateNanos(spendNanoTime);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
@@ -0,0 +1,88 @@
+package com.netease.nim.camellia.redis.proxy.monitor.model;
+
+/**
+ * Created by agent on 2026/10/18
+ */
+public class CompressStats {
+    private String bid;
+    private String bgroup;
+    private long compressCount;
+    private long skipCount;
+    private long decompressCount;
+    private long uncompressedReadCount;
+    private long originalBytes;
+    private long compressedBytes;
+    private double ratio;
+
+    public String getBid() {
+        return bid;
+    }
+
+    public void setBid(String bid) {
+        this.bid = bid;
+    }
+
+    public String getBgroup() {
+        return bgroup;
+    }
+
+    public void setBgroup(String bgroup) {
+        this.bgroup = bgroup;
+    }
+
+    public long getCompressCount() {
+        return compressCount;
+    }
+
+    public void setCompressCount(long compressCount) {
+        this.compressCount = compressCount;
+    }
+
+    public long getSkipCount() {
+        return skipCount;
+    }
+
+    public void setSkipCount(long skipCount) {
+        this.skipCount = skipCount;
+    }
+
+    public long getDecompressCount() {
+        return decompressCount;
+    }
+
+    public void setDecompressCount(long decompressCount) {
+        this.decompressCount = decompressCount;
+    }
+
+    public long getUncompressedReadCount() {
+        return uncompressedReadCount;
+    }
+
+    public void setUncompressedReadCount(long uncompressedReadCount) {
+        this.uncompressedReadCount = uncompressedReadCount;
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    public void setOriginalBytes(long originalBytes) {
+        this.originalBytes = originalBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public void setCompressedBytes(long compressedBytes) {
+        this.compressedBytes = compressedBytes;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public void setRatio(double ratio) {
+        this.ratio = ratio;
+    }
+}
@@ -39,6 +39,7 @@ public class Stats {
     private List<HotKeyCacheStats> hotKeyCacheStatsList = new ArrayList<>();
     private List<SlowCommandStats> slowCommandStatsList = new ArrayList<>();
     private List<UpstreamFailStats> upstreamFailStatsList = new ArrayList<>();
+    private List<CompressStats> compressStatsList = new ArrayList<>();
 
     public int getIntervalSeconds() {
         return intervalSeconds;
@@ -255,4 +256,12 @@ public class Stats {
     public void setUpstreamFailStatsList(List<UpstreamFailStats> upstreamFailStatsList) {
         this.upstreamFailStatsList = upstreamFailStatsList;
     }
+
+    public List<CompressStats> getCompressStatsList() {
+        return compressStatsList;
+    }
+
+    public void setCompressStatsList(List<CompressStats> compressStatsList) {
+        this.compressStatsList = compressStatsList;
+    }
 }
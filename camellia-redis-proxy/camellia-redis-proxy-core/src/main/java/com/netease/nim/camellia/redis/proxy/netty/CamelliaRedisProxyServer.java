@@ -56,7 +56,8 @@ public class CamelliaRedisProxyServer {
                             p.addLast(new IdleCloseHandler(serverProperties.getReaderIdleTimeSeconds(),
                                     serverProperties.getWriterIdleTimeSeconds(), serverProperties.getAllIdleTimeSeconds()));
                         }
-                        p.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize()));
+                        p.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize(),
+                                serverProperties.isCommandDecodeZeroCopyEnable(), serverProperties.getCommandDecodeZeroCopyThreshold()));
                         p.addLast(new ReplyEncoder());
                         p.addLast(initHandler);
                         p.addLast(serverHandler);
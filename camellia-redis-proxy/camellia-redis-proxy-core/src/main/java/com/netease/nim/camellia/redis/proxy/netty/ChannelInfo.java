@@ -4,8 +4,10 @@ package com.netease.nim.camellia.redis.proxy.netty;
 import com.netease.nim.camellia.redis.proxy.command.CommandTaskQueue;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
+import com.netease.nim.camellia.redis.proxy.monitor.TenantCommandStats;
 import com.netease.nim.camellia.redis.proxy.monitor.UpstreamFailMonitor;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingInfo;
 import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClient;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -30,10 +33,12 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ChannelInfo {
 
     private static final AttributeKey<ChannelInfo> ATTRIBUTE_KEY = AttributeKey.valueOf("CI");
+    private static final AtomicLong idGenerator = new AtomicLong(0);
 
     private final boolean mock;
 
     private final String consid;
+    private final long id;//client id, used by CLIENT ID and CLIENT TRACKING REDIRECT
     private ChannelStats channelStats = ChannelStats.NO_AUTH;
     private final ChannelHandlerContext ctx;
     /**
@@ -67,11 +72,16 @@ public class ChannelInfo {
     private String clientName;
     private Long bid;
     private String bgroup;
+    private volatile TenantCommandStats tenantCommandStats;
 
     private int db = -1;
 
+    private int resp = 2;//protocol version, switched by HELLO
+    private volatile ClientTrackingInfo clientTrackingInfo;
+
     public ChannelInfo() {
         this.consid = null;
+        this.id = 0;
         this.ctx = null;
         this.clientSocketAddress = null;
         this.commandTaskQueue = null;
@@ -82,6 +92,7 @@ public class ChannelInfo {
     private ChannelInfo(ChannelHandlerContext ctx) {
         this.ctx = ctx;
         this.consid = UUID.randomUUID().toString();
+        this.id = idGenerator.incrementAndGet();
         this.clientSocketAddress = ctx.channel().remoteAddress();
         this.commandTaskQueue = new CommandTaskQueue(this);
         this.mock = false;
@@ -210,6 +221,10 @@ public class ChannelInfo {
         return consid;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public ChannelStats getChannelStats() {
         return channelStats;
     }
@@ -246,6 +261,14 @@ public class ChannelInfo {
         this.bgroup = bgroup;
     }
 
+    public TenantCommandStats getTenantCommandStats() {
+        return tenantCommandStats;
+    }
+
+    public void setTenantCommandStats(TenantCommandStats tenantCommandStats) {
+        this.tenantCommandStats = tenantCommandStats;
+    }
+
     public RedisConnection getBindConnection() {
         return bindConnection;
     }
@@ -297,7 +320,10 @@ public class ChannelInfo {
             ErrorLogCollector.collect(ChannelInfo.class, "blocking command do not support transaction multi-write");
             return;
         }
-        cachedCommands.add(command);
+        //zero-copy的command在回包QUEUED之后就会被release，EXEC之后重放时不能再引用inbound buffer，因此缓存一份堆上的拷贝
+        Command copy = new Command(command.getObjects());
+        copy.setChannelInfo(command.getChannelInfo());
+        cachedCommands.add(copy);
     }
 
     public void flushInTransactionCommands(int db, IUpstreamClient upstreamClient) {
@@ -366,6 +392,10 @@ public class ChannelInfo {
         }
     }
 
+    public boolean isSubscribeChannel(byte[] channel) {
+        return subscribeChannels != null && subscribeChannels.containsKey(new BytesKey(channel));
+    }
+
     public boolean hasSubscribeChannels() {
         if (subscribeChannels != null && !subscribeChannels.isEmpty())  {
             return true;
@@ -401,6 +431,22 @@ public class ChannelInfo {
         this.db = db;
     }
 
+    public int getResp() {
+        return resp;
+    }
+
+    public void setResp(int resp) {
+        this.resp = resp;
+    }
+
+    public ClientTrackingInfo getClientTrackingInfo() {
+        return clientTrackingInfo;
+    }
+
+    public void setClientTrackingInfo(ClientTrackingInfo clientTrackingInfo) {
+        this.clientTrackingInfo = clientTrackingInfo;
+    }
+
     public boolean isTransactionTag() {
         return transactionTag;
     }
@@ -19,10 +19,13 @@ public class CommandDecoder extends ByteToMessageDecoder {
     private List<Command> commands;
 
     private byte[][] bytes;
+    private ByteBuf[] bufs;
     private int index = 0;
 
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private boolean zeroCopyEnable = Constants.Server.commandDecodeZeroCopyEnable;
+    private int zeroCopyThreshold = Constants.Server.commandDecodeZeroCopyThreshold;
 
     public CommandDecoder(int commandDecodeMaxBatchSize, int commandDecodeBufferInitializerSize) {
         super();
@@ -35,6 +38,23 @@ public class CommandDecoder extends ByteToMessageDecoder {
         this.commands = new ArrayList<>(this.commandDecodeBufferInitializerSize);
     }
 
+    /**
+     * 零拷贝模式下，大于阈值的参数（不包括命令名）不会拷贝到byte[]，而是持有输入ByteBuf的retained slice，直到被真正使用时才会拷贝
+     * <p> In zero-copy mode, args (except the command name) larger than threshold are kept as retained slices of the inbound buffer,
+     * and only materialized into byte[] when needed, such as plugins or KeyParser.
+     * @param commandDecodeMaxBatchSize max batch size
+     * @param commandDecodeBufferInitializerSize buffer initializer size
+     * @param zeroCopyEnable zero-copy enable
+     * @param zeroCopyThreshold zero-copy threshold
+     */
+    public CommandDecoder(int commandDecodeMaxBatchSize, int commandDecodeBufferInitializerSize, boolean zeroCopyEnable, int zeroCopyThreshold) {
+        this(commandDecodeMaxBatchSize, commandDecodeBufferInitializerSize);
+        this.zeroCopyEnable = zeroCopyEnable;
+        if (zeroCopyThreshold > 0) {
+            this.zeroCopyThreshold = zeroCopyThreshold;
+        }
+    }
+
     /**
      * 根据RESP协议去解析 {@link ByteBuf}
      * <p> Parse the ByteBuf object according RESP protocol.
@@ -79,8 +99,15 @@ public class CommandDecoder extends ByteToMessageDecoder {
                             }
                             int size = (int)parseRedisNumber(byteBuf);
                             if (in.readableBytes() >= size + 2) {
-                                bytes[i] = new byte[size];
-                                in.readBytes(bytes[i]);
+                                if (zeroCopyEnable && i > 0 && size >= zeroCopyThreshold) {
+                                    if (bufs == null) {
+                                        bufs = new ByteBuf[numArgs];
+                                    }
+                                    bufs[i] = in.readRetainedSlice(size);
+                                } else {
+                                    bytes[i] = new byte[size];
+                                    in.readBytes(bytes[i]);
+                                }
                                 in.skipBytes(2);
                             } else {
                                 in.readerIndex(readerIndex);
@@ -92,7 +119,7 @@ public class CommandDecoder extends ByteToMessageDecoder {
                         }
                     }
                     try {
-                        Command command = new Command(bytes);
+                        Command command = bufs == null ? new Command(bytes) : new Command(bytes, bufs);
                         commands.add(command);
                         if (commands.size() >= commandDecodeMaxBatchSize) {
                             out.add(commands);
@@ -100,6 +127,7 @@ public class CommandDecoder extends ByteToMessageDecoder {
                         }
                     } finally {
                         bytes = null;
+                        bufs = null;
                         index = 0;
                     }
                 }
@@ -112,6 +140,19 @@ public class CommandDecoder extends ByteToMessageDecoder {
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        //release the slices of the half decoded command
+        if (bufs != null) {
+            for (ByteBuf buf : bufs) {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+            bufs = null;
+        }
+    }
+
     private static final int POSITIVE_LONG_MAX_LENGTH = 19; // length of Long.MAX_VALUE
     private static final int EOL_LENGTH = 2;
 
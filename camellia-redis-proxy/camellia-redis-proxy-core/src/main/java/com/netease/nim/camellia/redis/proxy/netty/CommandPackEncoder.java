@@ -78,6 +78,13 @@ public class CommandPackEncoder extends MessageToMessageEncoder<CommandPack> {
         } catch (Exception e) {
             logger.error("{} error", redisConnection.getConnectionName(), e);
         } finally {
+            //the encoded ByteBuf holds its own reference of the zero-copy decoded args
+            List<Command> commands = msg.getCommands();
+            if (commands != null) {
+                for (Command command : commands) {
+                    command.release();
+                }
+            }
             commandPackRecycler.recycle(msg);
         }
     }
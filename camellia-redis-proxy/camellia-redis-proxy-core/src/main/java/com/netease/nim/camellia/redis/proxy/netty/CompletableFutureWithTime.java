@@ -1,7 +1,9 @@
 package com.netease.nim.camellia.redis.proxy.netty;
 
+import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
 import com.netease.nim.camellia.redis.proxy.monitor.UpstreamRedisSpendTimeMonitor;
+import com.netease.nim.camellia.redis.proxy.upstream.utils.LatencyAwareReplicaSelector;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -19,7 +21,11 @@ public class CompletableFutureWithTime<T> extends CompletableFuture<T> {
 
     @Override
     public boolean complete(T value) {
-        UpstreamRedisSpendTimeMonitor.incr(addr, System.nanoTime() - startTime);
+        long spendNanoTime = System.nanoTime() - startTime;
+        if (ProxyMonitorCollector.isUpstreamRedisSpendTimeMonitorEnable()) {
+            UpstreamRedisSpendTimeMonitor.incr(addr, spendNanoTime);
+        }
+        LatencyAwareReplicaSelector.update(addr, spendNanoTime);
         return future.complete(value);
     }
 }
@@ -2,6 +2,7 @@ package com.netease.nim.camellia.redis.proxy.netty;
 
 import com.netease.nim.camellia.redis.proxy.auth.ConnectLimiter;
 import com.netease.nim.camellia.redis.proxy.monitor.ChannelMonitor;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import io.netty.channel.ChannelHandler;
@@ -60,6 +61,7 @@ public class InitHandler extends ChannelInboundHandlerAdapter {
         if (channelInfo != null) {
             channelInfo.clear();
             ChannelMonitor.remove(channelInfo);
+            ClientTrackingManager.remove(channelInfo);
             ConcurrentHashMap<String, RedisConnection> map1 = channelInfo.getBindRedisConnectionCache();
             if (map1 != null) {
                 for (Map.Entry<String, RedisConnection> entry : map1.entrySet()) {
@@ -1,8 +1,6 @@
 package com.netease.nim.camellia.redis.proxy.netty;
 
-import com.netease.nim.camellia.redis.proxy.reply.MultiBulkReplyHeader;
-import com.netease.nim.camellia.redis.proxy.reply.MultiBulkReply;
-import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.reply.*;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 
@@ -27,38 +25,45 @@ public class ReplyAggregateDecoder extends MessageToMessageDecoder<Reply> {
         }
     }
 
-    private MultiReplyAggregate getAggregate(int len) {
+    private MultiReplyAggregate getAggregate(Marker marker, int len) {
         if (index == cacheSize - 1) {
             MultiReplyAggregate aggregate = cache[0];
             if (aggregate.isEmpty()) {
-                aggregate.reset(len);
+                aggregate.reset(marker, len);
                 index = 0;
                 return aggregate;
             }
         } else {
             MultiReplyAggregate aggregate = cache[index + 1];
             if (aggregate.isEmpty()) {
-                aggregate.reset(len);
+                aggregate.reset(marker, len);
                 index = index + 1;
                 return aggregate;
             }
         }
-        return new MultiReplyAggregate(len);
+        return new MultiReplyAggregate(marker, len);
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, Reply msg, List<Object> out) {
         if (msg instanceof MultiBulkReplyHeader) {
-            depths.push(getAggregate(((MultiBulkReplyHeader) msg).getSize()));
+            MultiBulkReplyHeader header = (MultiBulkReplyHeader) msg;
+            depths.push(getAggregate(header.getMarker(), header.getSize()));
             return;
         }
         while (!depths.isEmpty()) {
             MultiReplyAggregate current = depths.peek();
             current.addChild(msg);
             if (current.complete()) {
-                msg = new MultiBulkReply(current.children);
+                Marker marker = current.marker;
+                Reply[] children = current.children;
                 depths.pop();
                 current.clear();
+                //resp3的attribute只是对下一个回包的附加说明，直接丢弃，不占用上层聚合的位置
+                if (marker == Marker.AttributeReply) {
+                    return;
+                }
+                msg = toReply(marker, children);
             } else {
                 return;
             }
@@ -67,10 +72,23 @@ public class ReplyAggregateDecoder extends MessageToMessageDecoder<Reply> {
         out.add(msg);
     }
 
+    private static Reply toReply(Marker marker, Reply[] children) {
+        if (marker == Marker.MapReply) {
+            return new MapReply(children);
+        } else if (marker == Marker.SetReply) {
+            return new SetReply(children);
+        } else if (marker == Marker.PushReply) {
+            return new PushReply(children);
+        }
+        return new MultiBulkReply(children);
+    }
+
     private static final class MultiReplyAggregate {
+        private Marker marker = Marker.MultiBulkReply;
         private Reply[] children = null;
         private int index = 0;
-        MultiReplyAggregate(int length) {
+        MultiReplyAggregate(Marker marker, int length) {
+            this.marker = marker;
             this.children = new Reply[length];
         }
 
@@ -91,7 +109,8 @@ public class ReplyAggregateDecoder extends MessageToMessageDecoder<Reply> {
             children = null;
         }
 
-        public void reset(int length) {
+        public void reset(Marker marker, int length) {
+            this.marker = marker;
             children = new Reply[length];
             index = 0;
         }
@@ -41,7 +41,7 @@ public class ReplyDecoder extends ByteToMessageDecoder {
                     StatusReply reply = new StatusReply(charSequence.toString());
                     out.add(reply);
                     marker = null;
-                } else if (marker == Marker.BulkReply) {
+                } else if (marker == Marker.BulkReply || marker == Marker.VerbatimStringReply || marker == Marker.BlobErrorReply) {
                     if (bulkSize == Integer.MIN_VALUE) {
                         ByteBuf byteBuf = readLine(in);
                         if (byteBuf == null) {
@@ -61,7 +61,13 @@ public class ReplyDecoder extends ByteToMessageDecoder {
                         byte[] raw = new byte[bulkSize];
                         in.readBytes(raw);
                         in.skipBytes(2);
-                        out.add(new BulkReply(raw));
+                        if (marker == Marker.BulkReply) {
+                            out.add(new BulkReply(raw));
+                        } else if (marker == Marker.VerbatimStringReply) {
+                            out.add(VerbatimStringReply.parse(raw));
+                        } else {
+                            out.add(new BlobErrorReply(raw));
+                        }
                         marker = null;
                         bulkSize = Integer.MIN_VALUE;
                     } else {
@@ -102,6 +108,50 @@ public class ReplyDecoder extends ByteToMessageDecoder {
                     ErrorReply reply = new ErrorReply(charSequence.toString());
                     out.add(reply);
                     marker = null;
+                } else if (marker == Marker.MapReply || marker == Marker.SetReply
+                        || marker == Marker.PushReply || marker == Marker.AttributeReply) {
+                    //resp3 aggregate types
+                    ByteBuf byteBuf = readLine(in);
+                    if (byteBuf == null) {
+                        in.readerIndex(readerIndex);
+                        return;
+                    }
+                    long l = parseRedisNumber(byteBuf);
+                    if (marker == Marker.MapReply || marker == Marker.AttributeReply) {
+                        l = l * 2;
+                    }
+                    if (l == 0) {
+                        if (marker == Marker.MapReply) {
+                            out.add(MapReply.EMPTY);
+                        } else if (marker == Marker.SetReply) {
+                            out.add(SetReply.EMPTY);
+                        } else if (marker == Marker.PushReply) {
+                            out.add(PushReply.EMPTY);
+                        }
+                        //empty attribute is ignored
+                    } else {
+                        out.add(MultiBulkReplyHeader.gen(marker, (int) l));
+                    }
+                    marker = null;
+                } else {
+                    //resp3 simple types
+                    ByteBuf byteBuf = readLine(in);
+                    if (byteBuf == null) {
+                        in.readerIndex(readerIndex);
+                        return;
+                    }
+                    if (marker == Marker.NullReply) {
+                        out.add(NullReply.NULL);
+                    } else if (marker == Marker.BooleanReply) {
+                        out.add(BooleanReply.valueOf(byteBuf.readableBytes() > 0 && byteBuf.getByte(byteBuf.readerIndex()) == 't'));
+                    } else if (marker == Marker.DoubleReply) {
+                        out.add(new DoubleReply(byteBuf.toString(CharsetUtil.US_ASCII)));
+                    } else if (marker == Marker.BigNumberReply) {
+                        out.add(new BigNumberReply(byteBuf.toString(CharsetUtil.US_ASCII)));
+                    } else {
+                        throw new IllegalArgumentException("unknown reply marker");
+                    }
+                    marker = null;
                 }
             } else {
                 return;
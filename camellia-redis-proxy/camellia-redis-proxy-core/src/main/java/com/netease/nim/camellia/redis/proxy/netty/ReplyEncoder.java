@@ -1,20 +1,15 @@
 package com.netease.nim.camellia.redis.proxy.netty;
 
 import com.netease.nim.camellia.redis.proxy.monitor.CommandFailMonitor;
-import com.netease.nim.camellia.redis.proxy.reply.ReplyPack;
+import com.netease.nim.camellia.redis.proxy.reply.*;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
-import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
-import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Write a reply.
  */
@@ -22,8 +17,14 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
 
     private static final Logger logger = LoggerFactory.getLogger(ReplyEncoder.class);
 
+    private static final int INIT_WINDOW_SIZE = 16;
+
     private long id = 0;
-    private final Map<Long, ReplyPack> packMap = new HashMap<>();
+    //out of order packs, indexed by (id & (window.length - 1)), the window grows when a pack falls out of it
+    private ReplyPack[] window = new ReplyPack[INIT_WINDOW_SIZE];
+    private int pending = 0;
+
+    private ChannelInfo channelInfo;
 
     public ReplyEncoder() {
         super();
@@ -31,14 +32,12 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
 
     @Override
     public void encode(ChannelHandlerContext ctx, Object object, ByteBuf out) throws Exception {
+        if (channelInfo == null) {
+            channelInfo = ChannelInfo.get(ctx);
+        }
         if (object instanceof ReplyPack) {
             ReplyPack pack = (ReplyPack) object;
             if (ctx.channel().isActive()) {
-                if (ProxyMonitorCollector.isMonitorEnable()) {
-                    if (pack.getReply() instanceof ErrorReply) {
-                        CommandFailMonitor.incr(((ErrorReply) pack.getReply()).getError());
-                    }
-                }
                 //avoid out of order
                 long id = pack.getId();
                 if (id == Long.MAX_VALUE) {
@@ -48,20 +47,20 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
                     return;
                 }
                 if (this.id == id - 1) {
-                    this.id = id;
-                    Reply reply = pack.getReply();
-                    reply.write(out);
-                    while (!packMap.isEmpty()) {
-                        ReplyPack replyPack = packMap.remove(this.id + 1);
-                        if (replyPack != null) {
-                            this.id = replyPack.getId();
-                            replyPack.getReply().write(out);
+                    write(pack, out);
+                    while (pending > 0) {
+                        int index = (int) ((this.id + 1) & (window.length - 1));
+                        ReplyPack replyPack = window[index];
+                        if (replyPack != null && replyPack.getId() == this.id + 1) {
+                            window[index] = null;
+                            pending --;
+                            write(replyPack, out);
                         } else {
                             break;
                         }
                     }
                 } else {
-                    packMap.put(id, pack);
+                    offer(pack);
                 }
             } else {
                 if (ProxyMonitorCollector.isMonitorEnable()) {
@@ -72,12 +71,7 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
         } else if (object instanceof Reply) {
             if (ctx.channel().isActive()) {
                 Reply reply = (Reply) object;
-                if (ProxyMonitorCollector.isMonitorEnable()) {
-                    if (reply instanceof ErrorReply) {
-                        CommandFailMonitor.incr(((ErrorReply) reply).getError());
-                    }
-                }
-                reply.write(out);
+                write(reply, out);
             } else {
                 if (ProxyMonitorCollector.isMonitorEnable()) {
                     CommandFailMonitor.incr("ChannelNotActive");
@@ -86,4 +80,58 @@ public class ReplyEncoder extends MessageToByteEncoder<Object> {
             }
         }
     }
+
+    private void write(ReplyPack pack, ByteBuf out) throws Exception {
+        this.id = pack.getId();
+        Reply[] replies = pack.getReplies();
+        if (replies == null) {
+            write(pack.getReply(), out);
+        } else {
+            for (Reply reply : replies) {
+                write(reply, out);
+            }
+        }
+    }
+
+    private void write(Reply reply, ByteBuf out) throws Exception {
+        if (ProxyMonitorCollector.isMonitorEnable()) {
+            if (reply instanceof ErrorReply) {
+                CommandFailMonitor.incr(((ErrorReply) reply).getError());
+            }
+        }
+        //上游redis使用的是RESP2，RESP3的类型来自proxy自己生成的回包（如hello、client tracking的invalidate）或者按命令转换后的回包（见Resp3ReplyUtils）
+        if (reply instanceof Resp3Reply) {
+            if (!isResp3()) {
+                reply = ((Resp3Reply) reply).toResp2();
+            }
+        } else if (reply == BulkReply.NIL_REPLY || reply == MultiBulkReply.NIL_REPLY) {
+            if (isResp3()) {
+                reply = NullReply.NULL;
+            }
+        }
+        reply.write(out);
+    }
+
+    private boolean isResp3() {
+        return channelInfo != null && channelInfo.getResp() == 3;
+    }
+
+    private void offer(ReplyPack pack) {
+        long distance = pack.getId() - this.id;
+        if (distance >= window.length) {
+            int size = window.length;
+            while (size <= distance) {
+                size = size << 1;
+            }
+            ReplyPack[] newWindow = new ReplyPack[size];
+            for (ReplyPack replyPack : window) {
+                if (replyPack != null) {
+                    newWindow[(int) (replyPack.getId() & (size - 1))] = replyPack;
+                }
+            }
+            window = newWindow;
+        }
+        window[(int) (pack.getId() & (window.length - 1))] = pack;
+        pending ++;
+    }
 }
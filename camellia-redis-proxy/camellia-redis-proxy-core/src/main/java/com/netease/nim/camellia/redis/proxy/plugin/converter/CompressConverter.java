@@ -0,0 +1,230 @@
+package com.netease.nim.camellia.redis.proxy.plugin.converter;
+
+import com.alibaba.fastjson.JSONArray;
+import com.netease.nim.camellia.redis.proxy.command.CommandContext;
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.monitor.CompressMonitor;
+import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.compress.CamelliaCompressor;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内置的value压缩转换器，可以同时作为StringConverter和HashConverter使用（hash只压缩value，不压缩field）
+ * 1）默认使用lz4，数据格式和camellia-tools的CamelliaCompressor完全一致，客户端也可以直接用CamelliaCompressor解压
+ * 2）可选zstd（需要引入zstd-jni），支持预先训练好的字典，数据格式见ZstdValueCompressor
+ * 3）读取时通过tag+魔数+长度来判断是否压缩过，因此开启压缩之前写入的数据可以正常读取
+ * 4）只有超过阈值、且key前缀匹配的value才会压缩，压缩后没有变小的也不压缩
+ * Created by agent on 2026/10/18
+ */
+public class CompressConverter implements StringConverter, HashConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressConverter.class);
+
+    private static final byte LZ4_COMPRESSED = (byte) 1;
+
+    private final ConcurrentHashMap<String, CompressConf> confMap = new ConcurrentHashMap<>();
+    private volatile Codec codec;
+
+    public CompressConverter() {
+        reloadConf();
+        ProxyDynamicConf.registerCallback(this::reloadConf);
+    }
+
+    private void reloadConf() {
+        confMap.clear();
+        String magic = ProxyDynamicConf.getString("converter.compress.magic", Constants.Server.converterCompressMagic);
+        int zstdLevel = ProxyDynamicConf.getInt("converter.compress.zstd.level", Constants.Server.converterCompressZstdLevel);
+        String zstdDictFiles = Objects.toString(ProxyDynamicConf.getString("converter.compress.zstd.dict.files", ""), "");
+        Codec codec = this.codec;
+        if (codec != null && codec.magic.equals(magic) && codec.zstdLevel == zstdLevel && codec.zstdDictFiles.equals(zstdDictFiles)) {
+            return;
+        }
+        this.codec = new Codec(magic, zstdLevel, zstdDictFiles);
+        logger.info("compress converter codec update, magic = {}, zstd.level = {}, zstd.dict.files = {}", magic, zstdLevel, zstdDictFiles);
+    }
+
+    @Override
+    public byte[] valueConvert(CommandContext commandContext, byte[] key, byte[] originalValue) {
+        if (originalValue == null) return null;
+        CompressConf conf = getConf(commandContext);
+        if (!conf.enable || originalValue.length < conf.threshold || !conf.match(key)) {
+            if (ProxyMonitorCollector.isMonitorEnable()) {
+                CompressMonitor.skip(commandContext);
+            }
+            return originalValue;
+        }
+        try {
+            byte[] compressed = codec.compress(conf.algorithm, originalValue);
+            if (ProxyMonitorCollector.isMonitorEnable()) {
+                if (compressed == originalValue) {
+                    CompressMonitor.skip(commandContext);
+                } else {
+                    CompressMonitor.compress(commandContext, originalValue.length, compressed.length);
+                }
+            }
+            return compressed;
+        } catch (Exception e) {
+            ErrorLogCollector.collect(CompressConverter.class, "compress error, write original value", e);
+            return originalValue;
+        }
+    }
+
+    @Override
+    public byte[] valueReverseConvert(CommandContext commandContext, byte[] key, byte[] convertedValue) {
+        if (convertedValue == null || convertedValue.length == 0) return convertedValue;
+        byte[] value;
+        try {
+            value = codec.decompress(convertedValue);
+        } catch (Exception e) {
+            ErrorLogCollector.collect(CompressConverter.class, "decompress error, return converted value", e);
+            return convertedValue;
+        }
+        if (ProxyMonitorCollector.isMonitorEnable()) {
+            if (value == convertedValue) {
+                CompressMonitor.uncompressedRead(commandContext);
+            } else {
+                CompressMonitor.decompress(commandContext);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] fieldConvert(CommandContext commandContext, byte[] key, byte[] originalValue) {
+        return originalValue;
+    }
+
+    @Override
+    public byte[] fieldReverseConvert(CommandContext commandContext, byte[] key, byte[] convertedValue) {
+        return convertedValue;
+    }
+
+    private CompressConf getConf(CommandContext commandContext) {
+        Long bid = commandContext == null ? null : commandContext.getBid();
+        String bgroup = commandContext == null ? null : commandContext.getBgroup();
+        return CamelliaMapUtils.computeIfAbsent(confMap, Utils.getCacheKey(bid, bgroup), k -> new CompressConf(bid, bgroup));
+    }
+
+    private static class CompressConf {
+        private final boolean enable;
+        private final String algorithm;
+        private final int threshold;
+        private final List<byte[]> prefixList = new ArrayList<>();
+
+        CompressConf(Long bid, String bgroup) {
+            this.enable = ProxyDynamicConf.getBoolean("converter.compress.enable", bid, bgroup, true);
+            this.algorithm = ProxyDynamicConf.getString("converter.compress.algorithm", bid, bgroup, Constants.Server.converterCompressAlgorithm);
+            this.threshold = ProxyDynamicConf.getInt("converter.compress.threshold", bid, bgroup, Constants.Server.converterCompressThreshold);
+            String prefix = ProxyDynamicConf.getString("converter.compress.key.prefix", bid, bgroup, "");
+            if (prefix != null && prefix.trim().length() > 0) {
+                try {
+                    for (Object o : JSONArray.parseArray(prefix)) {
+                        prefixList.add(Utils.stringToBytes(String.valueOf(o)));
+                    }
+                } catch (Exception e) {
+                    logger.error("converter.compress.key.prefix parse error, prefix = {}", prefix, e);
+                }
+            }
+        }
+
+        //没有配置前缀表示所有key都压缩
+        boolean match(byte[] key) {
+            if (prefixList.isEmpty()) return true;
+            if (key == null) return false;
+            for (byte[] prefix : prefixList) {
+                if (startWith(key, prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean startWith(byte[] key, byte[] prefix) {
+            if (key.length < prefix.length) return false;
+            for (int i=0; i<prefix.length; i++) {
+                if (key[i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Codec {
+        private final String magic;
+        private final int zstdLevel;
+        private final String zstdDictFiles;
+        private final byte[] magicBytes;
+        private final CamelliaCompressor lz4;
+        private volatile ZstdValueCompressor zstd;
+
+        Codec(String magic, int zstdLevel, String zstdDictFiles) {
+            this.magic = magic;
+            this.zstdLevel = zstdLevel;
+            this.zstdDictFiles = zstdDictFiles;
+            this.magicBytes = magic.getBytes(StandardCharsets.UTF_8);
+            //阈值由CompressConf判断
+            this.lz4 = new CamelliaCompressor(magic, 0);
+        }
+
+        byte[] compress(String algorithm, byte[] data) {
+            if ("zstd".equalsIgnoreCase(algorithm)) {
+                return zstd().compress(data);
+            }
+            return lz4.compress(data);
+        }
+
+        byte[] decompress(byte[] data) {
+            byte tag = data[0];
+            if (tag == LZ4_COMPRESSED) {
+                return lz4.decompress(data);
+            }
+            if (tag == ZstdValueCompressor.ZSTD_COMPRESSED && isCompressed(data)) {
+                return zstd().decompress(data);
+            }
+            return data;
+        }
+
+        //和CamelliaCompressor一样校验魔数和长度，zstd的头部多了4个字节的字典id
+        private boolean isCompressed(byte[] data) {
+            int headerLen = 1 + magicBytes.length + 4 + 4 + 4;
+            if (data.length <= headerLen) return false;
+            for (int i=0; i<magicBytes.length; i++) {
+                if (data[i + 1] != magicBytes[i]) {
+                    return false;
+                }
+            }
+            int offset = 1 + magicBytes.length;
+            int len = ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+            return len == data.length;
+        }
+
+        private ZstdValueCompressor zstd() {
+            if (zstd == null) {
+                synchronized (this) {
+                    if (zstd == null) {
+                        List<String> files = new ArrayList<>();
+                        for (String file : zstdDictFiles.split(",")) {
+                            if (file.trim().length() > 0) {
+                                files.add(file.trim());
+                            }
+                        }
+                        zstd = new ZstdValueCompressor(magicBytes, zstdLevel, files);
+                    }
+                }
+            }
+            return zstd;
+        }
+    }
+}
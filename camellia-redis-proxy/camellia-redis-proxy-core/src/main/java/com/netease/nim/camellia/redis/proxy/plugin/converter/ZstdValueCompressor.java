@@ -0,0 +1,122 @@
+package com.netease.nim.camellia.redis.proxy.plugin.converter;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.netease.nim.camellia.tools.compress.CamelliaCompressException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * zstd压缩，需要引入zstd-jni，只有配置了zstd时才会加载本类
+ * 数据结构：tag（1字节，固定为2）+ 魔数 + 压缩后长度（4字节） + 解压后长度（4字节） + 字典id（4字节，0表示不使用字典） + 压缩后内容
+ * 和CamelliaCompressor的区别仅在于tag和字典id，因此可以和lz4压缩的数据共存
+ * Created by agent on 2026/10/18
+ */
+public class ZstdValueCompressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZstdValueCompressor.class);
+
+    public static final byte ZSTD_COMPRESSED = (byte) 2;
+
+    private final byte[] magicBytes;
+    private final int headerLen;
+    private final int level;
+    //第一个字典用于压缩，所有字典都可以用于解压，从而支持字典的平滑替换
+    private final ZstdDictCompress dictCompress;
+    private final int dictId;
+    private final Map<Integer, ZstdDictDecompress> dictDecompressMap = new HashMap<>();
+
+    public ZstdValueCompressor(byte[] magicBytes, int level, List<String> dictFiles) {
+        this.magicBytes = magicBytes;
+        this.headerLen = 1 + magicBytes.length + 4 + 4 + 4;
+        this.level = level;
+        ZstdDictCompress dictCompress = null;
+        int dictId = 0;
+        for (String dictFile : dictFiles) {
+            try {
+                byte[] dict = Files.readAllBytes(Paths.get(dictFile));
+                int id = (int) Zstd.getDictIdFromDict(dict);
+                if (id == 0) {
+                    logger.warn("zstd dict file = {} is not a trained dict, skip", dictFile);
+                    continue;
+                }
+                if (dictCompress == null) {
+                    dictCompress = new ZstdDictCompress(dict, level);
+                    dictId = id;
+                }
+                dictDecompressMap.put(id, new ZstdDictDecompress(dict));
+                logger.info("zstd dict load success, file = {}, dictId = {}", dictFile, id);
+            } catch (Exception e) {
+                logger.error("zstd dict load error, file = {}", dictFile, e);
+            }
+        }
+        this.dictCompress = dictCompress;
+        this.dictId = dictId;
+    }
+
+    /**
+     * 压缩，压缩后没有变小则返回原始数据
+     * @param originalData 原始数据
+     * @return 压缩后数据
+     */
+    public byte[] compress(byte[] originalData) {
+        int maxLength = headerLen + (int) Zstd.compressBound(originalData.length);
+        byte[] buf = new byte[maxLength];
+        long compressedLength;
+        if (dictCompress != null) {
+            compressedLength = Zstd.compressFastDict(buf, headerLen, originalData, 0, originalData.length, dictCompress);
+        } else {
+            compressedLength = Zstd.compressByteArray(buf, headerLen, maxLength - headerLen, originalData, 0, originalData.length, level);
+        }
+        if (Zstd.isError(compressedLength)) {
+            throw new CamelliaCompressException("zstd compress error, " + Zstd.getErrorName(compressedLength));
+        }
+        int totalLength = headerLen + (int) compressedLength;
+        if (totalLength >= originalData.length) {
+            return originalData;
+        }
+        byte[] compressedData = new byte[totalLength];
+        System.arraycopy(buf, headerLen, compressedData, headerLen, (int) compressedLength);
+        ByteBuffer buffer = ByteBuffer.wrap(compressedData);
+        buffer.put(ZSTD_COMPRESSED);
+        buffer.put(magicBytes);
+        buffer.putInt(totalLength);
+        buffer.putInt(originalData.length);
+        buffer.putInt(dictCompress != null ? dictId : 0);
+        return compressedData;
+    }
+
+    /**
+     * 解压，调用方需要先确认tag、魔数和长度
+     * @param compressedData 压缩后数据
+     * @return 原始数据
+     */
+    public byte[] decompress(byte[] compressedData) {
+        ByteBuffer buffer = ByteBuffer.wrap(compressedData, 1 + magicBytes.length + 4, 8);
+        int originalLen = buffer.getInt();
+        int id = buffer.getInt();
+        byte[] originalData = new byte[originalLen];
+        long size;
+        if (id == 0) {
+            size = Zstd.decompressByteArray(originalData, 0, originalLen, compressedData, headerLen, compressedData.length - headerLen);
+        } else {
+            ZstdDictDecompress dictDecompress = dictDecompressMap.get(id);
+            if (dictDecompress == null) {
+                throw new CamelliaCompressException("zstd dict not found, dictId = " + id);
+            }
+            size = Zstd.decompressFastDict(originalData, 0, compressedData, headerLen, compressedData.length - headerLen, dictDecompress);
+        }
+        if (Zstd.isError(size)) {
+            throw new CamelliaCompressException("zstd decompress error, " + Zstd.getErrorName(size));
+        }
+        return originalData;
+    }
+}
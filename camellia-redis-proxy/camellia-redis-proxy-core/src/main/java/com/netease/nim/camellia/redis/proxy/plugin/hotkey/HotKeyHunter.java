@@ -3,9 +3,7 @@ package com.netease.nim.camellia.redis.proxy.plugin.hotkey;
 import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
 import com.netease.nim.camellia.redis.proxy.conf.Constants;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
-import com.netease.nim.camellia.tools.utils.BytesKey;
-import com.netease.nim.camellia.redis.proxy.util.LRUCounter;
-import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
+import com.netease.nim.camellia.redis.proxy.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,7 +22,8 @@ public class HotKeyHunter {
 
     private boolean enable;
     private final HotKeyMonitorCallback callback;
-    private final LRUCounter counter;
+    private volatile KeyCounter counter;
+    private KeyCounterType counterType;
     private final IdentityInfo identityInfo;
     /**
      * 热key监控统计的时间窗口，默认1000ms
@@ -43,19 +42,13 @@ public class HotKeyHunter {
     public HotKeyHunter(IdentityInfo identityInfo, HotKeyMonitorCallback callback) {
         this.identityInfo = identityInfo;
         this.enable = true;
+        this.checkMillis = ProxyDynamicConf.getLong("hot.key.monitor.counter.check.millis",
+                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterCheckMillis);
         reloadHotKeyConfig();
         // register dynamic config callback
         ProxyDynamicConf.registerCallback(this::reloadHotKeyConfig);
         this.callback = callback;
         this.CALLBACK_NAME = callback.getClass().getName();
-        // LRUCounter capacity
-        int checkCacheMaxCapacity = ProxyDynamicConf.getInt("hot.key.monitor.cache.max.capacity",
-                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyMonitorCheckCacheMaxCapacity);
-        this.checkMillis = ProxyDynamicConf.getLong("hot.key.monitor.counter.check.millis",
-                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterCheckMillis);
-        // LRUCounter
-        this.counter = new LRUCounter(checkCacheMaxCapacity,
-                checkCacheMaxCapacity, checkMillis);
         ExecutorUtils.scheduleAtFixedRate(this::callback, checkMillis,
                 checkMillis, TimeUnit.MILLISECONDS);
         logger.info("HotKeyHunter init success, identityInfo = {}", identityInfo);
@@ -69,6 +62,21 @@ public class HotKeyHunter {
         this.checkThreshold = ProxyDynamicConf.getLong("hot.key.monitor.counter.check.threshold",
                 bid, bgroup, Constants.Server.hotKeyMonitorCheckThreshold);
         this.enable = ProxyDynamicConf.getBoolean("hot.key.monitor.enable", bid, bgroup, true);
+        // counter type, lru or sketch, rebuild the counter if changed
+        KeyCounterType type = KeyCounterFactory.getType("hot.key.monitor", identityInfo);
+        if (type != counterType) {
+            // LRUCounter capacity
+            int checkCacheMaxCapacity = ProxyDynamicConf.getInt("hot.key.monitor.cache.max.capacity",
+                    bid, bgroup, Constants.Server.hotKeyMonitorCheckCacheMaxCapacity);
+            // SketchCounter top-K capacity
+            int topKCapacity = ProxyDynamicConf.getInt("hot.key.monitor.sketch.topk.capacity",
+                    bid, bgroup, Math.max(Constants.Server.hotKeyMonitorTopKCapacity, maxHotKeyCount));
+            this.counter = KeyCounterFactory.create("hot.key.monitor", identityInfo, type, checkCacheMaxCapacity, topKCapacity, checkMillis);
+            if (counterType != null) {
+                logger.info("HotKeyHunter counter type changed, identityInfo = {}, {} -> {}", identityInfo, counterType, type);
+            }
+            this.counterType = type;
+        }
     }
 
     public void incr(byte[]... keys) {
@@ -86,20 +94,16 @@ public class HotKeyHunter {
     }
 
     private void incr(byte[] key) {
-        BytesKey bytesKey = new BytesKey(key);
-        counter.increment(bytesKey);
+        counter.increment(key);
     }
 
     private void callback() {
         try {
-            TreeSet<LRUCounter.SortedBytesKey> set = counter.getSortedCacheValue(checkThreshold);
-            if (set == null || set.isEmpty()) return;
-            List<HotKeyInfo> hotKeys = new ArrayList<>(maxHotKeyCount);
-            for (LRUCounter.SortedBytesKey sortedBytesKey : set) {
+            List<LRUCounter.SortedBytesKey> list = counter.getSortedCacheValue(checkThreshold, maxHotKeyCount);
+            if (list == null || list.isEmpty()) return;
+            List<HotKeyInfo> hotKeys = new ArrayList<>(list.size());
+            for (LRUCounter.SortedBytesKey sortedBytesKey : list) {
                 hotKeys.add(new HotKeyInfo(sortedBytesKey.getKey(), sortedBytesKey.getCount()));
-                if (hotKeys.size() >= maxHotKeyCount) {
-                    break;
-                }
             }
             HotKeyMonitor.hotKey(identityInfo, hotKeys, checkMillis, checkThreshold);
             ExecutorUtils.submitCallbackTask(CALLBACK_NAME, () -> callback.callback(identityInfo, hotKeys, checkMillis, checkThreshold));
@@ -30,12 +30,19 @@ public class HotKeyCache {
     private final Object lockObj = new Object();
     private final ConcurrentLinkedHashMap<BytesKey, Object> refreshLockMap;
     private final ConcurrentLinkedHashMap<BytesKey, Long> lastRefreshTimeMap;
+    /**
+     * key最近一次被修改（失效）的时间，单位ns，用于避免在写之前发出的get的回包把旧值重新放入缓存
+     */
+    private final ConcurrentLinkedHashMap<BytesKey, Long> invalidateTimeMap;
+    private volatile long invalidateAllNanoTime;
 
     /**
      * LRU cache container.
      */
     private final ConcurrentLinkedHashMap<BytesKey, HotValueWrapper> cache;
-    private final LRUCounter hotKeyCounter;
+    private volatile KeyCounter hotKeyCounter;
+    private KeyCounterType counterType;
+    private final long counterCheckMillis;
 
     /**
      * Cache expiration time, in milliseconds
@@ -60,6 +67,7 @@ public class HotKeyCache {
      */
     private boolean cacheNull;
     private boolean enable;
+    private boolean invalidateOnWrite;
 
     /**
      * BytesKey，value is hitCount
@@ -77,6 +85,9 @@ public class HotKeyCache {
         this.CALLBACK_NAME = this.callback.getClass().getName();
         this.cacheExpireMillis = ProxyDynamicConf.getLong("hot.key.cache.expire.millis",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheExpireMillis);
+        // 热key的时间间隔
+        this.counterCheckMillis = ProxyDynamicConf.getLong("hot.key.cache.counter.check.millis",
+                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterCheckMillis);
         ProxyDynamicConf.registerCallback(this::reloadHotKeyCacheConfig);
         reloadHotKeyCacheConfig();
         int cacheMaxCapacity = ProxyDynamicConf.getInt("hot.key.cache.max.capacity",
@@ -85,18 +96,15 @@ public class HotKeyCache {
                 .initialCapacity(cacheMaxCapacity)
                 .maximumWeightedCapacity(cacheMaxCapacity)
                 .build();
-        // 热key的容量，一共计算多少热key
-        int counterMaxCapacity = ProxyDynamicConf.getInt("hot.key.cache.counter.capacity",
-                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterMaxCapacity);
-        // 热key的时间间隔
-        long counterCheckMillis = ProxyDynamicConf.getLong("hot.key.cache.counter.check.millis",
-                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterCheckMillis);
-        this.hotKeyCounter = new LRUCounter(counterMaxCapacity, counterMaxCapacity, counterCheckMillis);
         int refreshMapMaxCapacity = cacheMaxCapacity * 2;
         this.lastRefreshTimeMap = new ConcurrentLinkedHashMap.Builder<BytesKey, Long>()
                 .initialCapacity(refreshMapMaxCapacity).maximumWeightedCapacity(refreshMapMaxCapacity).build();
         this.refreshLockMap = new ConcurrentLinkedHashMap.Builder<BytesKey, Object>()
                 .initialCapacity(refreshMapMaxCapacity).maximumWeightedCapacity(refreshMapMaxCapacity).build();
+        this.invalidateTimeMap = new ConcurrentLinkedHashMap.Builder<BytesKey, Long>()
+                .initialCapacity(refreshMapMaxCapacity).maximumWeightedCapacity(refreshMapMaxCapacity).build();
+        // nanoTime可能是负数，不能用0作为初始值
+        this.invalidateAllNanoTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
 
         long callbackIntervalSeconds = ProxyDynamicConf.getLong("hot.key.cache.stats.callback.interval.seconds",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheStatsCallbackIntervalSeconds);
@@ -134,8 +142,8 @@ public class HotKeyCache {
         if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
             return null;
         }
+        this.hotKeyCounter.increment(key);
         BytesKey bytesKey = new BytesKey(key);
-        this.hotKeyCounter.increment(bytesKey);
         HotValueWrapper wrapper = cache.get(bytesKey);
         if (wrapper != null) {
             // 过期删除
@@ -176,6 +184,16 @@ public class HotKeyCache {
      * @param value value
      */
     public void tryBuildHotKeyCache(byte[] key, byte[] value) {
+        tryBuildHotKeyCache(key, value, System.nanoTime());
+    }
+
+    /**
+     * 重建缓存
+     * @param key key
+     * @param value value
+     * @param requestNanoTime get请求发出的时间，若请求发出后key被修改过，则回包可能是旧值，不能用于重建缓存
+     */
+    public void tryBuildHotKeyCache(byte[] key, byte[] value, long requestNanoTime) {
         if (!enable) return;
         if (value == null && !cacheNull) {
             return;
@@ -184,10 +202,17 @@ public class HotKeyCache {
         if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
             return;
         }
-        BytesKey bytesKey = new BytesKey(key);
         // 计数器判断有没有到达阈值
-        Long count = this.hotKeyCounter.get(bytesKey);
-        if (count == null || count < hotKeyCheckThreshold) {
+        long count = this.hotKeyCounter.get(key);
+        if (count < hotKeyCheckThreshold) {
+            return;
+        }
+        BytesKey bytesKey = new BytesKey(key);
+        if (requestNanoTime - invalidateAllNanoTime <= 0) {
+            return;
+        }
+        Long invalidateTime = invalidateTimeMap.get(bytesKey);
+        if (invalidateTime != null && requestNanoTime - invalidateTime <= 0) {
             return;
         }
         // 建立缓存
@@ -199,12 +224,63 @@ public class HotKeyCache {
         }
     }
 
+    /**
+     * 经过proxy的写命令是否需要失效本地缓存
+     * @return true/false
+     */
+    public boolean isInvalidateOnWrite() {
+        return enable && invalidateOnWrite;
+    }
+
+    /**
+     * key被修改了（经过proxy的写命令，或者上游redis的失效通知），立即删除本地缓存
+     * @param key key
+     */
+    public void invalidate(byte[] key) {
+        if (!enable) return;
+        BytesKey bytesKey = new BytesKey(key);
+        HotValueWrapper removed = cache.remove(bytesKey);
+        // 只有可能被缓存的key（已缓存或者达到热key阈值）才需要记录失效时间
+        if (removed != null || hotKeyCounter.get(key) >= hotKeyCheckThreshold) {
+            invalidateTimeMap.put(bytesKey, System.nanoTime());
+            lastRefreshTimeMap.remove(bytesKey);
+            refreshLockMap.remove(bytesKey);
+            if (logger.isDebugEnabled()) {
+                logger.debug("hotKey invalidate, key = {}", Utils.bytesToString(key));
+            }
+        }
+    }
+
+    /**
+     * 全部失效（如上游执行了flushall，或者失效通知的订阅发生了变化）
+     */
+    public void invalidateAll() {
+        invalidateAllNanoTime = System.nanoTime();
+        cache.clear();
+        lastRefreshTimeMap.clear();
+        refreshLockMap.clear();
+    }
+
     private void reloadHotKeyCacheConfig() {
         Long bid = identityInfo.getBid();
         String bgroup = identityInfo.getBgroup();
         this.hotKeyCheckThreshold = ProxyDynamicConf.getLong("hot.key.cache.check.threshold", bid, bgroup, Constants.Server.hotKeyCacheCounterCheckThreshold);
         this.enable = ProxyDynamicConf.getBoolean("hot.key.cache.enable", bid, bgroup, true);
         this.cacheNull = ProxyDynamicConf.getBoolean("hot.key.cache.null", bid, bgroup, Constants.Server.hotKeyCacheNeedCacheNull);
+        this.invalidateOnWrite = ProxyDynamicConf.getBoolean("hot.key.cache.invalidate.on.write.enable", bid, bgroup, Constants.Server.hotKeyCacheInvalidateOnWriteEnable);
+        // 计数器类型，lru或者sketch，变化时重建计数器
+        KeyCounterType type = KeyCounterFactory.getType("hot.key.cache", identityInfo);
+        if (type != counterType) {
+            // 热key的容量，一共计算多少热key（仅lru）
+            int counterMaxCapacity = ProxyDynamicConf.getInt("hot.key.cache.counter.capacity",
+                    bid, bgroup, Constants.Server.hotKeyCacheCounterMaxCapacity);
+            // 热key缓存只需要单个key的计数，不需要top-K
+            this.hotKeyCounter = KeyCounterFactory.create("hot.key.cache", identityInfo, type, counterMaxCapacity, 0, counterCheckMillis);
+            if (counterType != null) {
+                logger.info("HotKeyCache counter type changed, identityInfo = {}, {} -> {}", identityInfo, counterType, type);
+            }
+            this.counterType = type;
+        }
     }
 
     /**
@@ -1,9 +1,16 @@
 package com.netease.nim.camellia.redis.proxy.plugin.hotkeycache;
 
 import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
+import com.netease.nim.camellia.redis.proxy.tracking.UpstreamInvalidationListener;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
 import com.netease.nim.camellia.tools.utils.LockMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -11,6 +18,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * Created by caojiajun on 2020/11/8
  */
 public class HotKeyCacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeyCacheManager.class);
+
     /**
      * 针对不同租户缓存的map，key: bid + "|" + bgroup, value: {@link HotKeyCache}
      */
@@ -29,9 +39,50 @@ public class HotKeyCacheManager {
      */
     private final HotKeyCacheConfig hotKeyCacheConfig;
 
+    /**
+     * 上游redis的key失效消息，会失效所有租户的本地缓存
+     */
+    private final UpstreamInvalidationListener listener = new UpstreamInvalidationListener() {
+        @Override
+        public void invalidate(List<byte[]> keys) {
+            for (byte[] key : keys) {
+                hotKeyCache.invalidate(key);
+                for (HotKeyCache cache : map.values()) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+
+        @Override
+        public void invalidateAll() {
+            hotKeyCache.invalidateAll();
+            for (HotKeyCache cache : map.values()) {
+                cache.invalidateAll();
+            }
+        }
+    };
+    private boolean upstreamInvalidateEnable = false;
+
     public HotKeyCacheManager(HotKeyCacheConfig hotKeyCacheConfig) {
         this.hotKeyCacheConfig = hotKeyCacheConfig;
         this.hotKeyCache = new HotKeyCache(new IdentityInfo(null, null), hotKeyCacheConfig);
+        reloadConf();
+        ProxyDynamicConf.registerCallback(this::reloadConf);
+    }
+
+    /**
+     * 开启后，复用CLIENT TRACKING的上游订阅（bcast模式），上游redis的key被修改时（包括不经过proxy的写入）立即失效本地缓存
+     */
+    private synchronized void reloadConf() {
+        boolean enable = ProxyDynamicConf.getBoolean("hot.key.cache.upstream.invalidate.enable", Constants.Server.hotKeyCacheUpstreamInvalidateEnable);
+        if (enable == upstreamInvalidateEnable) return;
+        if (enable) {
+            ClientTrackingManager.registerListener(listener);
+        } else {
+            ClientTrackingManager.unregisterListener(listener);
+        }
+        upstreamInvalidateEnable = enable;
+        logger.info("hot key cache upstream invalidate enable = {}", enable);
     }
 
     /**
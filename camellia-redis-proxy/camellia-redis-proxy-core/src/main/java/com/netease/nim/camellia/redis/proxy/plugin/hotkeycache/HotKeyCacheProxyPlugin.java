@@ -62,6 +62,19 @@ public class HotKeyCacheProxyPlugin implements ProxyPlugin {
                     BulkReply bulkReply = new BulkReply(value.getValue());
                     return new ProxyPluginResponse(false, bulkReply);
                 }
+                // 记录请求时间，回包时用于判断期间key是否被修改过
+                if (command.getStartNanoTime() == -1) {
+                    command.initStartNanoTime();
+                }
+            }
+        } else if (redisCommand != null && redisCommand.getType() == RedisCommand.Type.WRITE) {
+            // 经过proxy的写命令，立即失效本地缓存
+            CommandContext commandContext = command.getCommandContext();
+            HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
+            if (hotKeyCache.isInvalidateOnWrite()) {
+                for (byte[] key : command.getKeys()) {
+                    hotKeyCache.invalidate(key);
+                }
             }
         }
         return ProxyPluginResponse.SUCCESS;
@@ -80,7 +93,8 @@ public class HotKeyCacheProxyPlugin implements ProxyPlugin {
                 HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
                 byte[] key = command.getObjects()[1];
                 byte[] value = ((BulkReply) reply).getRaw();
-                hotKeyCache.tryBuildHotKeyCache(key, value);
+                long requestNanoTime = command.getStartNanoTime();
+                hotKeyCache.tryBuildHotKeyCache(key, value, requestNanoTime == -1 ? System.nanoTime() : requestNanoTime);
             }
         }
         return ProxyPluginResponse.SUCCESS;
@@ -1,10 +1,8 @@
 package com.netease.nim.camellia.redis.proxy.plugin.monitor;
 
 import com.netease.nim.camellia.redis.proxy.info.ProxyInfoUtils;
-import com.netease.nim.camellia.redis.proxy.util.Utils;
-import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
-import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.monitor.TenantCommandStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.BidBgroupStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.DetailStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.TotalStats;
@@ -16,7 +14,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -30,9 +27,6 @@ public class CommandCountMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(CommandCountMonitor.class);
 
-    private static int count = 0;
-    private static ConcurrentHashMap<String, LongAdder> map = new ConcurrentHashMap<>();
-
     private static final ScheduledExecutorService scheduleService = Executors.newSingleThreadScheduledExecutor(
             new DefaultThreadFactory("camellia-qps-monitor"));
     private static final MaxQps maxQps = new MaxQps();
@@ -63,11 +57,10 @@ public class CommandCountMonitor {
         }, 1, 1, TimeUnit.SECONDS);
     }
 
-    public static void incr(Long bid, String bgroup, String command, RedisCommand.Type type) {
+    public static void incr(TenantCommandStats stats, RedisCommand redisCommand) {
         try {
-            String key = bid + "|" + bgroup + "|" + command;
-            LongAdder count = CamelliaMapUtils.computeIfAbsent(map, key, k -> new LongAdder());
-            count.increment();
+            stats.incr(redisCommand);
+            RedisCommand.Type type = redisCommand.getType();
             if (type == RedisCommand.Type.READ) {
                 read.increment();
             } else if (type == RedisCommand.Type.WRITE) {
@@ -78,6 +71,17 @@ public class CommandCountMonitor {
         }
     }
 
+    /**
+     * 不在RedisCommand中的命令，只计入总数，不计入读写
+     */
+    public static void incrUnknown(TenantCommandStats stats, String command) {
+        try {
+            stats.incrUnknown(command);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
     public static class CommandCounterStats {
         public long count;
         public long maxQps;
@@ -91,59 +95,54 @@ public class CommandCountMonitor {
     }
 
     public static CommandCounterStats collect() {
-        count ++;
         long totalCount = 0;
         long totalReadCount = 0;
         long totalWriteCount = 0;
         Map<String, TotalStats> totalStatsMap = new HashMap<>();
-        Map<String, BidBgroupStats> bidBgroupStatsMap = new HashMap<>();
+        List<BidBgroupStats> bidBgroupStatsList = new ArrayList<>();
         List<DetailStats> detailStatsList = new ArrayList<>();
 
-        ConcurrentHashMap<String, LongAdder> map = CommandCountMonitor.map;
-        if (count >= ProxyDynamicConf.getInt("monitor.cache.reset.interval.periods", 60)) {
-            CommandCountMonitor.map = new ConcurrentHashMap<>();
-            count = 0;
-        }
-        for (Map.Entry<String, LongAdder> entry : map.entrySet()) {
-            String[] split = entry.getKey().split("\\|");
-            long count = entry.getValue().sumThenReset();
-            if (count == 0) continue;
-            Long bid = null;
-            if (!split[0].equalsIgnoreCase("null")) {
-                bid = Long.parseLong(split[0]);
-            }
-            String bgroup = null;
-            if (!split[1].equalsIgnoreCase("null")) {
-                bgroup = split[1];
-            }
-            String command = split[2];
-
-            TotalStats totalStats = totalStatsMap.get(command);
-            if (totalStats == null) {
-                totalStats = totalStatsMap.computeIfAbsent(command, TotalStats::new);
-            }
-            totalStats.setCount(totalStats.getCount() + count);
-
-            String key = Utils.getCacheKey(bid, bgroup);
-            BidBgroupStats bidBgroupStats = bidBgroupStatsMap.get(key);
-            if (bidBgroupStats == null) {
-                bidBgroupStats = bidBgroupStatsMap.computeIfAbsent(key, k -> new BidBgroupStats());
-            }
-            bidBgroupStats.setBid(bid);
-            bidBgroupStats.setBgroup(bgroup);
-            bidBgroupStats.setCount(bidBgroupStats.getCount() + count);
+        for (TenantCommandStats tenantCommandStats : TenantCommandStats.tenants()) {
+            Long bid = tenantCommandStats.getBid();
+            String bgroup = tenantCommandStats.getBgroup();
+            long tenantCount = 0;
+            for (int i=0; i<TenantCommandStats.commandSize(); i++) {
+                long count = tenantCommandStats.sumThenResetCount(i);
+                if (count == 0) continue;
+                RedisCommand redisCommand = TenantCommandStats.command(i);
+                String command = redisCommand.strRaw();
+
+                TotalStats totalStats = totalStatsMap.get(command);
+                if (totalStats == null) {
+                    totalStats = totalStatsMap.computeIfAbsent(command, TotalStats::new);
+                }
+                totalStats.setCount(totalStats.getCount() + count);
 
-            detailStatsList.add(new DetailStats(bid, bgroup, command, count));
+                detailStatsList.add(new DetailStats(bid, bgroup, command, count));
 
-            totalCount += count;
-            RedisCommand redisCommand = RedisCommand.getRedisCommandByName(command);
-            if (redisCommand != null && redisCommand.getType() != null) {
+                tenantCount += count;
                 if (redisCommand.getType() == RedisCommand.Type.READ) {
                     totalReadCount += count;
-                } else {
+                } else if (redisCommand.getType() == RedisCommand.Type.WRITE) {
                     totalWriteCount += count;
                 }
             }
+            for (Map.Entry<String, TenantCommandStats.UnknownCommandStats> entry : tenantCommandStats.unknownCommands().entrySet()) {
+                long count = entry.getValue().sumThenResetCount();
+                if (count == 0) continue;
+                String command = entry.getKey();
+                TotalStats totalStats = totalStatsMap.computeIfAbsent(command, TotalStats::new);
+                totalStats.setCount(totalStats.getCount() + count);
+                detailStatsList.add(new DetailStats(bid, bgroup, command, count));
+                tenantCount += count;
+            }
+            if (tenantCount == 0) continue;
+            BidBgroupStats bidBgroupStats = new BidBgroupStats();
+            bidBgroupStats.setBid(bid);
+            bidBgroupStats.setBgroup(bgroup);
+            bidBgroupStats.setCount(tenantCount);
+            bidBgroupStatsList.add(bidBgroupStats);
+            totalCount += tenantCount;
         }
 
         CommandCounterStats counterStats = new CommandCounterStats();
@@ -155,7 +154,7 @@ public class CommandCountMonitor {
         counterStats.maxWriteQps = maxQps.writeQps.getAndSet(0);
         counterStats.detailStatsList = detailStatsList;
         counterStats.totalStatsList = new ArrayList<>(totalStatsMap.values());
-        counterStats.bidBgroupStatsList = new ArrayList<>(bidBgroupStatsMap.values());
+        counterStats.bidBgroupStatsList = bidBgroupStatsList;
         return counterStats;
     }
 }
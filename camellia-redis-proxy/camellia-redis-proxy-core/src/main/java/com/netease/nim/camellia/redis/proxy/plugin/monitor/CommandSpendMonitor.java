@@ -1,7 +1,7 @@
 package com.netease.nim.camellia.redis.proxy.plugin.monitor;
 
-import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
-import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.monitor.TenantCommandStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.BidBgroupSpendStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.SpendStats;
 import com.netease.nim.camellia.redis.proxy.util.QuantileCollector;
@@ -10,38 +10,50 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 命令的耗时
+ * 租户级别的数据记录在TenantCommandStats中，命令级别的分位数按照RedisCommand.ordinal()下标存放
+ * 不在RedisCommand中的命令按照命令名存放
  */
 public class CommandSpendMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(CommandSpendMonitor.class);
 
-    private static int count = 0;
+    private static final AtomicReferenceArray<QuantileCollector> commandQuantileArray = new AtomicReferenceArray<>(TenantCommandStats.commandSize());
+    private static final ConcurrentHashMap<String, QuantileCollector> unknownCommandQuantileMap = new ConcurrentHashMap<>();
 
-    private static ConcurrentHashMap<String, LongAdder> commandSpendCountMap = new ConcurrentHashMap<>();
-    private static ConcurrentHashMap<String, LongAdder> commandSpendTotalMap = new ConcurrentHashMap<>();
-    private static ConcurrentHashMap<String, QuantileCollector> commandQuantileMap = new ConcurrentHashMap<>();
-    private static ConcurrentHashMap<String, QuantileCollector> bidBgroupCommandQuantileMap = new ConcurrentHashMap<>();
+    public static void incr(TenantCommandStats stats, RedisCommand redisCommand, long spendNanoTime) {
+        try {
+            stats.spend(redisCommand, spendNanoTime);
+            int ordinal = redisCommand.ordinal();
+            QuantileCollector collector = commandQuantileArray.get(ordinal);
+            if (collector == null) {
+                collector = QuantileCollectorPool.borrowQuantileCollector();
+                if (!commandQuantileArray.compareAndSet(ordinal, null, collector)) {
+                    QuantileCollectorPool.returnQuantileCollector(collector);
+                    collector = commandQuantileArray.get(ordinal);
+                }
+            }
+            collector.updateNanos(spendNanoTime);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
 
-    public static void incr(Long bid, String bgroup, String command, long spendNanoTime) {
+    public static void incrUnknown(TenantCommandStats stats, String command, long spendNanoTime) {
         try {
-            String key = bid + "|" + bgroup + "|" + command;
-            CamelliaMapUtils.computeIfAbsent(commandSpendCountMap, key, k -> new LongAdder()).increment();
-            CamelliaMapUtils.computeIfAbsent(commandSpendTotalMap, key, k -> new LongAdder()).add(spendNanoTime);
-            int time = (int)(spendNanoTime / 10000);//0.00ms
-            QuantileCollector collector1 = CamelliaMapUtils.computeIfAbsent(bidBgroupCommandQuantileMap, key,
-                    k -> QuantileCollectorPool.borrowQuantileCollector());
-            collector1.update(time);
-            QuantileCollector collector2 = CamelliaMapUtils.computeIfAbsent(commandQuantileMap, command,
-                    k -> QuantileCollectorPool.borrowQuantileCollector());
-            collector2.update(time);
+            stats.spendUnknown(command, spendNanoTime);
+            QuantileCollector collector = unknownCommandQuantileMap.get(command);
+            if (collector == null) {
+                collector = unknownCommandQuantileMap.computeIfAbsent(command, k -> new QuantileCollector());
+            }
+            collector.updateNanos(spendNanoTime);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
@@ -53,87 +65,74 @@ public class CommandSpendMonitor {
     }
 
     public static CommandSpendStats collect() {
-        count ++;
-        ConcurrentHashMap<String, LongAdder> commandSpendCountMap = CommandSpendMonitor.commandSpendCountMap;
-        ConcurrentHashMap<String, LongAdder> commandSpendTotalMap = CommandSpendMonitor.commandSpendTotalMap;
-        ConcurrentHashMap<String, QuantileCollector> commandQuantileMap = CommandSpendMonitor.commandQuantileMap;
-        ConcurrentHashMap<String, QuantileCollector> bidBgroupCommandQuantileMap = CommandSpendMonitor.bidBgroupCommandQuantileMap;
-        boolean clear = false;
-        if (count >= ProxyDynamicConf.getInt("monitor.cache.reset.interval.periods", 60)) {
-            CommandSpendMonitor.commandSpendCountMap = new ConcurrentHashMap<>();
-            CommandSpendMonitor.commandSpendTotalMap = new ConcurrentHashMap<>();
-            CommandSpendMonitor.commandQuantileMap = new ConcurrentHashMap<>();
-            CommandSpendMonitor.bidBgroupCommandQuantileMap = new ConcurrentHashMap<>();
-            count = 0;
-            clear = true;
-        }
+        int size = TenantCommandStats.commandSize();
+        long[] commandCount = new long[size];
+        long[] commandSpendSum = new long[size];
+        double[] commandMaxSpendMs = new double[size];
+
+        Map<String, SpendStats> unknownSpendStatsMap = new HashMap<>();
+        Map<String, Long> unknownSpendSum = new HashMap<>();
 
         List<BidBgroupSpendStats> list = new ArrayList<>();
-        ConcurrentHashMap<String, AtomicLong> spendSumMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, SpendStats> spendStatsMap = new ConcurrentHashMap<>();
-        for (Map.Entry<String, LongAdder> entry : commandSpendCountMap.entrySet()) {
-            String key = entry.getKey();
-            long count = entry.getValue().sumThenReset();
-            if (count == 0) continue;
-            double avgSpendMs = 0;
-            LongAdder nanoSum = commandSpendTotalMap.get(key);
-            long sum = 0;
-            if (nanoSum != null) {
-                sum = nanoSum.sumThenReset();
-                avgSpendMs = sum / (1000000.0 * count);
-            }
-            String[] split = key.split("\\|");
-            Long bid = null;
-            if (!split[0].equals("null")) {
-                bid = Long.parseLong(split[0]);
-            }
-            String bgroup = null;
-            if (!split[1].equals("null")) {
-                bgroup = split[1];
-            }
-            String command = split[2];
-            BidBgroupSpendStats bidBgroupSpendStats = new BidBgroupSpendStats();
-            bidBgroupSpendStats.setBid(bid);
-            bidBgroupSpendStats.setBgroup(bgroup);
-            bidBgroupSpendStats.setCommand(command);
-            bidBgroupSpendStats.setAvgSpendMs(avgSpendMs);
-            bidBgroupSpendStats.setCount(count);
-
-            QuantileCollector collector = bidBgroupCommandQuantileMap.get(key);
-            if (collector != null) {
-                QuantileCollector.QuantileValue quantileValue = collector.getQuantileValueAndReset();
-                bidBgroupSpendStats.setSpendMsP50(quantileValue.getP50() / 100.0);
-                bidBgroupSpendStats.setSpendMsP75(quantileValue.getP75() / 100.0);
-                bidBgroupSpendStats.setSpendMsP90(quantileValue.getP90() / 100.0);
-                bidBgroupSpendStats.setSpendMsP95(quantileValue.getP95() / 100.0);
-                bidBgroupSpendStats.setSpendMsP99(quantileValue.getP99() / 100.0);
-                bidBgroupSpendStats.setSpendMsP999(quantileValue.getP999() / 100.0);
-                bidBgroupSpendStats.setMaxSpendMs(quantileValue.getMax() / 100.0);
+        for (TenantCommandStats tenantCommandStats : TenantCommandStats.tenants()) {
+            for (Map.Entry<String, TenantCommandStats.UnknownCommandStats> entry : tenantCommandStats.unknownCommands().entrySet()) {
+                TenantCommandStats.UnknownCommandStats unknownStats = entry.getValue();
+                long count = unknownStats.sumThenResetSpendCount();
+                if (count == 0) continue;
+                long sum = unknownStats.sumThenResetSpendTotal();
+                BidBgroupSpendStats bidBgroupSpendStats = new BidBgroupSpendStats();
+                bidBgroupSpendStats.setBid(tenantCommandStats.getBid());
+                bidBgroupSpendStats.setBgroup(tenantCommandStats.getBgroup());
+                bidBgroupSpendStats.setCommand(entry.getKey());
+                bidBgroupSpendStats.setAvgSpendMs(sum / (1000000.0 * count));
+                bidBgroupSpendStats.setCount(count);
+                fillQuantile(bidBgroupSpendStats, unknownStats.quantileCollector());
+                list.add(bidBgroupSpendStats);
+
+                SpendStats spendStats = unknownSpendStatsMap.computeIfAbsent(entry.getKey(), k -> new SpendStats());
+                spendStats.setCount(spendStats.getCount() + count);
+                unknownSpendSum.merge(entry.getKey(), sum, Long::sum);
+                if (bidBgroupSpendStats.getMaxSpendMs() > spendStats.getMaxSpendMs()) {
+                    spendStats.setMaxSpendMs(bidBgroupSpendStats.getMaxSpendMs());
+                }
             }
+            for (int i=0; i<size; i++) {
+                long count = tenantCommandStats.sumThenResetSpendCount(i);
+                if (count == 0) continue;
+                long sum = tenantCommandStats.sumThenResetSpendTotal(i);
+                double avgSpendMs = sum / (1000000.0 * count);
+                BidBgroupSpendStats bidBgroupSpendStats = new BidBgroupSpendStats();
+                bidBgroupSpendStats.setBid(tenantCommandStats.getBid());
+                bidBgroupSpendStats.setBgroup(tenantCommandStats.getBgroup());
+                bidBgroupSpendStats.setCommand(TenantCommandStats.command(i).strRaw());
+                bidBgroupSpendStats.setAvgSpendMs(avgSpendMs);
+                bidBgroupSpendStats.setCount(count);
+
+                fillQuantile(bidBgroupSpendStats, tenantCommandStats.quantileCollector(i));
 
-            list.add(bidBgroupSpendStats);
+                list.add(bidBgroupSpendStats);
 
-            SpendStats spendStats = CamelliaMapUtils.computeIfAbsent(spendStatsMap, command, string -> {
-                SpendStats bean = new SpendStats();
-                bean.setCommand(string);
-                return bean;
-            });
-            spendStats.setCount(spendStats.getCount() + bidBgroupSpendStats.getCount());
-            if (bidBgroupSpendStats.getMaxSpendMs() > spendStats.getMaxSpendMs()) {
-                spendStats.setMaxSpendMs(bidBgroupSpendStats.getMaxSpendMs());
+                commandCount[i] += count;
+                commandSpendSum[i] += sum;
+                if (bidBgroupSpendStats.getMaxSpendMs() > commandMaxSpendMs[i]) {
+                    commandMaxSpendMs[i] = bidBgroupSpendStats.getMaxSpendMs();
+                }
             }
-            CamelliaMapUtils.computeIfAbsent(spendSumMap, command, k -> new AtomicLong()).addAndGet(sum);
         }
-        for (Map.Entry<String, SpendStats> entry : spendStatsMap.entrySet()) {
-            String command = entry.getKey();
-            SpendStats spendStats = entry.getValue();
-            AtomicLong sum = spendSumMap.get(command);
-            if (sum == null) {
-                spendStats.setAvgSpendMs(0.0);
-            } else {
-                spendStats.setAvgSpendMs(sum.get() / (1000000.0 * spendStats.getCount()));
+        List<SpendStats> spendStatsList = new ArrayList<>();
+        for (int i=0; i<size; i++) {
+            QuantileCollector collector = commandQuantileArray.get(i);
+            if (commandCount[i] == 0) {
+                if (collector != null) {
+                    collector.reset();
+                }
+                continue;
             }
-            QuantileCollector collector = commandQuantileMap.get(command);
+            SpendStats spendStats = new SpendStats();
+            spendStats.setCommand(TenantCommandStats.command(i).strRaw());
+            spendStats.setCount(commandCount[i]);
+            spendStats.setAvgSpendMs(commandSpendSum[i] / (1000000.0 * commandCount[i]));
+            spendStats.setMaxSpendMs(commandMaxSpendMs[i]);
             if (collector != null) {
                 QuantileCollector.QuantileValue quantileValue = collector.getQuantileValueAndReset();
                 spendStats.setSpendMsP50(quantileValue.getP50() / 100.0);
@@ -144,24 +143,43 @@ public class CommandSpendMonitor {
                 spendStats.setSpendMsP999(quantileValue.getP999() / 100.0);
                 spendStats.setMaxSpendMs(quantileValue.getMax() / 100.0);
             }
+            spendStatsList.add(spendStats);
         }
-        if (clear) {
-            for (Map.Entry<String, QuantileCollector> entry : commandQuantileMap.entrySet()) {
-                QuantileCollector collector = entry.getValue();
-                collector.reset();
-                QuantileCollectorPool.returnQuantileCollector(collector);
-            }
-            commandQuantileMap.clear();
-            for (Map.Entry<String, QuantileCollector> entry : bidBgroupCommandQuantileMap.entrySet()) {
-                QuantileCollector collector = entry.getValue();
-                collector.reset();
-                QuantileCollectorPool.returnQuantileCollector(collector);
+        for (Map.Entry<String, SpendStats> entry : unknownSpendStatsMap.entrySet()) {
+            SpendStats spendStats = entry.getValue();
+            spendStats.setCommand(entry.getKey());
+            spendStats.setAvgSpendMs(unknownSpendSum.get(entry.getKey()) / (1000000.0 * spendStats.getCount()));
+            QuantileCollector collector = unknownCommandQuantileMap.get(entry.getKey());
+            if (collector != null) {
+                QuantileCollector.QuantileValue quantileValue = collector.getQuantileValueAndReset();
+                spendStats.setSpendMsP50(quantileValue.getP50() / 100.0);
+                spendStats.setSpendMsP75(quantileValue.getP75() / 100.0);
+                spendStats.setSpendMsP90(quantileValue.getP90() / 100.0);
+                spendStats.setSpendMsP95(quantileValue.getP95() / 100.0);
+                spendStats.setSpendMsP99(quantileValue.getP99() / 100.0);
+                spendStats.setSpendMsP999(quantileValue.getP999() / 100.0);
+                spendStats.setMaxSpendMs(quantileValue.getMax() / 100.0);
             }
-            bidBgroupCommandQuantileMap.clear();
+            spendStatsList.add(spendStats);
         }
+        //未知命令的名字不可控，没有调用的就移除掉，避免map无限增长（移除的收集器可能仍在被更新，因此不归还到池中）
+        unknownCommandQuantileMap.keySet().retainAll(unknownSpendStatsMap.keySet());
+
         CommandSpendStats commandSpendStats = new CommandSpendStats();
         commandSpendStats.bidBgroupSpendStatsList = list;
-        commandSpendStats.spendStatsList = new ArrayList<>(spendStatsMap.values());
+        commandSpendStats.spendStatsList = spendStatsList;
         return commandSpendStats;
     }
+
+    private static void fillQuantile(BidBgroupSpendStats bidBgroupSpendStats, QuantileCollector collector) {
+        if (collector == null) return;
+        QuantileCollector.QuantileValue quantileValue = collector.getQuantileValueAndReset();
+        bidBgroupSpendStats.setSpendMsP50(quantileValue.getP50() / 100.0);
+        bidBgroupSpendStats.setSpendMsP75(quantileValue.getP75() / 100.0);
+        bidBgroupSpendStats.setSpendMsP90(quantileValue.getP90() / 100.0);
+        bidBgroupSpendStats.setSpendMsP95(quantileValue.getP95() / 100.0);
+        bidBgroupSpendStats.setSpendMsP99(quantileValue.getP99() / 100.0);
+        bidBgroupSpendStats.setSpendMsP999(quantileValue.getP999() / 100.0);
+        bidBgroupSpendStats.setMaxSpendMs(quantileValue.getMax() / 100.0);
+    }
 }
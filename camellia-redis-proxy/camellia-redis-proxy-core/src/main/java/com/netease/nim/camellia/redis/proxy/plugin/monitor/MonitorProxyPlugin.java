@@ -3,8 +3,10 @@ package com.netease.nim.camellia.redis.proxy.plugin.monitor;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.command.CommandContext;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
 import com.netease.nim.camellia.redis.proxy.monitor.SlowCommandMonitor;
+import com.netease.nim.camellia.redis.proxy.monitor.TenantCommandStats;
 import com.netease.nim.camellia.redis.proxy.plugin.*;
 import com.netease.nim.camellia.redis.proxy.util.BeanInitUtils;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
@@ -53,7 +55,13 @@ public class MonitorProxyPlugin implements ProxyPlugin {
         if (!ProxyMonitorCollector.isMonitorEnable()) return ProxyPluginResponse.SUCCESS;
         Command command = request.getCommand();
         CommandContext commandContext = command.getCommandContext();
-        CommandCountMonitor.incr(commandContext.getBid(), commandContext.getBgroup(), command.getName(), command.getRedisCommand().getType());
+        TenantCommandStats stats = TenantCommandStats.get(command.getChannelInfo(), commandContext.getBid(), commandContext.getBgroup());
+        RedisCommand redisCommand = command.getRedisCommand();
+        if (redisCommand != null) {
+            CommandCountMonitor.incr(stats, redisCommand);
+        } else if (command.getName() != null) {
+            CommandCountMonitor.incrUnknown(stats, command.getName());
+        }
         if (ProxyMonitorCollector.isCommandSpendTimeMonitorEnable()) {
             command.initStartNanoTime();
         }
@@ -70,7 +78,13 @@ public class MonitorProxyPlugin implements ProxyPlugin {
             long startNanoTime = command.getStartNanoTime();
             if (startNanoTime > 0) {
                 long spend = System.nanoTime() - startNanoTime;
-                CommandSpendMonitor.incr(commandContext.getBid(), commandContext.getBgroup(), command.getName(), spend);
+                TenantCommandStats stats = TenantCommandStats.get(command.getChannelInfo(), commandContext.getBid(), commandContext.getBgroup());
+                RedisCommand redisCommand = command.getRedisCommand();
+                if (redisCommand != null) {
+                    CommandSpendMonitor.incr(stats, redisCommand, spend);
+                } else if (command.getName() != null) {
+                    CommandSpendMonitor.incrUnknown(stats, command.getName(), spend);
+                }
                 if (spend > slowCommandThresholdNanoTime && !command.isBlocking()) {
                     double spendMillis = spend / 1000000.0;
                     long thresholdMillis = slowCommandThresholdNanoTime / 1000000;
@@ -0,0 +1,45 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+import java.math.BigInteger;
+
+/**
+ * RESP3 big number，RESP2下降级为bulk string
+ * Created by agent on 2026/10/18
+ */
+public class BigNumberReply implements Resp3Reply {
+
+    private static final char MARKER = Marker.BigNumberReply.getMarker();
+
+    private final byte[] raw;
+
+    public BigNumberReply(BigInteger value) {
+        this.raw = Utils.stringToBytes(value.toString());
+    }
+
+    public BigNumberReply(String str) {
+        this.raw = Utils.stringToBytes(str);
+    }
+
+    public BigInteger getValue() {
+        return new BigInteger(Utils.bytesToString(raw));
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(raw);
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new BulkReply(raw);
+    }
+
+    public String toString() {
+        return Utils.bytesToString(raw);
+    }
+}
@@ -0,0 +1,33 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * RESP3 blob error，可以包含换行符，RESP2下降级为普通的error（换行符替换为空格）
+ * Created by agent on 2026/10/18
+ */
+public class BlobErrorReply extends ErrorReply implements Resp3Reply {
+
+    private static final char MARKER = Marker.BlobErrorReply.getMarker();
+
+    private final byte[] blob;
+
+    public BlobErrorReply(byte[] blob) {
+        super(new String(blob, Utils.utf8Charset));
+        this.blob = blob;
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(Utils.numToBytes(blob.length, true));
+        byteBuf.writeBytes(blob);
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new ErrorReply(getError().replace('\r', ' ').replace('\n', ' '));
+    }
+}
@@ -0,0 +1,45 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * RESP3 boolean
+ * Created by agent on 2026/10/18
+ */
+public class BooleanReply implements Resp3Reply {
+
+    public static final BooleanReply TRUE = new BooleanReply(true);
+    public static final BooleanReply FALSE = new BooleanReply(false);
+
+    private static final char MARKER = Marker.BooleanReply.getMarker();
+
+    private final boolean value;
+
+    private BooleanReply(boolean value) {
+        this.value = value;
+    }
+
+    public static BooleanReply valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public boolean getValue() {
+        return value;
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeByte(value ? 't' : 'f');
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return value ? IntegerReply.REPLY_1 : IntegerReply.REPLY_0;
+    }
+
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
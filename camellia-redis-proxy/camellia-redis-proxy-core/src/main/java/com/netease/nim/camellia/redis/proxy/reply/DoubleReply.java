@@ -0,0 +1,66 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * RESP3 double，RESP2下降级为bulk string
+ * Created by agent on 2026/10/18
+ */
+public class DoubleReply implements Resp3Reply {
+
+    private static final char MARKER = Marker.DoubleReply.getMarker();
+
+    private final double value;
+    private final byte[] raw;
+
+    public DoubleReply(double value) {
+        this.value = value;
+        this.raw = Utils.stringToBytes(format(value));
+    }
+
+    /**
+     * 保留上游返回的原始文本，避免格式化带来的精度变化
+     */
+    public DoubleReply(String str) {
+        this.value = parse(str);
+        this.raw = Utils.stringToBytes(str);
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(raw);
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new BulkReply(raw);
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "nan";
+        if (value == Double.POSITIVE_INFINITY) return "inf";
+        if (value == Double.NEGATIVE_INFINITY) return "-inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static double parse(String str) {
+        if (str.equalsIgnoreCase("inf") || str.equalsIgnoreCase("+inf")) return Double.POSITIVE_INFINITY;
+        if (str.equalsIgnoreCase("-inf")) return Double.NEGATIVE_INFINITY;
+        if (str.equalsIgnoreCase("nan")) return Double.NaN;
+        return Double.parseDouble(str);
+    }
+
+    public String toString() {
+        return Utils.bytesToString(raw);
+    }
+}
@@ -0,0 +1,39 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * RESP3 map，replies按照k1,v1,k2,v2...平铺，RESP2下降级为平铺的multi bulk（和hgetall一样）
+ * Created by agent on 2026/10/18
+ */
+public class MapReply extends MultiBulkReply implements Resp3Reply {
+
+    public static final MapReply EMPTY = new MapReply(new Reply[0]);
+
+    private static final char MARKER = Marker.MapReply.getMarker();
+
+    public MapReply(Reply[] replies) {
+        super(replies);
+        if (replies == null || replies.length % 2 != 0) {
+            throw new IllegalArgumentException("map reply should have even number of elements");
+        }
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) throws IOException {
+        Reply[] replies = getReplies();
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(Utils.numToBytes(replies.length / 2, true));
+        for (Reply reply : replies) {
+            reply.write(byteBuf);
+        }
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new MultiBulkReply(Resp3Reply.toResp2(getReplies()));
+    }
+}
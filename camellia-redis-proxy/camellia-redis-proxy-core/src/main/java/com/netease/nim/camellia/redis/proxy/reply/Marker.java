@@ -11,6 +11,18 @@ public enum Marker {
     StatusReply('+'),
     MultiBulkReply('*'),
     IntegerReply(':'),
+
+    //resp3
+    NullReply('_'),
+    DoubleReply(','),
+    BooleanReply('#'),
+    BlobErrorReply('!'),
+    VerbatimStringReply('='),
+    BigNumberReply('('),
+    MapReply('%'),
+    SetReply('~'),
+    AttributeReply('|'),
+    PushReply('>'),
     ;
 
     private final char ch;
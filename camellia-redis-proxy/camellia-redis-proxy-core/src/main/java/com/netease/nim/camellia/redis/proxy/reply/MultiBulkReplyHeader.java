@@ -9,12 +9,26 @@ import java.io.IOException;
  */
 public class MultiBulkReplyHeader implements Reply {
 
+    private final Marker marker;
     private final int size;
 
     public MultiBulkReplyHeader(int size) {
+        this(Marker.MultiBulkReply, size);
+    }
+
+    /**
+     * @param marker 聚合类型，包括RESP2的multi bulk和RESP3的map/set/push/attribute
+     * @param size 子元素个数，map/attribute是k-v的个数*2
+     */
+    public MultiBulkReplyHeader(Marker marker, int size) {
+        this.marker = marker;
         this.size = size;
     }
 
+    public Marker getMarker() {
+        return marker;
+    }
+
     public int getSize() {
         return size;
     }
@@ -38,4 +52,11 @@ public class MultiBulkReplyHeader implements Reply {
             return new MultiBulkReplyHeader(size);
         }
     }
+
+    public static MultiBulkReplyHeader gen(Marker marker, int size) {
+        if (marker == Marker.MultiBulkReply) {
+            return gen(size);
+        }
+        return new MultiBulkReplyHeader(marker, size);
+    }
 }
@@ -0,0 +1,28 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * RESP3 null
+ * Created by agent on 2026/10/18
+ */
+public class NullReply implements Resp3Reply {
+
+    public static final NullReply NULL = new NullReply();
+
+    private static final char MARKER = Marker.NullReply.getMarker();
+
+    private NullReply() {
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return BulkReply.NIL_REPLY;
+    }
+}
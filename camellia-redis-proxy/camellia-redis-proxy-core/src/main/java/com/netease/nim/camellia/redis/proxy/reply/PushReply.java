@@ -0,0 +1,39 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * RESP3 push，服务端主动推送的消息（如client tracking的invalidate），RESP2下降级为multi bulk
+ * Created by agent on 2026/10/18
+ */
+public class PushReply extends MultiBulkReply implements Resp3Reply {
+
+    public static final PushReply EMPTY = new PushReply(new Reply[0]);
+
+    private static final char MARKER = Marker.PushReply.getMarker();
+
+    public PushReply(Reply[] replies) {
+        super(replies);
+        if (replies == null) {
+            throw new IllegalArgumentException("push reply should not be null");
+        }
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) throws IOException {
+        Reply[] replies = getReplies();
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(Utils.numToBytes(replies.length, true));
+        for (Reply reply : replies) {
+            reply.write(byteBuf);
+        }
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new MultiBulkReply(Resp3Reply.toResp2(getReplies()));
+    }
+}
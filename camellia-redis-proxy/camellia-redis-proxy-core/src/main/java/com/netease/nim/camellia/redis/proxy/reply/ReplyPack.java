@@ -1,23 +1,41 @@
 package com.netease.nim.camellia.redis.proxy.reply;
 
 /**
- *
+ * 一个ReplyPack可以包含一个或者一批按序的回包，共用同一个序号，ReplyEncoder会按照序号保序后一次性写出
  * Created by caojiajun on 2020/8/25
  */
 public class ReplyPack {
 
     private final Reply reply;
+    private final Reply[] replies;
     private final long id;
 
     public ReplyPack(Reply reply, long id) {
         this.reply = reply;
+        this.replies = null;
         this.id = id;
     }
 
+    public ReplyPack(Reply[] replies, long id) {
+        this.reply = null;
+        this.replies = replies;
+        this.id = id;
+    }
+
+    /**
+     * the reply, null if this pack is a batch
+     */
     public Reply getReply() {
         return reply;
     }
 
+    /**
+     * the replies of a batch, null if this pack is a single reply
+     */
+    public Reply[] getReplies() {
+        return replies;
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,24 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+/**
+ * RESP3新增的回包类型，对于使用RESP2协议的客户端，会在写出前降级为RESP2的类型
+ * Created by agent on 2026/10/18
+ */
+public interface Resp3Reply extends Reply {
+
+    /**
+     * 降级为RESP2的回包
+     * @return reply
+     */
+    Reply toResp2();
+
+    static Reply[] toResp2(Reply[] replies) {
+        if (replies == null) return null;
+        Reply[] result = new Reply[replies.length];
+        for (int i=0; i<replies.length; i++) {
+            Reply reply = replies[i];
+            result[i] = reply instanceof Resp3Reply ? ((Resp3Reply) reply).toResp2() : reply;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.netease.nim.camellia.redis.proxy.reply;
+
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * RESP3 verbatim string，格式为 =len\r\nfmt:content\r\n，fmt固定3个字节，RESP2下降级为bulk string（不包含fmt）
+ * Created by agent on 2026/10/18
+ */
+public class VerbatimStringReply implements Resp3Reply {
+
+    private static final char MARKER = Marker.VerbatimStringReply.getMarker();
+
+    private final String format;
+    private final byte[] content;
+
+    public VerbatimStringReply(String format, byte[] content) {
+        if (format == null || format.length() != 3) {
+            throw new IllegalArgumentException("verbatim string format should be 3 bytes");
+        }
+        this.format = format;
+        this.content = content;
+    }
+
+    /**
+     * @param raw fmt:content
+     */
+    public static VerbatimStringReply parse(byte[] raw) {
+        if (raw.length < 4 || raw[3] != ':') {
+            throw new IllegalArgumentException("illegal verbatim string");
+        }
+        byte[] content = new byte[raw.length - 4];
+        System.arraycopy(raw, 4, content, 0, content.length);
+        return new VerbatimStringReply(new String(raw, 0, 3, Utils.utf8Charset), content);
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    @Override
+    public void write(ByteBuf byteBuf) {
+        byteBuf.writeByte(MARKER);
+        byteBuf.writeBytes(Utils.numToBytes(content.length + 4, true));
+        byteBuf.writeBytes(Utils.stringToBytes(format));
+        byteBuf.writeByte(':');
+        byteBuf.writeBytes(content);
+        byteBuf.writeBytes(CRLF);
+    }
+
+    @Override
+    public Reply toResp2() {
+        return new BulkReply(content);
+    }
+
+    public String toString() {
+        return new String(content, Utils.utf8Charset);
+    }
+}
@@ -0,0 +1,61 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+
+import java.util.List;
+
+/**
+ * 一个客户端连接的CLIENT TRACKING状态
+ * Created by agent on 2026/10/18
+ */
+public class ClientTrackingInfo {
+
+    private final boolean bcast;
+    private final List<byte[]> prefixes;//only bcast mode, empty means all keys
+    private final long redirect;//0 means no redirect
+    private final ChannelInfo redirectTarget;
+
+    public ClientTrackingInfo(boolean bcast, List<byte[]> prefixes, long redirect, ChannelInfo redirectTarget) {
+        this.bcast = bcast;
+        this.prefixes = prefixes;
+        this.redirect = redirect;
+        this.redirectTarget = redirectTarget;
+    }
+
+    public boolean isBcast() {
+        return bcast;
+    }
+
+    public List<byte[]> getPrefixes() {
+        return prefixes;
+    }
+
+    public long getRedirect() {
+        return redirect;
+    }
+
+    public ChannelInfo getRedirectTarget() {
+        return redirectTarget;
+    }
+
+    /**
+     * bcast模式下，key是否匹配前缀
+     */
+    public boolean matchPrefix(byte[] key) {
+        if (prefixes.isEmpty()) return true;
+        for (byte[] prefix : prefixes) {
+            if (startsWith(key, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) return false;
+        for (int i=0; i<prefix.length; i++) {
+            if (key[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,511 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.monitor.ChannelMonitor;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.util.ConcurrentHashSet;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * proxy侧的CLIENT TRACKING（server-assisted client-side caching）
+ * 1）proxy以bcast模式订阅所有上游redis节点的key失效消息（见UpstreamInvalidationSubscriber），因为上游连接是多个客户端共享的，无法按客户端开启tracking
+ * 2）不同bid/bgroup的路由可能指向不同的上游，同名的key不是同一份数据，因此客户端按照(bid, bgroup, db)划分tracking范围，
+ *    proxy记录每个上游节点被哪些范围的命令访问过（见route），上游节点的失效消息只会推送给这些范围内的客户端
+ *    上游的失效消息本身不带db（和redis一致，同一个节点上不同db的同名key会一起失效）
+ * 3）默认模式下，proxy记录tracking客户端读过的key（(scope, key) -> clients），收到失效消息后只推送给读过该key的客户端，推送后即移除（和redis一致）
+ * 4）bcast模式下，按照客户端设置的前缀推送，必须设置前缀，否则上游所有key的失效消息都会推送给该客户端
+ * 5）RESP3客户端直接收到invalidate的push消息，RESP2客户端需要REDIRECT到一个订阅了__redis__:invalidate的连接上
+ * 6）proxy内部的本地缓存（如热key缓存）也可以注册UpstreamInvalidationListener，复用上游的失效订阅
+ * Created by agent on 2026/10/18
+ */
+public class ClientTrackingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientTrackingManager.class);
+
+    static final byte[] INVALIDATE_CHANNEL = Utils.stringToBytes("__redis__:invalidate");
+    private static final byte[] INVALIDATE = Utils.stringToBytes("invalidate");
+    private static final byte[] MESSAGE = Utils.stringToBytes("message");
+
+    private static final ErrorReply NOT_ENABLE = new ErrorReply("ERR client tracking not enabled in proxy");
+    private static final ErrorReply OPT_NOT_SUPPORT = new ErrorReply("ERR proxy not support client tracking OPTIN/OPTOUT");
+    private static final ErrorReply PREFIX_WITHOUT_BCAST = new ErrorReply("ERR PREFIX option requires BCAST mode to be enabled");
+    private static final ErrorReply BCAST_WITHOUT_PREFIX = new ErrorReply("ERR proxy requires at least one PREFIX in BCAST mode");
+    private static final ErrorReply REDIRECT_NOT_EXISTS = new ErrorReply("ERR The client ID you want redirect to does not exist");
+    private static final ErrorReply BCAST_SWITCH = new ErrorReply("ERR You can't switch BCAST mode on/off before disabling tracking for this client, and then re-enabling it with a different mode.");
+
+    //(scope, key) -> clients which read the key, only default mode
+    private static final ConcurrentHashMap<TrackingKey, ConcurrentHashSet<ChannelInfo>> trackingTable = new ConcurrentHashMap<>();
+    private static final ConcurrentHashSet<ChannelInfo> trackingClients = new ConcurrentHashSet<>();
+    //upstream host:port -> scopes which send commands to the upstream
+    private static final ConcurrentHashMap<String, ConcurrentHashSet<TrackingScope>> routes = new ConcurrentHashMap<>();
+    private static volatile boolean trackingActive = false;
+    private static final CopyOnWriteArrayList<UpstreamInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    //upstream host:port -> subscriber
+    private static final ConcurrentHashMap<String, UpstreamInvalidationSubscriber> subscribers = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean initOk = new AtomicBoolean(false);
+    private static final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    private static int tableMaxKeys = Constants.Server.clientTrackingTableMaxKeys;
+    private static List<byte[]> upstreamPrefixes = new ArrayList<>();
+
+    /**
+     * CLIENT TRACKING ON|OFF [REDIRECT client-id] [PREFIX prefix [PREFIX prefix ...]] [BCAST] [OPTIN] [OPTOUT] [NOLOOP]
+     * @param channelInfo channelInfo
+     * @param objects args
+     * @return reply
+     */
+    public static Reply tracking(ChannelInfo channelInfo, byte[][] objects) {
+        if (objects.length < 3) {
+            return ErrorReply.argNumWrong(RedisCommand.CLIENT);
+        }
+        boolean on;
+        String onOff = Utils.bytesToString(objects[2]);
+        if (onOff.equalsIgnoreCase("ON")) {
+            on = true;
+        } else if (onOff.equalsIgnoreCase("OFF")) {
+            on = false;
+        } else {
+            return ErrorReply.SYNTAX_ERROR;
+        }
+        boolean bcast = false;
+        long redirect = 0;
+        List<byte[]> prefixes = new ArrayList<>();
+        for (int i=3; i<objects.length; i++) {
+            String option = Utils.bytesToString(objects[i]);
+            if (option.equalsIgnoreCase("BCAST")) {
+                bcast = true;
+            } else if (option.equalsIgnoreCase("NOLOOP")) {
+                //proxy无法区分上游的写入来自哪个客户端，NOLOOP会被忽略
+            } else if (option.equalsIgnoreCase("OPTIN") || option.equalsIgnoreCase("OPTOUT")) {
+                return OPT_NOT_SUPPORT;
+            } else if (option.equalsIgnoreCase("REDIRECT") && i + 1 < objects.length) {
+                try {
+                    redirect = Utils.bytesToNum(objects[i + 1]);
+                } catch (Exception e) {
+                    return ErrorReply.SYNTAX_ERROR;
+                }
+                i ++;
+            } else if (option.equalsIgnoreCase("PREFIX") && i + 1 < objects.length) {
+                prefixes.add(objects[i + 1]);
+                i ++;
+            } else {
+                return ErrorReply.SYNTAX_ERROR;
+            }
+        }
+        if (!on) {
+            remove(channelInfo);
+            return StatusReply.OK;
+        }
+        if (!isEnable(channelInfo)) {
+            return NOT_ENABLE;
+        }
+        if (!prefixes.isEmpty() && !bcast) {
+            return PREFIX_WITHOUT_BCAST;
+        }
+        ClientTrackingInfo old = channelInfo.getClientTrackingInfo();
+        if (old != null && old.isBcast() != bcast) {
+            return BCAST_SWITCH;
+        }
+        ChannelInfo redirectTarget = null;
+        if (redirect != 0) {
+            redirectTarget = findClient(channelInfo, redirect);
+            if (redirectTarget == null) {
+                return REDIRECT_NOT_EXISTS;
+            }
+        }
+        if (old != null && bcast) {
+            //和redis一致，多次开启bcast时前缀是累加的
+            List<byte[]> merged = new ArrayList<>(old.getPrefixes());
+            merged.addAll(prefixes);
+            prefixes = merged;
+        }
+        if (bcast && prefixes.isEmpty()) {
+            //上游的订阅是所有客户端共享的，不带前缀的bcast会把上游所有key的失效消息都推给该客户端，因此proxy要求必须设置前缀
+            return BCAST_WITHOUT_PREFIX;
+        }
+        channelInfo.setClientTrackingInfo(new ClientTrackingInfo(bcast, prefixes, redirect, redirectTarget));
+        trackingClients.add(channelInfo);
+        trackingActive = true;
+        init();
+        return StatusReply.OK;
+    }
+
+    /**
+     * CLIENT GETREDIR
+     */
+    public static Reply getRedirect(ChannelInfo channelInfo) {
+        ClientTrackingInfo info = channelInfo.getClientTrackingInfo();
+        if (info == null) {
+            return new IntegerReply(-1L);
+        }
+        return new IntegerReply(info.getRedirect());
+    }
+
+    /**
+     * 默认模式下，记录tracking客户端读取过的key
+     * @param channelInfo channelInfo
+     * @param command read command
+     */
+    public static void trackKeys(ChannelInfo channelInfo, Command command) {
+        ClientTrackingInfo info = channelInfo.getClientTrackingInfo();
+        if (info == null || info.isBcast()) return;
+        List<byte[]> keys = command.getKeys();
+        if (keys.isEmpty()) return;
+        TrackingScope scope = TrackingScope.of(channelInfo);
+        for (byte[] key : keys) {
+            TrackingKey trackingKey = new TrackingKey(scope, new BytesKey(key));
+            while (true) {
+                ConcurrentHashSet<ChannelInfo> clients = trackingTable.computeIfAbsent(trackingKey, k -> new ConcurrentHashSet<>());
+                clients.add(channelInfo);
+                //并发失效时，clients可能已经被移出table，需要重新放入，否则后续的写入不会再通知到该客户端
+                if (trackingTable.get(trackingKey) == clients) break;
+            }
+        }
+        if (trackingTable.size() > tableMaxKeys) {
+            evict();
+        }
+    }
+
+    /**
+     * 记录命令被发往了哪个上游节点，用于确定上游节点的失效消息需要推送给哪些范围的客户端
+     * 只有存在tracking的客户端时才会记录
+     * @param addr upstream addr
+     * @param commands commands
+     */
+    public static void route(RedisConnectionAddr addr, List<Command> commands) {
+        if (!trackingActive) return;
+        ConcurrentHashSet<TrackingScope> scopes = null;
+        ChannelInfo last = null;
+        for (Command command : commands) {
+            ChannelInfo channelInfo = command.getChannelInfo();
+            if (channelInfo == null || channelInfo == last) continue;
+            last = channelInfo;
+            if (scopes == null) {
+                scopes = CamelliaMapUtils.computeIfAbsent(routes, addr.getHost() + ":" + addr.getPort(), k -> new ConcurrentHashSet<>());
+            }
+            scopes.add(TrackingScope.of(channelInfo));
+        }
+    }
+
+    /**
+     * 客户端断开连接或者关闭tracking
+     * @param channelInfo channelInfo
+     */
+    public static void remove(ChannelInfo channelInfo) {
+        if (channelInfo.getClientTrackingInfo() == null) return;
+        channelInfo.setClientTrackingInfo(null);
+        trackingClients.remove(channelInfo);
+    }
+
+    /**
+     * 注册上游失效消息的监听器，存在监听器时，即使没有tracking的客户端，也会保持对上游的订阅
+     * @param listener listener
+     */
+    public static void registerListener(UpstreamInvalidationListener listener) {
+        if (listeners.addIfAbsent(listener)) {
+            init();
+        }
+    }
+
+    /**
+     * 取消注册上游失效消息的监听器
+     * @param listener listener
+     */
+    public static void unregisterListener(UpstreamInvalidationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 上游redis的key失效了
+     * @param upstream upstream host:port
+     * @param keys keys
+     */
+    static void invalidate(String upstream, List<byte[]> keys) {
+        if (keys.isEmpty()) return;
+        for (UpstreamInvalidationListener listener : listeners) {
+            try {
+                listener.invalidate(keys);
+            } catch (Exception e) {
+                ErrorLogCollector.collect(ClientTrackingManager.class, "upstream invalidation listener error", e);
+            }
+        }
+        ConcurrentHashSet<TrackingScope> scopes = routes.get(upstream);
+        if (scopes == null || scopes.isEmpty()) return;
+        List<TrackingKey> trackingKeys = new ArrayList<>(keys.size() * scopes.size());
+        for (TrackingScope scope : scopes) {
+            for (byte[] key : keys) {
+                trackingKeys.add(new TrackingKey(scope, new BytesKey(key)));
+            }
+        }
+        Map<ChannelInfo, List<byte[]>> map = removeTrackingKeys(trackingKeys);
+        for (ChannelInfo client : trackingClients) {
+            ClientTrackingInfo info = client.getClientTrackingInfo();
+            if (info == null || !info.isBcast()) continue;
+            if (!scopes.contains(TrackingScope.of(client))) continue;
+            for (byte[] key : keys) {
+                if (info.matchPrefix(key)) {
+                    map.computeIfAbsent(client, k -> new ArrayList<>()).add(key);
+                }
+            }
+        }
+        send(map);
+    }
+
+    //从tracking table中移除，并返回需要通知的默认模式的客户端
+    private static Map<ChannelInfo, List<byte[]>> removeTrackingKeys(List<TrackingKey> trackingKeys) {
+        Map<ChannelInfo, List<byte[]>> map = new HashMap<>();
+        for (TrackingKey trackingKey : trackingKeys) {
+            ConcurrentHashSet<ChannelInfo> clients = trackingTable.remove(trackingKey);
+            if (clients == null) continue;
+            for (ChannelInfo client : clients) {
+                ClientTrackingInfo info = client.getClientTrackingInfo();
+                if (info != null && !info.isBcast()) {
+                    map.computeIfAbsent(client, k -> new ArrayList<>()).add(trackingKey.key.getKey());
+                }
+            }
+        }
+        return map;
+    }
+
+    private static void send(Map<ChannelInfo, List<byte[]>> map) {
+        for (Map.Entry<ChannelInfo, List<byte[]>> entry : map.entrySet()) {
+            send(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 上游执行了flushall/flushdb，或者上游的订阅发生了变化，此时访问过该上游的tracking客户端都需要清空本地缓存
+     * @param upstream upstream host:port
+     */
+    static void invalidateAll(String upstream) {
+        for (UpstreamInvalidationListener listener : listeners) {
+            try {
+                listener.invalidateAll();
+            } catch (Exception e) {
+                ErrorLogCollector.collect(ClientTrackingManager.class, "upstream invalidation listener error", e);
+            }
+        }
+        ConcurrentHashSet<TrackingScope> scopes = routes.get(upstream);
+        if (scopes == null || scopes.isEmpty()) return;
+        trackingTable.keySet().removeIf(trackingKey -> scopes.contains(trackingKey.scope));
+        for (ChannelInfo client : trackingClients) {
+            if (scopes.contains(TrackingScope.of(client))) {
+                send(client, null);
+            }
+        }
+    }
+
+    public static boolean isEnable(ChannelInfo channelInfo) {
+        return ProxyDynamicConf.getBoolean("client.tracking.enable", channelInfo.getBid(), channelInfo.getBgroup(), Constants.Server.clientTrackingEnable);
+    }
+
+    //keys为null表示全部失效
+    private static void send(ChannelInfo client, List<byte[]> keys) {
+        try {
+            ClientTrackingInfo info = client.getClientTrackingInfo();
+            if (info == null) return;
+            ChannelInfo target = info.getRedirectTarget() == null ? client : info.getRedirectTarget();
+            if (target.getCtx() == null || !target.getCtx().channel().isActive()) return;
+            if (target.getResp() == 3) {
+                Reply keysReply = keys == null ? NullReply.NULL : toMultiBulkReply(keys);
+                target.getCtx().writeAndFlush(new PushReply(new Reply[]{new BulkReply(INVALIDATE), keysReply}));
+            } else if (target.isInSubscribe() && target.isSubscribeChannel(INVALIDATE_CHANNEL)) {
+                //RESP2只能通过REDIRECT到一个订阅了__redis__:invalidate的连接上，订阅了其他channel的连接不能推送
+                Reply keysReply = keys == null ? MultiBulkReply.NIL_REPLY : toMultiBulkReply(keys);
+                target.getCtx().writeAndFlush(new MultiBulkReply(new Reply[]{new BulkReply(MESSAGE), new BulkReply(INVALIDATE_CHANNEL), keysReply}));
+            }
+        } catch (Exception e) {
+            ErrorLogCollector.collect(ClientTrackingManager.class, "send invalidate error", e);
+        }
+    }
+
+    private static MultiBulkReply toMultiBulkReply(List<byte[]> keys) {
+        Reply[] replies = new Reply[keys.size()];
+        for (int i=0; i<replies.length; i++) {
+            replies[i] = new BulkReply(keys.get(i));
+        }
+        return new MultiBulkReply(replies);
+    }
+
+    //和redis一致，超过tracking_table_max_keys时，淘汰一部分key，并给对应的客户端发送失效消息
+    private static void evict() {
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            int target = tableMaxKeys - tableMaxKeys / 10;
+            List<TrackingKey> keys = new ArrayList<>();
+            Iterator<TrackingKey> iterator = trackingTable.keySet().iterator();
+            while (iterator.hasNext() && trackingTable.size() - keys.size() > target) {
+                keys.add(iterator.next());
+            }
+            send(removeTrackingKeys(keys));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static ChannelInfo findClient(ChannelInfo channelInfo, long id) {
+        if (channelInfo.getId() == id) {
+            return channelInfo;
+        }
+        for (ChannelInfo info : ChannelMonitor.getChannelMap().values()) {
+            if (info.getId() == id) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private static void init() {
+        if (initOk.get()) return;
+        synchronized (ClientTrackingManager.class) {
+            if (initOk.get()) return;
+            reloadConf();
+            ProxyDynamicConf.registerCallback(ClientTrackingManager::reloadConf);
+            int intervalSeconds = ProxyDynamicConf.getInt("client.tracking.upstream.check.interval.seconds", Constants.Server.clientTrackingUpstreamCheckIntervalSeconds);
+            ExecutorUtils.scheduleAtFixedRate(ClientTrackingManager::checkUpstream, 0, intervalSeconds, TimeUnit.SECONDS);
+            initOk.set(true);
+            logger.info("client tracking manager init success, upstream.check.interval.seconds = {}", intervalSeconds);
+        }
+    }
+
+    private static void reloadConf() {
+        tableMaxKeys = ProxyDynamicConf.getInt("client.tracking.table.max.keys", Constants.Server.clientTrackingTableMaxKeys);
+        List<byte[]> prefixes = new ArrayList<>();
+        String str = ProxyDynamicConf.getString("client.tracking.upstream.bcast.prefix", "");
+        for (String prefix : str.split(",")) {
+            if (prefix.trim().length() > 0) {
+                prefixes.add(Utils.stringToBytes(prefix.trim()));
+            }
+        }
+        if (!sameBytesList(prefixes, upstreamPrefixes)) {
+            upstreamPrefixes = prefixes;
+            //上游的前缀变了，需要重新订阅
+            for (UpstreamInvalidationSubscriber subscriber : subscribers.values()) {
+                subscriber.stop();
+            }
+            subscribers.clear();
+        }
+    }
+
+    //没有tracking客户端且没有监听器时，停止上游的订阅；否则保证proxy连接的每个上游节点都有订阅
+    private static void checkUpstream() {
+        try {
+            trackingClients.removeIf(client -> client.getClientTrackingInfo() == null
+                    || client.getCtx() == null || !client.getCtx().channel().isActive());
+            if (trackingClients.isEmpty()) {
+                trackingActive = false;
+                routes.clear();
+            }
+            if (trackingClients.isEmpty() && listeners.isEmpty()) {
+                for (UpstreamInvalidationSubscriber subscriber : subscribers.values()) {
+                    subscriber.stop();
+                }
+                subscribers.clear();
+                trackingTable.clear();
+                return;
+            }
+            Map<String, RedisConnectionAddr> addrs = new HashMap<>();
+            for (RedisConnection connection : RedisConnectionHub.getInstance().getAllConnections()) {
+                RedisConnectionAddr addr = connection.getAddr();
+                addrs.putIfAbsent(addr.getHost() + ":" + addr.getPort(), addr);
+            }
+            for (Map.Entry<String, RedisConnectionAddr> entry : addrs.entrySet()) {
+                RedisConnectionAddr addr = entry.getValue();
+                subscribers.computeIfAbsent(entry.getKey(),
+                        k -> new UpstreamInvalidationSubscriber(addr.getHost(), addr.getPort(), addr.getUserName(), addr.getPassword()));
+            }
+            for (Map.Entry<String, UpstreamInvalidationSubscriber> entry : subscribers.entrySet()) {
+                if (!addrs.containsKey(entry.getKey())) {
+                    entry.getValue().stop();
+                    subscribers.remove(entry.getKey());
+                    routes.remove(entry.getKey());
+                } else {
+                    entry.getValue().check(upstreamPrefixes);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("client tracking check upstream error", e);
+        }
+    }
+
+    private static boolean sameBytesList(List<byte[]> list1, List<byte[]> list2) {
+        if (list1.size() != list2.size()) return false;
+        for (int i=0; i<list1.size(); i++) {
+            if (!Arrays.equals(list1.get(i), list2.get(i))) return false;
+        }
+        return true;
+    }
+
+    //客户端的tracking范围，bid/bgroup决定了上游路由
+    private static class TrackingScope {
+        private final Long bid;
+        private final String bgroup;
+        private final int db;
+
+        private TrackingScope(Long bid, String bgroup, int db) {
+            this.bid = bid;
+            this.bgroup = bgroup;
+            this.db = db;
+        }
+
+        static TrackingScope of(ChannelInfo channelInfo) {
+            return new TrackingScope(channelInfo.getBid(), channelInfo.getBgroup(), channelInfo.getDb());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TrackingScope that = (TrackingScope) o;
+            return db == that.db && Objects.equals(bid, that.bid) && Objects.equals(bgroup, that.bgroup);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bid, bgroup, db);
+        }
+    }
+
+    private static class TrackingKey {
+        private final TrackingScope scope;
+        private final BytesKey key;
+
+        private TrackingKey(TrackingScope scope, BytesKey key) {
+            this.scope = scope;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TrackingKey that = (TrackingKey) o;
+            return scope.equals(that.scope) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * scope.hashCode() + key.hashCode();
+        }
+    }
+}
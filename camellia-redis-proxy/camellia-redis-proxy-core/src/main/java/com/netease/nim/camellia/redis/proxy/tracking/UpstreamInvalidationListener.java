@@ -0,0 +1,21 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import java.util.List;
+
+/**
+ * 上游redis的key失效消息的监听器，回调在订阅连接的IO线程中执行，实现不要有阻塞操作
+ * Created by agent on 2026/10/18
+ */
+public interface UpstreamInvalidationListener {
+
+    /**
+     * 上游redis的key失效了
+     * @param keys keys
+     */
+    void invalidate(List<byte[]> keys);
+
+    /**
+     * 上游执行了flushall/flushdb，或者上游的订阅发生了变化（建立或者断开），此时无法确定哪些key失效了
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,175 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订阅一个上游redis节点的key失效消息
+ * 使用一个独立的连接，依次执行：CLIENT ID、CLIENT TRACKING ON BCAST REDIRECT {id} [PREFIX ...]、SUBSCRIBE __redis__:invalidate
+ * 上游连接使用的是RESP2协议，失效消息以pub/sub的message的形式到达
+ * Created by agent on 2026/10/18
+ */
+public class UpstreamInvalidationSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamInvalidationSubscriber.class);
+
+    private static final byte[] ID = Utils.stringToBytes("ID");
+    private static final byte[] TRACKING = Utils.stringToBytes("TRACKING");
+    private static final byte[] ON = Utils.stringToBytes("ON");
+    private static final byte[] BCAST = Utils.stringToBytes("BCAST");
+    private static final byte[] REDIRECT = Utils.stringToBytes("REDIRECT");
+    private static final byte[] PREFIX = Utils.stringToBytes("PREFIX");
+
+    private static final int futureBuffer = 32;
+    private static final long timeoutSeconds = 10;
+
+    private final String host;
+    private final int port;
+    private final String userName;
+    private final String password;
+    private final AtomicLong futureCount = new AtomicLong();
+
+    private RedisConnection connection;//guarded by synchronized
+
+    public UpstreamInvalidationSubscriber(String host, int port, String userName, String password) {
+        this.host = host;
+        this.port = port;
+        this.userName = userName;
+        this.password = password;
+    }
+
+    public String getUrl() {
+        return host + ":" + port;
+    }
+
+    /**
+     * 检查订阅是否正常，若不正常则重新订阅
+     * 订阅断开期间以及重新订阅之前上游发生的写入都无法感知，因此订阅断开和订阅建立时都会让所有tracking的客户端清空本地缓存
+     * @param prefixes 上游bcast的前缀，为空表示全部key
+     */
+    public synchronized void check(List<byte[]> prefixes) {
+        if (connection != null && connection.isValid()) {
+            return;
+        }
+        if (connection != null) {
+            logger.warn("upstream invalidation subscribe connection lost, upstream = {}", getUrl());
+            connection.stop();
+            connection = null;
+            ClientTrackingManager.invalidateAll(getUrl());
+        }
+        RedisConnection redisConnection = RedisConnectionHub.getInstance().newConnection(host, port, userName, password);
+        if (redisConnection == null) {
+            logger.error("connect to upstream for invalidation subscribe fail, upstream = {}", getUrl());
+            return;
+        }
+        try {
+            Reply idReply = redisConnection.sendCommand(RedisCommand.CLIENT.raw(), ID).get(timeoutSeconds, TimeUnit.SECONDS);
+            if (!(idReply instanceof IntegerReply)) {
+                logger.error("upstream invalidation subscribe fail for CLIENT ID, upstream = {}, reply = {}", getUrl(), replyStr(idReply));
+                redisConnection.stop();
+                return;
+            }
+            List<byte[]> args = new ArrayList<>();
+            args.add(RedisCommand.CLIENT.raw());
+            args.add(TRACKING);
+            args.add(ON);
+            args.add(BCAST);
+            args.add(REDIRECT);
+            args.add(Utils.stringToBytes(String.valueOf(((IntegerReply) idReply).getInteger())));
+            for (byte[] prefix : prefixes) {
+                args.add(PREFIX);
+                args.add(prefix);
+            }
+            Reply trackingReply = redisConnection.sendCommand(args.toArray(new byte[0][0])).get(timeoutSeconds, TimeUnit.SECONDS);
+            if (trackingReply instanceof ErrorReply) {
+                logger.error("upstream invalidation subscribe fail for CLIENT TRACKING, upstream = {}, reply = {}", getUrl(), replyStr(trackingReply));
+                redisConnection.stop();
+                return;
+            }
+            Reply subscribeReply = redisConnection.sendCommand(RedisCommand.SUBSCRIBE.raw(), ClientTrackingManager.INVALIDATE_CHANNEL).get(timeoutSeconds, TimeUnit.SECONDS);
+            if (subscribeReply instanceof ErrorReply) {
+                logger.error("upstream invalidation subscribe fail for SUBSCRIBE, upstream = {}, reply = {}", getUrl(), replyStr(subscribeReply));
+                redisConnection.stop();
+                return;
+            }
+            futureCount.set(0);
+            sendFutures(redisConnection);
+            connection = redisConnection;
+            logger.info("upstream invalidation subscribe success, upstream = {}", getUrl());
+            ClientTrackingManager.invalidateAll(getUrl());
+        } catch (Exception e) {
+            logger.error("upstream invalidation subscribe error, upstream = {}", getUrl(), e);
+            redisConnection.stop();
+        }
+    }
+
+    public synchronized void stop() {
+        if (connection != null) {
+            connection.stop();
+            connection = null;
+            logger.info("upstream invalidation subscribe stop, upstream = {}", getUrl());
+        }
+    }
+
+    private void sendFutures(RedisConnection redisConnection) {
+        if (!redisConnection.isValid()) return;
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>();
+        for (int i=0; i<futureBuffer; i++) {
+            CompletableFuture<Reply> future = new CompletableFuture<>();
+            future.thenAccept(reply -> onMessage(redisConnection, reply));
+            futureList.add(future);
+        }
+        futureCount.addAndGet(futureList.size());
+        redisConnection.sendCommand(Collections.emptyList(), futureList);
+    }
+
+    private void onMessage(RedisConnection redisConnection, Reply reply) {
+        futureCount.decrementAndGet();
+        try {
+            processMessage(reply);
+        } finally {
+            if (futureCount.get() < futureBuffer / 2) {
+                sendFutures(redisConnection);
+            }
+        }
+    }
+
+    //message __redis__:invalidate [key1, key2...]，keys为null表示flushall/flushdb
+    private void processMessage(Reply reply) {
+        if (!(reply instanceof MultiBulkReply)) return;
+        Reply[] replies = ((MultiBulkReply) reply).getReplies();
+        if (replies == null || replies.length != 3) return;
+        if (!(replies[2] instanceof MultiBulkReply)) return;
+        Reply[] keys = ((MultiBulkReply) replies[2]).getReplies();
+        if (keys == null) {
+            ClientTrackingManager.invalidateAll(getUrl());
+            return;
+        }
+        List<byte[]> list = new ArrayList<>(keys.length);
+        for (Reply key : keys) {
+            if (key instanceof BulkReply) {
+                list.add(((BulkReply) key).getRaw());
+            }
+        }
+        ClientTrackingManager.invalidate(getUrl(), list);
+    }
+
+    private static String replyStr(Reply reply) {
+        if (reply instanceof ErrorReply) {
+            return ((ErrorReply) reply).getError();
+        }
+        return reply == null ? null : reply.getClass().getSimpleName();
+    }
+}
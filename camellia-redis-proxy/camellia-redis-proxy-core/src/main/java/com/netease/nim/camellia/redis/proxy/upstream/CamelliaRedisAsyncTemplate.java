@@ -0,0 +1,333 @@
+package com.netease.nim.camellia.redis.proxy.upstream;
+
+import com.netease.nim.camellia.core.model.ResourceTable;
+import com.netease.nim.camellia.core.util.ReadableResourceTableUtil;
+import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.CamelliaTranspondProperties;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步非阻塞的redis客户端，返回CompletableFuture，不需要为每个请求占用一个线程
+ * 1）路由、分片、双写等语义和proxy完全一致（底层就是UpstreamRedisClientTemplate），支持相同的ResourceTable配置
+ * 2）网络层使用proxy的RedisConnection（netty），同一个后端的请求在一个连接上pipeline发送，开启redis.connection.write.coalesce.enable后，
+ * 同一个eventLoop一轮任务中的多次请求只会flush一次（自动pipeline）
+ * 3）可以在proxy进程内使用，也可以独立使用（会使用默认配置初始化RedisConnectionHub）
+ * 4）除了常用命令的封装，也可以通过sendCommand发送任意proxy支持的命令
+ * 5）同一个实例的所有请求共用一个ChannelInfo（相当于一个客户端连接），开启连接池时会被pin在同一个连接上，因此先后发出的请求按顺序执行
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaRedisAsyncTemplate {
+
+    private final UpstreamRedisClientTemplate template;
+    //没有真实的客户端连接，使用mock的ChannelInfo，整个实例共用一个，保证请求之间的顺序
+    private final ChannelInfo channelInfo = new ChannelInfo();
+
+    public CamelliaRedisAsyncTemplate(String url) {
+        this(ReadableResourceTableUtil.parseTable(url));
+    }
+
+    public CamelliaRedisAsyncTemplate(ResourceTable resourceTable) {
+        this(RedisProxyEnv.defaultRedisEnv(), resourceTable);
+    }
+
+    public CamelliaRedisAsyncTemplate(RedisProxyEnv env, ResourceTable resourceTable) {
+        RedisConnectionHub hub = RedisConnectionHub.getInstance();
+        if (!hub.isInit()) {
+            synchronized (CamelliaRedisAsyncTemplate.class) {
+                if (!hub.isInit()) {
+                    hub.init(new CamelliaTranspondProperties());
+                }
+            }
+        }
+        this.template = new UpstreamRedisClientTemplate(env, resourceTable);
+    }
+
+    public CamelliaRedisAsyncTemplate(UpstreamRedisClientTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * 发送任意命令
+     * @param args 命令及参数
+     * @return 回包，ErrorReply不会转换成异常
+     */
+    public CompletableFuture<Reply> sendCommand(byte[]... args) {
+        return template.sendCommand(-1, Collections.singletonList(command(args))).get(0);
+    }
+
+    /**
+     * 批量发送命令（pipeline）
+     * @param commands 命令列表
+     * @return 回包列表，和命令一一对应
+     */
+    public List<CompletableFuture<Reply>> sendCommands(List<byte[][]> commands) {
+        List<Command> list = new ArrayList<>(commands.size());
+        for (byte[][] args : commands) {
+            list.add(command(args));
+        }
+        return template.sendCommand(-1, list);
+    }
+
+    public CompletableFuture<byte[]> get(byte[] key) {
+        return send(CamelliaRedisAsyncTemplate::toBytes, RedisCommand.GET.raw(), key);
+    }
+
+    public CompletableFuture<String> get(String key) {
+        return get(Utils.stringToBytes(key)).thenApply(CamelliaRedisAsyncTemplate::toStr);
+    }
+
+    public CompletableFuture<String> set(byte[] key, byte[] value) {
+        return send(CamelliaRedisAsyncTemplate::toStatus, RedisCommand.SET.raw(), key, value);
+    }
+
+    public CompletableFuture<String> set(String key, String value) {
+        return set(Utils.stringToBytes(key), Utils.stringToBytes(value));
+    }
+
+    public CompletableFuture<String> setex(byte[] key, int seconds, byte[] value) {
+        return send(CamelliaRedisAsyncTemplate::toStatus, RedisCommand.SETEX.raw(), key, Utils.stringToBytes(String.valueOf(seconds)), value);
+    }
+
+    public CompletableFuture<String> setex(String key, int seconds, String value) {
+        return setex(Utils.stringToBytes(key), seconds, Utils.stringToBytes(value));
+    }
+
+    public CompletableFuture<Long> setnx(byte[] key, byte[] value) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.SETNX.raw(), key, value);
+    }
+
+    public CompletableFuture<Long> del(byte[]... keys) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.DEL.raw(), keys);
+    }
+
+    public CompletableFuture<Long> del(String... keys) {
+        return del(toBytesArray(keys));
+    }
+
+    public CompletableFuture<Long> exists(byte[]... keys) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.EXISTS.raw(), keys);
+    }
+
+    public CompletableFuture<Long> expire(byte[] key, int seconds) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.EXPIRE.raw(), key, Utils.stringToBytes(String.valueOf(seconds)));
+    }
+
+    public CompletableFuture<Long> ttl(byte[] key) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.TTL.raw(), key);
+    }
+
+    public CompletableFuture<Long> incr(byte[] key) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.INCR.raw(), key);
+    }
+
+    public CompletableFuture<Long> incrBy(byte[] key, long increment) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.INCRBY.raw(), key, Utils.stringToBytes(String.valueOf(increment)));
+    }
+
+    public CompletableFuture<List<byte[]>> mget(byte[]... keys) {
+        return send(CamelliaRedisAsyncTemplate::toBytesList, RedisCommand.MGET.raw(), keys);
+    }
+
+    public CompletableFuture<String> mset(byte[]... keysvalues) {
+        return send(CamelliaRedisAsyncTemplate::toStatus, RedisCommand.MSET.raw(), keysvalues);
+    }
+
+    public CompletableFuture<byte[]> hget(byte[] key, byte[] field) {
+        return send(CamelliaRedisAsyncTemplate::toBytes, RedisCommand.HGET.raw(), key, field);
+    }
+
+    public CompletableFuture<Long> hset(byte[] key, byte[] field, byte[] value) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.HSET.raw(), key, field, value);
+    }
+
+    public CompletableFuture<Long> hdel(byte[] key, byte[]... fields) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.HDEL.raw(), key, fields);
+    }
+
+    public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields) {
+        return send(CamelliaRedisAsyncTemplate::toBytesList, RedisCommand.HMGET.raw(), key, fields);
+    }
+
+    public CompletableFuture<Map<byte[], byte[]>> hgetAll(byte[] key) {
+        return send(CamelliaRedisAsyncTemplate::toBytesMap, RedisCommand.HGETALL.raw(), key);
+    }
+
+    public CompletableFuture<Long> sadd(byte[] key, byte[]... members) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.SADD.raw(), key, members);
+    }
+
+    public CompletableFuture<Long> srem(byte[] key, byte[]... members) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.SREM.raw(), key, members);
+    }
+
+    public CompletableFuture<List<byte[]>> smembers(byte[] key) {
+        return send(CamelliaRedisAsyncTemplate::toBytesList, RedisCommand.SMEMBERS.raw(), key);
+    }
+
+    public CompletableFuture<Long> zadd(byte[] key, double score, byte[] member) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.ZADD.raw(), key, Utils.stringToBytes(String.valueOf(score)), member);
+    }
+
+    public CompletableFuture<List<byte[]>> zrange(byte[] key, long start, long stop) {
+        return send(CamelliaRedisAsyncTemplate::toBytesList, RedisCommand.ZRANGE.raw(), key,
+                Utils.stringToBytes(String.valueOf(start)), Utils.stringToBytes(String.valueOf(stop)));
+    }
+
+    public CompletableFuture<Long> zrem(byte[] key, byte[]... members) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.ZREM.raw(), key, members);
+    }
+
+    public CompletableFuture<Long> lpush(byte[] key, byte[]... values) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.LPUSH.raw(), key, values);
+    }
+
+    public CompletableFuture<Long> rpush(byte[] key, byte[]... values) {
+        return send(CamelliaRedisAsyncTemplate::toLong, RedisCommand.RPUSH.raw(), key, values);
+    }
+
+    public CompletableFuture<List<byte[]>> lrange(byte[] key, long start, long stop) {
+        return send(CamelliaRedisAsyncTemplate::toBytesList, RedisCommand.LRANGE.raw(), key,
+                Utils.stringToBytes(String.valueOf(start)), Utils.stringToBytes(String.valueOf(stop)));
+    }
+
+    public CompletableFuture<Object> eval(byte[] script, int keyCount, byte[]... params) {
+        byte[][] args = new byte[params.length + 2][];
+        args[0] = script;
+        args[1] = Utils.stringToBytes(String.valueOf(keyCount));
+        System.arraycopy(params, 0, args, 2, params.length);
+        return send(CamelliaRedisAsyncTemplate::toObject, RedisCommand.EVAL.raw(), args);
+    }
+
+    public void shutdown() {
+        template.shutdown();
+    }
+
+    private <T> CompletableFuture<T> send(ReplyConverter<T> converter, byte[] name, byte[] key, byte[]... args) {
+        byte[][] objects = new byte[args.length + 2][];
+        objects[0] = name;
+        objects[1] = key;
+        System.arraycopy(args, 0, objects, 2, args.length);
+        return sendCommand(objects).thenApply(reply -> {
+            if (reply instanceof ErrorReply) {
+                throw new CamelliaRedisException(((ErrorReply) reply).getError());
+            }
+            return converter.convert(reply);
+        });
+    }
+
+    private <T> CompletableFuture<T> send(ReplyConverter<T> converter, byte[] name, byte[][] args) {
+        byte[][] objects = new byte[args.length + 1][];
+        objects[0] = name;
+        System.arraycopy(args, 0, objects, 1, args.length);
+        return sendCommand(objects).thenApply(reply -> {
+            if (reply instanceof ErrorReply) {
+                throw new CamelliaRedisException(((ErrorReply) reply).getError());
+            }
+            return converter.convert(reply);
+        });
+    }
+
+    private Command command(byte[][] args) {
+        Command command = new Command(args);
+        command.setChannelInfo(channelInfo);
+        return command;
+    }
+
+    private interface ReplyConverter<T> {
+        T convert(Reply reply);
+    }
+
+    private static byte[][] toBytesArray(String[] strings) {
+        byte[][] bytes = new byte[strings.length][];
+        for (int i=0; i<strings.length; i++) {
+            bytes[i] = Utils.stringToBytes(strings[i]);
+        }
+        return bytes;
+    }
+
+    private static String toStr(byte[] bytes) {
+        return bytes == null ? null : Utils.bytesToString(bytes);
+    }
+
+    private static byte[] toBytes(Reply reply) {
+        if (reply instanceof BulkReply) {
+            return ((BulkReply) reply).getRaw();
+        }
+        if (reply instanceof StatusReply) {
+            return Utils.stringToBytes(((StatusReply) reply).getStatus());
+        }
+        if (reply instanceof IntegerReply) {
+            return Utils.stringToBytes(String.valueOf(((IntegerReply) reply).getInteger()));
+        }
+        return null;
+    }
+
+    private static String toStatus(Reply reply) {
+        if (reply instanceof StatusReply) {
+            return ((StatusReply) reply).getStatus();
+        }
+        return toStr(toBytes(reply));
+    }
+
+    private static Long toLong(Reply reply) {
+        if (reply instanceof IntegerReply) {
+            return ((IntegerReply) reply).getInteger();
+        }
+        byte[] bytes = toBytes(reply);
+        return bytes == null ? null : Long.parseLong(Utils.bytesToString(bytes));
+    }
+
+    private static List<byte[]> toBytesList(Reply reply) {
+        if (!(reply instanceof MultiBulkReply)) {
+            return null;
+        }
+        Reply[] replies = ((MultiBulkReply) reply).getReplies();
+        if (replies == null) {
+            return null;
+        }
+        List<byte[]> list = new ArrayList<>(replies.length);
+        for (Reply r : replies) {
+            list.add(toBytes(r));
+        }
+        return list;
+    }
+
+    private static Map<byte[], byte[]> toBytesMap(Reply reply) {
+        List<byte[]> list = toBytesList(reply);
+        if (list == null) {
+            return null;
+        }
+        Map<byte[], byte[]> map = new LinkedHashMap<>();
+        for (int i=0; i+1<list.size(); i+=2) {
+            map.put(list.get(i), list.get(i + 1));
+        }
+        return map;
+    }
+
+    //lua脚本的返回值：整数->Long，字符串->byte[]，数组->List，nil->null
+    private static Object toObject(Reply reply) {
+        if (reply instanceof IntegerReply) {
+            return ((IntegerReply) reply).getInteger();
+        }
+        if (reply instanceof MultiBulkReply) {
+            Reply[] replies = ((MultiBulkReply) reply).getReplies();
+            if (replies == null) {
+                return null;
+            }
+            List<Object> list = new ArrayList<>(replies.length);
+            for (Reply r : replies) {
+                list.add(toObject(r));
+            }
+            return list;
+        }
+        return toBytes(reply);
+    }
+}
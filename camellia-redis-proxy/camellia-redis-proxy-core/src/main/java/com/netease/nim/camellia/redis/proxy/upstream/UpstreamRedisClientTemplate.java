@@ -23,7 +23,6 @@ import com.netease.nim.camellia.redis.proxy.upstream.utils.ScanCursorCalculator;
 import com.netease.nim.camellia.redis.proxy.util.*;
 import com.netease.nim.camellia.redis.base.resource.RedisResourceUtil;
 import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
-import com.netease.nim.camellia.tools.utils.BytesKey;
 import com.netease.nim.camellia.tools.utils.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -520,7 +519,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                 boolean continueOk = false;
                 switch (redisCommand) {
                     case MGET: {
-                        if (command.getObjects().length > 2) {
+                        if (command.getObjectsCount() > 2) {
                             CompletableFuture<Reply> future = mget(command, commandFlusher);
                             futureList.add(future);
                             continueOk = true;
@@ -528,7 +527,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                         break;
                     }
                     case JSON_MGET: {
-                        if (command.getObjects().length > 3) {
+                        if (command.getObjectsCount() > 3) {
                             CompletableFuture<Reply> future = jsonMget(command, commandFlusher);
                             futureList.add(future);
                             continueOk = true;
@@ -538,7 +537,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                     case TOUCH:
                     case UNLINK:
                     case DEL: {
-                        if (command.getObjects().length > 2) {
+                        if (command.getObjectsCount() > 2) {
                             CompletableFuture<Reply> future = delOrUnlinkOrTouch(command, commandFlusher);
                             futureList.add(future);
                             continueOk = true;
@@ -546,7 +545,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                         break;
                     }
                     case MSET: {
-                        if (command.getObjects().length > 3) {
+                        if (command.getObjectsCount() > 3) {
                             CompletableFuture<Reply> future = mset(command, commandFlusher);
                             futureList.add(future);
                             continueOk = true;
@@ -554,7 +553,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                         break;
                     }
                     case EXISTS: {
-                        if (command.getObjects().length > 2) {
+                        if (command.getObjectsCount() > 2) {
                             CompletableFuture<Reply> future = exists(command, commandFlusher);
                             futureList.add(future);
                             continueOk = true;
@@ -566,11 +565,11 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
             }
 
             RedisCommand.Type type = redisCommand.getType();
-            byte[][] args = command.getObjects();
+            int argsCount = command.getObjectsCount();
             if (type == RedisCommand.Type.READ) {
                 Resource resource;
-                if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && args.length >= 2) {
-                    resource = resourceSelector.getReadResource(args[1]);
+                if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && argsCount >= 2) {
+                    resource = resourceSelector.getReadResource(command.getObject(1));
                 } else {
                     List<byte[]> keys = command.getKeys();
                     if (keys.isEmpty()) {
@@ -583,8 +582,8 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                 futureList.add(future);
             } else if (type == RedisCommand.Type.WRITE) {
                 List<Resource> writeResources;
-                if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && args.length >= 2) {
-                    writeResources = resourceSelector.getWriteResources(args[1]);
+                if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && argsCount >= 2) {
+                    writeResources = resourceSelector.getWriteResources(command.getObject(1));
                 } else {
                     List<byte[]> keys = command.getKeys();
                     if (keys.isEmpty()) {
@@ -842,110 +841,51 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
     }
 
     private CompletableFuture<Reply> mget(Command command, UpstreamClientCommandFlusher commandFlusher) {
-        List<BytesKey> redisKeys = new ArrayList<>();
-        Map<String, List<BytesKey>> map = new HashMap<>();
         byte[][] args = command.getObjects();
-        for (int i = 1; i < args.length; i++) {
-            byte[] key = args[i];
-            BytesKey redisKey = new BytesKey(key);
-            redisKeys.add(redisKey);
-            Resource resource = resourceSelector.getReadResource(key);
-            List<BytesKey> list = map.get(resource.getUrl());
-            if (list == null) {
-                list = map.computeIfAbsent(resource.getUrl(), k -> new ArrayList<>(args.length - 1));
-            }
-            list.add(redisKey);
-        }
-        List<String> urlList = new ArrayList<>();
-        List<CompletableFuture<Reply>> futures = new ArrayList<>();
-        for (Map.Entry<String, List<BytesKey>> entry : map.entrySet()) {
-            String url = entry.getKey();
-            IUpstreamClient client = factory.get(url);
-            List<BytesKey> list = entry.getValue();
-            List<byte[]> subCommandArgs = new ArrayList<>(list.size() + 1);
-            subCommandArgs.add(args[0]);
-            for (BytesKey redisKey : list) {
-                subCommandArgs.add(redisKey.getKey());
-            }
-            urlList.add(url);
-            Command subCommand = new Command(subCommandArgs.toArray(new byte[0][0]));
-            subCommand.setChannelInfo(command.getChannelInfo());
-            CompletableFuture<Reply> future = commandFlusher.sendCommand(client, subCommand);
-            incrRead(url, command);
-            futures.add(future);
-            if (ProxyMonitorCollector.isMonitorEnable()) {
-                UpstreamFailMonitor.stats(url, command, future);
-            }
-        }
-        if (futures.size() == 1) {
-            return futures.get(0);
-        }
-        CompletableFuture<Reply> future = new CompletableFuture<>();
-        CompletableFutureUtils.allOf(futures).thenAccept(replies -> {
-            Map<BytesKey, Reply> replyMap = new HashMap<>();
-            for (int i = 0; i < urlList.size(); i++) {
-                String url = urlList.get(i);
-                List<BytesKey> keyList = map.get(url);
-                Reply reply = replies.get(i);
-                if (reply instanceof MultiBulkReply) {
-                    MultiBulkReply multiBulkReply = (MultiBulkReply) reply;
-                    Reply[] subReplies = multiBulkReply.getReplies();
-                    for (int j = 0; j < subReplies.length; j++) {
-                        Reply subReply = subReplies[j];
-                        BytesKey redisKey = keyList.get(j);
-                        replyMap.put(redisKey, subReply);
-                    }
-                } else if (reply instanceof ErrorReply) {
-                    future.complete(reply);
-                    return;
-                } else {
-                    future.complete(ErrorReply.UPSTREAM_RESOURCE_NOT_AVAILABLE);
-                    return;
-                }
-            }
-            Reply[] retReplies = new Reply[redisKeys.size()];
-            for (int i = 0; i < redisKeys.size(); i++) {
-                BytesKey redisKey = redisKeys.get(i);
-                retReplies[i] = replyMap.get(redisKey);
-            }
-            future.complete(new MultiBulkReply(retReplies));
-        });
-        return future;
+        return multiKeyRead(command, commandFlusher, args.length, null);
     }
 
     private CompletableFuture<Reply> jsonMget(Command command, UpstreamClientCommandFlusher commandFlusher) {
-        List<BytesKey> redisKeys = new ArrayList<>();
-        Map<String, List<BytesKey>> map = new HashMap<>();
         byte[][] args = command.getObjects();
-        byte[] path = args[args.length - 1];
-        for (int i = 1; i < args.length - 1; i++) {
-            byte[] key = args[i];
-            BytesKey redisKey = new BytesKey(key);
-            redisKeys.add(redisKey);
-            Resource resource = resourceSelector.getReadResource(key);
-            List<BytesKey> list = map.get(resource.getUrl());
+        return multiKeyRead(command, commandFlusher, args.length - 1, args[args.length - 1]);
+    }
+
+    /**
+     * 按照url对key进行分组，每个url只发送一个子命令，回包按照key在原始命令中的下标回填
+     * @param keyEnd end index of keys (exclusive)
+     * @param tail tail arg of sub command, such as the path of json.mget, nullable
+     */
+    private CompletableFuture<Reply> multiKeyRead(Command command, UpstreamClientCommandFlusher commandFlusher, int keyEnd, byte[] tail) {
+        byte[][] args = command.getObjects();
+        Map<String, List<Integer>> map = new LinkedHashMap<>();
+        for (int i = 1; i < keyEnd; i++) {
+            Resource resource = resourceSelector.getReadResource(args[i]);
+            List<Integer> list = map.get(resource.getUrl());
             if (list == null) {
-                list = map.computeIfAbsent(resource.getUrl(), k -> new ArrayList<>(args.length - 2));
+                list = new ArrayList<>();
+                map.put(resource.getUrl(), list);
             }
-            list.add(redisKey);
+            list.add(i);
         }
-        List<String> urlList = new ArrayList<>();
-        List<CompletableFuture<Reply>> futures = new ArrayList<>();
-        for (Map.Entry<String, List<BytesKey>> entry : map.entrySet()) {
+        List<List<Integer>> indexesList = new ArrayList<>(map.size());
+        List<CompletableFuture<Reply>> futures = new ArrayList<>(map.size());
+        for (Map.Entry<String, List<Integer>> entry : map.entrySet()) {
             String url = entry.getKey();
             IUpstreamClient client = factory.get(url);
-            List<BytesKey> list = entry.getValue();
-            List<byte[]> subCommandArgs = new ArrayList<>(list.size() + 1);
-            subCommandArgs.add(args[0]);
-            for (BytesKey redisKey : list) {
-                subCommandArgs.add(redisKey.getKey());
+            List<Integer> indexes = entry.getValue();
+            byte[][] subCommandArgs = new byte[indexes.size() + (tail == null ? 1 : 2)][];
+            subCommandArgs[0] = args[0];
+            for (int i = 0; i < indexes.size(); i++) {
+                subCommandArgs[i + 1] = args[indexes.get(i)];
             }
-            subCommandArgs.add(path);
-            urlList.add(url);
-            Command subCommand = new Command(subCommandArgs.toArray(new byte[0][0]));
+            if (tail != null) {
+                subCommandArgs[subCommandArgs.length - 1] = tail;
+            }
+            Command subCommand = new Command(subCommandArgs);
             subCommand.setChannelInfo(command.getChannelInfo());
             CompletableFuture<Reply> future = commandFlusher.sendCommand(client, subCommand);
             incrRead(url, command);
+            indexesList.add(indexes);
             futures.add(future);
             if (ProxyMonitorCollector.isMonitorEnable()) {
                 UpstreamFailMonitor.stats(url, command, future);
@@ -956,18 +896,18 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
         }
         CompletableFuture<Reply> future = new CompletableFuture<>();
         CompletableFutureUtils.allOf(futures).thenAccept(replies -> {
-            Map<BytesKey, Reply> replyMap = new HashMap<>();
-            for (int i = 0; i < urlList.size(); i++) {
-                String url = urlList.get(i);
-                List<BytesKey> keyList = map.get(url);
+            Reply[] retReplies = new Reply[keyEnd - 1];
+            for (int i = 0; i < replies.size(); i++) {
+                List<Integer> indexes = indexesList.get(i);
                 Reply reply = replies.get(i);
                 if (reply instanceof MultiBulkReply) {
-                    MultiBulkReply multiBulkReply = (MultiBulkReply) reply;
-                    Reply[] subReplies = multiBulkReply.getReplies();
+                    Reply[] subReplies = ((MultiBulkReply) reply).getReplies();
+                    if (subReplies == null || subReplies.length != indexes.size()) {
+                        future.complete(ErrorReply.UPSTREAM_RESOURCE_NOT_AVAILABLE);
+                        return;
+                    }
                     for (int j = 0; j < subReplies.length; j++) {
-                        Reply subReply = subReplies[j];
-                        BytesKey redisKey = keyList.get(j);
-                        replyMap.put(redisKey, subReply);
+                        retReplies[indexes.get(j) - 1] = subReplies[j];
                     }
                 } else if (reply instanceof ErrorReply) {
                     future.complete(reply);
@@ -977,11 +917,6 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
                     return;
                 }
             }
-            Reply[] retReplies = new Reply[redisKeys.size()];
-            for (int i = 0; i < redisKeys.size(); i++) {
-                BytesKey redisKey = redisKeys.get(i);
-                retReplies[i] = replyMap.get(redisKey);
-            }
             future.complete(new MultiBulkReply(retReplies));
         });
         return future;
@@ -989,26 +924,43 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
 
     private CompletableFuture<Reply> delOrUnlinkOrTouch(Command command, UpstreamClientCommandFlusher commandFlusher) {
         byte[][] args = command.getObjects();
-        List<CompletableFuture<Reply>> futures = new ArrayList<>();
-        List<CompletableFuture<Reply>> allFutures = new ArrayList<>();
-        //拆成N个命令进行投递，不做聚合，因为如果分片逻辑下，可能某个resource同时为双写的第1个地址和第2个地址
+        //分片逻辑下，可能某个resource同时为双写的第1个地址和第2个地址，因此按照(双写的位置, url)进行分组聚合，
+        //只有第1个地址的回包会参与结果的合并
+        List<Map<String, List<byte[]>>> groups = new ArrayList<>(1);
         for (int i = 1; i < args.length; i++) {
             byte[] key = args[i];
             List<Resource> resources = resourceSelector.getWriteResources(key);
             for (int j = 0; j < resources.size(); j++) {
-                Resource resource = resources.get(j);
-                IUpstreamClient client = factory.get(resource.getUrl());
-                byte[][] subCommandArg = new byte[][]{args[0], key};
-                Command subCommand = new Command(subCommandArg);
+                if (groups.size() <= j) {
+                    groups.add(new LinkedHashMap<>());
+                }
+                Map<String, List<byte[]>> map = groups.get(j);
+                String url = resources.get(j).getUrl();
+                List<byte[]> list = map.get(url);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    list.add(args[0]);
+                    map.put(url, list);
+                }
+                list.add(key);
+            }
+        }
+        List<CompletableFuture<Reply>> futures = new ArrayList<>();
+        List<CompletableFuture<Reply>> allFutures = new ArrayList<>();
+        for (int j = 0; j < groups.size(); j++) {
+            for (Map.Entry<String, List<byte[]>> entry : groups.get(j).entrySet()) {
+                String url = entry.getKey();
+                IUpstreamClient client = factory.get(url);
+                Command subCommand = new Command(entry.getValue().toArray(new byte[0][0]));
                 subCommand.setChannelInfo(command.getChannelInfo());
                 CompletableFuture<Reply> future = commandFlusher.sendCommand(client, subCommand);
-                incrWrite(resource.getUrl(), command);
+                incrWrite(url, command);
                 if (j == 0) {
                     futures.add(future);
                 }
                 allFutures.add(future);
                 if (ProxyMonitorCollector.isMonitorEnable()) {
-                    UpstreamFailMonitor.stats(resource.getUrl(), command, future);
+                    UpstreamFailMonitor.stats(url, command, future);
                 }
             }
         }
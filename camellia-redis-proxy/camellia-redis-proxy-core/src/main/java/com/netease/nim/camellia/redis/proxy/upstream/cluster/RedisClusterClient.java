@@ -29,6 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Created by caojiajun on 2019/12/18.
@@ -164,9 +166,8 @@ public class RedisClusterClient implements IUpstreamClient {
         if (commands.size() == 1) {
             Command command = commands.get(0);
             if (isPassThroughCommand(command)) {
-                byte[][] args = command.getObjects();
-                if (args.length >= 2) {
-                    byte[] key = args[1];
+                if (command.getObjectsCount() >= 2) {
+                    byte[] key = command.getObject(1);
                     int slot = RedisClusterCRC16Utils.getSlot(key);
                     RedisConnection connection = getConnection(slot);
                     if (connection != null) {
@@ -288,7 +289,7 @@ public class RedisClusterClient implements IUpstreamClient {
                 boolean continueOk = false;
                 switch (redisCommand) {
                     case MGET: {
-                        int argLen = command.getObjects().length;
+                        int argLen = command.getObjectsCount();
                         int initializerSize = commandFlusher.getInitializerSize();
                         if (argLen > 2) {
                             if (argLen -1 > initializerSize) {
@@ -304,7 +305,7 @@ public class RedisClusterClient implements IUpstreamClient {
                     case UNLINK:
                     case TOUCH:
                     case DEL: {
-                        int argLen = command.getObjects().length;
+                        int argLen = command.getObjectsCount();
                         int initializerSize = commandFlusher.getInitializerSize();
                         if (argLen > 2) {
                             if (argLen -1 > initializerSize) {
@@ -317,7 +318,7 @@ public class RedisClusterClient implements IUpstreamClient {
                         break;
                     }
                     case MSET: {
-                        int argLen = command.getObjects().length;
+                        int argLen = command.getObjectsCount();
                         int keyCount = (argLen - 1) / 2;
                         int initializerSize = commandFlusher.getInitializerSize();
                         if (argLen > 3) {
@@ -331,7 +332,7 @@ public class RedisClusterClient implements IUpstreamClient {
                         break;
                     }
                     case JSON_MGET: {
-                        int argLen = command.getObjects().length;
+                        int argLen = command.getObjectsCount();
                         int keyCount = argLen - 2;
                         if (keyCount > 1) {
                             int initializerSize = commandFlusher.getInitializerSize();
@@ -348,11 +349,10 @@ public class RedisClusterClient implements IUpstreamClient {
                 if (continueOk) continue;
             }
 
-            byte[][] args = command.getObjects();
             int slot;
             byte[] key;
-            if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && args.length >= 2) {
-                key = args[1];
+            if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && command.getObjectsCount() >= 2) {
+                key = command.getObject(1);
                 slot = RedisClusterCRC16Utils.getSlot(key);
             } else {
                 List<byte[]> keys = command.getKeys();
@@ -759,80 +759,64 @@ public class RedisClusterClient implements IUpstreamClient {
 
     private void jsonMget(Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
         byte[][] args = command.getObjects();
-        List<CompletableFuture<Reply>> futureList = new ArrayList<>();
-
         byte[] path = args[args.length - 1];
-        for (int i = 1; i < args.length - 1; i++) {
-            byte[] key = args[i];
-            int slot = RedisClusterCRC16Utils.getSlot(key);
-            RedisConnection connection = getConnection(slot);
-            Command subCommand = new Command(new byte[][]{RedisCommand.JSON_MGET.raw(), key, path});
-            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
-            CompletableFutureWrapper futureWrapper = new CompletableFutureWrapper(this, subFuture, subCommand);
-            commandFlusher.sendCommand(connection, subCommand, futureWrapper);
-            futureList.add(subFuture);
-        }
-        if (futureList.size() == 1) {
-            CompletableFuture<Reply> completableFuture = futureList.get(0);
-            completableFuture.thenAccept(reply -> {
-                if (reply instanceof ErrorReply) {
-                    future.complete(reply);
-                } else {
-                    future.complete(new MultiBulkReply(new Reply[]{reply}));
+        Map<Integer, List<Integer>> slotMap = groupBySlot(args, 1, args.length - 1, 1);
+        List<List<Integer>> indexesList = new ArrayList<>(slotMap.size());
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(slotMap.size());
+        for (Map.Entry<Integer, List<Integer>> entry : slotMap.entrySet()) {
+            int slot = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            byte[][] subArgs = new byte[indexes.size() + 2][];
+            subArgs[0] = RedisCommand.JSON_MGET.raw();
+            for (int i = 0; i < indexes.size(); i++) {
+                subArgs[i + 1] = args[indexes.get(i)];
+            }
+            subArgs[subArgs.length - 1] = path;
+            CompletableFuture<Reply> subFuture = sendBySlot(commandFlusher, slot, new Command(subArgs), () -> {
+                List<Command> commands = new ArrayList<>(indexes.size());
+                for (int index : indexes) {
+                    commands.add(new Command(new byte[][]{RedisCommand.JSON_MGET.raw(), args[index], path}));
                 }
-            });
-            return;
+                return commands;
+            }, RedisClusterClient::mergeMultiBulkReply);
+            indexesList.add(indexes);
+            futureList.add(subFuture);
         }
-        CompletableFutureUtils.allOf(futureList).thenAccept(replies -> {
-            Reply[] retRelies = new Reply[replies.size()];
-            for (int i = 0; i < replies.size(); i++) {
-                retRelies[i] = replies.get(i);
-                if (retRelies[i] instanceof ErrorReply) {
-                    future.complete(retRelies[i]);
-                    return;
-                }
-            }
-            future.complete(new MultiBulkReply(retRelies));
-        });
+        scatterMultiBulkReply(args.length - 2, indexesList, futureList, future);
     }
 
     private void mget(Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
         byte[][] args = command.getObjects();
-        List<CompletableFuture<Reply>> futureList = new ArrayList<>();
-
-        for (int i = 1; i < args.length; i++) {
-            byte[] key = args[i];
-            int slot = RedisClusterCRC16Utils.getSlot(key);
-            RedisConnection connection = getConnection(slot);
-            Command subCommand = new Command(new byte[][]{RedisCommand.GET.raw(), key});
-
-            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
-            CompletableFutureWrapper futureWrapper = new CompletableFutureWrapper(this, subFuture, subCommand);
-            commandFlusher.sendCommand(connection, subCommand, futureWrapper);
-            futureList.add(subFuture);
-        }
-        if (futureList.size() == 1) {
-            CompletableFuture<Reply> completableFuture = futureList.get(0);
-            completableFuture.thenAccept(reply -> {
-                if (reply instanceof ErrorReply) {
-                    future.complete(reply);
-                } else {
-                    future.complete(new MultiBulkReply(new Reply[]{reply}));
-                }
-            });
-            return;
-        }
-        CompletableFutureUtils.allOf(futureList).thenAccept(replies -> {
-            Reply[] retRelies = new Reply[replies.size()];
-            for (int i = 0; i < replies.size(); i++) {
-                retRelies[i] = replies.get(i);
-                if (retRelies[i] instanceof ErrorReply) {
-                    future.complete(retRelies[i]);
-                    return;
+        Map<Integer, List<Integer>> slotMap = groupBySlot(args, 1, args.length, 1);
+        List<List<Integer>> indexesList = new ArrayList<>(slotMap.size());
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(slotMap.size());
+        for (Map.Entry<Integer, List<Integer>> entry : slotMap.entrySet()) {
+            int slot = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            CompletableFuture<Reply> subFuture;
+            if (indexes.size() == 1) {
+                Command subCommand = new Command(new byte[][]{RedisCommand.GET.raw(), args[indexes.get(0)]});
+                CompletableFuture<Reply> getFuture = sendBySlot(commandFlusher, slot, subCommand);
+                subFuture = new CompletableFuture<>();
+                getFuture.thenAccept(reply -> subFuture.complete(reply instanceof ErrorReply ? reply : new MultiBulkReply(new Reply[]{reply})));
+            } else {
+                byte[][] subArgs = new byte[indexes.size() + 1][];
+                subArgs[0] = RedisCommand.MGET.raw();
+                for (int i = 0; i < indexes.size(); i++) {
+                    subArgs[i + 1] = args[indexes.get(i)];
                 }
+                subFuture = sendBySlot(commandFlusher, slot, new Command(subArgs), () -> {
+                    List<Command> commands = new ArrayList<>(indexes.size());
+                    for (int index : indexes) {
+                        commands.add(new Command(new byte[][]{RedisCommand.GET.raw(), args[index]}));
+                    }
+                    return commands;
+                }, replies -> mergeMultiBulkReply(wrapMultiBulkReply(replies)));
             }
-            future.complete(new MultiBulkReply(retRelies));
-        });
+            indexesList.add(indexes);
+            futureList.add(subFuture);
+        }
+        scatterMultiBulkReply(args.length - 1, indexesList, futureList, future);
     }
 
     private void mset(Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
@@ -841,22 +825,34 @@ public class RedisClusterClient implements IUpstreamClient {
             future.complete(new ErrorReply("wrong number of arguments for 'mset' command"));
             return;
         }
-        List<CompletableFuture<Reply>> futureList = new ArrayList<>();
-        for (int i = 1; i < args.length; i++, i++) {
-            byte[] key = args[i];
-            byte[] value = args[i + 1];
-            int slot = RedisClusterCRC16Utils.getSlot(key);
-            RedisConnection connection = getConnection(slot);
-            Command subCommand = new Command(new byte[][]{RedisCommand.SET.raw(), key, value});
-
-            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
-            CompletableFutureWrapper futureWrapper = new CompletableFutureWrapper(this, subFuture, subCommand);
-            commandFlusher.sendCommand(connection, subCommand, futureWrapper);
-            futureList.add(subFuture);
+        Map<Integer, List<Integer>> slotMap = groupBySlot(args, 1, args.length, 2);
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(slotMap.size());
+        for (Map.Entry<Integer, List<Integer>> entry : slotMap.entrySet()) {
+            int slot = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            if (indexes.size() == 1) {
+                int index = indexes.get(0);
+                Command subCommand = new Command(new byte[][]{RedisCommand.SET.raw(), args[index], args[index + 1]});
+                futureList.add(sendBySlot(commandFlusher, slot, subCommand));
+            } else {
+                byte[][] subArgs = new byte[indexes.size() * 2 + 1][];
+                subArgs[0] = RedisCommand.MSET.raw();
+                for (int i = 0; i < indexes.size(); i++) {
+                    int index = indexes.get(i);
+                    subArgs[i * 2 + 1] = args[index];
+                    subArgs[i * 2 + 2] = args[index + 1];
+                }
+                futureList.add(sendBySlot(commandFlusher, slot, new Command(subArgs), () -> {
+                    List<Command> commands = new ArrayList<>(indexes.size());
+                    for (int index : indexes) {
+                        commands.add(new Command(new byte[][]{RedisCommand.SET.raw(), args[index], args[index + 1]}));
+                    }
+                    return commands;
+                }, Utils::mergeStatusReply));
+            }
         }
         if (futureList.size() == 1) {
-            CompletableFuture<Reply> completableFuture = futureList.get(0);
-            completableFuture.thenAccept(future::complete);
+            futureList.get(0).thenAccept(future::complete);
             return;
         }
         CompletableFutureUtils.allOf(futureList).thenAccept(replies -> future.complete(Utils.mergeStatusReply(replies)));
@@ -864,26 +860,158 @@ public class RedisClusterClient implements IUpstreamClient {
 
     private void simpleIntegerReplyMerge(Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
         byte[][] args = command.getObjects();
-        List<CompletableFuture<Reply>> futureList = new ArrayList<>();
-        for (int i = 1; i < args.length; i++) {
-            byte[] key = args[i];
-            int slot = RedisClusterCRC16Utils.getSlot(key);
-            RedisConnection connection = getConnection(slot);
-            Command subCommand = new Command(new byte[][]{args[0], key});
-
-            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
-            CompletableFutureWrapper futureWrapper = new CompletableFutureWrapper(this, subFuture, subCommand);
-            commandFlusher.sendCommand(connection, subCommand, futureWrapper);
-            futureList.add(subFuture);
+        Map<Integer, List<Integer>> slotMap = groupBySlot(args, 1, args.length, 1);
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(slotMap.size());
+        for (Map.Entry<Integer, List<Integer>> entry : slotMap.entrySet()) {
+            int slot = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            if (indexes.size() == 1) {
+                Command subCommand = new Command(new byte[][]{args[0], args[indexes.get(0)]});
+                futureList.add(sendBySlot(commandFlusher, slot, subCommand));
+            } else {
+                byte[][] subArgs = new byte[indexes.size() + 1][];
+                subArgs[0] = args[0];
+                for (int i = 0; i < indexes.size(); i++) {
+                    subArgs[i + 1] = args[indexes.get(i)];
+                }
+                futureList.add(sendBySlot(commandFlusher, slot, new Command(subArgs), () -> {
+                    List<Command> commands = new ArrayList<>(indexes.size());
+                    for (int index : indexes) {
+                        commands.add(new Command(new byte[][]{args[0], args[index]}));
+                    }
+                    return commands;
+                }, Utils::mergeIntegerReply));
+            }
         }
         if (futureList.size() == 1) {
-            CompletableFuture<Reply> completableFuture = futureList.get(0);
-            completableFuture.thenAccept(future::complete);
+            futureList.get(0).thenAccept(future::complete);
             return;
         }
         CompletableFutureUtils.allOf(futureList).thenAccept(replies -> future.complete(Utils.mergeIntegerReply(replies)));
     }
 
+    /**
+     * 按slot对key进行分组，并记录每个key在原始命令中的下标，分组的顺序和key第一次出现的顺序一致
+     * @param args args of command
+     * @param start index of first key
+     * @param end end index (exclusive)
+     * @param step step between keys, such as 2 for mset
+     * @return slot -> indexes of keys
+     */
+    private static Map<Integer, List<Integer>> groupBySlot(byte[][] args, int start, int end, int step) {
+        Map<Integer, List<Integer>> map = new LinkedHashMap<>();
+        for (int i = start; i < end; i += step) {
+            int slot = RedisClusterCRC16Utils.getSlot(args[i]);
+            List<Integer> indexes = map.get(slot);
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                map.put(slot, indexes);
+            }
+            indexes.add(i);
+        }
+        return map;
+    }
+
+    private CompletableFuture<Reply> sendBySlot(RedisConnectionCommandFlusher commandFlusher, int slot, Command subCommand) {
+        RedisConnection connection = getConnection(slot);
+        CompletableFuture<Reply> subFuture = new CompletableFuture<>();
+        commandFlusher.sendCommand(connection, subCommand, new CompletableFutureWrapper(this, subFuture, subCommand));
+        return subFuture;
+    }
+
+    /**
+     * 发送同一个slot的多key命令，如果slot正在迁移中导致返回TRYAGAIN，则退化为逐个key发送
+     */
+    private CompletableFuture<Reply> sendBySlot(RedisConnectionCommandFlusher commandFlusher, int slot, Command subCommand,
+                                                Supplier<List<Command>> singleKeyCommands, Function<List<Reply>, Reply> merger) {
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        sendBySlot(commandFlusher, slot, subCommand).thenAccept(reply -> {
+            if (reply instanceof ErrorReply && ((ErrorReply) reply).getError().startsWith("TRYAGAIN")) {
+                ErrorLogCollector.collect(RedisClusterClient.class, "TRYAGAIN, command = " + subCommand.getName() + ", slot = " + slot + ", fallback to single key commands");
+                RedisConnection connection = getConnection(slot);
+                if (connection == null) {
+                    future.complete(reply);
+                    return;
+                }
+                List<Command> commands = singleKeyCommands.get();
+                List<CompletableFuture<Reply>> futures = new ArrayList<>(commands.size());
+                List<CompletableFuture<Reply>> wrappers = new ArrayList<>(commands.size());
+                for (Command command : commands) {
+                    CompletableFuture<Reply> f = new CompletableFuture<>();
+                    futures.add(f);
+                    wrappers.add(new CompletableFutureWrapper(this, f, command));
+                }
+                connection.sendCommand(commands, wrappers);
+                CompletableFutureUtils.allOf(futures).thenAccept(replies -> future.complete(merger.apply(replies)));
+            } else {
+                future.complete(reply);
+            }
+        });
+        return future;
+    }
+
+    private static List<Reply> wrapMultiBulkReply(List<Reply> replies) {
+        List<Reply> list = new ArrayList<>(replies.size());
+        for (Reply reply : replies) {
+            list.add(reply instanceof ErrorReply ? reply : new MultiBulkReply(new Reply[]{reply}));
+        }
+        return list;
+    }
+
+    private static Reply mergeMultiBulkReply(List<Reply> replies) {
+        Reply[] retReplies = new Reply[replies.size()];
+        for (int i = 0; i < replies.size(); i++) {
+            Reply reply = replies.get(i);
+            if (reply instanceof MultiBulkReply) {
+                Reply[] subReplies = ((MultiBulkReply) reply).getReplies();
+                if (subReplies == null || subReplies.length != 1) {
+                    return ErrorReply.NOT_AVAILABLE;
+                }
+                retReplies[i] = subReplies[0];
+            } else if (reply instanceof ErrorReply) {
+                return reply;
+            } else {
+                return ErrorReply.NOT_AVAILABLE;
+            }
+        }
+        return new MultiBulkReply(retReplies);
+    }
+
+    /**
+     * 把按slot分组后的回包，按照key在原始命令中的顺序重新组装
+     */
+    private static void scatterMultiBulkReply(int keyCount, List<List<Integer>> indexesList,
+                                              List<CompletableFuture<Reply>> futureList, CompletableFuture<Reply> future) {
+        if (futureList.size() == 1) {
+            futureList.get(0).thenAccept(future::complete);
+            return;
+        }
+        CompletableFutureUtils.allOf(futureList).thenAccept(replies -> {
+            Reply[] retReplies = new Reply[keyCount];
+            for (int i = 0; i < replies.size(); i++) {
+                Reply reply = replies.get(i);
+                List<Integer> indexes = indexesList.get(i);
+                if (reply instanceof MultiBulkReply) {
+                    Reply[] subReplies = ((MultiBulkReply) reply).getReplies();
+                    if (subReplies == null || subReplies.length != indexes.size()) {
+                        future.complete(ErrorReply.NOT_AVAILABLE);
+                        return;
+                    }
+                    for (int j = 0; j < subReplies.length; j++) {
+                        retReplies[indexes.get(j) - 1] = subReplies[j];
+                    }
+                } else if (reply instanceof ErrorReply) {
+                    future.complete(reply);
+                    return;
+                } else {
+                    future.complete(ErrorReply.NOT_AVAILABLE);
+                    return;
+                }
+            }
+            future.complete(new MultiBulkReply(retReplies));
+        });
+    }
+
     private void blockingCommand(int slot, Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
         if (slot < 0) {
             future.complete(new ErrorReply("CROSSSLOT Keys in request don't hash to the same slot"));
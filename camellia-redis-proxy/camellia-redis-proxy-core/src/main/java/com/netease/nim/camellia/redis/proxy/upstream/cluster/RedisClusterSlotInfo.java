@@ -9,6 +9,7 @@ import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.upstream.utils.LatencyAwareReplicaSelector;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
 import com.netease.nim.camellia.redis.proxy.reply.*;
@@ -478,6 +479,12 @@ public class RedisClusterSlotInfo {
             if (masterNode == null) {
                 return selectSlavesNode(slaves);
             }
+            if (LatencyAwareReplicaSelector.isEnable()) {
+                Node node = LatencyAwareReplicaSelector.select(masterNode, slaves, Node::getAddr);
+                if (node != null) {
+                    return node;
+                }
+            }
             int maxLoop = slaves.size() + 1;
             int index = ThreadLocalRandom.current().nextInt(maxLoop);
             for (int i=0; i<maxLoop; i++) {
@@ -523,6 +530,12 @@ public class RedisClusterSlotInfo {
         if (slaves == null || slaves.isEmpty()) return null;
         if (slaves.size() == 1) return slaves.get(0);
         try {
+            if (LatencyAwareReplicaSelector.isEnable()) {
+                Node node = LatencyAwareReplicaSelector.select(null, slaves, Node::getAddr);
+                if (node != null) {
+                    return node;
+                }
+            }
             int maxLoop = slaves.size();
             int index = ThreadLocalRandom.current().nextInt(maxLoop);
             for (int i=0; i<maxLoop; i++) {
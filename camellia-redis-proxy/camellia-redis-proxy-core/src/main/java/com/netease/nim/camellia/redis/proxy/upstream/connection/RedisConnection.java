@@ -10,6 +10,8 @@ import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
 import com.netease.nim.camellia.redis.proxy.monitor.RedisConnectionMonitor;
 import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
 import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
+import com.netease.nim.camellia.redis.proxy.upstream.utils.LatencyAwareReplicaSelector;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
 import com.netease.nim.camellia.redis.proxy.util.TimeCache;
@@ -79,6 +81,15 @@ public class RedisConnection {
 
     private final CommandPackRecycler commandPackRecycler;
 
+    //合并写入，以下字段只在eventLoop线程中访问
+    private final WriteCoalesceConf writeCoalesceConf;
+    private final Runnable coalesceFlushTask = this::coalesceFlush;
+    private int pendingFlushCommands;
+    private boolean coalesceFlushScheduled;
+
+    //同一个eventLoop下到同一个后端的其他连接，为null表示不使用连接池
+    private volatile RedisConnectionPool pool;
+
     public RedisConnection(RedisConnectionConfig config) {
         this.config = config;
         this.host = config.getHost();
@@ -89,6 +100,7 @@ public class RedisConnection {
         this.addr = new RedisConnectionAddr(host, port, userName, password, config.isReadonly(), config.getDb(), false);
         this.eventLoop = config.getEventLoop();
         this.commandPackRecycler = new CommandPackRecycler(eventLoop);
+        this.writeCoalesceConf = config.getWriteCoalesceConf();
         this.heartbeatIntervalSeconds = config.getHeartbeatIntervalSeconds();
         this.heartbeatTimeoutMillis = config.getHeartbeatTimeoutMillis();
         this.connectTimeoutMillis = config.getConnectTimeoutMillis();
@@ -245,6 +257,22 @@ public class RedisConnection {
         return queue.size() + cachedCommands.size();
     }
 
+    /**
+     * 获取连接池
+     * @return 连接池，可能为null
+     */
+    public RedisConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * 设置连接池，之后发送的命令会以批为单位在池中的连接之间选择
+     * @param pool 连接池，为null表示不使用连接池
+     */
+    public void setPool(RedisConnectionPool pool) {
+        this.pool = pool;
+    }
+
     /**
      * 清空queue
      */
@@ -293,6 +321,24 @@ public class RedisConnection {
      * @param completableFutureList future list
      */
     public void sendCommand(List<Command> commands, List<CompletableFuture<Reply>> completableFutureList) {
+        RedisConnectionPool pool = this.pool;
+        if (pool != null && !commands.isEmpty()) {
+            pool.sendCommand(this, commands, completableFutureList);
+            //主连接负责连接池的生命周期，不能因为命令都走了其他连接而被判定为空闲
+            if (closeIdleConnection) {
+                lastCommandTime = TimeCache.currentMillis;
+            }
+            return;
+        }
+        sendCommandDirect(commands, completableFutureList);
+    }
+
+    /**
+     * 不经过连接池，直接在本连接上发送
+     * @param commands commands
+     * @param completableFutureList future list
+     */
+    void sendCommandDirect(List<Command> commands, List<CompletableFuture<Reply>> completableFutureList) {
         if (status == RedisConnectionStatus.INVALID) {
             String log = connectionName + " is " + status + ", command return NOT_AVAILABLE";
             for (CompletableFuture<Reply> future : completableFutureList) {
@@ -301,6 +347,17 @@ public class RedisConnection {
             }
             return;
         }
+        //记录命令的上游节点，用于CLIENT TRACKING的失效消息按路由推送
+        ClientTrackingManager.route(addr, commands);
+        //keep the zero-copy decoded args alive until CommandPackEncoder encode it
+        if (!retainCommands(commands)) {
+            String log = connectionName + ", command args already released, command return NOT_AVAILABLE";
+            for (CompletableFuture<Reply> future : completableFutureList) {
+                future.complete(ErrorReply.NOT_AVAILABLE);
+                ErrorLogCollector.collect(RedisConnection.class, log);
+            }
+            return;
+        }
         CommandPack pack = commandPackRecycler.newInstance(commands, completableFutureList, time());
         if (logger.isDebugEnabled()) {
             List<String> commandNames = new ArrayList<>();
@@ -310,14 +367,15 @@ public class RedisConnection {
             logger.debug("{} receive commands, commands.size = {}, commands = {}", connectionName, commands.size(), commandNames);
         }
         if (status == RedisConnectionStatus.VALID || status == RedisConnectionStatus.CLOSING) {
-            channel.writeAndFlush(pack);
+            write(pack);
         } else if (status == RedisConnectionStatus.INITIALIZE) {
             synchronized (cachedCommands) {
                 if (status == RedisConnectionStatus.VALID || status == RedisConnectionStatus.CLOSING) {
-                    channel.writeAndFlush(pack);
+                    write(pack);
                 } else if (status == RedisConnectionStatus.INITIALIZE) {
                     boolean success = cachedCommands.offer(pack);
                     if (!success) {
+                        releaseCommands(commands);
                         String log = connectionName + ", cachedCommands queue is full, command return NOT_AVAILABLE";
                         for (CompletableFuture<Reply> future : completableFutureList) {
                             future.complete(ErrorReply.UPSTREAM_CONNECTION_CACHED_QUEUE_FULL);
@@ -325,6 +383,7 @@ public class RedisConnection {
                         }
                     }
                 } else {
+                    releaseCommands(commands);
                     String log = connectionName + " is " + status + ", command return NOT_AVAILABLE";
                     for (CompletableFuture<Reply> future : completableFutureList) {
                         future.complete(ErrorReply.UPSTREAM_CONNECTION_STATUS_INVALID);
@@ -333,6 +392,7 @@ public class RedisConnection {
                 }
             }
         } else {
+            releaseCommands(commands);
             String log = connectionName + " is " + status + ", command return NOT_AVAILABLE";
             for (CompletableFuture<Reply> future : completableFutureList) {
                 future.complete(ErrorReply.UPSTREAM_CONNECTION_STATUS_INVALID);
@@ -348,6 +408,47 @@ public class RedisConnection {
         return addr.getUrl();
     }
 
+    //写入命令，开启合并写入时，同一个eventLoop本轮任务中的多次写入（通常来自多个客户端连接）只flush一次
+    private void write(CommandPack pack) {
+        WriteCoalesceConf conf = writeCoalesceConf;
+        if (conf == null || !conf.isEnable()) {
+            channel.writeAndFlush(pack);
+            return;
+        }
+        if (eventLoop.inEventLoop()) {
+            coalesceWrite(pack, conf);
+        } else {
+            eventLoop.execute(() -> coalesceWrite(pack, conf));
+        }
+    }
+
+    private void coalesceWrite(CommandPack pack, WriteCoalesceConf conf) {
+        int size = pack.getCommands().size();
+        channel.write(pack);
+        pendingFlushCommands += size;
+        if (pendingFlushCommands >= conf.getMaxBatchSize()) {
+            coalesceFlush();
+            return;
+        }
+        if (!coalesceFlushScheduled) {
+            coalesceFlushScheduled = true;
+            long delayMicros = conf.getMaxDelayMicros();
+            if (delayMicros > 0) {
+                eventLoop.schedule(coalesceFlushTask, delayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                eventLoop.execute(coalesceFlushTask);
+            }
+        }
+    }
+
+    private void coalesceFlush() {
+        coalesceFlushScheduled = false;
+        if (pendingFlushCommands > 0) {
+            pendingFlushCommands = 0;
+            channel.flush();
+        }
+    }
+
     //初始化
     private void initialize() {
         try {
@@ -469,6 +570,11 @@ public class RedisConnection {
                 logger.warn("{} stopping, grace = {}", connectionName, false);
             }
         }
+        RedisConnectionPool pool = this.pool;
+        if (pool != null) {
+            this.pool = null;
+            pool.stop();
+        }
         try {
             status = RedisConnectionStatus.INVALID;
             closeChannel();
@@ -486,6 +592,7 @@ public class RedisConnection {
             while (!cachedCommands.isEmpty()) {
                 CommandPack commandPack = cachedCommands.poll();
                 if (commandPack != null) {
+                    releaseCommands(commandPack.getCommands());
                     for (CompletableFuture<Reply> future : commandPack.getCompletableFutureList()) {
                         future.complete(ErrorReply.UPSTREAM_CONNECTION_NOT_AVAILABLE);
                         count2 ++;
@@ -615,8 +722,30 @@ public class RedisConnection {
         }
     }
 
+    //有command已经被release时，回滚已经retain的command，返回false
+    private boolean retainCommands(List<Command> commands) {
+        for (int i=0; i<commands.size(); i++) {
+            try {
+                commands.get(i).retain();
+            } catch (IllegalStateException e) {
+                for (int j=0; j<i; j++) {
+                    commands.get(j).release();
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void releaseCommands(List<Command> commands) {
+        for (Command command : commands) {
+            command.release();
+        }
+    }
+
     //直接发送命令，不检查连接状态
     private void sendCommandDirect(Command command, CompletableFuture<Reply> future) {
+        command.retain();
         CommandPack pack = commandPackRecycler.newInstance(Collections.singletonList(command), Collections.singletonList(future), time());
         channel.writeAndFlush(pack);
     }
@@ -733,9 +862,10 @@ public class RedisConnection {
         }
     }
 
-    //获取当前时间（ns）
+    //获取当前时间（ns），上游耗时监控和基于延迟的副本选择都需要
     private long time() {
-        if (ProxyMonitorCollector.isUpstreamRedisSpendTimeMonitorEnable() && !config.isSkipCommandSpendTimeMonitor()) {
+        if ((ProxyMonitorCollector.isUpstreamRedisSpendTimeMonitorEnable() || LatencyAwareReplicaSelector.isEnable())
+                && !config.isSkipCommandSpendTimeMonitor()) {
             return System.nanoTime();
         } else {
             return -1;
@@ -33,6 +33,7 @@ public class RedisConnectionConfig {
     private int writeBufferWaterMarkHigh;
 
     private FastFailStats fastFailStats;
+    private WriteCoalesceConf writeCoalesceConf;
 
     public String getHost() {
         return host;
@@ -209,4 +210,12 @@ public class RedisConnectionConfig {
     public void setFastFailStats(FastFailStats fastFailStats) {
         this.fastFailStats = fastFailStats;
     }
+
+    public WriteCoalesceConf getWriteCoalesceConf() {
+        return writeCoalesceConf;
+    }
+
+    public void setWriteCoalesceConf(WriteCoalesceConf writeCoalesceConf) {
+        this.writeCoalesceConf = writeCoalesceConf;
+    }
 }
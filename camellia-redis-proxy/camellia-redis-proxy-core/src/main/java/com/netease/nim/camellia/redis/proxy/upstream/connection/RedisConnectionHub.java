@@ -7,6 +7,7 @@ import com.netease.nim.camellia.tools.utils.LockMap;
 import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
 import com.netease.nim.camellia.redis.proxy.conf.Constants;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
 import com.netease.nim.camellia.redis.proxy.netty.GlobalRedisProxyEnv;
 import com.netease.nim.camellia.redis.proxy.util.*;
@@ -21,7 +22,9 @@ import io.netty.util.concurrent.FastThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -45,6 +48,11 @@ public class RedisConnectionHub {
     private final FastThreadLocal<EventLoop> eventLoopThreadLocal = new FastThreadLocal<>();
 
     private FastFailStats fastFailStats;
+    private final RedisConnectionPoolConf poolConf = new RedisConnectionPoolConf(Constants.Transpond.redisConnectionPoolSize,
+            RedisConnectionPoolConf.Policy.LEAST_OUTSTANDING, parseCommands(Constants.Transpond.redisConnectionPoolLargeReplyCommands),
+            Constants.Transpond.redisConnectionPoolLargeReplyMultiKeys, Constants.Transpond.redisConnectionPoolLargeReplyConnections);
+    private final WriteCoalesceConf writeCoalesceConf = new WriteCoalesceConf(Constants.Transpond.writeCoalesceEnable,
+            Constants.Transpond.writeCoalesceMaxBatchSize, Constants.Transpond.writeCoalesceMaxDelayMicros);
 
     private int heartbeatIntervalSeconds = Constants.Transpond.heartbeatIntervalSeconds;
     private long heartbeatTimeoutMillis = Constants.Transpond.heartbeatTimeoutMillis;
@@ -116,6 +124,11 @@ public class RedisConnectionHub {
 
         ProxyDynamicConf.registerCallback(this::reloadConf);
         reloadConf();
+        ExecutorUtils.scheduleAtFixedRate(this::checkPools, 5, 5, TimeUnit.SECONDS);
+    }
+
+    public boolean isInit() {
+        return init.get();
     }
 
     /**
@@ -288,6 +301,75 @@ public class RedisConnectionHub {
         return set;
     }
 
+    //检查所有主连接的连接池，连接数和配置不一致或者有不可用的连接时，重建连接池
+    private synchronized void checkPools() {
+        try {
+            for (Map.Entry<EventLoop, ConcurrentHashMap<String, RedisConnection>> entry : eventLoopMap.entrySet()) {
+                for (RedisConnection connection : entry.getValue().values()) {
+                    checkPool(connection, entry.getKey());
+                }
+            }
+            for (RedisConnection connection : map.values()) {
+                checkPool(connection, connection.getConfig().getEventLoop());
+            }
+        } catch (Exception e) {
+            logger.error("check redis connection pools error", e);
+        }
+    }
+
+    private void checkPool(RedisConnection primary, EventLoop eventLoop) {
+        int size = poolConf.getSize();
+        RedisConnectionPool pool = primary.getPool();
+        if (!primary.isValid() || size <= 1) {
+            if (pool != null) {
+                primary.setPool(null);
+                pool.stop();
+                logger.info("redis connection pool disabled, connection = {}", primary.getConnectionName());
+            }
+            return;
+        }
+        if (pool != null && pool.size() == size && pool.isAllValid()) {
+            return;
+        }
+        List<RedisConnection> members = new ArrayList<>();
+        List<RedisConnection> removed = new ArrayList<>();
+        if (pool != null) {
+            for (RedisConnection member : pool.getMembers()) {
+                if (member.isValid() && members.size() < size - 1) {
+                    members.add(member);
+                } else {
+                    removed.add(member);
+                }
+            }
+        }
+        RedisConnectionAddr addr = new RedisConnectionAddr(primary.getConfig().getHost(), primary.getConfig().getPort(),
+                primary.getConfig().getUserName(), primary.getConfig().getPassword(), primary.getConfig().isReadonly(), primary.getConfig().getDb(), false);
+        while (members.size() < size - 1) {
+            RedisConnection connection = initRedisConnection(eventLoop, addr, true, false, false);
+            if (!connection.isValid()) {
+                connection.stop();
+                break;
+            }
+            members.add(connection);
+        }
+        primary.setPool(members.isEmpty() ? null : new RedisConnectionPool(members, poolConf, pool));
+        if (!removed.isEmpty()) {
+            new RedisConnectionPool(removed, poolConf).stop();
+        }
+        logger.info("redis connection pool update, connection = {}, size = {}", primary.getConnectionName(), members.size() + 1);
+    }
+
+    private static Set<RedisCommand> parseCommands(String str) {
+        Set<RedisCommand> set = new HashSet<>();
+        for (String name : str.split(",")) {
+            RedisCommand redisCommand = RedisCommand.getRedisCommandByName(name.trim().toLowerCase());
+            if (redisCommand != null) {
+                set.add(redisCommand);
+            }
+        }
+        return set;
+    }
+
     //初始化一个连接，初始化完成后会放入map，会做并发控制，map中只有一个实例
     private RedisConnection initRedisConnection(ConcurrentHashMap<String, RedisConnection> map, LockMap lockMap,
                                                 EventLoop eventLoop, RedisConnectionAddr addr) {
@@ -343,6 +425,7 @@ public class RedisConnectionHub {
         config.setWriteBufferWaterMarkLow(writeBufferWaterMarkLow);
         config.setWriteBufferWaterMarkHigh(writeBufferWaterMarkHigh);
         config.setFastFailStats(fastFailStats);
+        config.setWriteCoalesceConf(writeCoalesceConf);
         RedisConnection connection = new RedisConnection(config);
         connection.start();
         return connection;
@@ -359,5 +442,38 @@ public class RedisConnectionHub {
             logger.info("RedisConnectionHub failCountThreshold, {} -> {}", fastFailStats.getFailCountThreshold(), failCountThreshold);
             fastFailStats.setFailCountThreshold(failCountThreshold);
         }
+        int poolSize = ProxyDynamicConf.getInt("redis.connection.pool.size", Constants.Transpond.redisConnectionPoolSize);
+        RedisConnectionPoolConf.Policy policy = RedisConnectionPoolConf.Policy.getByName(
+                ProxyDynamicConf.getString("redis.connection.pool.select.policy", RedisConnectionPoolConf.Policy.LEAST_OUTSTANDING.name()));
+        if (policy == null) {
+            policy = RedisConnectionPoolConf.Policy.LEAST_OUTSTANDING;
+        }
+        Set<RedisCommand> largeReplyCommands = parseCommands(ProxyDynamicConf.getString("redis.connection.pool.large.reply.commands",
+                Constants.Transpond.redisConnectionPoolLargeReplyCommands));
+        int largeReplyMultiKeys = ProxyDynamicConf.getInt("redis.connection.pool.large.reply.multi.keys", Constants.Transpond.redisConnectionPoolLargeReplyMultiKeys);
+        int largeReplyConnections = ProxyDynamicConf.getInt("redis.connection.pool.large.reply.connections", Constants.Transpond.redisConnectionPoolLargeReplyConnections);
+        if (poolSize != poolConf.getSize() || policy != poolConf.getPolicy() || !largeReplyCommands.equals(poolConf.getLargeReplyCommands())
+                || largeReplyMultiKeys != poolConf.getLargeReplyMultiKeys() || largeReplyConnections != poolConf.getLargeReplyConnections()) {
+            boolean sizeChanged = poolSize != poolConf.getSize();
+            poolConf.setSize(poolSize);
+            poolConf.setPolicy(policy);
+            poolConf.setLargeReplyCommands(largeReplyCommands);
+            poolConf.setLargeReplyMultiKeys(largeReplyMultiKeys);
+            poolConf.setLargeReplyConnections(largeReplyConnections);
+            logger.info("RedisConnectionHub, {}", poolConf);
+            if (sizeChanged && init.get()) {
+                ExecutorUtils.submitToSingleThreadExecutor(this::checkPools);
+            }
+        }
+        boolean writeCoalesceEnable = ProxyDynamicConf.getBoolean("redis.connection.write.coalesce.enable", Constants.Transpond.writeCoalesceEnable);
+        int writeCoalesceMaxBatchSize = ProxyDynamicConf.getInt("redis.connection.write.coalesce.max.batch.size", Constants.Transpond.writeCoalesceMaxBatchSize);
+        long writeCoalesceMaxDelayMicros = ProxyDynamicConf.getLong("redis.connection.write.coalesce.max.delay.micros", Constants.Transpond.writeCoalesceMaxDelayMicros);
+        if (writeCoalesceEnable != writeCoalesceConf.isEnable() || writeCoalesceMaxBatchSize != writeCoalesceConf.getMaxBatchSize()
+                || writeCoalesceMaxDelayMicros != writeCoalesceConf.getMaxDelayMicros()) {
+            writeCoalesceConf.setEnable(writeCoalesceEnable);
+            writeCoalesceConf.setMaxBatchSize(writeCoalesceMaxBatchSize);
+            writeCoalesceConf.setMaxDelayMicros(writeCoalesceMaxDelayMicros);
+            logger.info("RedisConnectionHub, {}", writeCoalesceConf);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.netease.nim.camellia.redis.proxy.upstream.connection;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一个eventLoop下，到同一个后端的多个连接
+ * 主连接（RedisConnectionHub中缓存的连接）持有本对象，发送命令时以一批命令为单位选择实际使用的连接，一批命令内部的顺序不会被打乱
+ * 一个客户端在某个连接上还有未回包的命令时，后续的命令会固定发往该连接（pin），保证同一个客户端的命令在后端按照发送顺序执行
+ * 只有客户端的命令全部回包之后，才会重新选择连接
+ * Created by agent on 2026/10/18
+ */
+public class RedisConnectionPool {
+
+    private final RedisConnection[] members;//不包括主连接
+    private final RedisConnectionPoolConf conf;
+    //client -> connection which has outstanding commands of the client
+    private final ConcurrentHashMap<ChannelInfo, Pin> pins;
+
+    public RedisConnectionPool(List<RedisConnection> members, RedisConnectionPoolConf conf) {
+        this(members, conf, null);
+    }
+
+    /**
+     * @param previous 扩缩容前的连接池，会沿用其pin的关系，被移除的连接会延迟关闭，期间仍可以发送已经pin住的客户端的命令
+     */
+    public RedisConnectionPool(List<RedisConnection> members, RedisConnectionPoolConf conf, RedisConnectionPool previous) {
+        this.members = members.toArray(new RedisConnection[0]);
+        this.conf = conf;
+        this.pins = previous == null ? new ConcurrentHashMap<>() : previous.pins;
+    }
+
+    /**
+     * 连接数，包括主连接
+     * @return size
+     */
+    public int size() {
+        return members.length + 1;
+    }
+
+    public RedisConnection[] getMembers() {
+        return members;
+    }
+
+    public boolean isAllValid() {
+        for (RedisConnection member : members) {
+            if (!member.isValid()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在池中选择连接发送这一批命令
+     * 一般一批命令来自同一个客户端，若来自多个客户端，则按照客户端拆分（同一个客户端的命令之间的顺序不变）
+     * 包含没有ChannelInfo的命令时不拆分，整批命令在同一个连接上发送
+     * @param primary 主连接
+     * @param commands 命令
+     * @param futureList future
+     */
+    public void sendCommand(RedisConnection primary, List<Command> commands, List<CompletableFuture<Reply>> futureList) {
+        if (commands.size() != futureList.size()) {
+            select(primary, commands).sendCommandDirect(commands, futureList);
+            return;
+        }
+        //没有ChannelInfo的命令（如重定向时的ASKING）必须和同一批的其他命令在同一个连接上发送，因此不拆分，使用第一个客户端的pin
+        ChannelInfo client = null;
+        boolean single = true;
+        boolean hasInternal = false;
+        for (Command command : commands) {
+            ChannelInfo channelInfo = command.getChannelInfo();
+            if (channelInfo == null) {
+                hasInternal = true;
+            } else if (client == null) {
+                client = channelInfo;
+            } else if (channelInfo != client) {
+                single = false;
+            }
+        }
+        if (single || hasInternal) {
+            sendCommand(primary, client, commands, futureList);
+            return;
+        }
+        Map<ChannelInfo, List<Command>> commandMap = new LinkedHashMap<>();
+        Map<ChannelInfo, List<CompletableFuture<Reply>>> futureMap = new LinkedHashMap<>();
+        for (int i=0; i<commands.size(); i++) {
+            Command command = commands.get(i);
+            commandMap.computeIfAbsent(command.getChannelInfo(), k -> new ArrayList<>()).add(command);
+            futureMap.computeIfAbsent(command.getChannelInfo(), k -> new ArrayList<>()).add(futureList.get(i));
+        }
+        for (Map.Entry<ChannelInfo, List<Command>> entry : commandMap.entrySet()) {
+            sendCommand(primary, entry.getKey(), entry.getValue(), futureMap.get(entry.getKey()));
+        }
+    }
+
+    private void sendCommand(RedisConnection primary, ChannelInfo client, List<Command> commands, List<CompletableFuture<Reply>> futureList) {
+        if (client == null) {
+            select(primary, commands).sendCommandDirect(commands, futureList);
+            return;
+        }
+        RedisConnection connection = null;
+        Pin pin = pins.get(client);
+        //pin的连接已经不可用时，未回包的命令都会失败，重新选择连接不会导致乱序
+        if (pin != null && pin.connection.getStatus() != RedisConnectionStatus.INVALID) {
+            connection = pin.connection;
+        }
+        if (connection == null) {
+            connection = select(primary, commands);
+        }
+        Pin current = pin(client, connection);
+        //同一个连接上的回包是有序的，最后一个命令回包时，这一批命令都已经回包了
+        futureList.get(futureList.size() - 1).whenComplete((reply, throwable) -> unpin(client, current));
+        connection.sendCommandDirect(commands, futureList);
+    }
+
+    private Pin pin(ChannelInfo client, RedisConnection connection) {
+        return pins.compute(client, (k, old) -> {
+            Pin pin = (old == null || old.connection != connection) ? new Pin(connection) : old;
+            pin.outstanding ++;
+            return pin;
+        });
+    }
+
+    private void unpin(ChannelInfo client, Pin pin) {
+        pins.computeIfPresent(client, (k, old) -> {
+            if (old != pin) return old;
+            old.outstanding --;
+            return old.outstanding <= 0 ? null : old;
+        });
+    }
+
+    /**
+     * 选择一个连接发送这一批命令
+     * @param primary 主连接
+     * @param commands 命令
+     * @return 连接
+     */
+    public RedisConnection select(RedisConnection primary, List<Command> commands) {
+        RedisConnectionPoolConf.Policy policy = conf.getPolicy();
+        if (policy == RedisConnectionPoolConf.Policy.SIZE_CLASS) {
+            //最后的largeReplyConnections个连接专门用于疑似大回包的命令
+            int large = Math.min(Math.max(conf.getLargeReplyConnections(), 1), members.length);
+            if (isLargeReply(commands)) {
+                RedisConnection connection = leastOutstanding(null, members.length - large, members.length);
+                return connection == null ? primary : connection;
+            }
+            RedisConnection connection = leastOutstanding(primary, 0, members.length - large);
+            return connection == null ? primary : connection;
+        }
+        RedisConnection connection = leastOutstanding(primary, 0, members.length);
+        return connection == null ? primary : connection;
+    }
+
+    /**
+     * 从池中移除后，延迟关闭，保证已经发出的命令可以正常回包
+     */
+    public void stop() {
+        for (RedisConnection member : members) {
+            ExecutorUtils.submitDelayTask(() -> member.stop(true), 60, TimeUnit.SECONDS);
+        }
+    }
+
+    private RedisConnection leastOutstanding(RedisConnection primary, int from, int to) {
+        RedisConnection selected = null;
+        int min = Integer.MAX_VALUE;
+        if (primary != null) {
+            selected = primary;
+            min = primary.queueSize();
+        }
+        for (int i=from; i<to; i++) {
+            RedisConnection member = members[i];
+            if (member.getStatus() != RedisConnectionStatus.VALID) continue;
+            int queueSize = member.queueSize();
+            if (queueSize < min) {
+                min = queueSize;
+                selected = member;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isLargeReply(List<Command> commands) {
+        for (Command command : commands) {
+            RedisCommand redisCommand = command.getRedisCommand();
+            if (redisCommand == null) continue;
+            if (conf.getLargeReplyCommands().contains(redisCommand)) {
+                return true;
+            }
+            if (redisCommand == RedisCommand.MGET && command.getObjectsCount() - 1 >= conf.getLargeReplyMultiKeys()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Pin {
+        private final RedisConnection connection;
+        private int outstanding;//guarded by pins.compute
+
+        Pin(RedisConnection connection) {
+            this.connection = connection;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.netease.nim.camellia.redis.proxy.upstream.connection;
+
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+
+import java.util.Set;
+
+/**
+ * 后端连接池的配置，RedisConnectionHub下所有的连接共享，支持动态修改
+ * Created by agent on 2026/10/18
+ */
+public class RedisConnectionPoolConf {
+
+    public static enum Policy {
+        /**
+         * 选择未回包命令数最少的连接
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * 疑似大回包的命令使用专用的连接，其他命令在剩余的连接中选择未回包命令数最少的连接
+         */
+        SIZE_CLASS,
+        ;
+        public static Policy getByName(String name) {
+            for (Policy policy : Policy.values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    private volatile int size;
+    private volatile Policy policy;
+    private volatile Set<RedisCommand> largeReplyCommands;
+    private volatile int largeReplyMultiKeys;
+    private volatile int largeReplyConnections;
+
+    public RedisConnectionPoolConf(int size, Policy policy, Set<RedisCommand> largeReplyCommands,
+                                   int largeReplyMultiKeys, int largeReplyConnections) {
+        this.size = size;
+        this.policy = policy;
+        this.largeReplyCommands = largeReplyCommands;
+        this.largeReplyMultiKeys = largeReplyMultiKeys;
+        this.largeReplyConnections = largeReplyConnections;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public Set<RedisCommand> getLargeReplyCommands() {
+        return largeReplyCommands;
+    }
+
+    public void setLargeReplyCommands(Set<RedisCommand> largeReplyCommands) {
+        this.largeReplyCommands = largeReplyCommands;
+    }
+
+    public int getLargeReplyMultiKeys() {
+        return largeReplyMultiKeys;
+    }
+
+    public void setLargeReplyMultiKeys(int largeReplyMultiKeys) {
+        this.largeReplyMultiKeys = largeReplyMultiKeys;
+    }
+
+    public int getLargeReplyConnections() {
+        return largeReplyConnections;
+    }
+
+    public void setLargeReplyConnections(int largeReplyConnections) {
+        this.largeReplyConnections = largeReplyConnections;
+    }
+
+    @Override
+    public String toString() {
+        return "RedisConnectionPoolConf{" +
+                "size=" + size +
+                ", policy=" + policy +
+                ", largeReplyCommands=" + largeReplyCommands +
+                ", largeReplyMultiKeys=" + largeReplyMultiKeys +
+                ", largeReplyConnections=" + largeReplyConnections +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package com.netease.nim.camellia.redis.proxy.upstream.connection;
+
+/**
+ * 后端连接合并写入的配置，RedisConnectionHub下所有的连接共享，支持动态修改
+ * Created by agent on 2026/10/18
+ */
+public class WriteCoalesceConf {
+
+    private volatile boolean enable;
+    private volatile int maxBatchSize;
+    private volatile long maxDelayMicros;
+
+    public WriteCoalesceConf(boolean enable, int maxBatchSize, long maxDelayMicros) {
+        this.enable = enable;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxDelayMicros() {
+        return maxDelayMicros;
+    }
+
+    public void setMaxDelayMicros(long maxDelayMicros) {
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteCoalesceConf{" +
+                "enable=" + enable +
+                ", maxBatchSize=" + maxBatchSize +
+                ", maxDelayMicros=" + maxDelayMicros +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@ import com.netease.nim.camellia.redis.base.resource.RedisSentinelSlavesResource;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionStatus;
 import com.netease.nim.camellia.redis.proxy.upstream.standalone.AbstractSimpleRedisClient;
 import com.netease.nim.camellia.redis.proxy.upstream.utils.HostAndPort;
+import com.netease.nim.camellia.redis.proxy.upstream.utils.LatencyAwareReplicaSelector;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
 import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
@@ -207,6 +208,12 @@ public class RedisSentinelSlavesClient extends AbstractSimpleRedisClient {
             if (master != null) {
                 if (slaves.isEmpty()) return master;
                 try {
+                    if (LatencyAwareReplicaSelector.isEnable()) {
+                        RedisConnectionAddr addr = LatencyAwareReplicaSelector.select(master, slaves, a -> a);
+                        if (addr != null) {
+                            return addr;
+                        }
+                    }
                     int maxLoop = slaves.size() + 1;
                     int index = ThreadLocalRandom.current().nextInt(maxLoop);
                     for (int i=0; i<maxLoop; i++) {
@@ -244,6 +251,12 @@ public class RedisSentinelSlavesClient extends AbstractSimpleRedisClient {
                 if (slaves.isEmpty()) return null;
                 if (slaves.size() == 1) return slaves.get(0);
                 try {
+                    if (LatencyAwareReplicaSelector.isEnable()) {
+                        RedisConnectionAddr addr = LatencyAwareReplicaSelector.select(null, slaves, a -> a);
+                        if (addr != null) {
+                            return addr;
+                        }
+                    }
                     int maxLoop = slaves.size();
                     int index = ThreadLocalRandom.current().nextInt(maxLoop);
                     for (int i=0; i<maxLoop; i++) {
@@ -0,0 +1,128 @@
+package com.netease.nim.camellia.redis.proxy.upstream.utils;
+
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionStatus;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 基于延迟的副本选择（redis-cluster-slaves、redis-sentinel-slaves）
+ * 1）每个上游节点维护一个随时间衰减的EWMA延迟，数据来源和UpstreamRedisSpendTimeMonitor相同（CompletableFutureWithTime）
+ * 2）节点的负载 = EWMA延迟 * (未回包的命令数 + 1)
+ * 3）power-of-two-choices：随机选两个可用节点，取负载低的那个
+ * 4）长时间没有被选中的节点，EWMA会逐渐衰减到0，从而重新获得流量，避免慢节点恢复后一直没有流量
+ * Created by agent on 2026/10/18
+ */
+public class LatencyAwareReplicaSelector {
+
+    private static final ConcurrentHashMap<RedisConnectionAddr, Ewma> ewmaMap = new ConcurrentHashMap<>();
+
+    private static boolean enable;
+    private static double decayNanos;
+
+    static {
+        reloadConf();
+        ProxyDynamicConf.registerCallback(LatencyAwareReplicaSelector::reloadConf);
+    }
+
+    private static void reloadConf() {
+        enable = ProxyDynamicConf.getBoolean("upstream.redis.replica.latency.aware.select.enable", Constants.Server.upstreamRedisReplicaLatencyAwareSelectEnable);
+        long decayMillis = ProxyDynamicConf.getLong("upstream.redis.replica.latency.ewma.decay.millis", Constants.Server.upstreamRedisReplicaLatencyEwmaDecayMillis);
+        decayNanos = Math.max(decayMillis, 1) * 1000000.0;
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    /**
+     * 更新节点的EWMA延迟
+     * @param addr addr
+     * @param spendNanoTime 命令耗时
+     */
+    public static void update(RedisConnectionAddr addr, long spendNanoTime) {
+        if (!enable) return;
+        Ewma ewma = CamelliaMapUtils.computeIfAbsent(ewmaMap, addr, k -> new Ewma());
+        ewma.update(spendNanoTime, System.nanoTime());
+    }
+
+    /**
+     * 从 first + others 中选择一个节点，first可以为null（如不带master的slaves）
+     * @param first 第一个候选节点，可以为null
+     * @param others 其他候选节点
+     * @param addrFunc 获取节点地址
+     * @return 选中的节点，若没有可用节点则返回null，由调用方兜底
+     */
+    public static <T> T select(T first, List<T> others, Function<T, RedisConnectionAddr> addrFunc) {
+        int offset = first == null ? 0 : 1;
+        int size = others.size() + offset;
+        if (size == 0) return null;
+        if (size == 1) {
+            T node = first != null ? first : others.get(0);
+            return load(addrFunc.apply(node)) >= 0 ? node : null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j ++;
+        }
+        T node1 = i < offset ? first : others.get(i - offset);
+        T node2 = j < offset ? first : others.get(j - offset);
+        double load1 = load(addrFunc.apply(node1));
+        double load2 = load(addrFunc.apply(node2));
+        if (load1 < 0 && load2 < 0) {
+            return null;
+        }
+        if (load1 < 0) return node2;
+        if (load2 < 0) return node1;
+        return load1 <= load2 ? node1 : node2;
+    }
+
+    //返回-1表示节点不可用
+    private static double load(RedisConnectionAddr addr) {
+        if (addr == null) return -1;
+        RedisConnection connection = RedisConnectionHub.getInstance().get(addr);
+        if (connection == null || connection.getStatus() != RedisConnectionStatus.VALID) {
+            return -1;
+        }
+        Ewma ewma = ewmaMap.get(addr);
+        double cost = ewma == null ? 0 : ewma.get(System.nanoTime());
+        //+1避免没有延迟数据时，未回包的命令数不生效
+        return (cost + 1) * (connection.queueSize() + 1);
+    }
+
+    /**
+     * 随时间衰减的EWMA，并发更新时不加锁，允许少量误差
+     */
+    private static class Ewma {
+        private volatile double value;
+        private volatile long lastUpdateNanos = System.nanoTime();
+
+        void update(long spendNanoTime, long now) {
+            //延迟升高时立即生效，降低时平滑衰减，尽快避开突然变慢的节点
+            if (spendNanoTime > value) {
+                value = spendNanoTime;
+            } else {
+                double w = Math.exp(-Math.max(now - lastUpdateNanos, 0) / decayNanos);
+                value = value * w + spendNanoTime * (1 - w);
+            }
+            lastUpdateNanos = now;
+        }
+
+        //没有更新时，随时间衰减到0
+        double get(long now) {
+            long elapsed = now - lastUpdateNanos;
+            if (elapsed <= 0) return value;
+            return value * Math.exp(-elapsed / decayNanos);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.util;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 
 import java.util.List;
 
@@ -60,8 +61,32 @@ public class CommandsEncodeUtil {
 
     public static ByteBuf encode(ByteBufAllocator alloc, List<Command> commands) {
         int serializedSize = 0;
-        for (Command command : commands) {
-            serializedSize += serializedSize(command.getObjects());
+        ByteBuf[][] slices = null;
+        int sliceCount = 0;
+        for (int j=0; j<commands.size(); j++) {
+            Command command = commands.get(j);
+            int count = command.getObjectsCount();
+            serializedSize += paramCountSize(count);
+            for (int i=0; i<count; i++) {
+                ByteBuf slice = command.getObjectBuf(i);
+                if (slice != null) {
+                    if (slices == null) {
+                        slices = new ByteBuf[commands.size()][];
+                    }
+                    if (slices[j] == null) {
+                        slices[j] = new ByteBuf[count];
+                    }
+                    slices[j][i] = slice;
+                    sliceCount ++;
+                    // $ + paramLength + CRLF + CRLF, the param itself will not be copied
+                    serializedSize += 1 + stringSize(slice.readableBytes()) + 2 + 2;
+                } else {
+                    serializedSize += paramSize(command.getObject(i));
+                }
+            }
+        }
+        if (slices != null) {
+            return encodeZeroCopy(alloc, commands, slices, sliceCount, serializedSize);
         }
         ByteBuf buf = alloc.ioBuffer(serializedSize, serializedSize);
         for (Command command : commands) {
@@ -74,6 +99,42 @@ public class CommandsEncodeUtil {
         return buf;
     }
 
+    /**
+     * the slices of zero-copy decoded args are written as retained duplicates, the other bytes are written into one buffer
+     */
+    private static ByteBuf encodeZeroCopy(ByteBufAllocator alloc, List<Command> commands, ByteBuf[][] slices, int sliceCount, int serializedSize) {
+        ByteBuf buf = alloc.ioBuffer(serializedSize, serializedSize);
+        CompositeByteBuf composite = alloc.compositeDirectBuffer(sliceCount * 2 + 1);
+        try {
+            int segmentStart = 0;
+            for (int j=0; j<commands.size(); j++) {
+                Command command = commands.get(j);
+                ByteBuf[] commandSlices = slices[j];
+                int count = command.getObjectsCount();
+                writeParamCount(buf, count);
+                for (int i=0; i<count; i++) {
+                    ByteBuf slice = commandSlices == null ? null : commandSlices[i];
+                    if (slice != null) {
+                        buf.writeByte('$').writeBytes(toBytes(slice.readableBytes())).writeBytes(CRLF);
+                        composite.addComponent(true, buf.retainedSlice(segmentStart, buf.writerIndex() - segmentStart));
+                        composite.addComponent(true, slice.retainedDuplicate());
+                        segmentStart = buf.writerIndex();
+                        buf.writeBytes(CRLF);
+                    } else {
+                        writeParam(buf, command.getObject(i));
+                    }
+                }
+            }
+            composite.addComponent(true, buf.retainedSlice(segmentStart, buf.writerIndex() - segmentStart));
+            return composite;
+        } catch (Exception e) {
+            composite.release();
+            throw e;
+        } finally {
+            buf.release();
+        }
+    }
+
     private static void writeParamCount(ByteBuf buf, int paramCount) {
         buf.writeByte('*').writeBytes(toBytes(paramCount)).writeBytes(CRLF);
     }
@@ -0,0 +1,35 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import java.util.List;
+
+/**
+ * 时间窗口内的key计数器，用于热key监控和热key缓存
+ * 实现：
+ * LRUCounter: 每个key一个计数器，精确，但是内存随key的数量增长，key很多时会淘汰掉真正的热key
+ * SketchCounter: count-min-sketch + space-saving top-K，内存固定，计数是近似值（只会偏大）
+ * Created by agent on 2026/10/18
+ */
+public interface KeyCounter {
+
+    /**
+     * 计数加1
+     * @param key key
+     */
+    void increment(byte[] key);
+
+    /**
+     * 获取当前时间窗口内的计数
+     * @param key key
+     * @return count, 0 if not exists or expired
+     */
+    long get(byte[] key);
+
+    /**
+     * 获取计数超过threshold的key，按照计数从大到小排序
+     * @param threshold threshold
+     * @param limit 最多返回多少个
+     * @return list
+     */
+    List<LRUCounter.SortedBytesKey> getSortedCacheValue(long threshold, int limit);
+
+}
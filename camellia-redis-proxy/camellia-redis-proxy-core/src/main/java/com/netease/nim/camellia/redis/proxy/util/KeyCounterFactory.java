@@ -0,0 +1,52 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
+import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+
+/**
+ * 根据ProxyDynamicConf的配置创建KeyCounter，支持租户级别配置
+ * 示例（prefix=hot.key.monitor）：
+ * hot.key.monitor.counter.type=sketch
+ * hot.key.monitor.sketch.width=16384
+ * hot.key.monitor.sketch.depth=4
+ * hot.key.monitor.sketch.stripes=2
+ * Created by agent on 2026/10/18
+ */
+public class KeyCounterFactory {
+
+    private KeyCounterFactory() {
+    }
+
+    public static KeyCounterType getType(String prefix, IdentityInfo identityInfo) {
+        String type = ProxyDynamicConf.getString(prefix + ".counter.type",
+                identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCounterType);
+        KeyCounterType counterType = KeyCounterType.getByName(type);
+        if (counterType == null) {
+            return KeyCounterType.LRU;
+        }
+        return counterType;
+    }
+
+    /**
+     * @param prefix 配置前缀
+     * @param identityInfo 租户
+     * @param type 计数器类型
+     * @param lruCapacity LRUCounter的容量
+     * @param topKCapacity SketchCounter的top-K候选集大小，小于等于0表示不需要top-K
+     * @param expireMillis 时间窗口
+     * @return KeyCounter
+     */
+    public static KeyCounter create(String prefix, IdentityInfo identityInfo, KeyCounterType type,
+                                    int lruCapacity, int topKCapacity, long expireMillis) {
+        if (type == KeyCounterType.SKETCH) {
+            Long bid = identityInfo.getBid();
+            String bgroup = identityInfo.getBgroup();
+            int width = ProxyDynamicConf.getInt(prefix + ".sketch.width", bid, bgroup, Constants.Server.hotKeySketchWidth);
+            int depth = ProxyDynamicConf.getInt(prefix + ".sketch.depth", bid, bgroup, Constants.Server.hotKeySketchDepth);
+            int stripes = ProxyDynamicConf.getInt(prefix + ".sketch.stripes", bid, bgroup, Constants.Server.hotKeySketchStripes);
+            return new SketchCounter(width, depth, stripes, topKCapacity, expireMillis);
+        }
+        return new LRUCounter(lruCapacity, lruCapacity, expireMillis);
+    }
+}
@@ -0,0 +1,27 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+/**
+ * Created by agent on 2026/10/18
+ */
+public enum KeyCounterType {
+
+    /**
+     * LRUCounter
+     */
+    LRU,
+
+    /**
+     * SketchCounter, count-min-sketch + space-saving top-K
+     */
+    SKETCH,
+    ;
+
+    public static KeyCounterType getByName(String name) {
+        for (KeyCounterType type : KeyCounterType.values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
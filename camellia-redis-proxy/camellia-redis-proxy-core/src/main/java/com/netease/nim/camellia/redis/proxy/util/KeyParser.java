@@ -22,23 +22,24 @@ public class KeyParser {
             return Collections.emptyList();
         }
         if (commandKeyType == RedisCommand.CommandKeyType.None) return Collections.emptyList();
-        if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_SINGLE && command.getObjects().length >= 2) {
-            return Collections.singletonList(command.getObjects()[1]);
-        } else if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_MULTI && command.getObjects().length >= 2) {
-            List<byte[]> keys = new ArrayList<>(command.getObjects().length - 1);
-            byte[][] objects = command.getObjects();
-            for (int i=1; i<objects.length; i++) {
-                keys.add(objects[i]);
+        if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_SINGLE && command.getObjectsCount() >= 2) {
+            return Collections.singletonList(command.getObject(1));
+        } else if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_MULTI && command.getObjectsCount() >= 2) {
+            int count = command.getObjectsCount();
+            List<byte[]> keys = new ArrayList<>(count - 1);
+            for (int i=1; i<count; i++) {
+                keys.add(command.getObject(i));
             }
             return keys;
         } else if (commandKeyType == RedisCommand.CommandKeyType.COMPLEX) {
             List<byte[]> keys = new ArrayList<>();
+            //mset/msetnx only materialize the keys, the values may be zero-copy decoded
+            if (redisCommand == RedisCommand.MSET || redisCommand == RedisCommand.MSETNX) {
+                msetOrMsetNx(command, keys);
+                return keys;
+            }
             byte[][] objects = command.getObjects();
             switch (redisCommand) {
-                case MSET:
-                case MSETNX:
-                    msetOrMsetNx(command, keys);
-                    break;
                 case EVAL:
                 case EVALSHA:
                     evalOrEvalSha(command, keys);
@@ -160,9 +161,9 @@ public class KeyParser {
     }
 
     private static void msetOrMsetNx(Command command, List<byte[]> keys) {
-        byte[][] objects = command.getObjects();
-        for (int i=1; i<objects.length; i+=2) {
-            keys.add(objects[i]);
+        int count = command.getObjectsCount();
+        for (int i=1; i<count; i+=2) {
+            keys.add(command.getObject(i));
         }
     }
 
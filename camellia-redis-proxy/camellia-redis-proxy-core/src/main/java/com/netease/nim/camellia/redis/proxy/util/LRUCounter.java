@@ -3,6 +3,8 @@ package com.netease.nim.camellia.redis.proxy.util;
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.netease.nim.camellia.tools.utils.BytesKey;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,7 +15,7 @@ import java.util.concurrent.atomic.LongAdder;
  * 使用LRU算法的计数器。
  * Created by caojiajun on 2020/11/19
  */
-public class LRUCounter {
+public class LRUCounter implements KeyCounter {
 
     /**
      * 每一个key都有一个计数器
@@ -50,6 +52,11 @@ public class LRUCounter {
         counter.count.increment();
     }
 
+    @Override
+    public void increment(byte[] key) {
+        increment(new BytesKey(key));
+    }
+
     /**
      * Get the counter num
      *
@@ -68,6 +75,34 @@ public class LRUCounter {
         return null;
     }
 
+    @Override
+    public long get(byte[] key) {
+        Long count = get(new BytesKey(key));
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<SortedBytesKey> getSortedCacheValue(long threshold, int limit) {
+        if (cache.isEmpty()) return null;
+        List<SortedBytesKey> list = new ArrayList<>();
+        for (Map.Entry<BytesKey, Counter> entry : cache.entrySet()) {
+            if (TimeCache.currentMillis - entry.getValue().timestamp > expireMillis) {
+                cache.remove(entry.getKey());
+                continue;
+            }
+            long count = entry.getValue().count.sum();
+            if (count >= threshold) {
+                list.add(new SortedBytesKey(entry.getKey().getKey(), count));
+            }
+        }
+        //TreeSet会把计数相同的key去重，这里使用list排序
+        list.sort(null);
+        if (list.size() > limit) {
+            return new ArrayList<>(list.subList(0, limit));
+        }
+        return list;
+    }
+
     /**
      * 如果key的计数超过了threshold，并且key没有过期，就会按照计数的大小值进行排序，
      * <p>If the count of the key exceeds the threshold and the key has not expired, it will be sorted according to the count.
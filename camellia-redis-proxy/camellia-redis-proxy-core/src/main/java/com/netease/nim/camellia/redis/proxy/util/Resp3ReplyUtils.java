@@ -0,0 +1,152 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+
+/**
+ * 上游连接使用的是RESP2，对于使用RESP3的客户端，按照命令把回包转换为RESP3的类型（和redis保持一致）
+ * 1）hgetall、config get返回map
+ * 2）smembers、sinter、sunion、sdiff返回set
+ * 3）zscore、zincrby返回double，zmscore返回double数组
+ * 4）带WITHSCORES的zset范围查询、zpopmin/zpopmax带count、hrandfield带WITHVALUES返回[member, score]的二维数组
+ * 5）zpopmin/zpopmax不带count、bzpopmin/bzpopmax的score返回double
+ * 其他命令的回包在RESP2和RESP3下的结构相同，不做转换（null会在ReplyEncoder中转换）
+ * Created by agent on 2026/10/18
+ */
+public class Resp3ReplyUtils {
+
+    private static final String WITHSCORES = "WITHSCORES";
+    private static final String WITHVALUES = "WITHVALUES";
+
+    /**
+     * 转换为RESP3的回包
+     * @param command command
+     * @param reply RESP2 reply
+     * @return RESP3 reply
+     */
+    public static Reply convert(Command command, Reply reply) {
+        if (command == null || reply == null) return reply;
+        RedisCommand redisCommand = command.getRedisCommand();
+        if (redisCommand == null) return reply;
+        try {
+            switch (redisCommand) {
+                case HGETALL:
+                    return toMap(reply);
+                case CONFIG:
+                    if (command.getObjects().length >= 2 && Utils.checkStringIgnoreCase(command.getObjects()[1], "GET")) {
+                        return toMap(reply);
+                    }
+                    return reply;
+                case SMEMBERS:
+                case SINTER:
+                case SUNION:
+                case SDIFF:
+                    return toSet(reply);
+                case ZSCORE:
+                case ZINCRBY:
+                    return toDouble(reply);
+                case ZMSCORE:
+                    return toDoubleArray(reply);
+                case ZRANGE:
+                case ZREVRANGE:
+                case ZRANGEBYSCORE:
+                case ZREVRANGEBYSCORE:
+                case ZRANDMEMBER:
+                case ZUNION:
+                case ZINTER:
+                case ZDIFF:
+                    if (hasOption(command, WITHSCORES)) {
+                        return toPairs(reply, true);
+                    }
+                    return reply;
+                case HRANDFIELD:
+                    if (hasOption(command, WITHVALUES)) {
+                        return toPairs(reply, false);
+                    }
+                    return reply;
+                case ZPOPMIN:
+                case ZPOPMAX:
+                    if (command.getObjects().length > 2) {
+                        return toPairs(reply, true);
+                    }
+                    return toScoreAt(reply, 1);
+                case BZPOPMIN:
+                case BZPOPMAX:
+                    return toScoreAt(reply, 2);
+                default:
+                    return reply;
+            }
+        } catch (Exception e) {
+            ErrorLogCollector.collect(Resp3ReplyUtils.class, "convert to resp3 reply error, command = " + command.getName(), e);
+            return reply;
+        }
+    }
+
+    private static boolean hasOption(Command command, String option) {
+        byte[][] objects = command.getObjects();
+        for (int i=2; i<objects.length; i++) {
+            if (Utils.checkStringIgnoreCase(objects[i], option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Reply[] replies(Reply reply) {
+        if (reply instanceof Resp3Reply || !(reply instanceof MultiBulkReply)) return null;
+        return ((MultiBulkReply) reply).getReplies();
+    }
+
+    private static Reply toMap(Reply reply) {
+        Reply[] replies = replies(reply);
+        if (replies == null || replies.length % 2 != 0) return reply;
+        return new MapReply(replies);
+    }
+
+    private static Reply toSet(Reply reply) {
+        Reply[] replies = replies(reply);
+        if (replies == null) return reply;
+        return new SetReply(replies);
+    }
+
+    private static Reply toDouble(Reply reply) {
+        if (reply instanceof BulkReply) {
+            byte[] raw = ((BulkReply) reply).getRaw();
+            if (raw != null) {
+                return new DoubleReply(Utils.bytesToString(raw));
+            }
+        }
+        return reply;
+    }
+
+    private static Reply toDoubleArray(Reply reply) {
+        Reply[] replies = replies(reply);
+        if (replies == null) return reply;
+        Reply[] result = new Reply[replies.length];
+        for (int i=0; i<replies.length; i++) {
+            result[i] = toDouble(replies[i]);
+        }
+        return new MultiBulkReply(result);
+    }
+
+    //[m1, s1, m2, s2] -> [[m1, s1], [m2, s2]]
+    private static Reply toPairs(Reply reply, boolean score) {
+        Reply[] replies = replies(reply);
+        if (replies == null || replies.length % 2 != 0) return reply;
+        Reply[] result = new Reply[replies.length / 2];
+        for (int i=0; i<result.length; i++) {
+            Reply value = replies[i * 2 + 1];
+            result[i] = new MultiBulkReply(new Reply[]{replies[i * 2], score ? toDouble(value) : value});
+        }
+        return new MultiBulkReply(result);
+    }
+
+    private static Reply toScoreAt(Reply reply, int index) {
+        Reply[] replies = replies(reply);
+        if (replies == null || replies.length != index + 1) return reply;
+        Reply[] result = replies.clone();
+        result[index] = toDouble(replies[index]);
+        return new MultiBulkReply(result);
+    }
+}
@@ -0,0 +1,327 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于count-min-sketch的计数器，内存大小固定，和key的数量无关
+ * 1）count-min-sketch，depth行width列，每个key在每一行命中一个格子，计数取各行的最小值（只会偏大，不会偏小）
+ * 2）为了减少热key在同一个格子上的并发竞争，sketch按照线程分成stripes份，计数时取各份的和
+ * 3）可选的space-saving top-K，只记录最多topKCapacity个候选key，只有计数超过候选集最小值的新key才会加锁尝试加入（通过最小堆淘汰最小的那个）
+ * 4）每个时间窗口（expireMillis）结束后整体清零
+ * 计数更新是无内存分配的，内存占用约为 stripes * depth * width * 4 字节
+ * Created by agent on 2026/10/18
+ */
+public class SketchCounter implements KeyCounter {
+
+    private final int depth;
+    private final int width;
+    private final int widthShift;
+    private final int stripeMask;
+    private final AtomicIntegerArray[] stripes;
+    private final long expireMillis;
+    private final TopK topK;
+
+    private volatile long windowStart = TimeCache.currentMillis;
+    private final AtomicBoolean resetting = new AtomicBoolean(false);
+
+    /**
+     * @param width 每行的格子数，会向上取整到2的幂
+     * @param depth 行数
+     * @param stripes 分片数，会向上取整到2的幂
+     * @param topKCapacity top-K候选集的大小，小于等于0表示不记录top-K
+     * @param expireMillis 时间窗口
+     */
+    public SketchCounter(int width, int depth, int stripes, int topKCapacity, long expireMillis) {
+        if (width <= 0 || depth <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("width/depth/stripes should be positive");
+        }
+        this.width = tableSizeFor(Math.max(width, 2));
+        this.widthShift = 32 - Integer.numberOfTrailingZeros(this.width);
+        this.depth = depth;
+        int stripeSize = tableSizeFor(stripes);
+        this.stripeMask = stripeSize - 1;
+        this.stripes = new AtomicIntegerArray[stripeSize];
+        for (int i=0; i<stripeSize; i++) {
+            this.stripes[i] = new AtomicIntegerArray(this.width * depth);
+        }
+        this.topK = topKCapacity > 0 ? new TopK(topKCapacity) : null;
+        this.expireMillis = expireMillis;
+    }
+
+    @Override
+    public void increment(byte[] key) {
+        checkExpireAndReset();
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        AtomicIntegerArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        for (int i=0; i<depth; i++) {
+            stripe.incrementAndGet(index(i, h1, h2));
+        }
+        if (topK != null && !topK.contains(key, hash)) {
+            long estimate = estimate(hash);
+            if (estimate > topK.minCount) {
+                topK.admit(key, hash, estimate);
+            }
+        }
+    }
+
+    @Override
+    public long get(byte[] key) {
+        checkExpireAndReset();
+        return estimate(hash(key));
+    }
+
+    @Override
+    public List<LRUCounter.SortedBytesKey> getSortedCacheValue(long threshold, int limit) {
+        if (topK == null) return null;
+        checkExpireAndReset();
+        List<LRUCounter.SortedBytesKey> list = topK.snapshot(threshold);
+        if (list.isEmpty()) return list;
+        list.sort(null);
+        if (list.size() > limit) {
+            return new ArrayList<>(list.subList(0, limit));
+        }
+        return list;
+    }
+
+    private long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int i=0; i<depth; i++) {
+            int index = index(i, h1, h2);
+            long sum = 0;
+            for (AtomicIntegerArray stripe : stripes) {
+                sum += stripe.get(index);
+            }
+            if (sum < min) {
+                min = sum;
+            }
+        }
+        return min;
+    }
+
+    //double hashing, use the high bits of multiply-shift so that every row depends on all bits of the hash
+    private int index(int row, int h1, int h2) {
+        return row * width + (((h1 + row * h2) * 0x9e3779b9) >>> widthShift);
+    }
+
+    private void checkExpireAndReset() {
+        if (TimeCache.currentMillis - windowStart <= expireMillis) return;
+        if (resetting.compareAndSet(false, true)) {
+            try {
+                if (TimeCache.currentMillis - windowStart > expireMillis) {
+                    //并发写入的计数可能丢失一部分，对热key的判定影响可以忽略
+                    for (AtomicIntegerArray stripe : stripes) {
+                        for (int i=0; i<stripe.length(); i++) {
+                            stripe.lazySet(i, 0);
+                        }
+                    }
+                    if (topK != null) {
+                        topK.clear();
+                    }
+                    windowStart = TimeCache.currentMillis;
+                }
+            } finally {
+                resetting.set(false);
+            }
+        }
+    }
+
+    //FNV-1a + murmur3 fmix64
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * space-saving候选集，开放寻址（线性探测）的哈希表用于无锁查询，最小堆用于找到计数最小的候选key，修改加锁
+     * 堆中记录的计数是上一次读取的sketch估计值，时间窗口内计数只增不减，因此是真实计数的下界，淘汰前只需要重新校验堆顶
+     */
+    private class TopK {
+        private final int capacity;
+        private final int mask;
+        private final AtomicReferenceArray<Entry> table;
+        private final Entry[] heap;//guarded by this
+        private int size;//guarded by this
+        //候选集中的最小计数（候选集未满时为0），只会偏小，用于在无锁路径上过滤掉绝大部分的冷key
+        private volatile long minCount;
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+            int tableSize = tableSizeFor(capacity * 2);
+            this.mask = tableSize - 1;
+            this.table = new AtomicReferenceArray<>(tableSize);
+            this.heap = new Entry[capacity];
+        }
+
+        boolean contains(byte[] key, long hash) {
+            int index = (int) hash & mask;
+            while (true) {
+                Entry entry = table.get(index);
+                if (entry == null) return false;
+                if (entry.hash == hash && Arrays.equals(entry.key, key)) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        synchronized void admit(byte[] key, long hash, long estimate) {
+            if (estimate <= minCount) return;
+            if (contains(key, hash)) return;
+            if (size < capacity) {
+                Entry entry = new Entry(key, hash, estimate);
+                insert(entry);
+                heap[size] = entry;
+                siftUp(size);
+                size ++;
+                if (size == capacity) {
+                    revalidateTop();
+                    minCount = heap[0].count;
+                }
+                return;
+            }
+            revalidateTop();
+            Entry top = heap[0];
+            if (estimate > top.count) {
+                remove(top);
+                Entry entry = new Entry(key, hash, estimate);
+                insert(entry);
+                heap[0] = entry;
+                siftDown(0);
+                revalidateTop();
+            }
+            minCount = heap[0].count;
+        }
+
+        //重新读取堆顶的估计值，直到堆顶记录的计数是最新的，此时堆顶就是真实计数最小的候选key
+        private void revalidateTop() {
+            while (true) {
+                Entry top = heap[0];
+                long count = estimate(top.hash);
+                if (count <= top.count) return;
+                top.count = count;
+                siftDown(0);
+            }
+        }
+
+        synchronized List<LRUCounter.SortedBytesKey> snapshot(long threshold) {
+            List<LRUCounter.SortedBytesKey> list = new ArrayList<>();
+            for (int i=0; i<size; i++) {
+                Entry entry = heap[i];
+                long count = estimate(entry.hash);
+                if (count >= threshold) {
+                    list.add(new LRUCounter.SortedBytesKey(entry.key, count));
+                }
+            }
+            return list;
+        }
+
+        synchronized void clear() {
+            for (int i=0; i<table.length(); i++) {
+                table.set(i, null);
+            }
+            Arrays.fill(heap, null);
+            size = 0;
+            minCount = 0;
+        }
+
+        private void siftUp(int index) {
+            Entry entry = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= entry.count) break;
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = entry;
+        }
+
+        private void siftDown(int index) {
+            Entry entry = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < size && heap[right].count < heap[child].count) {
+                    child = right;
+                }
+                if (entry.count <= heap[child].count) break;
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = entry;
+        }
+
+        private void insert(Entry entry) {
+            int index = (int) entry.hash & mask;
+            while (table.get(index) != null) {
+                index = (index + 1) & mask;
+            }
+            table.set(index, entry);
+        }
+
+        private void remove(Entry entry) {
+            int index = (int) entry.hash & mask;
+            while (table.get(index) != entry) {
+                index = (index + 1) & mask;
+            }
+            remove(index);
+        }
+
+        //backward shift deletion, keep the probe sequence of other entries
+        private void remove(int index) {
+            table.set(index, null);
+            int i = index;
+            int j = index;
+            while (true) {
+                j = (j + 1) & mask;
+                Entry entry = table.get(j);
+                if (entry == null) return;
+                int k = (int) entry.hash & mask;
+                boolean move = (i <= j) ? (k <= i || k > j) : (k <= i && k > j);
+                if (move) {
+                    table.set(i, entry);
+                    table.set(j, null);
+                    i = j;
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        private final byte[] key;
+        private final long hash;
+        private long count;//guarded by TopK
+
+        Entry(byte[] key, long hash, long count) {
+            this.key = key;
+            this.hash = hash;
+            this.count = count;
+        }
+    }
+}
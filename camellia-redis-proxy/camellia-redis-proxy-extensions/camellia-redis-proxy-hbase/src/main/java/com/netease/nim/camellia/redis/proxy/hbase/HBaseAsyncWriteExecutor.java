@@ -5,10 +5,12 @@ import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
 import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
 import com.netease.nim.camellia.tools.base.DynamicValueGetter;
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -19,7 +21,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import static com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils.hbaseTableName;
 
 /**
- *
+ * 每个线程一个队列，按key哈希，put和delete分别攒批写入hbase（切换类型时先flush，保证同一个key的写入顺序）
+ * 攒满hbase.max.batch或者超过hbase.async.write.max.delay.millis时flush，队列大小和堆积的mutation数量超过阈值时提交失败（由调用方改成同步写或者降级）
+ * 切换类型时flush失败，任务会保留在backlog中按顺序等待重试，不会丢弃，堆积的mutation数量也一直计入pendingMutations
  * Created by caojiajun on 2021/7/6
  */
 public class HBaseAsyncWriteExecutor {
@@ -77,6 +81,14 @@ public class HBaseAsyncWriteExecutor {
         private final LinkedBlockingQueue<HBaseAsyncWriteTask> queue;
         private final CamelliaHBaseTemplate hBaseTemplate;
         private final DynamicValueGetter<Integer> queueSize;
+        //队列中+backlog中+buffer中还未写入hbase的mutation数量（put+delete）
+        private final AtomicLong pendingMutations = new AtomicLong();
+        //已经从队列中取出，但是因为切换类型时flush失败还没能进入buffer的mutation，按照提交顺序排列
+        private final ArrayDeque<List<? extends Mutation>> backlog = new ArrayDeque<>();
+        private final List<Put> putBuffer = new ArrayList<>();
+        private final List<Delete> deleteBuffer = new ArrayList<>();
+        //buffer中最早的一条mutation的写入时间，用于控制最大延迟
+        private long bufferStartTime = -1;
 
         public HBaseAsyncWriteThread(CamelliaHBaseTemplate hBaseTemplate, DynamicValueGetter<Integer> queueSize) {
             this.hBaseTemplate = hBaseTemplate;
@@ -90,56 +102,148 @@ public class HBaseAsyncWriteExecutor {
             if (queue.size() >= queueSize.get()) {
                 return false;
             }
-            return queue.offer(task);
+            int mutations = mutations(task);
+            long maxPendingMutations = RedisHBaseConfiguration.hbaseAsyncWriteMaxPendingMutations();
+            if (maxPendingMutations > 0 && pendingMutations.get() + mutations > maxPendingMutations) {
+                return false;
+            }
+            pendingMutations.addAndGet(mutations);
+            boolean success = queue.offer(task);
+            if (!success) {
+                pendingMutations.addAndGet(-mutations);
+            }
+            return success;
         }
 
         @Override
         public void run() {
-            List<Put> putBuffer = new ArrayList<>();
-            List<Delete> deleteBuffer = new ArrayList<>();
+            List<HBaseAsyncWriteTask> drainList = new ArrayList<>();
             while (true) {
                 try {
-                    HBaseAsyncWriteTask task = queue.poll(1, TimeUnit.SECONDS);
+                    long maxDelayMillis = RedisHBaseConfiguration.hbaseAsyncWriteMaxDelayMillis();
+                    long timeout = 1000;
+                    if (bufferStartTime > 0) {
+                        timeout = Math.max(1, Math.min(timeout, bufferStartTime + maxDelayMillis - System.currentTimeMillis()));
+                    }
+                    HBaseAsyncWriteTask task = queue.poll(timeout, TimeUnit.MILLISECONDS);
                     if (task == null) {
-                        if (!putBuffer.isEmpty()) {
-                            flushPuts(putBuffer);
-                        }
-                        if (!deleteBuffer.isEmpty()) {
-                            flushDelete(deleteBuffer);
-                        }
+                        handle(null);
                         continue;
                     }
-                    List<Put> puts = task.getPuts();
-                    if (puts != null) {
+                    //一次唤醒尽量多取一些任务，减少线程切换，攒成更大的批次
+                    drainList.add(task);
+                    queue.drainTo(drainList, RedisHBaseConfiguration.hbaseMaxBatch());
+                    for (HBaseAsyncWriteTask writeTask : drainList) {
+                        handle(writeTask);
+                    }
+                    drainList.clear();
+                    //最大延迟兜底，避免写入一直不满一个批次、又一直有新任务时迟迟不flush
+                    if (bufferStartTime > 0 && System.currentTimeMillis() - bufferStartTime >= maxDelayMillis) {
+                        handle(null);
+                    }
+                } catch (Exception e) {
+                    drainList.clear();
+                    logger.error("hbase async write error", e);
+                }
+            }
+        }
+
+        //task为null表示flush所有buffer，否则把task加入buffer（满一个批次则flush）
+        private void handle(HBaseAsyncWriteTask task) {
+            try {
+                if (task == null) {
+                    drainBacklog();
+                    flushAll();
+                } else {
+                    boolean retrying = !backlog.isEmpty();
+                    if (task.getPuts() != null && !task.getPuts().isEmpty()) {
+                        backlog.add(task.getPuts());
+                    }
+                    if (task.getDeletes() != null && !task.getDeletes().isEmpty()) {
+                        backlog.add(task.getDeletes());
+                    }
+                    //backlog中已经有等待重试的数据时，只排队，等待下一个周期重试，避免频繁重试
+                    if (!retrying) {
+                        drainBacklog();
+                    }
+                }
+            } catch (Exception e) {
+                //写入失败的数据保留在buffer和backlog中，等待下一个周期重试
+                if (bufferStartTime > 0) {
+                    bufferStartTime = System.currentTimeMillis();
+                }
+                logger.error("hbase async write error", e);
+            }
+        }
+
+        //按顺序把backlog中的mutation放入buffer，切换类型时先flush另一种类型的buffer，保证同一个key的写入顺序
+        @SuppressWarnings("unchecked")
+        private void drainBacklog() {
+            try {
+                while (!backlog.isEmpty()) {
+                    List<? extends Mutation> mutations = backlog.peek();
+                    if (mutations.get(0) instanceof Put) {
                         if (!deleteBuffer.isEmpty()) {
                             flushDelete(deleteBuffer);
                         }
-                        putBuffer.addAll(puts);
+                        putBuffer.addAll((List<Put>) mutations);
+                        backlog.poll();
                         if (putBuffer.size() >= RedisHBaseConfiguration.hbaseMaxBatch()) {
                             flushPuts(putBuffer);
                         }
-                    }
-                    List<Delete> deletes = task.getDeletes();
-                    if (deletes != null) {
+                    } else {
                         if (!putBuffer.isEmpty()) {
                             flushPuts(putBuffer);
                         }
-                        deleteBuffer.addAll(deletes);
+                        deleteBuffer.addAll((List<Delete>) mutations);
+                        backlog.poll();
                         if (deleteBuffer.size() >= RedisHBaseConfiguration.hbaseMaxBatch()) {
                             flushDelete(deleteBuffer);
                         }
                     }
-                } catch (Exception e) {
-                    logger.error("hbase async write error", e);
                 }
+            } finally {
+                markBuffer();
             }
         }
 
+        private void markBuffer() {
+            if (bufferStartTime <= 0 && (!putBuffer.isEmpty() || !deleteBuffer.isEmpty() || !backlog.isEmpty())) {
+                bufferStartTime = System.currentTimeMillis();
+            }
+        }
+
+        private void flushAll() {
+            if (!putBuffer.isEmpty()) {
+                flushPuts(putBuffer);
+            }
+            if (!deleteBuffer.isEmpty()) {
+                flushDelete(deleteBuffer);
+            }
+        }
+
+        private static int mutations(HBaseAsyncWriteTask task) {
+            int mutations = 0;
+            if (task.getPuts() != null) {
+                mutations += task.getPuts().size();
+            }
+            if (task.getDeletes() != null) {
+                mutations += task.getDeletes().size();
+            }
+            return mutations;
+        }
+
         private void flushPuts(List<Put> putBuffer) {
             int size = putBuffer.size();
             if (size <= 0) return;
-            hBaseTemplate.put(hbaseTableName(), putBuffer);
-            putBuffer.clear();
+            boolean success = false;
+            try {
+                hBaseTemplate.put(hbaseTableName(), putBuffer);
+                putBuffer.clear();
+                success = true;
+            } finally {
+                afterFlush(size - putBuffer.size(), success);
+            }
             if (logger.isDebugEnabled()) {
                 logger.debug("flush hbase of put, size = {}", size);
             }
@@ -148,11 +252,28 @@ public class HBaseAsyncWriteExecutor {
         private void flushDelete(List<Delete> deleteBuffer) {
             int size = deleteBuffer.size();
             if (size <= 0) return;
-            hBaseTemplate.delete(hbaseTableName(), deleteBuffer);
-            deleteBuffer.clear();
+            boolean success = false;
+            try {
+                hBaseTemplate.delete(hbaseTableName(), deleteBuffer);
+                deleteBuffer.clear();
+                success = true;
+            } finally {
+                //部分失败时，hbase会把成功的delete从列表中移除并抛出异常，成功的部分也需要从pendingMutations中扣除，剩下的留在buffer中等待重试
+                afterFlush(size - deleteBuffer.size(), success);
+            }
             if (logger.isDebugEnabled()) {
                 logger.debug("flush hbase of delete, size = {}", size);
             }
         }
+
+        //done为已经写入hbase（不再留在buffer中）的mutation数量
+        private void afterFlush(int done, boolean success) {
+            if (done > 0) {
+                pendingMutations.addAndGet(-done);
+            }
+            if (success && putBuffer.isEmpty() && deleteBuffer.isEmpty() && backlog.isEmpty()) {
+                bufferStartTime = -1;
+            }
+        }
     }
 }
@@ -1,25 +1,36 @@
 package com.netease.nim.camellia.redis.proxy.hbase;
 
 import com.netease.nim.camellia.hbase.CamelliaHBaseTemplate;
+import com.netease.nim.camellia.core.model.ResourceTable;
+import com.netease.nim.camellia.core.model.Resource;
+import com.netease.nim.camellia.core.util.ResourceUtil;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.hbase.conf.RedisHBaseConfiguration;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.OperationType;
+import com.netease.nim.camellia.redis.proxy.hbase.monitor.RedisHBaseMonitor;
+import com.netease.nim.camellia.redis.proxy.hbase.util.RedisHBaseUtils;
+import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplate;
+import com.netease.nim.camellia.redis.proxy.upstream.UpstreamRedisClientTemplate;
 import com.netease.nim.camellia.redis.proxy.util.*;
 import com.netease.nim.camellia.tools.executor.CamelliaHashedExecutor;
 import com.netease.nim.camellia.tools.utils.ExceptionUtils;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -30,6 +41,8 @@ public class UpstreamRedisHBaseMixClientTemplate implements IUpstreamClientTempl
     private static final Logger logger = LoggerFactory.getLogger(UpstreamRedisHBaseMixClientTemplate.class);
 
     private static final String CONF_KEY = "upstream.redis.hbase.command.execute.concurrent.enable";
+    //记录每个客户端连接最后一个命令的完成情况，用于保证get快速路径开启时同一个连接的命令仍然顺序执行
+    private static final AttributeKey<Tail> TAIL = AttributeKey.valueOf("camellia-redis-hbase-mix-tail");
 
     private final Map<String, Method> methodMap = new HashMap<>();
     private final RedisHBaseCommandProcessor processor;
@@ -37,9 +50,15 @@ public class UpstreamRedisHBaseMixClientTemplate implements IUpstreamClientTempl
 
     private boolean concurrentEnable;
 
+    private final CamelliaRedisTemplate redisTemplate;
+    private final Object lock = new Object();
+    private volatile ResourceTable asyncResourceTable;
+    private volatile UpstreamRedisClientTemplate asyncRedisTemplate;
+
     public UpstreamRedisHBaseMixClientTemplate(CamelliaRedisTemplate redisTemplate, CamelliaHBaseTemplate hBaseTemplate) {
         Class<? extends IRedisHBaseCommandProcessor> clazz = IRedisHBaseCommandProcessor.class;
         CommandMethodUtil.initCommandFinderMethods(clazz, methodMap);
+        this.redisTemplate = redisTemplate;
         processor = new RedisHBaseCommandProcessor(redisTemplate, hBaseTemplate);
         int poolSize = RedisHBaseConfiguration.executorPoolSize();
         executor = new CamelliaHashedExecutor("camellia-redis-hbase-mix-proxy", poolSize,
@@ -52,32 +71,153 @@ public class UpstreamRedisHBaseMixClientTemplate implements IUpstreamClientTempl
     @Override
     public List<CompletableFuture<Reply>> sendCommand(int db, List<Command> commands) {
         if (commands.isEmpty()) return new ArrayList<>();
-        String consid = commands.get(0).getChannelInfo().getConsid();
+        ChannelInfo channelInfo = commands.get(0).getChannelInfo();
+        String consid = channelInfo.getConsid();
         boolean concurrentEnable = concurrentEnable(commands);
+        Attribute<Tail> attribute = concurrentEnable ? null : tailAttribute(channelInfo);
+        if (attribute == null) {
+            return sendCommandDirect(consid, concurrentEnable, commands);
+        }
+        //get快速路径：get先通过异步redis客户端查询，为了保证顺序，每个命令都要等前面的命令执行完成（或者已经按顺序提交到了线程池）之后才能执行
+        UpstreamRedisClientTemplate asyncRedisTemplate = asyncRedisTemplate();
+        Tail tail = attribute.get();
         List<CompletableFuture<Reply>> futureList = new ArrayList<>(commands.size());
         for (Command command : commands) {
             CompletableFuture<Reply> future = new CompletableFuture<>();
-            try {
-                String hashKey = consid;
-                if (concurrentEnable) {
-                    List<byte[]> keys = command.getKeys();
-                    if (keys == null || keys.isEmpty()) {
-                        hashKey = consid;
-                    } else {
-                        hashKey = Utils.bytesToString(keys.get(0));
-                    }
+            Task task = new Task(command, future);
+            boolean prevDone = tail == null || tail.future.isDone();
+            if (asyncRedisTemplate != null && isAsyncGet(command)) {
+                if (prevDone) {
+                    asyncGet(asyncRedisTemplate, consid, task);
+                } else {
+                    tail.future.whenComplete((reply, e) -> asyncGet(asyncRedisTemplate, consid, task));
+                }
+                tail = new Tail(future, false);
+            } else {
+                if (prevDone || tail.submitted) {
+                    //线程池对于相同的hashKey是顺序执行的，前一个命令已经提交到线程池了，则可以直接提交
+                    submit(consid, task);
+                    tail = new Tail(future, true);
+                } else {
+                    tail.future.whenComplete((reply, e) -> submit(consid, task));
+                    tail = new Tail(future, false);
+                }
+            }
+            futureList.add(future);
+        }
+        attribute.set(tail);
+        return futureList;
+    }
+
+    private List<CompletableFuture<Reply>> sendCommandDirect(String consid, boolean concurrentEnable, List<Command> commands) {
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            CompletableFuture<Reply> future = new CompletableFuture<>();
+            String hashKey = consid;
+            if (concurrentEnable) {
+                List<byte[]> keys = command.getKeys();
+                if (keys == null || keys.isEmpty()) {
+                    hashKey = consid;
+                } else {
+                    hashKey = Utils.bytesToString(keys.get(0));
                 }
-                Task task = new Task(command, future);
-                executor.submit(hashKey, () -> execute(task));
-            } catch (Exception e) {
-                ErrorLogCollector.collect(UpstreamRedisHBaseMixClientTemplate.class, "task submit fail, return TOO_BUSY, command = " + command.getName());
-                future.complete(ErrorReply.TOO_BUSY);
             }
+            submit(hashKey, new Task(command, future));
             futureList.add(future);
         }
         return futureList;
     }
 
+    private void submit(String hashKey, Task task) {
+        try {
+            executor.submit(hashKey, () -> execute(task));
+        } catch (Exception e) {
+            ErrorLogCollector.collect(UpstreamRedisHBaseMixClientTemplate.class, "task submit fail, return TOO_BUSY, command = " + task.command.getName());
+            task.future.complete(ErrorReply.TOO_BUSY);
+        }
+    }
+
+    private boolean isAsyncGet(Command command) {
+        if (command.getRedisCommand() != RedisCommand.GET) return false;
+        byte[][] objects = command.getObjects();
+        return objects.length == 2;
+    }
+
+    //redis命中则直接返回，未命中（或者异常）则提交到线程池走完整的逻辑（检查null缓存、穿透hbase、回填redis）
+    private void asyncGet(UpstreamRedisClientTemplate asyncRedisTemplate, String consid, Task task) {
+        Command command = task.command;
+        try {
+            byte[] key = command.getObjects()[1];
+            Command getCommand = new Command(new byte[][]{RedisCommand.GET.raw(), RedisHBaseUtils.redisKey(key)});
+            getCommand.setChannelInfo(command.getChannelInfo());
+            CompletableFuture<Reply> future = asyncRedisTemplate.sendCommand(0, Collections.singletonList(getCommand)).get(0);
+            future.whenComplete((reply, e) -> {
+                if (e == null && reply instanceof BulkReply && ((BulkReply) reply).getRaw() != null) {
+                    RedisHBaseMonitor.incr("get(byte[])", OperationType.REDIS_ONLY.name());
+                    task.future.complete(reply);
+                } else {
+                    submit(consid, task);
+                }
+            });
+        } catch (Exception e) {
+            ErrorLogCollector.collect(UpstreamRedisHBaseMixClientTemplate.class, "async get error, fallback to executor, e = " + e);
+            submit(consid, task);
+        }
+    }
+
+    private Attribute<Tail> tailAttribute(ChannelInfo channelInfo) {
+        ChannelHandlerContext ctx = channelInfo.getCtx();
+        if (ctx == null) return null;
+        Channel channel = ctx.channel();
+        if (asyncRedisTemplate() != null) {
+            return channel.attr(TAIL);
+        }
+        //快速路径关闭之后，需要等之前的命令执行完成
+        if (channel.hasAttr(TAIL)) {
+            Attribute<Tail> attribute = channel.attr(TAIL);
+            Tail tail = attribute.get();
+            if (tail != null && !tail.future.isDone()) {
+                return attribute;
+            }
+            attribute.set(null);
+        }
+        return null;
+    }
+
+    //快速路径的异步redis客户端和camellia-redis使用同一份路由配置，路由更新之后重建，保证读到的是同一个redis
+    private UpstreamRedisClientTemplate asyncRedisTemplate() {
+        if (!RedisHBaseConfiguration.asyncGetEnable()) return null;
+        ResourceTable resourceTable = redisTemplate.getResourceTable();
+        if (resourceTable == null) return null;
+        if (resourceTable == asyncResourceTable) {
+            return asyncRedisTemplate;
+        }
+        synchronized (lock) {
+            if (resourceTable == asyncResourceTable) {
+                return asyncRedisTemplate;
+            }
+            List<String> resources = new ArrayList<>();
+            for (Resource resource : ResourceUtil.getAllResources(resourceTable)) {
+                resources.add(PasswordMaskUtils.maskResource(resource));
+            }
+            UpstreamRedisClientTemplate template = null;
+            try {
+                template = new UpstreamRedisClientTemplate(resourceTable);
+                logger.info("async redis template init success, resources = {}", resources);
+            } catch (Exception e) {
+                //如路由中有异步客户端不支持的资源，快速路径不生效
+                logger.error("async redis template init error, get fast path disabled, resources = {}", resources, e);
+            }
+            UpstreamRedisClientTemplate oldTemplate = this.asyncRedisTemplate;
+            this.asyncRedisTemplate = template;
+            this.asyncResourceTable = resourceTable;
+            if (oldTemplate != null) {
+                oldTemplate.shutdown();
+            }
+            return template;
+        }
+    }
+
     @Override
     public boolean isMultiDBSupport() {
         return false;
@@ -121,6 +261,16 @@ public class UpstreamRedisHBaseMixClientTemplate implements IUpstreamClientTempl
         }
     }
 
+    private static class Tail {
+        private final CompletableFuture<Reply> future;
+        private final boolean submitted;//是否已经直接提交到了线程池
+
+        public Tail(CompletableFuture<Reply> future, boolean submitted) {
+            this.future = future;
+            this.submitted = submitted;
+        }
+    }
+
     private void execute(Task task) {
         Command command = task.command;
         CompletableFuture<Reply> future = task.future;
@@ -107,6 +107,16 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getInt("hbase.async.write.queue.size", 1000000);
     }
 
+    //hbase异步写的最大延迟，buffer中最早的数据超过该时间没有攒满一个批次也会flush
+    public static long hbaseAsyncWriteMaxDelayMillis() {
+        return ProxyDynamicConf.getLong("hbase.async.write.max.delay.millis", 1000L);
+    }
+
+    //hbase异步写单个线程最多堆积多少个mutation（put+delete，包括队列中和buffer中），超过则提交失败，小于等于0表示不限制（只受队列大小限制）
+    public static long hbaseAsyncWriteMaxPendingMutations() {
+        return ProxyDynamicConf.getLong("hbase.async.write.max.pending.mutations", -1L);
+    }
+
     //hbase异步写任务提交失败时是否降级，若降级则丢弃，否则改成同步写
     public static boolean hbaseDegradedIfAsyncWriteSubmitFail() {
         return ProxyDynamicConf.getBoolean("hbase.degraded.if.async.write.submit.fail", false);
@@ -132,6 +142,12 @@ public class RedisHBaseConfiguration {
         return ProxyDynamicConf.getLong("hbase.read.freq.check.threshold", 500L);
     }
 
+    //get命令是否走非阻塞的快速路径：先通过proxy自身的异步redis客户端（pipeline）查询redis，命中则直接返回，未命中再走线程池（穿透hbase）
+    //备注：异步redis客户端使用和camellia-redis相同的路由配置（随之动态更新），路由中有异步客户端不支持的资源时不生效；开启了upstream.redis.hbase.command.execute.concurrent.enable时不生效
+    public static boolean asyncGetEnable() {
+        return ProxyDynamicConf.getBoolean("redis.hbase.async.get.enable", false);
+    }
+
     //哪些前缀的key是什么类型的一些先验知识，可以用于减少redis请求量
     public static Map<String, String> redisKeyTypePrioriConf() {
         if (redisKeyTypePrioriConfMap != null) return redisKeyTypePrioriConfMap;
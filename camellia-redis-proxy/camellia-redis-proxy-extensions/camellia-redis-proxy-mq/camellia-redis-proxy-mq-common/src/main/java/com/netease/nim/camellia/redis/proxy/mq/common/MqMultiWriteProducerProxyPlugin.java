@@ -58,6 +58,8 @@ public class MqMultiWriteProducerProxyPlugin implements ProxyPlugin {
             if (command.isBlocking()) {
                 return ProxyPluginResponse.SUCCESS;
             }
+            //mq pack will be serialized asynchronously, so materialize the args in case of zero-copy decode mode
+            command.getObjects();
             MqPack mqPack = new MqPack();
             mqPack.setCommand(command);
             mqPack.setBid(bid);
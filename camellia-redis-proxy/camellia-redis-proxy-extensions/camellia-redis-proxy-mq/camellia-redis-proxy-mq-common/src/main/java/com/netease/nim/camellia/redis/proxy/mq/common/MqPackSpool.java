@@ -0,0 +1,394 @@
+package com.netease.nim.camellia.redis.proxy.mq.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 基于内存映射文件的本地追加写队列（spool），用于mq发送变慢或者不可用时暂存数据，恢复后再按顺序取出发送
+ * 1）数据写在目录下的多个segment文件中（文件名为segment的序号），单个segment写满后新建一个segment
+ * 2）每条数据的格式：长度（4字节）+ 内容，先写内容再写长度，长度为0表示还没有写入（文件是预分配的，默认都是0）
+ * 3）poll取出的数据需要调用ack确认，只有连续确认的位置才会记录到offset文件中，确认过的segment才会被删除并解除映射
+ * 4）重启后从offset文件记录的位置继续，取出但是还没有确认的数据会被重新取出（at-least-once）
+ * 5）总大小（未确认的部分）超过上限时写入失败，由调用方决定如何处理
+ * Created by agent on 2026/10/18
+ */
+public class MqPackSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqPackSpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String OFFSET_FILE = "spool.offset";
+
+    private final File dir;
+    private final int segmentSize;
+    private final long maxBytes;
+
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private final MappedByteBuffer offsetBuffer;
+
+    private long writeSegmentId;
+    private MappedByteBuffer writeBuffer;
+    private int writePos;
+
+    private long readSegmentId;
+    private MappedByteBuffer readBuffer;
+    private int readPos;
+
+    //已经确认的位置，会持久化到offset文件中
+    private long commitSegmentId;
+    private int commitPos;
+    //poll取出还没有确认的数据，seq -> 数据的结束位置
+    private final TreeMap<Long, Record> pending = new TreeMap<>();
+    private long seq;
+
+    private long count;
+    private boolean closed;
+
+    public MqPackSpool(String dir, int segmentSize, long maxBytes) throws IOException {
+        this.dir = new File(dir);
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        if (!this.dir.exists() && !this.dir.mkdirs()) {
+            throw new IOException("mkdirs fail, dir = " + dir);
+        }
+        this.offsetBuffer = map(new File(this.dir, OFFSET_FILE), 12);
+        File[] files = this.dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("unknown spool file = {}, skip", file.getAbsolutePath());
+                }
+            }
+        }
+        long offsetSegmentId = offsetBuffer.getLong(0);
+        int offsetPos = offsetBuffer.getInt(8);
+        //清理已经确认过的segment
+        while (!segments.isEmpty() && segments.firstKey() < offsetSegmentId) {
+            delete(segments.pollFirstEntry().getValue());
+        }
+        if (segments.isEmpty()) {
+            this.writeSegmentId = offsetSegmentId;
+            this.writeBuffer = map(segmentFile(writeSegmentId), segmentSize);
+            segments.put(writeSegmentId, segmentFile(writeSegmentId));
+            this.writePos = 0;
+            this.readSegmentId = writeSegmentId;
+            this.readBuffer = writeBuffer;
+            this.readPos = 0;
+        } else {
+            this.writeSegmentId = segments.lastKey();
+            this.writeBuffer = map(segments.lastEntry().getValue(), segmentSize);
+            this.writePos = scan(writeBuffer, 0, null);
+            this.readSegmentId = segments.firstKey();
+            this.readBuffer = readSegmentId == writeSegmentId ? writeBuffer : map(segments.firstEntry().getValue(), segmentSize);
+            this.readPos = readSegmentId == offsetSegmentId ? offsetPos : 0;
+            //统计积压的条数
+            long[] counter = new long[1];
+            for (Long segmentId : segments.keySet()) {
+                if (segmentId == readSegmentId) {
+                    scan(readBuffer, readPos, counter);
+                } else if (segmentId == writeSegmentId) {
+                    scan(writeBuffer, 0, counter);
+                } else {
+                    MappedByteBuffer buffer = map(segments.get(segmentId), segmentSize);
+                    try {
+                        scan(buffer, 0, counter);
+                    } finally {
+                        unmap(buffer);
+                    }
+                }
+            }
+            this.count = counter[0];
+        }
+        this.commitSegmentId = readSegmentId;
+        this.commitPos = readPos;
+        logger.info("mq pack spool init success, dir = {}, segments = {}, count = {}, backlog.bytes = {}",
+                this.dir.getAbsolutePath(), segments.size(), count, backlogBytes());
+    }
+
+    /**
+     * 追加写入
+     * @param data 数据
+     * @return 成功/失败（超过单个segment大小或者总大小上限）
+     */
+    public synchronized boolean append(byte[] data) {
+        if (closed) {
+            return false;
+        }
+        int need = 4 + data.length;
+        if (need > segmentSize) {
+            return false;
+        }
+        if (backlogBytes() + need > maxBytes) {
+            return false;
+        }
+        try {
+            if (writePos + need > segmentSize) {
+                rollSegment();
+            }
+            writeBuffer.position(writePos + 4);
+            writeBuffer.put(data);
+            writeBuffer.putInt(writePos, data.length);
+            writePos += need;
+            count ++;
+            return true;
+        } catch (IOException e) {
+            logger.error("mq pack spool append error, dir = {}", dir.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 按写入顺序取出数据，取出的数据需要调用ack确认
+     * @param max 最多取多少条
+     * @return 数据
+     */
+    public synchronized List<Record> poll(int max) {
+        List<Record> list = new ArrayList<>();
+        if (closed) {
+            return list;
+        }
+        while (list.size() < max) {
+            int len = readPos + 4 > segmentSize ? 0 : readBuffer.getInt(readPos);
+            if (len <= 0) {
+                if (readSegmentId < writeSegmentId) {
+                    nextReadSegment();
+                    continue;
+                }
+                //已经读到了写入位置（跳过了无法读取的segment时，条数可能不准确，这里修正一下）
+                count = 0;
+                break;
+            }
+            byte[] data = new byte[len];
+            readBuffer.position(readPos + 4);
+            readBuffer.get(data);
+            readPos += 4 + len;
+            count --;
+            Record record = new Record(seq ++, data, readSegmentId, readPos);
+            pending.put(record.seq, record);
+            list.add(record);
+        }
+        return list;
+    }
+
+    /**
+     * 确认数据已经处理完成（发送成功，或者已经重新写入了spool）
+     * 只有之前取出的数据都确认了，offset才会前进
+     * @param record poll取出的数据
+     */
+    public synchronized void ack(Record record) {
+        if (closed) {
+            return;
+        }
+        Record pendingRecord = pending.get(record.seq);
+        if (pendingRecord == null) {
+            return;
+        }
+        pendingRecord.acked = true;
+        Record last = null;
+        while (!pending.isEmpty() && pending.firstEntry().getValue().acked) {
+            last = pending.pollFirstEntry().getValue();
+        }
+        if (last == null) {
+            return;
+        }
+        commitSegmentId = last.segmentId;
+        commitPos = last.endPos;
+        //已经取出的数据都确认了，且读位置已经在下一个segment，则offset可以直接前进到读位置
+        if (pending.isEmpty() && readSegmentId > commitSegmentId) {
+            commitSegmentId = readSegmentId;
+            commitPos = readPos;
+        }
+        offsetBuffer.putLong(0, commitSegmentId);
+        offsetBuffer.putInt(8, commitPos);
+        while (!segments.isEmpty() && segments.firstKey() < commitSegmentId) {
+            delete(segments.pollFirstEntry().getValue());
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return count <= 0;
+    }
+
+    /**
+     * 还没有取出的条数
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * 取出了还没有确认的条数
+     */
+    public synchronized long pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 还没有确认的字节数
+     */
+    public synchronized long backlogBytes() {
+        return (writeSegmentId - commitSegmentId) * segmentSize + writePos - commitPos;
+    }
+
+    /**
+     * 关闭，解除所有的内存映射，之后不能再读写
+     */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (readBuffer != writeBuffer) {
+            unmap(readBuffer);
+        }
+        unmap(writeBuffer);
+        unmap(offsetBuffer);
+        readBuffer = null;
+        writeBuffer = null;
+    }
+
+    private void rollSegment() throws IOException {
+        long segmentId = writeSegmentId + 1;
+        File file = segmentFile(segmentId);
+        MappedByteBuffer buffer = map(file, segmentSize);
+        segments.put(segmentId, file);
+        //读位置落后时，旧的segment轮到读取时会重新映射
+        if (writeBuffer != readBuffer) {
+            unmap(writeBuffer);
+        }
+        writeSegmentId = segmentId;
+        writeBuffer = buffer;
+        writePos = 0;
+    }
+
+    //读完的segment解除映射，文件要等确认之后才会删除
+    private void nextReadSegment() {
+        if (readBuffer != writeBuffer) {
+            unmap(readBuffer);
+        }
+        Long next = segments.higherKey(readSegmentId);
+        if (next == null) {
+            next = writeSegmentId;
+        }
+        readSegmentId = next;
+        readPos = 0;
+        if (readSegmentId == writeSegmentId) {
+            readBuffer = writeBuffer;
+        } else {
+            try {
+                readBuffer = map(segments.get(readSegmentId), segmentSize);
+            } catch (IOException e) {
+                //无法读取的segment直接跳过
+                logger.error("mq pack spool segment map error, segment = {}, skip", readSegmentId, e);
+                readBuffer = writeBuffer;
+                nextReadSegment();
+                return;
+            }
+        }
+        if (pending.isEmpty()) {
+            commitSegmentId = readSegmentId;
+            commitPos = readPos;
+            offsetBuffer.putLong(0, commitSegmentId);
+            offsetBuffer.putInt(8, commitPos);
+            while (!segments.isEmpty() && segments.firstKey() < commitSegmentId) {
+                delete(segments.pollFirstEntry().getValue());
+            }
+        }
+    }
+
+    //返回数据的结束位置，counter不为null时累加条数
+    private int scan(MappedByteBuffer buffer, int pos, long[] counter) {
+        while (pos + 4 <= segmentSize) {
+            int len = buffer.getInt(pos);
+            if (len <= 0 || pos + 4 + len > segmentSize) {
+                break;
+            }
+            pos += 4 + len;
+            if (counter != null) {
+                counter[0] ++;
+            }
+        }
+        return pos;
+    }
+
+    private File segmentFile(long segmentId) {
+        return new File(dir, String.format("%020d", segmentId) + SEGMENT_SUFFIX);
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            logger.warn("mq pack spool delete segment fail, file = {}", file.getAbsolutePath());
+        }
+    }
+
+    //MappedByteBuffer只有在gc时才会解除映射，删除的segment需要主动解除，否则文件占用的空间和虚拟内存不会释放
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) return;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if (invokeCleaner != null) {
+                //java9+
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                invokeCleaner.invoke(field.get(null), buffer);
+            } else {
+                //java8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("mq pack spool unmap error", e);
+        }
+    }
+
+    /**
+     * poll取出的一条数据
+     */
+    public static class Record {
+        private final long seq;
+        private final byte[] data;
+        private final long segmentId;
+        private final int endPos;
+        private boolean acked;//guarded by MqPackSpool.this
+
+        private Record(long seq, byte[] data, long segmentId, int endPos) {
+            this.seq = seq;
+            this.data = data;
+            this.segmentId = segmentId;
+            this.endPos = endPos;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.netease.nim.camellia.redis.proxy.mq.kafka;
+
+import com.alibaba.fastjson.JSONObject;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPack;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPackSender;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPackSerializer;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPackSpool;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 批量、多通道、支持本地磁盘溢出的kafka发送器，可以替代KafkaMqPackSender
+ * 1）按照key哈希到多个发送通道（lane），每个通道一个线程，一次取出一批数据发送，同一个key的数据顺序发送
+ * 2）按topic/partition攒批由kafka-producer完成（linger.ms/batch.size），默认参数偏向吞吐，可以通过mq.multi.write.kafka.conf.props覆盖
+ * 3）通道队列满了、或者在途（已发送未确认）的数据过多时，数据会写入本地的内存映射文件（MqPackSpool），而不是丢弃或者阻塞proxy的写请求
+ * 4）spool中有积压时，新的数据也会写入spool（保证顺序），由后台线程按顺序取出投递到发送通道，kafka发送失败的数据也会重新写入spool等待重试
+ *    从spool取出的数据在kafka确认（或者失败后重新写入spool）之后才会在spool中ack，进程退出时未确认的数据重启后会重新发送
+ * 5）只有spool也写满时才会返回失败，积压情况可以通过stats()获取，并且会定时打印日志
+ * Created by agent on 2026/10/18
+ */
+public class KafkaMqPackBatchSender implements MqPackSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaMqPackBatchSender.class);
+
+    private static final AtomicLong id = new AtomicLong();
+
+    private final ConcurrentHashMap<String, List<KafkaUrl>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Producer<byte[], byte[]>> producerMap = new ConcurrentHashMap<>();
+    private final Function<String, Producer<byte[], byte[]>> producerFactory;
+    private final List<Lane> lanes = new ArrayList<>();
+    private final MqPackSpool spool;
+    private final int batchSize;
+    private final long maxInflight;
+    private final long failBackoffMillis;
+
+    private final AtomicLong inflight = new AtomicLong();
+    private volatile long lastFailTime;
+    private volatile boolean draining;//从spool取出还没有投递到发送通道
+
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failCount = new LongAdder();
+    private final LongAdder spoolWriteCount = new LongAdder();
+    private final LongAdder spoolReadCount = new LongAdder();
+    private final LongAdder dropCount = new LongAdder();
+
+    public KafkaMqPackBatchSender() {
+        this(KafkaMqPackBatchSender::createProducer);
+    }
+
+    /**
+     * @param producerFactory 根据kafka地址创建producer，可以传入MockProducer用于测试
+     */
+    public KafkaMqPackBatchSender(Function<String, Producer<byte[], byte[]>> producerFactory) {
+        this.producerFactory = producerFactory;
+        ProxyDynamicConf.registerCallback(cache::clear);
+        int laneNum = ProxyDynamicConf.getInt("mq.multi.write.kafka.batch.lane.num", 4);
+        int laneQueueSize = ProxyDynamicConf.getInt("mq.multi.write.kafka.batch.lane.queue.size", 10000);
+        this.batchSize = ProxyDynamicConf.getInt("mq.multi.write.kafka.batch.size", 200);
+        this.maxInflight = ProxyDynamicConf.getLong("mq.multi.write.kafka.batch.max.inflight", 100000L);
+        this.failBackoffMillis = ProxyDynamicConf.getLong("mq.multi.write.kafka.batch.fail.backoff.millis", 1000L);
+        String spoolDir = ProxyDynamicConf.getString("mq.multi.write.kafka.spool.dir", "./camellia-mq-spool");
+        int segmentSize = ProxyDynamicConf.getInt("mq.multi.write.kafka.spool.segment.size", 64 * 1024 * 1024);
+        long maxBytes = ProxyDynamicConf.getLong("mq.multi.write.kafka.spool.max.bytes", 1024 * 1024 * 1024L);
+        try {
+            this.spool = new MqPackSpool(spoolDir, segmentSize, maxBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("mq pack spool init error, dir = " + spoolDir, e);
+        }
+        long senderId = id.incrementAndGet();
+        for (int i=0; i<laneNum; i++) {
+            Lane lane = new Lane(laneQueueSize, "mq-multi-write-kafka-batch-sender-" + senderId + "-" + i);
+            lane.start();
+            lanes.add(lane);
+        }
+        Thread drainThread = new Thread(this::drainSpool, "mq-multi-write-kafka-spool-drain-" + senderId);
+        drainThread.setDaemon(true);
+        drainThread.start();
+        long intervalSeconds = ProxyDynamicConf.getLong("mq.multi.write.kafka.batch.stats.log.interval.seconds", 60L);
+        Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mq-multi-write-kafka-batch-stats-" + senderId);
+            thread.setDaemon(true);
+            return thread;
+        }).scheduleAtFixedRate(() -> logger.info("kafka mq pack batch sender stats = {}", stats()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("KafkaMqPackBatchSender init success, lane.num = {}, lane.queue.size = {}, batch.size = {}, spool.dir = {}",
+                laneNum, laneQueueSize, batchSize, spoolDir);
+    }
+
+    @Override
+    public boolean send(MqPack pack) throws IOException {
+        //spool中有积压时，为了保证顺序，新的数据也写入spool
+        if (!draining && spool.isEmpty() && !busy()) {
+            Lane lane = lane(pack);
+            if (lane.queue.offer(new Entry(pack, null, null, null))) {
+                return true;
+            }
+        }
+        return writeSpool(null, MqPackSerializer.serialize(pack));
+    }
+
+    /**
+     * 积压情况
+     * @return stats
+     */
+    public JSONObject stats() {
+        JSONObject json = new JSONObject();
+        long laneBacklog = 0;
+        for (Lane lane : lanes) {
+            laneBacklog += lane.queue.size();
+        }
+        json.put("laneBacklog", laneBacklog);
+        json.put("inflight", inflight.get());
+        json.put("spoolBacklog", spool.count());
+        json.put("spoolPending", spool.pendingCount());
+        json.put("spoolBacklogBytes", spool.backlogBytes());
+        json.put("send", sendCount.sum());
+        json.put("success", successCount.sum());
+        json.put("fail", failCount.sum());
+        json.put("spoolWrite", spoolWriteCount.sum());
+        json.put("spoolRead", spoolReadCount.sum());
+        json.put("drop", dropCount.sum());
+        return json;
+    }
+
+    //在途数据过多或者最近发送失败过，说明kafka变慢或者不可用
+    private boolean busy() {
+        return inflight.get() >= maxInflight || System.currentTimeMillis() - lastFailTime < failBackoffMillis;
+    }
+
+    private Lane lane(MqPack pack) {
+        return lanes.get(Math.abs(Arrays.hashCode(hashKey(pack)) % lanes.size()));
+    }
+
+    private byte[] hashKey(MqPack pack) {
+        List<byte[]> keys = pack.getCommand().getKeys();
+        if (!keys.isEmpty()) {
+            return keys.get(0);
+        }
+        return Utils.stringToBytes(UUID.randomUUID().toString());
+    }
+
+    //spool中的数据格式：kafkaUrl长度（4字节，0表示发往所有kafka）+ kafkaUrl + 序列化后的MqPack
+    private boolean writeSpool(KafkaUrl kafkaUrl, byte[] data) {
+        byte[] url = kafkaUrl == null ? new byte[0] : kafkaUrl.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + url.length + data.length);
+        buffer.putInt(url.length);
+        buffer.put(url);
+        buffer.put(data);
+        if (spool.append(buffer.array())) {
+            spoolWriteCount.increment();
+            return true;
+        }
+        dropCount.increment();
+        ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "spool full, drop");
+        return false;
+    }
+
+    private void drainSpool() {
+        logger.info(Thread.currentThread().getName() + " start");
+        while (true) {
+            try {
+                if (spool.isEmpty() || busy()) {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                    continue;
+                }
+                draining = true;
+                List<MqPackSpool.Record> list = spool.poll(batchSize);
+                for (MqPackSpool.Record record : list) {
+                    byte[] bytes = record.getData();
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    int urlLen = buffer.getInt();
+                    KafkaUrl kafkaUrl = null;
+                    if (urlLen > 0) {
+                        kafkaUrl = KafkaUrl.fromUrl(new String(bytes, 4, urlLen, StandardCharsets.UTF_8));
+                    }
+                    byte[] data = Arrays.copyOfRange(bytes, 4 + urlLen, bytes.length);
+                    MqPack pack = MqPackSerializer.deserialize(data);
+                    //阻塞等待通道有空位，取出的数据不会丢失
+                    lane(pack).queue.put(new Entry(pack, data, kafkaUrl, record));
+                    spoolReadCount.increment();
+                }
+            } catch (Exception e) {
+                ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "drain spool error", e);
+            } finally {
+                draining = false;
+            }
+        }
+    }
+
+    private void doSend(Entry entry) throws IOException {
+        MqPack pack = entry.pack;
+        byte[] data = entry.data != null ? entry.data : MqPackSerializer.serialize(pack);
+        List<KafkaUrl> kafkaUrls;
+        if (entry.kafkaUrl != null) {
+            kafkaUrls = Collections.singletonList(entry.kafkaUrl);
+        } else {
+            kafkaUrls = kafkaUrls(pack.getBid(), pack.getBgroup());
+        }
+        if (kafkaUrls.isEmpty()) {
+            ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "kafka urls is empty");
+            entry.done();
+            return;
+        }
+        entry.remaining.set(kafkaUrls.size());
+        byte[] kafkaHashKey = hashKey(pack);
+        for (KafkaUrl kafkaUrl : kafkaUrls) {
+            ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(kafkaUrl.getTopic(), kafkaHashKey, data);
+            Producer<byte[], byte[]> producer;
+            try {
+                producer = CamelliaMapUtils.computeIfAbsent(producerMap, kafkaUrl.getAddrs(), producerFactory);
+            } catch (Exception e) {
+                ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "kafka producer init error, url = " + kafkaUrl.getAddrs(), e);
+                onFail(kafkaUrl, data);
+                entry.done();
+                continue;
+            }
+            inflight.incrementAndGet();
+            sendCount.increment();
+            try {
+                producer.send(record, (recordMetadata, e) -> {
+                    inflight.decrementAndGet();
+                    if (e != null) {
+                        ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "send to kafka error, kafka = " + kafkaUrl, e);
+                        onFail(kafkaUrl, data);
+                    } else {
+                        successCount.increment();
+                    }
+                    entry.done();
+                });
+            } catch (Exception e) {
+                inflight.decrementAndGet();
+                ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "send to kafka error, kafka = " + kafkaUrl, e);
+                onFail(kafkaUrl, data);
+                entry.done();
+            }
+        }
+    }
+
+    //发送失败的数据写入spool，等待kafka恢复后重试
+    private void onFail(KafkaUrl kafkaUrl, byte[] data) {
+        failCount.increment();
+        lastFailTime = System.currentTimeMillis();
+        writeSpool(kafkaUrl, data);
+    }
+
+    private List<KafkaUrl> kafkaUrls(Long bid, String bgroup) {
+        String key = Utils.getCacheKey(bid, bgroup);
+        List<KafkaUrl> urls = cache.get(key);
+        if (urls != null) {
+            return urls;
+        }
+        String kafkaUrls = ProxyDynamicConf.getString(KafkaMqPackConstants.CONF_KEY_PRODUCER_KAFKA_URLS, bid, bgroup, null);
+        if (kafkaUrls == null) {
+            urls = new ArrayList<>();
+        } else {
+            urls = KafkaUrl.fromUrls(kafkaUrls);
+        }
+        cache.put(key, urls);
+        return urls;
+    }
+
+    private static Producer<byte[], byte[]> createProducer(String url) {
+        Properties properties = new Properties();
+        properties.put("bootstrap.servers", url);
+        properties.put("key.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        properties.put("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        properties.put("acks", "1");
+        properties.put("linger.ms", "5");
+        properties.put("batch.size", String.valueOf(64 * 1024));
+        properties.put("max.block.ms", "1000");
+        try {
+            String props = ProxyDynamicConf.getString(KafkaMqPackConstants.CONF_KEY_KAFKA_CONF_PROPS, null);
+            if (props != null) {
+                JSONObject json = JSONObject.parseObject(props);
+                for (Map.Entry<String, Object> entry : json.entrySet()) {
+                    properties.put(entry.getKey(), String.valueOf(entry.getValue()));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("parse {} error", KafkaMqPackConstants.CONF_KEY_KAFKA_CONF_PROPS, e);
+        }
+        KafkaProducer<byte[], byte[]> producer = new KafkaProducer<>(properties);
+        logger.info("kafka producer start success, kafka = {}, props = {}", url, properties);
+        return producer;
+    }
+
+    private class Entry {
+        private final MqPack pack;
+        private final byte[] data;//从spool中取出时已经是序列化好的
+        private final KafkaUrl kafkaUrl;//不为null表示只发往指定的kafka（发送失败重试的场景）
+        private final MqPackSpool.Record record;//不为null表示从spool中取出，发往所有kafka都有结果之后需要ack
+        private final AtomicInteger remaining = new AtomicInteger(1);
+
+        Entry(MqPack pack, byte[] data, KafkaUrl kafkaUrl, MqPackSpool.Record record) {
+            this.pack = pack;
+            this.data = data;
+            this.kafkaUrl = kafkaUrl;
+            this.record = record;
+        }
+
+        //发往一个kafka有了结果（成功，或者失败后已经重新写入spool）
+        void done() {
+            if (remaining.decrementAndGet() == 0 && record != null) {
+                spool.ack(record);
+            }
+        }
+    }
+
+    private class Lane extends Thread {
+        private final LinkedBlockingQueue<Entry> queue;
+
+        Lane(int queueSize, String name) {
+            super(name);
+            this.queue = new LinkedBlockingQueue<>(queueSize);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            logger.info(getName() + " start");
+            List<Entry> buffer = new ArrayList<>(batchSize);
+            while (true) {
+                try {
+                    Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                    if (entry == null) {
+                        continue;
+                    }
+                    buffer.add(entry);
+                    queue.drainTo(buffer, batchSize - 1);
+                    for (Entry e : buffer) {
+                        try {
+                            doSend(e);
+                        } catch (Exception ex) {
+                            ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "doSend error", ex);
+                            //从spool中取出的数据重新写入spool之后再ack，避免阻塞spool的offset前进
+                            if (e.record != null && e.remaining.get() > 0) {
+                                onFail(e.kafkaUrl, e.data);
+                                e.remaining.set(1);
+                                e.done();
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    ErrorLogCollector.collect(KafkaMqPackBatchSender.class, "lane send error", e);
+                } finally {
+                    buffer.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.netease.nim.camellia.redis.proxy.mq.kafka;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfLoader;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPack;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPackSerializer;
+import com.netease.nim.camellia.redis.proxy.mq.common.MqPackSpool;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Created by agent on 2026/10/18
+ */
+public class KafkaMqPackBatchSenderTest {
+
+    private static final String TOPIC = "camellia_multi_write";
+    private static final Map<String, String> conf = new HashMap<>();
+
+    @BeforeClass
+    public static void init() {
+        conf.put(KafkaMqPackConstants.CONF_KEY_PRODUCER_KAFKA_URLS, "127.0.0.1:9092/" + TOPIC);
+        conf.put("mq.multi.write.kafka.batch.fail.backoff.millis", "100");
+        ProxyDynamicConf.init(conf, new ProxyDynamicConfLoader() {
+            @Override
+            public Map<String, String> load() {
+                return new HashMap<>(conf);
+            }
+
+            @Override
+            public void updateInitConf(Map<String, String> initConf) {
+            }
+        });
+    }
+
+    @Test
+    public void testSpoolOffsetOnlyMovesAfterAck() throws IOException {
+        String dir = tempDir();
+        MqPackSpool spool = new MqPackSpool(dir, 1024, 1024 * 1024);
+        for (int i=0; i<3; i++) {
+            Assert.assertTrue(spool.append(Utils.stringToBytes("v" + i)));
+        }
+        List<MqPackSpool.Record> records = spool.poll(10);
+        Assert.assertEquals(3, records.size());
+        //只确认了后面的数据，offset不能前进
+        spool.ack(records.get(2));
+        spool.ack(records.get(1));
+        spool.close();
+
+        spool = new MqPackSpool(dir, 1024, 1024 * 1024);
+        records = spool.poll(10);
+        Assert.assertEquals(3, records.size());
+        Assert.assertEquals("v0", Utils.bytesToString(records.get(0).getData()));
+        for (MqPackSpool.Record record : records) {
+            spool.ack(record);
+        }
+        spool.close();
+
+        spool = new MqPackSpool(dir, 1024, 1024 * 1024);
+        Assert.assertTrue(spool.isEmpty());
+        Assert.assertTrue(spool.poll(10).isEmpty());
+        spool.close();
+    }
+
+    @Test
+    public void testSpoolDeleteSegmentsAfterAck() throws IOException {
+        String dir = tempDir();
+        MqPackSpool spool = new MqPackSpool(dir, 64, 1024 * 1024);
+        for (int i=0; i<20; i++) {
+            Assert.assertTrue(spool.append(new byte[20]));
+        }
+        Assert.assertTrue(segmentCount(dir) > 1);
+        List<MqPackSpool.Record> records = spool.poll(100);
+        Assert.assertEquals(20, records.size());
+        //还没有确认，segment不能删除
+        Assert.assertTrue(segmentCount(dir) > 1);
+        for (MqPackSpool.Record record : records) {
+            spool.ack(record);
+        }
+        Assert.assertEquals(1, segmentCount(dir));
+        Assert.assertEquals(0, spool.backlogBytes());
+        spool.close();
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        MockProducer<byte[], byte[]> producer = new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+        KafkaMqPackBatchSender sender = newSender(producer);
+        for (int i=0; i<100; i++) {
+            Assert.assertTrue(sender.send(pack("k" + i, "v" + i)));
+        }
+        waitUntil(() -> producer.history().size() == 100);
+        for (ProducerRecord<byte[], byte[]> record : producer.history()) {
+            Assert.assertEquals(TOPIC, record.topic());
+            MqPack pack = MqPackSerializer.deserialize(record.value());
+            Assert.assertEquals("set", Utils.bytesToString(pack.getCommand().getObjects()[0]));
+        }
+        Assert.assertEquals(100L, sender.stats().getLongValue("success"));
+    }
+
+    @Test
+    public void testRetryFromSpool() throws Exception {
+        MockProducer<byte[], byte[]> producer = new MockProducer<>(false, new ByteArraySerializer(), new ByteArraySerializer());
+        KafkaMqPackBatchSender sender = newSender(producer);
+        Assert.assertTrue(sender.send(pack("k1", "v1")));
+        waitUntil(() -> producer.history().size() == 1);
+        //发送失败的数据写入spool，退避之后从spool中取出重新发送
+        producer.errorNext(new RuntimeException("mock error"));
+        waitUntil(() -> producer.history().size() == 2);
+        Assert.assertEquals(1L, sender.stats().getLongValue("fail"));
+        Assert.assertEquals(1L, sender.stats().getLongValue("spoolPending"));
+        producer.completeNext();
+        waitUntil(() -> sender.stats().getLongValue("spoolPending") == 0);
+        Assert.assertEquals(1L, sender.stats().getLongValue("success"));
+        Assert.assertArrayEquals(producer.history().get(0).value(), producer.history().get(1).value());
+    }
+
+    private static KafkaMqPackBatchSender newSender(MockProducer<byte[], byte[]> producer) throws IOException {
+        conf.put("mq.multi.write.kafka.spool.dir", tempDir());
+        ProxyDynamicConf.reload();
+        return new KafkaMqPackBatchSender(url -> producer);
+    }
+
+    private static MqPack pack(String key, String value) {
+        MqPack pack = new MqPack();
+        pack.setCommand(new Command(new byte[][]{Utils.stringToBytes("set"), Utils.stringToBytes(key), Utils.stringToBytes(value)}));
+        pack.setBid(1L);
+        pack.setBgroup("default");
+        return pack;
+    }
+
+    private static String tempDir() throws IOException {
+        File dir = Files.createTempDirectory("camellia-mq-spool").toFile();
+        dir.deleteOnExit();
+        return dir.getAbsolutePath();
+    }
+
+    private static int segmentCount(String dir) {
+        File[] files = new File(dir).listFiles((d, name) -> name.endsWith(".seg"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() - start > 10000) {
+                Assert.fail("wait timeout");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -60,6 +60,8 @@ public class CamelliaRedisProxyUtil {
         serverProperties.setCport(properties.getCport());
         serverProperties.setCommandDecodeMaxBatchSize(netty.getCommandDecodeMaxBatchSize());
         serverProperties.setCommandDecodeBufferInitializerSize(netty.getCommandDecodeBufferInitializerSize());
+        serverProperties.setCommandDecodeZeroCopyEnable(netty.isCommandDecodeZeroCopyEnable());
+        serverProperties.setCommandDecodeZeroCopyThreshold(netty.getCommandDecodeZeroCopyThreshold());
         serverProperties.setTcpNoDelay(netty.isTcpNoDelay());
         serverProperties.setSoBacklog(netty.getSoBacklog());
         serverProperties.setSoRcvbuf(netty.getSoRcvbuf());
@@ -24,6 +24,8 @@ public class NettyProperties {
     private int writeBufferWaterMarkHigh = Constants.Server.writeBufferWaterMarkHigh;
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private boolean commandDecodeZeroCopyEnable = Constants.Server.commandDecodeZeroCopyEnable;
+    private int commandDecodeZeroCopyThreshold = Constants.Server.commandDecodeZeroCopyThreshold;
 
     public int getBossThread() {
         return bossThread;
@@ -144,4 +146,20 @@ public class NettyProperties {
     public void setCommandDecodeBufferInitializerSize(int commandDecodeBufferInitializerSize) {
         this.commandDecodeBufferInitializerSize = commandDecodeBufferInitializerSize;
     }
+
+    public boolean isCommandDecodeZeroCopyEnable() {
+        return commandDecodeZeroCopyEnable;
+    }
+
+    public void setCommandDecodeZeroCopyEnable(boolean commandDecodeZeroCopyEnable) {
+        this.commandDecodeZeroCopyEnable = commandDecodeZeroCopyEnable;
+    }
+
+    public int getCommandDecodeZeroCopyThreshold() {
+        return commandDecodeZeroCopyThreshold;
+    }
+
+    public void setCommandDecodeZeroCopyThreshold(int commandDecodeZeroCopyThreshold) {
+        this.commandDecodeZeroCopyThreshold = commandDecodeZeroCopyThreshold;
+    }
 }
@@ -0,0 +1,107 @@
+package com.netease.nim.camellia.tools.samples;
+
+import com.netease.nim.camellia.tools.executor.CamelliaDynamicIsolationExecutor;
+import com.netease.nim.camellia.tools.executor.CamelliaDynamicIsolationExecutorConfig;
+import com.netease.nim.camellia.tools.executor.CamelliaFairIsolationExecutor;
+import com.netease.nim.camellia.tools.executor.CamelliaFairIsolationExecutorConfig;
+import com.netease.nim.camellia.tools.statistic.CamelliaStatistics;
+import com.netease.nim.camellia.tools.statistic.CamelliaStatsData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对比CamelliaDynamicIsolationExecutor和CamelliaFairIsolationExecutor在慢租户洪峰下，快租户的排队延迟
+ * 4个快租户（任务耗时20ms，每50ms提交一个），2个慢租户（任务耗时500ms，每20ms提交一个，远超线程池的处理能力）
+ * 统计快租户任务从提交到开始执行的延迟分布
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaFairIsolationExecutorBenchmark {
+
+    private static final int poolSize = 10;
+    private static final long runTimeMs = 30*1000L;
+
+    public static void main(String[] args) throws InterruptedException {
+        CamelliaDynamicIsolationExecutorConfig config1 = new CamelliaDynamicIsolationExecutorConfig("dynamic", () -> poolSize);
+        config1.setIsolationThresholdPercentage(() -> 0.3);
+        CamelliaDynamicIsolationExecutor executor1 = new CamelliaDynamicIsolationExecutor(config1);
+        run("CamelliaDynamicIsolationExecutor", executor1::submit, () -> executor1.getStats().getThread());
+
+        CamelliaFairIsolationExecutorConfig config2 = new CamelliaFairIsolationExecutorConfig("fair", () -> poolSize);
+        config2.setMaxConcurrencyPercentagePerKey(() -> 0.3);
+        CamelliaFairIsolationExecutor executor2 = new CamelliaFairIsolationExecutor(config2);
+        run("CamelliaFairIsolationExecutor", executor2::submit, () -> executor2.getStats().getThread());
+        executor2.shutdown();
+
+        System.exit(0);
+    }
+
+    private static interface Submitter {
+        void submit(String isolationKey, Runnable runnable);
+    }
+
+    private static interface ThreadCounter {
+        int get();
+    }
+
+    private static void run(String name, Submitter submitter, ThreadCounter threadCounter) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CamelliaStatistics fastStats = new CamelliaStatistics();
+        CamelliaStatistics slowStats = new CamelliaStatistics();
+        AtomicLong maxThread = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i=1; i<=4; i++) {
+            String isolationKey = "fast" + i;
+            threads.add(new Thread(() -> produce(submitter, stop, isolationKey, 20, 50, fastStats)));
+        }
+        for (int i=1; i<=2; i++) {
+            String isolationKey = "slow" + i;
+            threads.add(new Thread(() -> produce(submitter, stop, isolationKey, 500, 20, slowStats)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < runTimeMs) {
+            maxThread.set(Math.max(maxThread.get(), threadCounter.get()));
+            Thread.sleep(100);
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        print(name, "fast", fastStats.getStatsDataAndReset(), maxThread.get());
+        print(name, "slow", slowStats.getStatsDataAndReset(), maxThread.get());
+        //等待慢任务跑完，避免影响下一轮
+        Thread.sleep(1000);
+    }
+
+    private static void produce(Submitter submitter, AtomicBoolean stop, String isolationKey, long taskSpendMs, long taskIntervalMs, CamelliaStatistics stats) {
+        while (!stop.get()) {
+            long submitNanos = System.nanoTime();
+            submitter.submit(isolationKey, () -> {
+                if (stop.get()) return;
+                stats.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submitNanos));
+                sleep(taskSpendMs);
+            });
+            sleep(taskIntervalMs);
+        }
+    }
+
+    private static void print(String name, String type, CamelliaStatsData data, long maxThread) {
+        System.out.printf("%s, %s tenants, count=%d, latency(ms): avg=%.2f, p50=%.2f, p99=%.2f, p999=%.2f, max=%.2f, maxThread=%d%n",
+                name, type, data.getCount(), data.getAvg() / 1000.0, data.getP50() / 1000.0, data.getP99() / 1000.0,
+                data.getP999() / 1000.0, data.getMax() / 1000.0, maxThread);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
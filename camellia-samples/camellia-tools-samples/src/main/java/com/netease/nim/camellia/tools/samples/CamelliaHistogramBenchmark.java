@@ -0,0 +1,64 @@
+package com.netease.nim.camellia.tools.samples;
+
+import com.netease.nim.camellia.tools.statistic.CamelliaHistogram;
+import com.netease.nim.camellia.tools.statistic.CamelliaHistogramSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CamelliaHistogram在多线程并发写入下的吞吐，线程数从1逐步翻倍，所有线程写入同一个直方图
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaHistogramBenchmark {
+
+    private static final int recordsPerThread = 10000000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+        //预热
+        run(1);
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            run(threads);
+        }
+    }
+
+    private static void run(int threads) throws InterruptedException {
+        CamelliaHistogram histogram = new CamelliaHistogram(Integer.MAX_VALUE);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(threads);
+        List<Thread> list = new ArrayList<>();
+        for (int i=0; i<threads; i++) {
+            Thread thread = new Thread(() -> {
+                long[] values = new long[1024];
+                for (int j=0; j<values.length; j++) {
+                    values[j] = ThreadLocalRandom.current().nextInt(100000);
+                }
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j=0; j<recordsPerThread; j++) {
+                    histogram.record(values[j & 1023]);
+                }
+                end.countDown();
+            });
+            thread.start();
+            list.add(thread);
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        end.await();
+        long spendNanos = System.nanoTime() - startTime;
+        CamelliaHistogramSnapshot snapshot = histogram.snapshot();
+        long total = (long) threads * recordsPerThread;
+        System.out.printf("threads=%d, count=%d, spend=%dms, throughput=%.1fM/s, p99=%d%n",
+                threads, snapshot.getCount(), spendNanos / 1000000, total * 1000.0 / spendNanos, snapshot.getQuantile(0.99));
+        for (Thread thread : list) {
+            thread.join();
+        }
+    }
+}
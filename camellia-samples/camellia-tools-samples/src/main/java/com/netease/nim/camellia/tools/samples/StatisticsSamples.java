@@ -1,6 +1,7 @@
 package com.netease.nim.camellia.tools.samples;
 
 import com.alibaba.fastjson.JSONObject;
+import com.netease.nim.camellia.tools.statistic.CamelliaHistogramSnapshot;
 import com.netease.nim.camellia.tools.statistic.CamelliaStatistics;
 import com.netease.nim.camellia.tools.statistic.CamelliaStatisticsManager;
 import com.netease.nim.camellia.tools.statistic.CamelliaStatsData;
@@ -16,6 +17,7 @@ public class StatisticsSamples {
     public static void main(String[] args) {
         test1();
         test2();
+        test3();
     }
 
     public static void test1() {
@@ -51,4 +53,21 @@ public class StatisticsSamples {
         Map<String, CamelliaStatsData> dataMap = manager.getStatsDataAndReset();
         System.out.println(JSONObject.toJSONString(dataMap));
     }
+
+    public static void test3() {
+        //模拟两个节点，各自上报直方图快照，在中心节点合并后计算全局的分位数
+        CamelliaStatistics node1 = new CamelliaStatistics();
+        CamelliaStatistics node2 = new CamelliaStatistics();
+        for (int i=0; i<1000; i++) {
+            node1.update(ThreadLocalRandom.current().nextInt(10));
+            node2.update(ThreadLocalRandom.current().nextInt(1000));
+        }
+        String report1 = node1.getSnapshotAndReset().toBase64();
+        String report2 = node2.getSnapshotAndReset().toBase64();
+
+        CamelliaHistogramSnapshot merged = CamelliaHistogramSnapshot.fromBase64(report1).merge(CamelliaHistogramSnapshot.fromBase64(report2));
+        System.out.println(merged.getCount());
+        System.out.println(merged.getQuantile(0.99));
+        System.out.println(JSONObject.toJSONString(merged.toStatsData()));
+    }
 }
@@ -1,35 +1,36 @@
 package com.netease.nim.camellia.tools.circuitbreaker;
 
-import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 一个简单的熔断器计算器
+ * 滑动窗口按时间分为若干个bucket，每个bucket记录自己所属的时间片（epoch），访问时才惰性地清空过期的bucket，
+ * 失败率的计算也在访问时进行（每个时间片最多一次），因此不需要定时任务，创建熔断器几乎没有开销，空闲的熔断器也不占用cpu
+ * 所有熔断器都会登记到CamelliaCircuitBreakerRegistry（弱引用），可以获取汇总的状态
  * Created by caojiajun on 2022/3/25
  */
 public class CamelliaCircuitBreaker {
 
     private static final Logger logger = LoggerFactory.getLogger(CamelliaCircuitBreaker.class);
 
-    private static final ScheduledExecutorService scheduledExecutorService = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
-            new DefaultThreadFactory("camellia-circuit-breaker-schedule"));
     private static final AtomicLong idGen = new AtomicLong();
+    private static final AtomicLongFieldUpdater<CamelliaCircuitBreaker> lastCheckEpochUpdater
+            = AtomicLongFieldUpdater.newUpdater(CamelliaCircuitBreaker.class, "lastCheckEpoch");
 
     private final CircuitBreakerConfig config;
+    private final long id;
     private final String name;
 
     private final int bucketSize;
-    private final LongAdder[] successBuckets;
-    private final LongAdder[] failBuckets;
-    private int index;
+    private final long slidePeriodMillis;
+    private final Bucket[] buckets;
+    private volatile long lastCheckEpoch;//上一次计算失败率的时间片
 
     private final AtomicBoolean circuitBreakerOpen = new AtomicBoolean(false);
 
@@ -42,18 +43,23 @@ public class CamelliaCircuitBreaker {
 
     public CamelliaCircuitBreaker(CircuitBreakerConfig config) {
         this.config = config;
-        this.name = "[" + config.getName() + "][id=" + idGen.incrementAndGet() + "]";
+        this.id = idGen.incrementAndGet();
+        this.name = "[" + config.getName() + "][id=" + id + "]";
         this.bucketSize = config.getStatisticSlidingWindowBucketSize();
-        this.successBuckets = new LongAdder[bucketSize];
-        this.failBuckets = new LongAdder[bucketSize];
+        this.slidePeriodMillis = Math.max(1, config.getStatisticSlidingWindowTime() / bucketSize);
+        this.buckets = new Bucket[bucketSize];
         for (int i=0; i<bucketSize; i++) {
-            this.successBuckets[i] = new LongAdder();
-            this.failBuckets[i] = new LongAdder();
+            this.buckets[i] = new Bucket();
         }
-        this.index = 0;
-        long slidePeriodMillis = config.getStatisticSlidingWindowTime() / bucketSize;
-        scheduledExecutorService.scheduleAtFixedRate(this::slideToNextBucket, slidePeriodMillis, slidePeriodMillis, TimeUnit.MILLISECONDS);
-        logger.info("camellia-circuit-breaker init success, name = {}", name);
+        this.lastCheckEpoch = System.currentTimeMillis() / slidePeriodMillis;
+        CamelliaCircuitBreakerRegistry.register(this);
+        if (logger.isDebugEnabled()) {
+            logger.debug("camellia-circuit-breaker init success, name = {}", name);
+        }
+    }
+
+    long getId() {
+        return id;
     }
 
     /**
@@ -76,6 +82,7 @@ public class CamelliaCircuitBreaker {
                 return false;
             }
             if (config.getForceOpen().get()) return true;
+            checkOpen(System.currentTimeMillis());
             return circuitBreakerOpen.get();
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -100,6 +107,7 @@ public class CamelliaCircuitBreaker {
                 }
                 return false;
             }
+            checkOpen(System.currentTimeMillis());
             //如果熔断器没有打开，直接返回true
             if (!circuitBreakerOpen.get()) {
                 return true;
@@ -144,7 +152,7 @@ public class CamelliaCircuitBreaker {
     public void incrementSuccess(long count) {
         try {
             if (!config.getEnable().get()) return;
-            successBuckets[index].add(count);
+            currentBucket(System.currentTimeMillis()).success.add(count);
             if (logger.isDebugEnabled()) {
                 logger.debug("camellia circuit breaker incrementSuccess, count = {}, name = {}", count, name);
             }
@@ -153,11 +161,9 @@ public class CamelliaCircuitBreaker {
                 if (config.getLogEnable().get()) {
                     logger.info("camellia circuit breaker close, name = {}", name);
                 }
-                for (LongAdder adder : failBuckets) {
-                    adder.reset();
-                }
-                for (LongAdder adder : successBuckets) {
-                    adder.reset();
+                for (Bucket bucket : buckets) {
+                    bucket.fail.reset();
+                    bucket.success.reset();
                 }
             }
         } catch (Exception e) {
@@ -184,7 +190,9 @@ public class CamelliaCircuitBreaker {
     public void incrementFail(long count) {
         try {
             if (!config.getEnable().get()) return;
-            failBuckets[index].add(count);
+            long now = System.currentTimeMillis();
+            currentBucket(now).fail.add(count);
+            checkOpen(now);
             if (logger.isDebugEnabled()) {
                 logger.debug("camellia circuit breaker incrementFail, count = {}, name = {}", count, name);
             }
@@ -194,29 +202,56 @@ public class CamelliaCircuitBreaker {
     }
 
 
-    //滑动到下一个时间窗口
-    private void slideToNextBucket() {
+    /**
+     * 获取当前的统计数据（滑动窗口内）
+     * @return 统计数据
+     */
+    public CircuitBreakerStats getStats() {
+        long epoch = System.currentTimeMillis() / slidePeriodMillis;
+        long totalSuccess = 0;
+        long totalFail = 0;
+        for (Bucket bucket : buckets) {
+            if (inWindow(bucket, epoch)) {
+                totalSuccess += bucket.success.sum();
+                totalFail += bucket.fail.sum();
+            }
+        }
+        return new CircuitBreakerStats(name, isOpen(), totalSuccess, totalFail);
+    }
+
+    //当前时间片对应的bucket，如果bucket还停留在上一轮的时间片，则先清空
+    private Bucket currentBucket(long now) {
+        long epoch = now / slidePeriodMillis;
+        Bucket bucket = buckets[(int) (epoch % bucketSize)];
+        long bucketEpoch = bucket.epoch;
+        if (bucketEpoch < epoch && Bucket.epochUpdater.compareAndSet(bucket, bucketEpoch, epoch)) {
+            bucket.success.reset();
+            bucket.fail.reset();
+        }
+        return bucket;
+    }
+
+    private boolean inWindow(Bucket bucket, long epoch) {
+        long bucketEpoch = bucket.epoch;
+        return bucketEpoch <= epoch && bucketEpoch > epoch - bucketSize;
+    }
+
+    //计算滑动窗口内的失败率，每个时间片最多计算一次
+    private void checkOpen(long now) {
         try {
-            //计算下一个游标
-            int nextIndex;
-            if (index == bucketSize - 1) {
-                nextIndex = 0;
-            } else {
-                nextIndex = index + 1;
+            long epoch = now / slidePeriodMillis;
+            long lastCheckEpoch = this.lastCheckEpoch;
+            if (lastCheckEpoch >= epoch || !lastCheckEpochUpdater.compareAndSet(this, lastCheckEpoch, epoch)) {
+                return;
             }
-            //先清空老数据
-            successBuckets[nextIndex].reset();
-            failBuckets[nextIndex].reset();
-            //再移动游标
-            index = nextIndex;
             //计算统计数据
             long totalSuccess = 0;
-            for (LongAdder adder : successBuckets) {
-                totalSuccess += adder.sum();
-            }
             long totalFail = 0;
-            for (LongAdder adder : failBuckets) {
-                totalFail += adder.sum();
+            for (Bucket bucket : buckets) {
+                if (inWindow(bucket, epoch)) {
+                    totalSuccess += bucket.success.sum();
+                    totalFail += bucket.fail.sum();
+                }
             }
             //如果总的请求数超过了基准值，才会尝试计算失败率
             if (totalSuccess + totalFail > config.getRequestVolumeThreshold().get() && totalFail > 0) {
@@ -237,4 +272,11 @@ public class CamelliaCircuitBreaker {
             logger.error(e.getMessage(), e);
         }
     }
+
+    private static class Bucket {
+        private static final AtomicLongFieldUpdater<Bucket> epochUpdater = AtomicLongFieldUpdater.newUpdater(Bucket.class, "epoch");
+        private volatile long epoch;
+        private final LongAdder success = new LongAdder();
+        private final LongAdder fail = new LongAdder();
+    }
 }
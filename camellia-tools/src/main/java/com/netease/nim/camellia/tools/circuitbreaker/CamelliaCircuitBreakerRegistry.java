@@ -0,0 +1,95 @@
+package com.netease.nim.camellia.tools.circuitbreaker;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器的登记表，CamelliaCircuitBreaker创建时自动登记
+ * 使用弱引用，不会阻止熔断器被回收（已回收的熔断器在下一次登记时清理），用于获取所有熔断器汇总的状态
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaCircuitBreakerRegistry {
+
+    private static final ConcurrentHashMap<Long, BreakerReference> map = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<CamelliaCircuitBreaker> queue = new ReferenceQueue<>();
+
+    private CamelliaCircuitBreakerRegistry() {
+    }
+
+    static void register(CamelliaCircuitBreaker circuitBreaker) {
+        expunge();
+        map.put(circuitBreaker.getId(), new BreakerReference(circuitBreaker, queue));
+    }
+
+    /**
+     * 当前存活的熔断器个数
+     * @return 个数
+     */
+    public static int getCircuitBreakerCount() {
+        expunge();
+        return map.size();
+    }
+
+    /**
+     * 当前处于打开状态的熔断器个数
+     * @return 个数
+     */
+    public static int getOpenCount() {
+        int count = 0;
+        for (BreakerReference reference : map.values()) {
+            CamelliaCircuitBreaker circuitBreaker = reference.get();
+            if (circuitBreaker != null && circuitBreaker.isOpen()) {
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 所有熔断器的统计数据
+     * @return 列表
+     */
+    public static List<CircuitBreakerStats> getStatsList() {
+        return statsList(false);
+    }
+
+    /**
+     * 处于打开状态的熔断器的统计数据
+     * @return 列表
+     */
+    public static List<CircuitBreakerStats> getOpenStatsList() {
+        return statsList(true);
+    }
+
+    private static List<CircuitBreakerStats> statsList(boolean onlyOpen) {
+        expunge();
+        List<CircuitBreakerStats> list = new ArrayList<>();
+        for (BreakerReference reference : map.values()) {
+            CamelliaCircuitBreaker circuitBreaker = reference.get();
+            if (circuitBreaker == null) continue;
+            if (onlyOpen && !circuitBreaker.isOpen()) continue;
+            list.add(circuitBreaker.getStats());
+        }
+        return list;
+    }
+
+    private static void expunge() {
+        Reference<? extends CamelliaCircuitBreaker> reference;
+        while ((reference = queue.poll()) != null) {
+            map.remove(((BreakerReference) reference).id, reference);
+        }
+    }
+
+    private static class BreakerReference extends WeakReference<CamelliaCircuitBreaker> {
+        private final long id;
+
+        BreakerReference(CamelliaCircuitBreaker circuitBreaker, ReferenceQueue<CamelliaCircuitBreaker> queue) {
+            super(circuitBreaker, queue);
+            this.id = circuitBreaker.getId();
+        }
+    }
+}
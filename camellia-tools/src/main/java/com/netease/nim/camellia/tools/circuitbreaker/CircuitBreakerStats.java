@@ -0,0 +1,41 @@
+package com.netease.nim.camellia.tools.circuitbreaker;
+
+/**
+ * 熔断器在滑动窗口内的统计数据
+ * Created by agent on 2026/10/18
+ */
+public class CircuitBreakerStats {
+
+    private final String name;
+    private final boolean open;
+    private final long success;
+    private final long fail;
+
+    public CircuitBreakerStats(String name, boolean open, long success, long fail) {
+        this.name = name;
+        this.open = open;
+        this.success = success;
+        this.fail = fail;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getSuccess() {
+        return success;
+    }
+
+    public long getFail() {
+        return fail;
+    }
+
+    public double getFailRate() {
+        long total = success + fail;
+        return total == 0 ? 0.0 : (double) fail / total;
+    }
+}
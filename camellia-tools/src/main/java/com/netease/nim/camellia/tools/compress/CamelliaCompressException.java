@@ -8,4 +8,8 @@ public class CamelliaCompressException extends RuntimeException {
     public CamelliaCompressException(Throwable cause) {
         super(cause);
     }
+
+    public CamelliaCompressException(String message) {
+        super(message);
+    }
 }
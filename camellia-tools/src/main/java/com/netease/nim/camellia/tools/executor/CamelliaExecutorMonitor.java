@@ -23,6 +23,7 @@ public class CamelliaExecutorMonitor {
 
     private static final ConcurrentHashMap<String, CamelliaDynamicExecutor> dynamicExecutorMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, CamelliaDynamicIsolationExecutor> dynamicIsolationExecutorMap = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CamelliaFairIsolationExecutor> fairIsolationExecutorMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, CamelliaHashedExecutor> hashedExecutorMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, CamelliaLinearInitializationExecutor<?, ?>> linerInitializationExecutorMap = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, ThreadPoolExecutor> executorMap = new ConcurrentHashMap<>();
@@ -77,6 +78,13 @@ public class CamelliaExecutorMonitor {
         dynamicIsolationExecutorMap.put(executor.getName(), executor);
     }
 
+    /**
+     * 注册一个CamelliaFairIsolationExecutor
+     */
+    public static void register(CamelliaFairIsolationExecutor executor) {
+        fairIsolationExecutorMap.put(executor.getName(), executor);
+    }
+
     /**
      * 注册一个CamelliaHashedExecutor
      */
@@ -211,6 +219,14 @@ public class CamelliaExecutorMonitor {
                 executorStatsList.add(stats);
             }
 
+            for (Map.Entry<String, CamelliaFairIsolationExecutor> entry : fairIsolationExecutorMap.entrySet()) {
+                CamelliaExecutorStatistics.ExecutorStats stats = new CamelliaExecutorStatistics.ExecutorStats();
+                stats.setName(entry.getKey());
+                stats.setExecutorType(CamelliaExecutorStatistics.ExecutorType.CamelliaFairIsolationExecutor);
+                stats.setStats(toStats(entry.getKey(), entry.getValue().getStats()));
+                executorStatsList.add(stats);
+            }
+
             List<CamelliaExecutorStatistics.DynamicIsolationExecutorStats> dynamicIsolationExecutorStatsList = new ArrayList<>();
             for (Map.Entry<String, CamelliaDynamicIsolationExecutor> entry : dynamicIsolationExecutorMap.entrySet()) {
                 CamelliaExecutorStatistics.DynamicIsolationExecutorStats stats = new CamelliaExecutorStatistics.DynamicIsolationExecutorStats();
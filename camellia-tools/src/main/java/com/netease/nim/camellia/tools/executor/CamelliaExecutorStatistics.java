@@ -99,6 +99,7 @@ public class CamelliaExecutorStatistics {
         CamelliaHashedExecutor,
         CamelliaDynamicIsolationExecutor,
         CamelliaLinearInitializationExecutor,
+        CamelliaFairIsolationExecutor,
         ;
     }
 
@@ -0,0 +1,536 @@
+package com.netease.nim.camellia.tools.executor;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.netease.nim.camellia.tools.executor.CamelliaDynamicIsolationExecutor.Fallback;
+import com.netease.nim.camellia.tools.executor.CamelliaDynamicIsolationExecutor.FallbackReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一个按isolationKey做加权公平调度的执行器
+ *
+ * 设计目标：
+ * 和CamelliaDynamicIsolationExecutor一样，用于多租户场景下，避免执行慢的租户影响执行快的租户
+ * 区别在于CamelliaDynamicIsolationExecutor使用六个线程池，根据统计数据在线程池之间转交任务
+ * 本执行器只有一个工作线程池，每个isolationKey一个等待队列，由调度器决定下一个执行哪个isolationKey的任务
+ *
+ * 规则：
+ * 1）每个isolationKey一个FIFO的等待队列，所有有任务的isolationKey组成一个环
+ * 2）使用Deficit Round Robin调度：每一轮给isolationKey分配quantumMs * weight的执行时间额度，任务按该isolationKey的平均耗时扣减额度，额度不足则轮到下一个isolationKey
+ * 3）因此各个isolationKey按权重分享执行时间，慢任务的isolationKey单个任务扣减的额度多，执行的任务个数就少，不会把快任务的isolationKey挤在队列后面
+ * 4）单个isolationKey同时执行的任务数不超过poolSize * maxConcurrencyPercentagePerKey（默认0.5），超过后暂时移出环，直到有任务执行完成
+ * 5）任务耗时使用指数滑动平均估算（新的isolationKey默认按一个quantum估算），记录最多maxIsolationKeyCount个isolationKey
+ * 6）可以设置任务过期时间（默认不过期），已经过期的任务在调度时直接丢弃，不占用额度和线程，并走fallback（TASK_EXPIRE）
+ * 7）等待队列总大小超过queueSize，或者单个isolationKey的等待队列超过queueSizePerKey，任务被拒绝，走fallback（TASK_REJECT）
+ * 8）fallback方法务必不要有阻塞，fallback的定义和CamelliaDynamicIsolationExecutor一致
+ * 9）shutdown之后新提交的任务走fallback（TASK_REJECT），已经在等待队列中的任务执行完之后工作线程退出
+ *
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaFairIsolationExecutor implements CamelliaExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaFairIsolationExecutor.class);
+
+    private static final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor(
+            new CamelliaThreadFactory("camellia-fair-isolation-executor-schedule", true));
+
+    private final CamelliaFairIsolationExecutorConfig config;
+    private final String name;
+    private final ThreadFactory threadFactory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<String, KeyQueue> queues = new HashMap<>();
+    private final ArrayDeque<KeyQueue> activeKeys = new ArrayDeque<>();//有任务等待且未达到并发上限的isolationKey
+    private final ConcurrentLinkedHashMap<String, Cost> costMap;
+    private final ScheduledFuture<?> refreshFuture;
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    //以下字段只在持有lock时修改
+    private volatile int pending;
+    private volatile int workerCount;
+    private volatile int activeCount;
+    private final AtomicLong completedTaskCount = new AtomicLong();
+
+    private volatile int targetPoolSize;
+    private volatile int maxConcurrencyPerKey;
+    private volatile long quantumMicros;
+    private volatile Map<String, Integer> isolationKeyWeights;
+
+    public CamelliaFairIsolationExecutor(String name, int poolSize) {
+        this(new CamelliaFairIsolationExecutorConfig(name, () -> poolSize));
+    }
+
+    public CamelliaFairIsolationExecutor(String name, int poolSize, int queueSize) {
+        this(new CamelliaFairIsolationExecutorConfig(name, () -> poolSize, () -> queueSize));
+    }
+
+    public CamelliaFairIsolationExecutor(CamelliaFairIsolationExecutorConfig config) {
+        this.config = config;
+        this.name = CamelliaExecutorMonitor.genExecutorName(config.getName());
+        this.threadFactory = new CamelliaThreadFactory("[camellia-fair-isolation-executor][" + name + "]");
+        this.costMap = new ConcurrentLinkedHashMap.Builder<String, Cost>()
+                .initialCapacity(config.getMaxIsolationKeyCount())
+                .maximumWeightedCapacity(config.getMaxIsolationKeyCount())
+                .build();
+        this.targetPoolSize = Math.max(1, config.getPoolSize().get());
+        this.maxConcurrencyPerKey = calcMaxConcurrencyPerKey(targetPoolSize);
+        this.quantumMicros = calcQuantumMicros();
+        this.isolationKeyWeights = new HashMap<>(config.getIsolationKeyWeights().get());
+        startWorkers();
+        this.refreshFuture = scheduledExecutor.scheduleAtFixedRate(this::refresh, 10, 10, TimeUnit.SECONDS);
+        CamelliaExecutorMonitor.register(this);
+    }
+
+    /**
+     * 提交一个任务
+     * @param isolationKey 隔离key
+     * @param callable 任务
+     */
+    public <T> Future<T> submit(String isolationKey, Callable<T> callable) {
+        return submit(isolationKey, callable, CamelliaDynamicIsolationExecutor.loggingFallback);
+    }
+
+    /**
+     * 提交一个任务
+     * @param isolationKey 隔离key
+     * @param callable 任务
+     * @param fallback 任务未执行时的fallback回调
+     */
+    public <T> Future<T> submit(String isolationKey, Callable<T> callable, Fallback fallback) {
+        FutureTask<T> futureTask = new FutureTask<>(callable);
+        submit0(new Task(isolationKey, futureTask, fallback, config.getTaskExpireTimeMs().get()));
+        return futureTask;
+    }
+
+    /**
+     * 提交一个任务
+     * @param isolationKey 隔离key
+     * @param runnable 任务
+     */
+    public void submit(String isolationKey, Runnable runnable) {
+        submit(isolationKey, runnable, CamelliaDynamicIsolationExecutor.loggingFallback);
+    }
+
+    /**
+     * 提交一个任务
+     * @param isolationKey 隔离key
+     * @param runnable 任务
+     * @param fallback 任务未执行时的fallback回调
+     */
+    public Future<Void> submit(String isolationKey, Runnable runnable, Fallback fallback) {
+        FutureTask<Void> futureTask = new FutureTask<>(runnable, null);
+        submit0(new Task(isolationKey, futureTask, fallback, config.getTaskExpireTimeMs().get()));
+        return futureTask;
+    }
+
+    private void submit0(Task task) {
+        int queueSize = config.getQueueSize().get();
+        int queueSizePerKey = config.getQueueSizePerKey().get();
+        boolean reject = false;
+        lock.lock();
+        try {
+            KeyQueue keyQueue = queues.get(task.isolationKey);
+            if (shutdown.get() || pending >= queueSize || (keyQueue != null && keyQueue.tasks.size() >= queueSizePerKey)) {
+                reject = true;
+            } else {
+                if (keyQueue == null) {
+                    keyQueue = new KeyQueue(task.isolationKey, getCost(task.isolationKey));
+                    queues.put(task.isolationKey, keyQueue);
+                }
+                task.keyQueue = keyQueue;
+                keyQueue.tasks.addLast(task);
+                pending ++;
+                if (!keyQueue.active && keyQueue.running < maxConcurrencyPerKey) {
+                    activate(keyQueue);
+                }
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (reject) {
+            fallback(task, FallbackReason.TASK_REJECT);
+        }
+    }
+
+    private void work() {
+        List<Task> expiredTasks = new ArrayList<>();
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while (true) {
+                    if (workerCount > targetPoolSize) {
+                        workerCount --;
+                        return;
+                    }
+                    task = nextTask(expiredTasks);
+                    if (task != null || !expiredTasks.isEmpty()) {
+                        break;
+                    }
+                    if (shutdown.get() && pending == 0) {
+                        workerCount --;
+                        return;
+                    }
+                    notEmpty.await();
+                }
+                if (task != null) {
+                    activeCount ++;
+                }
+            } catch (InterruptedException e) {
+                workerCount --;
+                logger.warn("fair-isolation-executor worker interrupted, name = {}", name);
+                //立即补充一个工作线程，而不是等到下一次refresh
+                startWorkers();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (!expiredTasks.isEmpty()) {
+                for (Task expiredTask : expiredTasks) {
+                    fallback(expiredTask, FallbackReason.TASK_EXPIRE);
+                }
+                expiredTasks.clear();
+            }
+            if (task == null) {
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                task.futureTask.run();
+            } finally {
+                afterExecute(task, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    //deficit round robin，需要持有lock
+    private Task nextTask(List<Task> expiredTasks) {
+        long now = System.currentTimeMillis();
+        while (!activeKeys.isEmpty()) {
+            int size = activeKeys.size();
+            long minRounds = Long.MAX_VALUE;
+            for (int i=0; i<size; i++) {
+                KeyQueue keyQueue = activeKeys.peekFirst();
+                Task head = keyQueue.tasks.peekFirst();
+                while (head != null && head.isExpire(now)) {
+                    keyQueue.tasks.pollFirst();
+                    pending --;
+                    expiredTasks.add(head);
+                    head = keyQueue.tasks.peekFirst();
+                }
+                if (head == null) {
+                    deactivate(keyQueue);
+                    if (keyQueue.running == 0) {
+                        queues.remove(keyQueue.isolationKey);
+                    }
+                    continue;
+                }
+                if (keyQueue.running >= maxConcurrencyPerKey) {
+                    deactivate(keyQueue);
+                    continue;
+                }
+                long quantum = quantumMicros * weight(keyQueue.isolationKey);
+                if (!keyQueue.credited) {
+                    keyQueue.deficit += quantum;
+                    keyQueue.credited = true;
+                }
+                long cost = keyQueue.cost.value;
+                if (keyQueue.deficit >= cost) {
+                    keyQueue.tasks.pollFirst();
+                    keyQueue.deficit -= cost;
+                    keyQueue.running ++;
+                    pending --;
+                    if (keyQueue.tasks.isEmpty() || keyQueue.running >= maxConcurrencyPerKey) {
+                        deactivate(keyQueue);
+                    }
+                    return head;
+                }
+                //额度不足，轮到下一个
+                activeKeys.pollFirst();
+                keyQueue.credited = false;
+                activeKeys.addLast(keyQueue);
+                minRounds = Math.min(minRounds, (cost - keyQueue.deficit + quantum - 1) / quantum);
+            }
+            //一整轮都没有能执行的任务，直接快进到第一个额度足够的isolationKey，避免空转
+            if (minRounds != Long.MAX_VALUE && minRounds > 1) {
+                for (KeyQueue keyQueue : activeKeys) {
+                    keyQueue.deficit += (minRounds - 1) * quantumMicros * weight(keyQueue.isolationKey);
+                }
+            }
+        }
+        return null;
+    }
+
+    //移出环，如果是因为并发上限而移出，保留本轮剩余的额度，重新入环时从环头继续本轮
+    private void deactivate(KeyQueue keyQueue) {
+        activeKeys.remove(keyQueue);
+        keyQueue.active = false;
+        if (keyQueue.tasks.isEmpty()) {
+            keyQueue.credited = false;
+            keyQueue.deficit = 0;
+        }
+    }
+
+    private void activate(KeyQueue keyQueue) {
+        keyQueue.active = true;
+        if (keyQueue.credited) {
+            activeKeys.addFirst(keyQueue);
+        } else {
+            activeKeys.addLast(keyQueue);
+        }
+    }
+
+    private void afterExecute(Task task, long spendNanos) {
+        completedTaskCount.incrementAndGet();
+        lock.lock();
+        try {
+            activeCount --;
+            KeyQueue keyQueue = task.keyQueue;
+            keyQueue.running --;
+            keyQueue.cost.update(TimeUnit.NANOSECONDS.toMicros(spendNanos));
+            if (!keyQueue.active) {
+                if (!keyQueue.tasks.isEmpty()) {
+                    if (keyQueue.running < maxConcurrencyPerKey) {
+                        activate(keyQueue);
+                        notEmpty.signal();
+                    }
+                } else if (keyQueue.running == 0) {
+                    queues.remove(keyQueue.isolationKey);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("afterExecute error, name = {}", name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fallback(Task task, FallbackReason reason) {
+        try {
+            task.fallback.fallback(task.isolationKey, reason);
+        } catch (Exception e) {
+            logger.error("fallback error, name = {}, isolationKey = {}, reason = {}", name, task.isolationKey, reason, e);
+        }
+    }
+
+    private Cost getCost(String isolationKey) {
+        Cost cost = costMap.get(isolationKey);
+        if (cost == null) {
+            cost = new Cost(quantumMicros);
+            Cost old = costMap.putIfAbsent(isolationKey, cost);
+            if (old != null) {
+                cost = old;
+            }
+        }
+        return cost;
+    }
+
+    private long weight(String isolationKey) {
+        Integer weight = isolationKeyWeights.get(isolationKey);
+        if (weight == null || weight <= 0) {
+            return 1;
+        }
+        return weight;
+    }
+
+    private int calcMaxConcurrencyPerKey(int poolSize) {
+        return Math.max(1, (int) (poolSize * config.getMaxConcurrencyPercentagePerKey().get()));
+    }
+
+    private long calcQuantumMicros() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toMicros(config.getQuantumMs().get()));
+    }
+
+    private void startWorkers() {
+        lock.lock();
+        try {
+            while (!shutdown.get() && workerCount < targetPoolSize) {
+                Thread thread = threadFactory.newThread(this::work);
+                thread.start();
+                workerCount ++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refresh() {
+        try {
+            int poolSize = Math.max(1, config.getPoolSize().get());
+            int maxConcurrencyPerKey = calcMaxConcurrencyPerKey(poolSize);
+            long quantumMicros = calcQuantumMicros();
+            Map<String, Integer> weights = new HashMap<>(config.getIsolationKeyWeights().get());
+            lock.lock();
+            try {
+                if (poolSize != targetPoolSize) {
+                    logger.info("fair-isolation-executor, poolSize update, name = {}, {}-{}", name, targetPoolSize, poolSize);
+                    targetPoolSize = poolSize;
+                }
+                if (maxConcurrencyPerKey != this.maxConcurrencyPerKey) {
+                    logger.info("fair-isolation-executor, maxConcurrencyPerKey update, name = {}, {}-{}", name, this.maxConcurrencyPerKey, maxConcurrencyPerKey);
+                    this.maxConcurrencyPerKey = maxConcurrencyPerKey;
+                    for (KeyQueue keyQueue : queues.values()) {
+                        if (!keyQueue.active && !keyQueue.tasks.isEmpty() && keyQueue.running < maxConcurrencyPerKey) {
+                            activate(keyQueue);
+                        }
+                    }
+                }
+                if (quantumMicros != this.quantumMicros) {
+                    logger.info("fair-isolation-executor, quantumMicros update, name = {}, {}-{}", name, this.quantumMicros, quantumMicros);
+                    this.quantumMicros = quantumMicros;
+                }
+                if (!weights.equals(isolationKeyWeights)) {
+                    logger.info("fair-isolation-executor, isolationKeyWeights update, name = {}, size {}->{}", name, isolationKeyWeights.size(), weights.size());
+                    this.isolationKeyWeights = weights;
+                }
+                startWorkers();
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            logger.error("refresh error, name = {}", name, e);
+        }
+    }
+
+    /**
+     * 关闭执行器，停止定时刷新配置，等待队列中的任务执行完之后工作线程退出
+     */
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        refreshFuture.cancel(false);
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 执行器是否已关闭
+     * @return 是否已关闭
+     */
+    public boolean isShutdown() {
+        return shutdown.get();
+    }
+
+    public CamelliaFairIsolationExecutorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 获取活跃线程数
+     * @return 数量
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getPoolSize() {
+        return workerCount;
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTaskCount.get();
+    }
+
+    /**
+     * 获取等待队列的大小
+     * @return 大小
+     */
+    public int getQueueSize() {
+        return pending;
+    }
+
+    /**
+     * 获取某个isolationKey的等待队列的大小
+     * @param isolationKey 隔离key
+     * @return 大小
+     */
+    public int getQueueSize(String isolationKey) {
+        lock.lock();
+        try {
+            KeyQueue keyQueue = queues.get(isolationKey);
+            return keyQueue == null ? 0 : keyQueue.tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public CamelliaExecutorStats getStats() {
+        CamelliaExecutorStats stats = new CamelliaExecutorStats();
+        stats.setActiveThread(getActiveCount());
+        stats.setThread(getPoolSize());
+        stats.setCompletedTaskCount(getCompletedTaskCount());
+        stats.setPendingTask(getQueueSize());
+        return stats;
+    }
+
+    private static class Task {
+        final String isolationKey;
+        final FutureTask<?> futureTask;
+        final Fallback fallback;
+        final long taskExpireTimeMs;
+        KeyQueue keyQueue;
+
+        Task(String isolationKey, FutureTask<?> futureTask, Fallback fallback, int taskExpireTimeMs) {
+            this.isolationKey = isolationKey;
+            this.futureTask = futureTask;
+            this.fallback = fallback;
+            if (taskExpireTimeMs < 0) {
+                this.taskExpireTimeMs = Long.MAX_VALUE;
+            } else {
+                this.taskExpireTimeMs = System.currentTimeMillis() + taskExpireTimeMs;
+            }
+        }
+
+        boolean isExpire(long now) {
+            return now > taskExpireTimeMs;
+        }
+    }
+
+    private static class KeyQueue {
+        final String isolationKey;
+        final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        final Cost cost;
+        long deficit;//剩余额度，单位us
+        boolean credited;//本轮是否已经分配过额度
+        boolean active;//是否在activeKeys中
+        int running;
+
+        KeyQueue(String isolationKey, Cost cost) {
+            this.isolationKey = isolationKey;
+            this.cost = cost;
+        }
+    }
+
+    //任务耗时的指数滑动平均，单位us，只在持有lock时读写
+    private static class Cost {
+        long value;
+
+        Cost(long value) {
+            this.value = value;
+        }
+
+        void update(long spendMicros) {
+            value = Math.max(1, (value * 7 + spendMicros) / 8);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.netease.nim.camellia.tools.executor;
+
+import com.netease.nim.camellia.tools.base.DynamicConfig;
+import com.netease.nim.camellia.tools.base.DynamicValueGetter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaFairIsolationExecutorConfig {
+
+    private static final double defaultMaxConcurrencyPercentagePerKey = 0.5;
+    private static final long defaultQuantumMs = 10L;
+    private static final int defaultTaskExpireTimeMs = -1;
+    private static final int defaultMaxIsolationKeyCount = 4096;
+    private static final String PREFIX = "camellia.fair.isolation.executor.config";
+
+    private String name;
+    private DynamicValueGetter<Integer> poolSize;
+    private DynamicValueGetter<Integer> queueSize = () -> Integer.MAX_VALUE;//所有isolationKey的等待队列的总大小
+    private DynamicValueGetter<Integer> queueSizePerKey = () -> Integer.MAX_VALUE;//单个isolationKey的等待队列的大小
+    private DynamicValueGetter<Double> maxConcurrencyPercentagePerKey = () -> defaultMaxConcurrencyPercentagePerKey;//单个isolationKey最多占用线程池的比例，默认50%
+    private DynamicValueGetter<Long> quantumMs = () -> defaultQuantumMs;//每一轮调度给isolationKey分配的执行时间额度（乘以权重），默认10ms
+    private DynamicValueGetter<Map<String, Integer>> isolationKeyWeights = Collections::emptyMap;//isolationKey的权重，默认都是1
+    private DynamicValueGetter<Integer> taskExpireTimeMs = () -> defaultTaskExpireTimeMs;//任务如果直到过期都没有能够轮到执行，则任务会被直接丢弃，如果小于0，则表示不过期，默认不过期
+    private int maxIsolationKeyCount = defaultMaxIsolationKeyCount;//预计的最大IsolationKey的数量（用于记录任务耗时的估算值）
+
+    public CamelliaFairIsolationExecutorConfig(String name, DynamicValueGetter<Integer> poolSize) {
+        this.name = name;
+        this.poolSize = poolSize;
+    }
+
+    public CamelliaFairIsolationExecutorConfig(String name, DynamicValueGetter<Integer> poolSize, DynamicValueGetter<Integer> queueSize) {
+        this.name = name;
+        this.poolSize = poolSize;
+        this.queueSize = queueSize;
+    }
+
+    public CamelliaFairIsolationExecutorConfig(String name, DynamicConfig dynamicConfig, int poolSize) {
+        this.name = name;
+        this.poolSize = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".poolSize", poolSize);
+        this.queueSize = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".queueSize", Integer.MAX_VALUE);
+        this.queueSizePerKey = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".queueSizePerKey", Integer.MAX_VALUE);
+        this.maxConcurrencyPercentagePerKey = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".maxConcurrencyPercentagePerKey", defaultMaxConcurrencyPercentagePerKey);
+        this.quantumMs = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".quantumMs", defaultQuantumMs);
+        this.taskExpireTimeMs = DynamicConfig.wrapper(dynamicConfig, PREFIX + "." + name + ".taskExpireTimeMs", defaultTaskExpireTimeMs);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public DynamicValueGetter<Integer> getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(DynamicValueGetter<Integer> poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public DynamicValueGetter<Integer> getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(DynamicValueGetter<Integer> queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public DynamicValueGetter<Integer> getQueueSizePerKey() {
+        return queueSizePerKey;
+    }
+
+    public void setQueueSizePerKey(DynamicValueGetter<Integer> queueSizePerKey) {
+        this.queueSizePerKey = queueSizePerKey;
+    }
+
+    public DynamicValueGetter<Double> getMaxConcurrencyPercentagePerKey() {
+        return maxConcurrencyPercentagePerKey;
+    }
+
+    public void setMaxConcurrencyPercentagePerKey(DynamicValueGetter<Double> maxConcurrencyPercentagePerKey) {
+        this.maxConcurrencyPercentagePerKey = maxConcurrencyPercentagePerKey;
+    }
+
+    public DynamicValueGetter<Long> getQuantumMs() {
+        return quantumMs;
+    }
+
+    public void setQuantumMs(DynamicValueGetter<Long> quantumMs) {
+        this.quantumMs = quantumMs;
+    }
+
+    public DynamicValueGetter<Map<String, Integer>> getIsolationKeyWeights() {
+        return isolationKeyWeights;
+    }
+
+    public void setIsolationKeyWeights(DynamicValueGetter<Map<String, Integer>> isolationKeyWeights) {
+        this.isolationKeyWeights = isolationKeyWeights;
+    }
+
+    public DynamicValueGetter<Integer> getTaskExpireTimeMs() {
+        return taskExpireTimeMs;
+    }
+
+    public void setTaskExpireTimeMs(DynamicValueGetter<Integer> taskExpireTimeMs) {
+        this.taskExpireTimeMs = taskExpireTimeMs;
+    }
+
+    public int getMaxIsolationKeyCount() {
+        return maxIsolationKeyCount;
+    }
+
+    public void setMaxIsolationKeyCount(int maxIsolationKeyCount) {
+        this.maxIsolationKeyCount = maxIsolationKeyCount;
+    }
+}
@@ -37,6 +37,15 @@ public class CamelliaScheduleExecutor {
         return task;
     }
 
+    /**
+     * 提交一个一次性任务，和定时任务共用执行线程池
+     * @param command 任务
+     * @throws java.util.concurrent.RejectedExecutionException 队列满了
+     */
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
     public static class Task {
         private final AtomicBoolean cancel = new AtomicBoolean(false);
 
@@ -0,0 +1,212 @@
+package com.netease.nim.camellia.tools.statistic;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 可合并的对数-线性直方图（HDR风格），CamelliaStatistics和redis-proxy的QuantileCollector共用的分位数统计引擎
+ * <p>
+ * 1）桶的布局：每个2的幂区间[2^k, 2^(k+1))被等分为2^precisionBits个子桶，[0, 2^(precisionBits+1))是精确的，
+ * 相对误差不超过1/2^precisionBits（precisionBits=7时约0.8%），桶的布局只由precisionBits决定，因此不同节点的快照可以直接按下标相加
+ * <p>
+ * 2）写入：按线程分散到多个stripe（每个stripe是一个AtomicLongArray，末尾附带sum和max），桶或者sum发生CAS冲突时扩容stripe（类似LongAdder），
+ * 单线程场景只有一个stripe；sum和max每次写入都会访问，因此各自独占缓存行（前后填充），避免和桶以及相邻的stripe伪共享
+ * <p>
+ * 3）区间快照：snapshotAndReset()逐个槽位getAndSet(0)，不需要暂停写入，每个写入的值只会被计入一个区间，
+ * 正在写入的值的桶计数和sum/max可能会被分到相邻的两个区间
+ * <p>
+ * 4）快照（CamelliaHistogramSnapshot）可以序列化、合并，从而在中心节点计算全局的p99/p999，而不是对各个节点的分位数求平均
+ * <p>
+ * 单位由调用方决定，耗时统计建议使用微秒
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaHistogram {
+
+    public static final int DEFAULT_PRECISION_BITS = 7;
+
+    static final int MAX_PRECISION_BITS = 16;
+    private static final int MAX_STRIPES = maxStripes();
+    //填充的long个数（128字节），覆盖相邻缓存行预取
+    private static final int PADDING = 16;
+
+    //每个线程的stripe探针，冲突时重新生成
+    private static final ThreadLocal<int[]> probe = ThreadLocal.withInitial(() -> new int[] {ThreadLocalRandom.current().nextInt() | 1});
+
+    private final int precisionBits;
+    private final long maxTrackableValue;
+    private final int bucketCount;
+    private final int sumIndex;
+    private final int maxIndex;
+
+    private volatile AtomicLongArray[] stripes;
+    private final AtomicBoolean resizing = new AtomicBoolean(false);
+
+    /**
+     * 构造
+     * @param maxTrackableValue 可以区分的最大值，超过的值计入最后一个桶（max仍然是精确的）
+     * @param precisionBits 精度，每个2的幂区间的子桶个数为2^precisionBits
+     */
+    public CamelliaHistogram(long maxTrackableValue, int precisionBits) {
+        if (precisionBits < 1 || precisionBits > MAX_PRECISION_BITS) {
+            throw new IllegalArgumentException("precisionBits should in [1, " + MAX_PRECISION_BITS + "]");
+        }
+        if (maxTrackableValue < 1) {
+            throw new IllegalArgumentException("maxTrackableValue should > 0");
+        }
+        this.precisionBits = precisionBits;
+        this.maxTrackableValue = maxTrackableValue;
+        this.bucketCount = bucketCount(maxTrackableValue, precisionBits);
+        this.sumIndex = bucketCount + PADDING;
+        this.maxIndex = sumIndex + PADDING;
+        this.stripes = new AtomicLongArray[] {newStripe()};
+    }
+
+    public CamelliaHistogram(long maxTrackableValue) {
+        this(maxTrackableValue, DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * 记录一个值，负数会被忽略
+     * @param value 值
+     */
+    public void record(long value) {
+        if (value < 0) return;
+        int index = value > maxTrackableValue ? bucketCount - 1 : bucketIndex(value, precisionBits);
+        AtomicLongArray[] stripes = this.stripes;
+        //只有一个stripe时（没有发生过冲突）不需要读取线程探针
+        int[] p = stripes.length == 1 ? null : probe.get();
+        AtomicLongArray stripe = p == null ? stripes[0] : stripes[p[0] & (stripes.length - 1)];
+        boolean collide = false;
+        long old = stripe.get(index);
+        if (!stripe.compareAndSet(index, old, old + 1)) {
+            stripe.getAndIncrement(index);
+            collide = true;
+        }
+        //不同线程写入不同的桶时不会冲突，但是sum是共享的，因此sum冲突也需要扩容
+        long sum = stripe.get(sumIndex);
+        if (!stripe.compareAndSet(sumIndex, sum, sum + value)) {
+            stripe.getAndAdd(sumIndex, value);
+            collide = true;
+        }
+        if (collide) {
+            contended(p == null ? probe.get() : p, stripes.length);
+        }
+        long max;
+        while (value > (max = stripe.get(maxIndex))) {
+            if (stripe.compareAndSet(maxIndex, max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 获取当前的快照，不重置
+     * @return 快照
+     */
+    public CamelliaHistogramSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * 获取当前区间的快照并开始一个新区间
+     * @return 快照
+     */
+    public CamelliaHistogramSnapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public long getMaxTrackableValue() {
+        return maxTrackableValue;
+    }
+
+    private CamelliaHistogramSnapshot snapshot(boolean reset) {
+        long[] counts = new long[bucketCount];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i=0; i<bucketCount; i++) {
+                counts[i] += reset ? stripe.getAndSet(i, 0) : stripe.get(i);
+            }
+            sum += reset ? stripe.getAndSet(sumIndex, 0) : stripe.get(sumIndex);
+            max = Math.max(max, reset ? stripe.getAndSet(maxIndex, 0) : stripe.get(maxIndex));
+        }
+        return new CamelliaHistogramSnapshot(precisionBits, counts, sum, max);
+    }
+
+    private void contended(int[] p, int length) {
+        //换一个stripe，冲突的线程数超过stripe数时扩容
+        int h = p[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        p[0] = h;
+        if (length < MAX_STRIPES && resizing.compareAndSet(false, true)) {
+            try {
+                AtomicLongArray[] old = this.stripes;
+                if (old.length == length) {
+                    AtomicLongArray[] expand = new AtomicLongArray[length << 1];
+                    System.arraycopy(old, 0, expand, 0, length);
+                    for (int i=length; i<expand.length; i++) {
+                        expand[i] = newStripe();
+                    }
+                    this.stripes = expand;
+                }
+            } finally {
+                resizing.set(false);
+            }
+        }
+    }
+
+    //[桶][填充][sum][填充][max][填充]
+    private AtomicLongArray newStripe() {
+        return new AtomicLongArray(maxIndex + PADDING);
+    }
+
+    private static int maxStripes() {
+        int n = 1;
+        int cpu = Runtime.getRuntime().availableProcessors();
+        while (n < cpu && n < 16) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * 值对应的桶下标，[0, 2^(precisionBits+1))之间是值本身，之后每个2的幂区间有2^precisionBits个桶
+     */
+    static int bucketIndex(long value, int precisionBits) {
+        int shift = 63 - Long.numberOfLeadingZeros(value) - precisionBits;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return (shift << precisionBits) + (int) (value >>> shift);
+    }
+
+    /**
+     * 桶的下界（包含）
+     */
+    static long lowerBound(int index, int precisionBits) {
+        int shift = (index >>> precisionBits) - 1;
+        if (shift <= 0) {
+            return index;
+        }
+        return (long) (index - (shift << precisionBits)) << shift;
+    }
+
+    /**
+     * 桶的宽度
+     */
+    static long bucketWidth(int index, int precisionBits) {
+        int shift = (index >>> precisionBits) - 1;
+        return shift <= 0 ? 1 : 1L << shift;
+    }
+
+    static int bucketCount(long maxTrackableValue, int precisionBits) {
+        return bucketIndex(maxTrackableValue, precisionBits) + 1;
+    }
+}
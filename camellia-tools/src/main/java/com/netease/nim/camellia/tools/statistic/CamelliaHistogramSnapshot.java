@@ -0,0 +1,193 @@
+package com.netease.nim.camellia.tools.statistic;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * CamelliaHistogram的快照，可以合并、序列化
+ * <p>
+ * 各个节点上报序列化后的快照（toBytes/toBase64），中心节点解码后merge，再计算全局的分位数
+ * <p>
+ * 序列化格式（varint编码，只写非空的桶）：version, precisionBits, bucketCount, sum, max, 非空桶个数, [下标差值, 计数]...
+ * Created by agent on 2026/10/18
+ */
+public class CamelliaHistogramSnapshot {
+
+    private static final int VERSION = 1;
+
+    private final int precisionBits;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    CamelliaHistogramSnapshot(int precisionBits, long[] counts, long sum, long max) {
+        this.precisionBits = precisionBits;
+        this.counts = counts;
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getAvg() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * 计算分位数，桶内线性插值，并且不超过max
+     * @param quantile 分位，如0.99
+     * @return 分位数，没有数据时返回0
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long position = (long) Math.ceil(count * quantile);
+        if (position < 1) {
+            position = 1;
+        } else if (position > count) {
+            position = count;
+        }
+        long c = 0;
+        for (int i=0; i<counts.length; i++) {
+            long current = counts[i];
+            if (current == 0) continue;
+            c += current;
+            if (c >= position) {
+                long offset = position - (c - current);
+                long lower = CamelliaHistogram.lowerBound(i, precisionBits);
+                long width = i == counts.length - 1 ? Math.max(1, max - lower + 1) : CamelliaHistogram.bucketWidth(i, precisionBits);
+                long value = lower + (long) ((width - 1) * (offset / (double) current));
+                return Math.min(value, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 合并两个快照，返回新的快照，两者的precisionBits必须一致
+     * maxTrackableValue不同时按较长的桶数组合并，较短一方最后一个桶（溢出桶）的计数会落在对应下界的桶里
+     * @param other 另一个快照
+     * @return 合并后的快照
+     */
+    public CamelliaHistogramSnapshot merge(CamelliaHistogramSnapshot other) {
+        if (other == null) {
+            return this;
+        }
+        if (other.precisionBits != precisionBits) {
+            throw new IllegalArgumentException("precisionBits mismatch, " + precisionBits + " != " + other.precisionBits);
+        }
+        long[] merged = Arrays.copyOf(counts, Math.max(counts.length, other.counts.length));
+        for (int i=0; i<other.counts.length; i++) {
+            merged[i] += other.counts[i];
+        }
+        return new CamelliaHistogramSnapshot(precisionBits, merged, sum + other.sum, Math.max(max, other.max));
+    }
+
+    public CamelliaStatsData toStatsData() {
+        return new CamelliaStatsData(count, getAvg(), max, sum, getQuantile(0.5), getQuantile(0.75),
+                getQuantile(0.90), getQuantile(0.95), getQuantile(0.99), getQuantile(0.999));
+    }
+
+    public byte[] toBytes() {
+        int nonEmpty = 0;
+        for (long c : counts) {
+            if (c != 0) nonEmpty ++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(10 * (6 + nonEmpty * 2));
+        putVarLong(buffer, VERSION);
+        putVarLong(buffer, precisionBits);
+        putVarLong(buffer, counts.length);
+        putVarLong(buffer, sum);
+        putVarLong(buffer, max);
+        putVarLong(buffer, nonEmpty);
+        int last = 0;
+        for (int i=0; i<counts.length; i++) {
+            if (counts[i] == 0) continue;
+            putVarLong(buffer, i - last);
+            putVarLong(buffer, counts[i]);
+            last = i;
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public String toBase64() {
+        return Base64.getEncoder().encodeToString(toBytes());
+    }
+
+    public static CamelliaHistogramSnapshot fromBytes(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long version = getVarLong(buffer);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unknown version " + version);
+            }
+            int precisionBits = (int) getVarLong(buffer);
+            if (precisionBits < 1 || precisionBits > CamelliaHistogram.MAX_PRECISION_BITS) {
+                throw new IllegalArgumentException("illegal precisionBits " + precisionBits);
+            }
+            int bucketCount = (int) getVarLong(buffer);
+            if (bucketCount < 0 || bucketCount > CamelliaHistogram.bucketCount(Long.MAX_VALUE, precisionBits)) {
+                throw new IllegalArgumentException("illegal bucketCount " + bucketCount);
+            }
+            long sum = getVarLong(buffer);
+            long max = getVarLong(buffer);
+            long nonEmpty = getVarLong(buffer);
+            long[] counts = new long[bucketCount];
+            int index = 0;
+            for (long i=0; i<nonEmpty; i++) {
+                index += (int) getVarLong(buffer);
+                counts[index] = getVarLong(buffer);
+            }
+            return new CamelliaHistogramSnapshot(precisionBits, counts, sum, max);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("illegal histogram data", e);
+        }
+    }
+
+    public static CamelliaHistogramSnapshot fromBase64(String data) {
+        return fromBytes(Base64.getDecoder().decode(data));
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
@@ -54,6 +54,25 @@ public class CamelliaStatisticsManager {
         }
     }
 
+    /**
+     * 获取各个key的直方图快照并重置，用于跨节点合并
+     * @return 快照
+     */
+    public Map<String, CamelliaHistogramSnapshot> getSnapshotAndReset() {
+        try {
+            ConcurrentHashMap<String, CamelliaStatistics> map = this.map;
+            this.map = new ConcurrentHashMap<>();
+            Map<String, CamelliaHistogramSnapshot> snapshotMap = new HashMap<>();
+            for (Map.Entry<String, CamelliaStatistics> entry : map.entrySet()) {
+                snapshotMap.put(entry.getKey(), entry.getValue().getSnapshotAndReset());
+            }
+            return snapshotMap;
+        } catch (Exception e) {
+            logger.error("getSnapshotAndReset error", e);
+            return null;
+        }
+    }
+
     public Map<String, CamelliaStatsData> getStatsData() {
         try {
             Map<String, CamelliaStatsData> dataMap = new HashMap<>();